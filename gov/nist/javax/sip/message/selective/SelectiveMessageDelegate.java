@@ -28,9 +28,12 @@ import gov.nist.javax.sip.parser.chars.ParserFactory;
 import gov.nist.javax.sip.parser.selective.SelectiveMessage;
 
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * @author jean.deruelle@gmail.com
@@ -38,56 +41,111 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class SelectiveMessageDelegate implements SelectiveMessage {
 	
-	private Map<String, String> headersNotParsed = new ConcurrentHashMap<String, String>(0);
+	// the headers not parsed, in the order received, a name may appear more than once
+	private Queue<UnparsedHeader> headersNotParsed = new ConcurrentLinkedQueue<UnparsedHeader>();
 	
 	/* (non-Javadoc)
 	 * @see gov.nist.javax.sip.parser.selective.SelectiveMessage#addHeaderNotParsed(java.lang.String, java.lang.String)
 	 */	
 	public void addHeaderNotParsed(String headerName, String header) {
 		if(header.endsWith("\n")) {
-			headersNotParsed.put(headerName.toLowerCase(), header);
+			headersNotParsed.add(new UnparsedHeader(headerName, header));
 		} else {
-			headersNotParsed.put(headerName.toLowerCase(), header + "\n");
+			headersNotParsed.add(new UnparsedHeader(headerName, header + "\n"));
 		}
 	}	
+	
+	/* (non-Javadoc)
+	 * @see gov.nist.javax.sip.parser.selective.SelectiveMessage#addHeaderNotParsed(gov.nist.javax.sip.message.selective.UnparsedHeader)
+	 */
+	public void addHeaderNotParsed(UnparsedHeader header) {
+		headersNotParsed.add(header);
+	}
 		
 	public Iterator<String> getHeaderValuesNotParsed() {
-		return headersNotParsed.values().iterator();
+		List<String> values = new ArrayList<String>(headersNotParsed.size());
+		for (UnparsedHeader header : headersNotParsed) {
+			values.add(header.toString());
+		}
+		return values.iterator();
 	}
 	public Iterator<String> getHeaderNamesNotParsed() {
-		return headersNotParsed.keySet().iterator();
+		List<String> names = new ArrayList<String>(headersNotParsed.size());
+		for (UnparsedHeader header : headersNotParsed) {
+			String name = header.getName();
+			if(!names.contains(name)) {
+				names.add(name);
+			}
+		}
+		return names.iterator();
 	}
 	
-	public Map<String, String> getHeadersNotParsed() {
+	public Collection<UnparsedHeader> getHeadersNotParsed() {
 		return headersNotParsed;
 	}
 	
+	/**
+	 * Parses the first header not parsed with the specified name.
+	 * 
+	 * @param headerName
+	 * @param remove
+	 *            if the header is removed from the headers not parsed
+	 * @return the parsed header, null if there is no such header
+	 */
 	public SIPHeader parseHeader(String headerName, boolean remove) {
-		String header = null;
-		if(remove) {
-			header = headersNotParsed.remove(headerName);
-		} else {
-			header = headersNotParsed.get(headerName);
-		}
+		UnparsedHeader header = getHeaderNotParsed(headerName);
 		if(header != null) {
+			if(remove) {
+				headersNotParsed.remove(header);
+			}
+			final char[] chars = header.getChars();
 			HeaderParser headerParser = null;
 	        try {
-	            headerParser = ParserFactory.createParser(header.toCharArray());
+	            headerParser = ParserFactory.acquireParser(chars, 0, chars.length);
 	            return headerParser.parse();
 	        } catch (ParseException ex) {
 	            throw new IllegalArgumentException("Following header couldn't be parsed " + header + " for header name " + headerName, ex);
+	        } finally {
+	        	if (headerParser != null) {
+	        		ParserFactory.releaseParser(headerParser);
+	        	}
 	        }            
 		}
 		return null;
 	}
 
+	private UnparsedHeader getHeaderNotParsed(String headerName) {
+		for (UnparsedHeader header : headersNotParsed) {
+			if(header.hasName(headerName)) {
+				return header;
+			}
+		}
+		return null;
+	}
+
 	public String getHeaderUnparsed(String headerName) {
-		String header = headersNotParsed.get(headerName);
-		return header;
+		UnparsedHeader header = getHeaderNotParsed(headerName);
+		return header != null ? header.toString() : null;
 	}
 
+	/**
+	 * Removes all headers not parsed with the specified name.
+	 * 
+	 * @param lowerCase
+	 * @return the first header removed, null if there was none
+	 */
 	public String removeHeaderNotParsed(String lowerCase) {
-		return headersNotParsed.remove(lowerCase);
+		String removed = null;
+		for (Iterator<UnparsedHeader> it = headersNotParsed.iterator(); it.hasNext();) {
+			UnparsedHeader header = it.next();
+			if(header.hasName(lowerCase)) {
+				it.remove();
+				if(removed == null) {
+					removed = header.toString();
+				}
+			}
+		}
+		return removed;
 	}
 
 }
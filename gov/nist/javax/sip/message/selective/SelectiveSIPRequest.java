@@ -26,6 +26,7 @@ import gov.nist.core.InternalErrorHandler;
 import gov.nist.javax.sip.header.ContentLength;
 import gov.nist.javax.sip.header.SIPHeader;
 import gov.nist.javax.sip.message.SIPRequest;
+import gov.nist.javax.sip.parser.selective.HeaderNameTable;
 import gov.nist.javax.sip.parser.selective.SelectiveMessage;
 
 import java.io.UnsupportedEncodingException;
@@ -33,9 +34,6 @@ import java.text.ParseException;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.ListIterator;
-import java.util.Map;
-import java.util.Set;
-import java.util.Map.Entry;
 
 import javax.sip.header.Header;
 import javax.sip.header.ViaHeader;
@@ -47,25 +45,29 @@ import javax.sip.header.ViaHeader;
 public class SelectiveSIPRequest extends SIPRequest implements SelectiveMessage {
 	
 	SelectiveMessageDelegate delegate;
-	private static Set<String> headersToParse;		
+	private HeaderNameTable headersToParse;
 
-	public SelectiveSIPRequest(Set<String> headersToParse) {
-		SelectiveSIPRequest.headersToParse = headersToParse;
+	public SelectiveSIPRequest(HeaderNameTable headersToParse) {
+		this.headersToParse = headersToParse;
 		delegate = new SelectiveMessageDelegate();
 	}
 	
 	public void addHeaderNotParsed(String headerName, String header) {
 		delegate.addHeaderNotParsed(headerName, header);
+	}
+
+	public void addHeaderNotParsed(UnparsedHeader header) {
+		delegate.addHeaderNotParsed(header);
 	}			
 	
 	@Override
 	protected Header getHeaderLowerCase(String lowerCaseHeaderName) {
 		if(!headersToParse.contains(lowerCaseHeaderName)) {
-			SIPHeader sipHeader = delegate.parseHeader(lowerCaseHeaderName, true);
+			SIPHeader sipHeader = null;
 			// once the header is parsed we have to add it to the standard list of headers since
 			// the application can keep the ref to it and modify it, the only way to to get
 			// the modifications appear in encode is to add it
-			if(sipHeader != null) {
+			while((sipHeader = delegate.parseHeader(lowerCaseHeaderName, true)) != null) {
 				super.addHeader(sipHeader);
 			}
 		}
@@ -75,11 +77,11 @@ public class SelectiveSIPRequest extends SIPRequest implements SelectiveMessage
 	@Override
 	public SIPHeader getSIPHeaderListLowerCase(String lowerCaseHeaderName) {
 		if(!headersToParse.contains(lowerCaseHeaderName)) {
-			SIPHeader sipHeader = delegate.parseHeader(lowerCaseHeaderName, true);
+			SIPHeader sipHeader = null;
 			// once the header is parsed we have to add it to the standard list of headers since
 			// the application can keep the ref to it and modify it, the only way to to get
 			// the modifications appear in encode is to add it
-			if(sipHeader != null) {
+			while((sipHeader = delegate.parseHeader(lowerCaseHeaderName, true)) != null) {
 				super.addHeader(sipHeader);
 			}
 		}
@@ -333,11 +335,11 @@ public class SelectiveSIPRequest extends SIPRequest implements SelectiveMessage
 
         while (nonParsedHeadersIt.hasNext()) {
             String nonParsedHeaderName = nonParsedHeadersIt.next();
-            SIPHeader sipHeader = delegate.parseHeader(nonParsedHeaderName, true);
+            SIPHeader sipHeader = null;
             // once the header is parsed we have to add it to the standard list of headers since
 			// the application can keep the ref to it and modify it, the only way to to get
 			// the modifications appear in encode is to add it
-            if(sipHeader != null) {
+            while((sipHeader = delegate.parseHeader(nonParsedHeaderName, true)) != null) {
 				super.addHeader(sipHeader);
 			}
         }        		      
@@ -348,11 +350,11 @@ public class SelectiveSIPRequest extends SIPRequest implements SelectiveMessage
 	@Override
 	public ListIterator<SIPHeader> getHeaders(String headerName) {
 		if(!headersToParse.contains(headerName.toLowerCase())) {
-			SIPHeader sipHeader = delegate.parseHeader(headerName.toLowerCase(), true);
+			SIPHeader sipHeader = null;
 			// once the header is parsed we have to add it to the standard list of headers since
 			// the application can keep the ref to it and modify it, the only way to to get
 			// the modifications appear in encode is to add it			
-			if(sipHeader != null) {
+			while((sipHeader = delegate.parseHeader(headerName.toLowerCase(), true)) != null) {
 				super.addHeader(sipHeader);
 			}
 		}
@@ -380,9 +382,9 @@ public class SelectiveSIPRequest extends SIPRequest implements SelectiveMessage
 	public Object clone() {		
 		SelectiveSIPRequest retval = (SelectiveSIPRequest) super.clone();
 		retval.delegate = new SelectiveMessageDelegate();
-		Map<String, String> headersNotParsed = delegate.getHeadersNotParsed();
-		for(Entry<String, String> entry : headersNotParsed.entrySet()) {
-			retval.delegate.addHeaderNotParsed(entry.getKey(), entry.getValue());
+		// unparsed headers are never modified, thus shared by the clone
+		for(UnparsedHeader header : delegate.getHeadersNotParsed()) {
+			retval.delegate.addHeaderNotParsed(header);
 		}
 		return retval;
 	}
@@ -26,6 +26,7 @@ import gov.nist.core.InternalErrorHandler;
 import gov.nist.javax.sip.header.ContentLength;
 import gov.nist.javax.sip.header.SIPHeader;
 import gov.nist.javax.sip.message.SIPResponse;
+import gov.nist.javax.sip.parser.selective.HeaderNameTable;
 import gov.nist.javax.sip.parser.selective.SelectiveMessage;
 
 import java.io.UnsupportedEncodingException;
@@ -35,9 +36,6 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Map;
-import java.util.Set;
-import java.util.Map.Entry;
 
 import javax.sip.header.Header;
 import javax.sip.header.ViaHeader;
@@ -49,25 +47,29 @@ import javax.sip.header.ViaHeader;
 public class SelectiveSIPResponse extends SIPResponse implements SelectiveMessage {
 
 	SelectiveMessageDelegate delegate;
-	private static Set<String> headersToParse;		
-	
-	public SelectiveSIPResponse(Set<String> headersToParse) {
-		SelectiveSIPResponse.headersToParse = headersToParse;
+	private HeaderNameTable headersToParse;
+
+	public SelectiveSIPResponse(HeaderNameTable headersToParse) {
+		this.headersToParse = headersToParse;
 		delegate = new SelectiveMessageDelegate();
 	}
 		
 	public void addHeaderNotParsed(String headerName, String header) {
 		delegate.addHeaderNotParsed(headerName, header);
+	}
+
+	public void addHeaderNotParsed(UnparsedHeader header) {
+		delegate.addHeaderNotParsed(header);
 	}			
 	
 	@Override
 	protected Header getHeaderLowerCase(String lowerCaseHeaderName) {
 		if(!headersToParse.contains(lowerCaseHeaderName)) {
-			SIPHeader sipHeader = delegate.parseHeader(lowerCaseHeaderName, true);
+			SIPHeader sipHeader = null;
 			// once the header is parsed we have to add it to the standard list of headers since
 			// the application can keep the ref to it and modify it, the only way to to get
 			// the modifications appear in encode is to add it
-			if(sipHeader != null) {
+			while((sipHeader = delegate.parseHeader(lowerCaseHeaderName, true)) != null) {
 				super.addHeader(sipHeader);
 			}
 		}
@@ -77,11 +79,11 @@ public class SelectiveSIPResponse extends SIPResponse implements SelectiveMessag
 	@Override
 	public SIPHeader getSIPHeaderListLowerCase(String lowerCaseHeaderName) {
 		if(!headersToParse.contains(lowerCaseHeaderName)) {
-			SIPHeader sipHeader = delegate.parseHeader(lowerCaseHeaderName, true);
+			SIPHeader sipHeader = null;
 			// once the header is parsed we have to add it to the standard list of headers since
 			// the application can keep the ref to it and modify it, the only way to to get
 			// the modifications appear in encode is to add it
-			if(sipHeader != null) {
+			while((sipHeader = delegate.parseHeader(lowerCaseHeaderName, true)) != null) {
 				super.addHeader(sipHeader);
 			}
 		}
@@ -320,11 +322,11 @@ public class SelectiveSIPResponse extends SIPResponse implements SelectiveMessag
 
         while (nonParsedHeadersIt.hasNext()) {
             String nonParsedHeaderName = nonParsedHeadersIt.next();
-            SIPHeader sipHeader = delegate.parseHeader(nonParsedHeaderName, true);
+            SIPHeader sipHeader = null;
             // once the header is parsed we have to add it to the standard list of headers since
 			// the application can keep the ref to it and modify it, the only way to to get
 			// the modifications appear in encode is to add it
-            if(sipHeader != null) {
+            while((sipHeader = delegate.parseHeader(nonParsedHeaderName, true)) != null) {
 				super.addHeader(sipHeader);
 			}
         }        		      
@@ -335,11 +337,11 @@ public class SelectiveSIPResponse extends SIPResponse implements SelectiveMessag
 	@Override
 	public ListIterator<SIPHeader> getHeaders(String headerName) {
 		if(!headersToParse.contains(headerName.toLowerCase())) {
-			SIPHeader sipHeader = delegate.parseHeader(headerName.toLowerCase(), true);
+			SIPHeader sipHeader = null;
 			// once the header is parsed we have to add it to the standard list of headers since
 			// the application can keep the ref to it and modify it, the only way to to get
 			// the modifications appear in encode is to add it			
-			if(sipHeader != null) {
+			while((sipHeader = delegate.parseHeader(headerName.toLowerCase(), true)) != null) {
 				super.addHeader(sipHeader);
 			}
 		}
@@ -367,9 +369,9 @@ public class SelectiveSIPResponse extends SIPResponse implements SelectiveMessag
 	public Object clone() {		
 		SelectiveSIPResponse retval = (SelectiveSIPResponse) super.clone();
 		retval.delegate = new SelectiveMessageDelegate();
-		Map<String, String> headersNotParsed = delegate.getHeadersNotParsed();
-		for(Entry<String, String> entry : headersNotParsed.entrySet()) {
-			retval.delegate.addHeaderNotParsed(entry.getKey(), entry.getValue());
+		// unparsed headers are never modified, thus shared by the clone
+		for(UnparsedHeader header : delegate.getHeadersNotParsed()) {
+			retval.delegate.addHeaderNotParsed(header);
 		}
 		return retval;
 	}
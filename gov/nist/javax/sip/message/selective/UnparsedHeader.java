@@ -0,0 +1,162 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package gov.nist.javax.sip.message.selective;
+
+import gov.nist.javax.sip.parser.chars.CharsMsgParser;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A header of a selective message which was not parsed, kept as the raw bytes
+ * received, until it is accessed. The name is matched against the raw bytes,
+ * and the header is decoded only when its value is needed.
+ * 
+ */
+public class UnparsedHeader {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * the raw header, without the line terminator, null if the header was
+	 * provided as a String
+	 */
+	private final byte[] bytes;
+
+	private final int nameLength;
+
+	private final boolean folded;
+
+	/**
+	 * the decoded header, terminated by '\n', lazily set if provided as bytes
+	 */
+	private volatile String header;
+
+	/**
+	 * the lower case name, lazily set if provided as bytes
+	 */
+	private volatile String name;
+
+	/**
+	 * Creates an unparsed header from the slice of a message buffer, the
+	 * bytes are copied since the buffer may be reused once the message is
+	 * parsed.
+	 * 
+	 * @param msgBuffer
+	 * @param start
+	 *            the position of the header in the buffer
+	 * @param end
+	 *            the position after the last header byte, excluding the line
+	 *            terminator
+	 * @param nameLength
+	 *            the length of the header name, excluding whitespace
+	 * @param folded
+	 *            if the header has continuation lines
+	 */
+	public UnparsedHeader(byte[] msgBuffer, int start, int end, int nameLength,
+			boolean folded) {
+		this.bytes = Arrays.copyOfRange(msgBuffer, start, end);
+		this.nameLength = nameLength;
+		this.folded = folded;
+	}
+
+	/**
+	 * Creates an unparsed header from its name and full text, terminated by
+	 * '\n'.
+	 * 
+	 * @param name
+	 * @param header
+	 */
+	public UnparsedHeader(String name, String header) {
+		this.bytes = null;
+		this.nameLength = name.length();
+		this.folded = false;
+		this.name = name.toLowerCase();
+		this.header = header;
+	}
+
+	/**
+	 * Indicates if the header has the specified name, ignoring case.
+	 * 
+	 * @param headerName
+	 * @return
+	 */
+	public boolean hasName(String headerName) {
+		if (bytes == null) {
+			return name.equalsIgnoreCase(headerName);
+		}
+		if (headerName.length() != nameLength) {
+			return false;
+		}
+		for (int i = 0; i < nameLength; i++) {
+			if (toLowerCase((char) bytes[i]) != toLowerCase(headerName.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static char toLowerCase(char c) {
+		return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+	}
+
+	/**
+	 * 
+	 * @return the header name, in lower case
+	 */
+	public String getName() {
+		String result = name;
+		if (result == null) {
+			result = new String(bytes, 0, nameLength, UTF_8).toLowerCase();
+			name = result;
+		}
+		return result;
+	}
+
+	/**
+	 * 
+	 * @return the header chars, terminated by '\n', as expected by the header
+	 *         parsers
+	 */
+	public char[] getChars() {
+		if (bytes != null && header == null) {
+			// no need to build the String if only parsed
+			return CharsMsgParser.decodeLine(bytes, 0, bytes.length, folded);
+		}
+		return toString().toCharArray();
+	}
+
+	/**
+	 * 
+	 * @return the full header, terminated by '\n'
+	 */
+	@Override
+	public String toString() {
+		String result = header;
+		if (result == null) {
+			result = String.valueOf(CharsMsgParser.decodeLine(bytes, 0,
+					bytes.length, folded));
+			header = result;
+		}
+		return result;
+	}
+}
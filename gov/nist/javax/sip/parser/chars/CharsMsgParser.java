@@ -44,6 +44,7 @@ import gov.nist.javax.sip.parser.MessageParser;
 import gov.nist.javax.sip.parser.ParseExceptionListener;
 
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.text.ParseException;
 import java.util.Arrays;
@@ -130,103 +131,140 @@ public class CharsMsgParser implements MessageParser {
         if (msgBuffer == null || msgBuffer.length == 0)
             return null;
 
-        int i = 0;
+        return parseSIPMessage(msgBuffer, 0, msgBuffer.length, readBody, strict, exhandler);
+    }
 
-        // Squeeze out any leading control character.
-        try {
-            while (msgBuffer[i] < 0x20)
-                i++;
+    /**
+     * Parse the remaining bytes of a buffer containing a single SIP Message,
+     * without copying them if the buffer is backed by an array. The buffer
+     * position is not changed.
+     *
+     * @see #parseSIPMessage(byte[], int, int, boolean, boolean, ParseExceptionListener)
+     */
+    public SIPMessage parseSIPMessage(ByteBuffer msgBuffer, boolean readBody, boolean strict, ParseExceptionListener exhandler) throws ParseException {
+        if (msgBuffer == null || !msgBuffer.hasRemaining())
+            return null;
+
+        if (msgBuffer.hasArray()) {
+            return parseSIPMessage(msgBuffer.array(), msgBuffer.arrayOffset()
+                    + msgBuffer.position(), msgBuffer.remaining(), readBody,
+                    strict, exhandler);
         }
-        catch (ArrayIndexOutOfBoundsException e) {
+        // direct buffer, a single copy is unavoidable
+        byte[] bytes = new byte[msgBuffer.remaining()];
+        msgBuffer.duplicate().get(bytes);
+        return parseSIPMessage(bytes, 0, bytes.length, readBody, strict, exhandler);
+    }
+
+    /**
+     * Parse a slice of a buffer containing a single SIP Message. The buffer is
+     * scanned once, the start and end positions of the first line and each
+     * header are found in place, and only then each one is decoded, straight
+     * to the char[] given to its parser, thus no intermediate line copies are
+     * created.
+     *
+     * @param msgBuffer
+     *            a byte buffer containing the message to be parsed.
+     * @param offset
+     *            the position of the message in the buffer
+     * @param length
+     *            the length of the message
+     * @return a SIPMessage structure (request or response) containing the
+     *         parsed SIP message.
+     * @exception ParseException
+     *                is thrown when an illegal message has been encountered
+     *                (and the rest of the buffer is discarded).
+     */
+    public SIPMessage parseSIPMessage(byte[] msgBuffer, int offset, int length, boolean readBody, boolean strict, ParseExceptionListener exhandler) throws ParseException {
+        if (msgBuffer == null || length == 0)
+            return null;
+
+        final int limit = offset + length;
+        int i = offset;
+
+        // Squeeze out any leading control character.
+        while (i < limit && msgBuffer[i] < 0x20)
+            i++;
+        if (i == limit) {
             // Array contains only control char, return null.
             return null;
         }
 
-        // Iterate thru the request/status line and headers.
-        char[] currentLine = null;
-        char[] currentHeader = null;
+        // Iterate thru the request/status line and headers, the header being
+        // buffered is the slice between headerStart and headerEnd, which
+        // includes its continuation lines, if folded is true.
+        int headerStart = -1;
+        int headerEnd = -1;
+        boolean folded = false;
         boolean isFirstLine = true;
         SIPMessage message = null;
-        do
-        {
-        	currentLine = null;
+        while (true) {
             int lineStart = i;
 
-            // Find the length of the line.
-            try {
-                while (msgBuffer[i] != '\r' && msgBuffer[i] != '\n')
-                    i++;
-            }
-            catch (ArrayIndexOutOfBoundsException e) {
+            // Find the end of the line.
+            while (i < limit && msgBuffer[i] != '\r' && msgBuffer[i] != '\n')
+                i++;
+            if (i == limit) {
                 // End of the message.
                 break;
             }
-            int lineLength = i - lineStart;
-            
-            ByteBuffer bb = ByteBuffer.wrap(msgBuffer, lineStart, lineLength);
-            currentLine = charset.decode(bb).array();
-             
-            currentLine = trimEndOfLine(currentLine);
-
-            if (currentLine.length == 0) {
-                // Last header line, process the previous buffered header.
-                if (currentHeader != null && message != null) {
-                     processHeader(currentHeader, message, exhandler, msgBuffer);
-                 }
 
-            }
-            else {
-                if (isFirstLine) {
-                    message = processFirstLine(currentLine, exhandler, msgBuffer);
-                } else {
-                    char firstChar = currentLine[0];
-                    if (firstChar == '\t' || firstChar == ' ') {
-                        if (currentHeader == null)
-                            throw new ParseException("Bad header continuation.", 0);
-
-                        //This is a continuation, append it to the previous line.
-//                        currentHeader += currentLine.substring(1);
-                        char[] retval = new char[currentHeader.length + currentLine.length - 1];
-                        System.arraycopy(currentHeader, 0, retval, 0, currentHeader.length);
-                        System.arraycopy(currentHeader, currentHeader.length, currentLine, 1, currentLine.length);
-                    }
-                    else {
-                        if (currentHeader != null && message != null) {
-                             processHeader(currentHeader, message, exhandler, msgBuffer);
-                         }
-                        currentHeader = new char[currentLine.length + 1];
-                        System.arraycopy(currentLine, 0, currentHeader, 0, currentLine.length);
-                        currentHeader[currentLine.length] = '\n';
-                    }
-                }
-            }
+            // trim the end of line
+            int lineEnd = i;
+            while (lineEnd > lineStart && msgBuffer[lineEnd - 1] <= 0x20 && msgBuffer[lineEnd - 1] >= 0)
+                lineEnd--;
 
-            if (msgBuffer[i] == '\r' && msgBuffer.length > i+1 && msgBuffer[i+1] == '\n')
+            if (msgBuffer[i] == '\r' && limit > i+1 && msgBuffer[i+1] == '\n')
                 i++;
-
             i++;
 
-            isFirstLine = false;
-        } while (currentLine.length > 0); // End do - while
+            if (lineEnd == lineStart) {
+                // Last header line, process the previous buffered header.
+                if (headerStart != -1 && message != null) {
+                    processHeader(msgBuffer, headerStart, headerEnd, folded, message, exhandler);
+                }
+                break;
+            }
+
+            if (isFirstLine) {
+                message = processFirstLine(msgBuffer, lineStart, lineEnd, exhandler);
+                isFirstLine = false;
+            } else {
+                byte firstByte = msgBuffer[lineStart];
+                if (firstByte == '\t' || firstByte == ' ') {
+                    if (headerStart == -1)
+                        throw new ParseException("Bad header continuation.", 0);
+
+                    //This is a continuation, extend the buffered header.
+                    headerEnd = lineEnd;
+                    folded = true;
+                }
+                else {
+                    if (headerStart != -1 && message != null) {
+                        processHeader(msgBuffer, headerStart, headerEnd, folded, message, exhandler);
+                    }
+                    headerStart = lineStart;
+                    headerEnd = lineEnd;
+                    folded = false;
+                }
+            }
+        }
 
-        currentLine = null;
-        currentHeader = null;
-        
         if (message == null) throw new ParseException("Bad message", 0);
-        message.setSize(i);
+        message.setSize(i - offset);
 
      // Check for content legth header
         if (readBody && message.getContentLength() != null ) {
           if ( message.getContentLength().getContentLength() != 0) {
-        	  int bodyLength = msgBuffer.length - i;
+        	  int bodyLength = limit - i;
 
               byte[] body = new byte[bodyLength];
               System.arraycopy(msgBuffer, i, body, 0, bodyLength);
               message.setMessageContent(body,!strict,computeContentLengthFromMessage,message.getContentLength().getContentLength());
            } else if (!computeContentLengthFromMessage && message.getContentLength().getContentLength() == 0 & strict) {
-        	   String last4Chars = new String(msgBuffer, msgBuffer.length - 4, 4);
+        	   String last4Chars = new String(msgBuffer, limit - 4, 4);
          	   if(!"\r\n\r\n".equals(last4Chars)) {
-                   throw new ParseException("Extraneous characters at the end of the message ",i);
+                   throw new ParseException("Extraneous characters at the end of the message ",i - offset);
                }
            } 
 
@@ -235,6 +273,72 @@ public class CharsMsgParser implements MessageParser {
         return message;
     }
 
+    /**
+     * Decodes a slice of the message buffer, with the first line or a header,
+     * into a char[] terminated by '\n', as expected by the parsers. ASCII
+     * content, the common case, is widened without going through the charset
+     * decoder. If the slice is folded, each line break and the whitespace
+     * around it is replaced by a single space.
+     *
+     * @param msgBuffer
+     * @param start
+     * @param end
+     * @param folded
+     * @return
+     */
+    public static char[] decodeLine(byte[] msgBuffer, int start, int end, boolean folded) {
+        int i = start;
+        while (i < end && msgBuffer[i] >= 0)
+            i++;
+
+        char[] line = null;
+        int length = 0;
+        if (i == end) {
+            line = new char[end - start + 1];
+            for (i = start; i < end; i++) {
+                line[length++] = (char) msgBuffer[i];
+            }
+        }
+        else {
+            CharBuffer chars = charset.decode(ByteBuffer.wrap(msgBuffer, start, end - start));
+            length = chars.remaining();
+            line = new char[length + 1];
+            chars.get(line, 0, length);
+        }
+
+        if (folded) {
+            length = unfold(line, length);
+        }
+        line[length++] = '\n';
+        return length == line.length ? line : Arrays.copyOf(line, length);
+    }
+
+    /**
+     * Replaces, in place, each line break of a folded header, and the
+     * whitespace around it, by a single space.
+     *
+     * @param line
+     * @param length
+     * @return the new length
+     */
+    private static int unfold(char[] line, int length) {
+        int j = 0;
+        for (int k = 0; k < length; k++) {
+            char c = line[k];
+            if (c == '\r' || c == '\n') {
+                while (j > 0 && line[j - 1] <= 0x20)
+                    j--;
+                while (k + 1 < length && line[k + 1] <= 0x20)
+                    k++;
+                line[j++] = ' ';
+            }
+            else {
+                line[j++] = c;
+            }
+        }
+        return j;
+    }
+
     protected static char[] trimEndOfLine(char[] line) {
         if (line == null)
             return line;
@@ -254,26 +358,49 @@ public class CharsMsgParser implements MessageParser {
         return retval;
     }
 
+    /**
+     * Indicates if the specified first line, of a message, is a status line.
+     *
+     * @param firstLine
+     * @return
+     */
+    protected static boolean isStatusLine(char[] firstLine) {
+        if (firstLine.length < SIP_VERSION_CHAR.length)
+            return false;
+        for (int i = 0; i < SIP_VERSION_CHAR.length; i++) {
+            if (firstLine[i] != SIP_VERSION_CHAR[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses the first line of the message, found in the specified slice of
+     * the message buffer.
+     */
+    protected SIPMessage processFirstLine(byte[] msgBuffer, int start, int end, ParseExceptionListener parseExceptionListener) throws ParseException {
+        return processFirstLine(decodeLine(msgBuffer, start, end, false), parseExceptionListener, msgBuffer);
+    }
+
+    /**
+     * Parses the first line of the message.
+     *
+     * @param firstLine
+     *            the first line, terminated by '\n'
+     */
     protected SIPMessage processFirstLine(char[] firstLine, ParseExceptionListener parseExceptionListener, byte[] msgBuffer) throws ParseException {
         SIPMessage message;
         
-        char[] retval = new char[firstLine.length + 1];
-        System.arraycopy(firstLine, 0, retval, 0, firstLine.length);
-        retval[firstLine.length] = '\n';
-        
-        char[] sipVersionCompare = new char[7];
-        System.arraycopy(firstLine, 0, sipVersionCompare, 0, 7);        
-        
-        if (!Arrays.equals(sipVersionCompare, SIP_VERSION_CHAR)) {
+        if (!isStatusLine(firstLine)) {
             message = new SIPRequest();
             try {
-                RequestLine requestLine = new RequestLineParser(retval)
+                RequestLine requestLine = new RequestLineParser(firstLine)
                         .parse();
                 ((SIPRequest) message).setRequestLine(requestLine);
             } catch (ParseException ex) {
                 if (parseExceptionListener != null)
                     parseExceptionListener.handleException(ex, message,
-                            RequestLine.class, String.valueOf(firstLine), String.valueOf(msgBuffer));
+                            RequestLine.class, String.valueOf(firstLine, 0, firstLine.length - 1), String.valueOf(msgBuffer));
                 else
                     throw ex;
 
@@ -281,12 +408,12 @@ public class CharsMsgParser implements MessageParser {
         } else {
             message = new SIPResponse();
             try {
-                StatusLine sl = new StatusLineParser(retval).parse();
+                StatusLine sl = new StatusLineParser(firstLine).parse();
                 ((SIPResponse) message).setStatusLine(sl);
             } catch (ParseException ex) {
                 if (parseExceptionListener != null) {
                     parseExceptionListener.handleException(ex, message,
-                            StatusLine.class, String.valueOf(firstLine), String.valueOf(msgBuffer));
+                            StatusLine.class, String.valueOf(firstLine, 0, firstLine.length - 1), String.valueOf(msgBuffer));
                 } else
                     throw ex;
 
@@ -295,13 +422,23 @@ public class CharsMsgParser implements MessageParser {
         return message;
     }
 
+    /**
+     * Parses the header found in the specified slice of the message buffer.
+     *
+     * @param folded
+     *            true if the header has continuation lines
+     */
+    protected void processHeader(byte[] msgBuffer, int start, int end, boolean folded, SIPMessage message, ParseExceptionListener parseExceptionListener) throws ParseException {
+        processHeader(decodeLine(msgBuffer, start, end, folded), message, parseExceptionListener, msgBuffer);
+    }
+
     protected void processHeader(char[] header, SIPMessage message, ParseExceptionListener parseExceptionListener, byte[] msgBuffer) throws ParseException {
         if (header == null || header.length == 0)
             return;
 
         HeaderParser headerParser = null;
         try {        	        	
-            headerParser = ParserFactory.createParser(header);
+            headerParser = ParserFactory.acquireParser(header, 0, header.length);
         } catch (ParseException ex) {
             parseExceptionListener.handleException(ex, message, null,
             		String.valueOf(header), String.valueOf(msgBuffer));
@@ -323,6 +460,8 @@ public class CharsMsgParser implements MessageParser {
                         headerClass, String.valueOf(header), String.valueOf(msgBuffer));
 
             }
+        } finally {
+            ParserFactory.releaseParser(headerParser);
         }
     }
 
@@ -185,6 +185,16 @@ public class HeaderParser extends Parser {
         this.lexer.selectLexer("command_keywordLexer");
     }
 
+    /**
+     * Resets the parser, and its lexer, to parse the header in the chars of
+     * the buffer from offset to offset + length, as if it was just created.
+     * @see ParserFactory#acquireParser(char[], int, int)
+     */
+    public void reset(char[] header, int offset, int length) {
+        lexer.reset(header, offset, length);
+        lexer.selectLexer("command_keywordLexer");
+    }
+
     /**
      * Parse the SIP header from the buffer and return a parsed
      * structure.
@@ -175,13 +175,10 @@ public class Lexer extends LexerCore {
     	ConcurrentHashMap<String, Integer> lexer = lexerTables.get(lexerName);
         this.currentLexerName = lexerName;
         if (lexer == null) {
+        	// the keywords are added to a private table, which is published
+        	// only when complete, so other threads never see it partially filled
         	ConcurrentHashMap<String, Integer> newLexer  = new ConcurrentHashMap<String, Integer>();
-        	lexer = lexerTables.putIfAbsent(lexerName, newLexer);
-            if (lexer == null) {
-                // put succeeded, use new value
-                lexer = newLexer;                    
-            }
-            currentLexer = lexer;
+            currentLexer = newLexer;
 //          addLexer(lexerName);
             if (lexerName.equals("method_keywordLexer")) {
                 addKeyword(TokenNames.REGISTER, TokenTypes.REGISTER);
@@ -406,6 +403,11 @@ public class Lexer extends LexerCore {
                 addKeyword(TokenNames.SIP.toUpperCase(), TokenTypes.SIP);
                 addKeyword(TokenNames.SIPS.toUpperCase(), TokenTypes.SIPS);
             }
+            lexer = lexerTables.putIfAbsent(lexerName, newLexer);
+            if (lexer != null) {
+                // another thread published first, share its table
+                currentLexer = lexer;
+            }
         } else {
         	currentLexer = lexer;
         }
@@ -164,6 +164,11 @@ public class LexerCore extends StringTokenizer {
         this.currentLexerName = lexerName;
     }
 
+    public void reset(char[] buffer, int offset, int length) {
+        super.reset(buffer, offset, length);
+        this.currentMatch = null;
+    }
+
     /** Peek the next id but dont move the buffer pointer forward.
      */
 
@@ -93,6 +93,7 @@ import gov.nist.javax.sip.parser.ims.ServiceRouteParser;
 
 import java.lang.reflect.Constructor;
 import java.text.ParseException;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -167,6 +168,16 @@ public class ParserFactory {
     private static Class[] constructorArgs;
     private static ConcurrentHashMap<Class, Constructor> parserConstructorCache;
 
+    /**
+     * the parsers of each thread, by parser class, reused by
+     * {@link #acquireParser(char[], int, int)}
+     */
+    private static final ThreadLocal<Map<Class<? extends HeaderParser>, HeaderParser>> threadParsers = new ThreadLocal<Map<Class<? extends HeaderParser>, HeaderParser>>() {
+        protected Map<Class<? extends HeaderParser>, HeaderParser> initialValue() {
+            return new HashMap<Class<? extends HeaderParser>, HeaderParser>();
+        }
+    };
+
     static {
         parserTable = new ConcurrentHashMap<String,Class<? extends HeaderParser>>(90);
         parserConstructorCache = new ConcurrentHashMap<Class, Constructor>();
@@ -405,28 +416,83 @@ public class ParserFactory {
 
         Class parserClass = (Class) parserTable.get(SIPHeaderNamesCache.toLowerCase(headerName));
         if (parserClass != null) {
-            try {
-                Constructor cons = (Constructor) parserConstructorCache.get(parserClass);
-                if (cons == null) {
-                    cons = parserClass.getConstructor(constructorArgs);
-                    parserConstructorCache.putIfAbsent(parserClass, cons);
-                }
-                Object[] args = new Object[1];
-                args[0] = line;
-                HeaderParser retval = (HeaderParser) cons.newInstance(args);
-                return retval;
-
-            } catch (Exception ex) {
-                InternalErrorHandler.handleException(ex);
-                return null; // to placate the compiler.
-            }
-
+            return newParser(parserClass, line);
         } else {
             // Just generate a generic SIPHeader. We define
             // parsers only for the above.
             return new HeaderParser(line);
         }
     }
+
+    /**
+     * Retrieves a parser for the header in the chars of the line from offset
+     * to offset + length. Unlike {@link #createParser(char[])} the parser is
+     * not created for each header, the calling thread's parser for the header
+     * type is reset to the new header, thus it must be given back with
+     * {@link #releaseParser(HeaderParser)} once the header is parsed, and
+     * not used after that.
+     */
+    public static HeaderParser acquireParser(char[] line, int offset, int length)
+        throws ParseException {
+        final int end = offset + length;
+        int colon = -1;
+        for (int i = offset; i < end; i++) {
+            if (line[i] == ':') {
+                colon = i;
+                break;
+            }
+        }
+        if (colon < offset + 1)
+            throw new ParseException("The header name or value is null", 0);
+        String headerName = String.valueOf(line, offset, colon - offset).trim();
+
+        Class<? extends HeaderParser> parserClass = parserTable.get(SIPHeaderNamesCache.toLowerCase(headerName));
+        if (parserClass == null) {
+            // generic SIPHeader parser
+            parserClass = HeaderParser.class;
+        }
+        // removed while in use, so a parse nested in another of the
+        // same header type gets a parser of its own
+        HeaderParser parser = threadParsers.get().remove(parserClass);
+        if (parser == null) {
+            if (parserClass == HeaderParser.class) {
+                parser = new HeaderParser(line);
+            } else {
+                parser = newParser(parserClass, line);
+            }
+        }
+        parser.reset(line, offset, length);
+        return parser;
+    }
+
+    /**
+     * Gives back a parser retrieved with
+     * {@link #acquireParser(char[], int, int)}, to be reused by the calling
+     * thread for the next header of the same type.
+     */
+    public static void releaseParser(HeaderParser parser) {
+        // don't hold the parsed message chars while pooled
+        parser.reset(null, 0, 0);
+        threadParsers.get().put(parser.getClass(), parser);
+    }
+
+    private static HeaderParser newParser(Class parserClass, char[] line) {
+        try {
+            Constructor cons = (Constructor) parserConstructorCache.get(parserClass);
+            if (cons == null) {
+                cons = parserClass.getConstructor(constructorArgs);
+                parserConstructorCache.putIfAbsent(parserClass, cons);
+            }
+            Object[] args = new Object[1];
+            args[0] = line;
+            HeaderParser retval = (HeaderParser) cons.newInstance(args);
+            return retval;
+
+        } catch (Exception ex) {
+            InternalErrorHandler.handleException(ex);
+            return null; // to placate the compiler.
+        }
+    }
 }
 /*
  * $Log: ParserFactory.java,v $
@@ -78,6 +78,17 @@ public class StringTokenizer {
         ptr = 0;
     }
 
+    /**
+     * Re-targets the tokenizer to the chars of the buffer from offset to
+     * offset + length, so it can be reused for another line.
+     */
+    public void reset(char[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        bufferLen = offset + length;
+        ptr = offset;
+        savedPtr = offset;
+    }
+
 //    public String nextToken() {
 //        int startIdx = ptr;
 //        
@@ -157,12 +168,12 @@ public class StringTokenizer {
 
     public char lookAhead(int k) throws ParseException {
         // Debug.out.println("ptr = " + ptr);
-        try {
-            return buffer[ptr + k];
-        }
-        catch (IndexOutOfBoundsException e) {
-            return '\0';
+        // bounded by bufferLen, the buffer may be a slice of a larger array
+        int i = ptr + k;
+        if (i >= 0 && i < bufferLen) {
+            return buffer[i];
         }
+        return '\0';
     }
 
     public char getNextChar() throws ParseException {
@@ -0,0 +1,279 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package gov.nist.javax.sip.parser.selective;
+
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+import javax.sip.header.CSeqHeader;
+import javax.sip.header.CallIdHeader;
+import javax.sip.header.ContactHeader;
+import javax.sip.header.ContentLengthHeader;
+import javax.sip.header.EventHeader;
+import javax.sip.header.FromHeader;
+import javax.sip.header.MaxForwardsHeader;
+import javax.sip.header.RecordRouteHeader;
+import javax.sip.header.RouteHeader;
+import javax.sip.header.SubscriptionStateHeader;
+import javax.sip.header.ToHeader;
+import javax.sip.header.ViaHeader;
+
+/**
+ * An immutable, case insensitive set of header names, compiled into a perfect
+ * hash table, i.e. each name has a slot of its own, thus a lookup hashes the
+ * name and compares it with a single entry. Lookups are done directly on the
+ * chars or bytes of a header name, without creating a String for it.
+ * 
+ * <p>
+ * Used by the selective parsers to decide which headers are parsed.
+ * 
+ */
+public class HeaderNameTable {
+
+	/**
+	 * the stack property with the comma separated names of the headers to
+	 * parse
+	 */
+	public static final String HEADERS_TO_PARSE = "gov.nist.java.sip.selective.parser.HEADERS_TO_PARSE";
+
+	private static final int FNV_PRIME = 0x01000193;
+
+	/**
+	 * the number of seeds tried for a table capacity, before doubling it
+	 */
+	private static final int SEEDS_PER_CAPACITY = 64;
+
+	private static final int MAX_CAPACITY = 1 << 16;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * the lower case name in each slot, null if the slot is empty
+	 */
+	private final char[][] slots;
+
+	private final int mask;
+
+	private final int seed;
+
+	private final Set<String> names;
+
+	/**
+	 * Compiles the table with the specified header names.
+	 * 
+	 * @param headerNames
+	 * @throws IllegalArgumentException
+	 *             if no perfect hash is found for the names, which is not
+	 *             expected for any real set of header names
+	 */
+	public HeaderNameTable(Collection<String> headerNames) {
+		names = new LinkedHashSet<String>();
+		for (String headerName : headerNames) {
+			names.add(headerName.trim().toLowerCase());
+		}
+		char[][] slots = null;
+		int capacity = 1;
+		while (capacity < names.size() * 2) {
+			capacity <<= 1;
+		}
+		int seed = 0;
+		search: for (; capacity <= MAX_CAPACITY; capacity <<= 1) {
+			for (seed = 1; seed <= SEEDS_PER_CAPACITY; seed++) {
+				slots = place(names, seed, capacity);
+				if (slots != null) {
+					break search;
+				}
+			}
+		}
+		if (slots == null) {
+			throw new IllegalArgumentException(
+					"unable to build a perfect hash for header names " + names);
+		}
+		this.slots = slots;
+		this.mask = slots.length - 1;
+		this.seed = seed;
+	}
+
+	/**
+	 * Places each name in the slot given by its hash, with the specified seed.
+	 * 
+	 * @return the slots, or null if two names collide
+	 */
+	private static char[][] place(Set<String> names, int seed, int capacity) {
+		final char[][] slots = new char[capacity][];
+		for (String name : names) {
+			final int slot = hash(seed, name) & (capacity - 1);
+			if (slots[slot] != null) {
+				return null;
+			}
+			slots[slot] = name.toCharArray();
+		}
+		return slots;
+	}
+
+	/**
+	 * Retrieves the headers to parse configured in the stack properties, or
+	 * the headers needed by the stack itself, if none is configured.
+	 * 
+	 * @param configurationProperties
+	 *            the stack properties, may be null
+	 * @return
+	 */
+	public static HeaderNameTable getHeadersToParse(
+			Properties configurationProperties) {
+		final Set<String> headersToParse = new LinkedHashSet<String>();
+		String headersToParseString = null;
+		if (configurationProperties != null) {
+			headersToParseString = configurationProperties
+					.getProperty(HEADERS_TO_PARSE);
+		}
+		if (headersToParseString != null) {
+			StringTokenizer stringTokenizer = new StringTokenizer(
+					headersToParseString, ",");
+			while (stringTokenizer.hasMoreTokens()) {
+				headersToParse.add(stringTokenizer.nextToken());
+			}
+		} else {
+			headersToParse.add(FromHeader.NAME);
+			headersToParse.add(ToHeader.NAME);
+			headersToParse.add(CSeqHeader.NAME);
+			headersToParse.add(CallIdHeader.NAME);
+			headersToParse.add(MaxForwardsHeader.NAME);
+			headersToParse.add(ViaHeader.NAME);
+			headersToParse.add(ContactHeader.NAME);
+			headersToParse.add(RecordRouteHeader.NAME);
+			headersToParse.add(RouteHeader.NAME);
+			headersToParse.add(ContentLengthHeader.NAME);
+			headersToParse.add(SubscriptionStateHeader.NAME);
+			headersToParse.add(EventHeader.NAME);
+		}
+		return new HeaderNameTable(headersToParse);
+	}
+
+	/**
+	 * Indicates if the table contains the header name, ignoring case.
+	 * 
+	 * @param headerName
+	 * @return
+	 */
+	public boolean contains(String headerName) {
+		final char[] entry = slots[hash(seed, headerName) & mask];
+		if (entry == null || entry.length != headerName.length()) {
+			return false;
+		}
+		for (int i = 0; i < entry.length; i++) {
+			if (entry[i] != toLowerCase(headerName.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Indicates if the table contains the header name in the chars from
+	 * offset to offset + length, ignoring case.
+	 * 
+	 * @param chars
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public boolean contains(char[] chars, int offset, int length) {
+		int h = seed;
+		for (int i = offset; i < offset + length; i++) {
+			h = (h ^ toLowerCase(chars[i])) * FNV_PRIME;
+		}
+		final char[] entry = slots[(h ^ (h >>> 16)) & mask];
+		if (entry == null || entry.length != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (entry[i] != toLowerCase(chars[offset + i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Indicates if the table contains the header name in the bytes from
+	 * offset to offset + length, ignoring case.
+	 * 
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public boolean contains(byte[] bytes, int offset, int length) {
+		int h = seed;
+		for (int i = offset; i < offset + length; i++) {
+			final byte b = bytes[i];
+			if (b < 0) {
+				// not ASCII, not expected in a header name
+				return contains(new String(bytes, offset, length, UTF_8));
+			}
+			h = (h ^ toLowerCase((char) b)) * FNV_PRIME;
+		}
+		final char[] entry = slots[(h ^ (h >>> 16)) & mask];
+		if (entry == null || entry.length != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (entry[i] != toLowerCase((char) bytes[offset + i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int hash(int seed, String name) {
+		int h = seed;
+		for (int i = 0; i < name.length(); i++) {
+			h = (h ^ toLowerCase(name.charAt(i))) * FNV_PRIME;
+		}
+		return h ^ (h >>> 16);
+	}
+
+	private static char toLowerCase(char c) {
+		if (c < 128) {
+			return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+		}
+		return Character.toLowerCase(c);
+	}
+
+	/**
+	 * 
+	 * @return the number of header names in the table
+	 */
+	public int size() {
+		return names.size();
+	}
+
+	@Override
+	public String toString() {
+		return names.toString();
+	}
+}
@@ -23,7 +23,6 @@
 package gov.nist.javax.sip.parser.selective;
 
 import gov.nist.core.StackLogger;
-import gov.nist.javax.sip.SIPConstants;
 import gov.nist.javax.sip.header.RequestLine;
 import gov.nist.javax.sip.header.StatusLine;
 import gov.nist.javax.sip.message.SIPMessage;
@@ -31,32 +30,16 @@ import gov.nist.javax.sip.message.SIPRequest;
 import gov.nist.javax.sip.message.SIPResponse;
 import gov.nist.javax.sip.message.selective.SelectiveSIPRequest;
 import gov.nist.javax.sip.message.selective.SelectiveSIPResponse;
+import gov.nist.javax.sip.message.selective.UnparsedHeader;
 import gov.nist.javax.sip.parser.ParseExceptionListener;
 import gov.nist.javax.sip.parser.chars.CharsMsgParser;
-import gov.nist.javax.sip.parser.chars.Lexer;
 import gov.nist.javax.sip.parser.chars.RequestLineParser;
 import gov.nist.javax.sip.parser.chars.StatusLineParser;
 import gov.nist.javax.sip.stack.SIPTransactionStack;
 
 import java.io.UnsupportedEncodingException;
 import java.text.ParseException;
-import java.util.HashSet;
 import java.util.Properties;
-import java.util.Set;
-import java.util.StringTokenizer;
-
-import javax.sip.header.CSeqHeader;
-import javax.sip.header.CallIdHeader;
-import javax.sip.header.ContactHeader;
-import javax.sip.header.ContentLengthHeader;
-import javax.sip.header.EventHeader;
-import javax.sip.header.FromHeader;
-import javax.sip.header.MaxForwardsHeader;
-import javax.sip.header.RecordRouteHeader;
-import javax.sip.header.RouteHeader;
-import javax.sip.header.SubscriptionStateHeader;
-import javax.sip.header.ToHeader;
-import javax.sip.header.ViaHeader;
 
 /**
  * @author jean.deruelle@gmail.com
@@ -64,68 +47,54 @@ import javax.sip.header.ViaHeader;
  */
 public class SelectiveCharParser extends CharsMsgParser {
 
-	private static final String HEADERS_TO_PARSE = "gov.nist.java.sip.selective.parser.HEADERS_TO_PARSE"; 
-	private static Set<String> headersToParse = new HashSet<String>();		
+	private final HeaderNameTable headersToParse;
 	
 	StackLogger logger;
 	
 	public SelectiveCharParser(SIPTransactionStack stack, Properties configurationProperties) {
+		this(stack, HeaderNameTable.getHeadersToParse(configurationProperties));
+	}
+
+	/**
+	 * Creates a parser which parses only the specified headers, the table is
+	 * compiled once for a stack and shared by its parsers.
+	 * 
+	 * @param stack
+	 * @param headersToParse
+	 */
+	public SelectiveCharParser(SIPTransactionStack stack, HeaderNameTable headersToParse) {
 		logger = stack.getStackLogger();
-		if(headersToParse.size() < 1) {
-			boolean headersToParseFound = false;		
-			if(configurationProperties != null) {
-				String headersToParseString = configurationProperties.getProperty(HEADERS_TO_PARSE);
-				if(headersToParseString != null) {
-					headersToParse.clear();
-					StringTokenizer stringTokenizer = new StringTokenizer(headersToParseString, ",");
-					while (stringTokenizer.hasMoreTokens()) {
-						String headerToParse = stringTokenizer.nextToken();
-						headersToParse.add(headerToParse.trim().toLowerCase());					
-					}
-					headersToParseFound = true;
-				}
-			} 
-			if(!headersToParseFound) {
-				headersToParse.add(FromHeader.NAME.toLowerCase());
-				headersToParse.add(ToHeader.NAME.toLowerCase());
-				headersToParse.add(CSeqHeader.NAME.toLowerCase());
-				headersToParse.add(CallIdHeader.NAME.toLowerCase());
-				headersToParse.add(MaxForwardsHeader.NAME.toLowerCase());
-				headersToParse.add(ViaHeader.NAME.toLowerCase());
-				headersToParse.add(ContactHeader.NAME.toLowerCase());
-				headersToParse.add(RecordRouteHeader.NAME.toLowerCase());
-				headersToParse.add(RouteHeader.NAME.toLowerCase());
-				headersToParse.add(ContentLengthHeader.NAME.toLowerCase());
-				headersToParse.add(SubscriptionStateHeader.NAME.toLowerCase());
-				headersToParse.add(EventHeader.NAME.toLowerCase());
-			}
-			if(logger.isLoggingEnabled()) {
-				logger.logDebug("Headers to parse : ");
-				for (String headerToParse : headersToParse) {
-					logger.logDebug(headerToParse);
-				}
-			}
-		}		
+		this.headersToParse = headersToParse;
+		if(logger.isLoggingEnabled()) {
+			logger.logDebug("Headers to parse : " + headersToParse);
+		}
 	}
 
-	
 	@Override
 	public SIPMessage parseSIPMessage(byte[] msgBuffer, boolean readBody, boolean strict, ParseExceptionListener parseExceptionListener) throws ParseException {	
 		return super.parseSIPMessage(msgBuffer, readBody, strict, parseExceptionListener);
 	}
 	
 	@Override
-	protected void processHeader(char[] header, SIPMessage message, ParseExceptionListener parseExceptionListener, byte[] msgBuffer)
+	protected void processHeader(byte[] msgBuffer, int start, int end, boolean folded, SIPMessage message, ParseExceptionListener parseExceptionListener)
 			throws ParseException {
-		String headerName = Lexer.getHeaderName(header);        
-        if (headerName == null)
+		int colon = start;
+		while (colon < end && msgBuffer[colon] != ':') {
+			colon++;
+		}
+		int nameEnd = colon;
+		while (nameEnd > start && (msgBuffer[nameEnd - 1] == ' ' || msgBuffer[nameEnd - 1] == '\t')) {
+			nameEnd--;
+		}
+		if (colon == end || colon == start)
             throw new ParseException("The header name or value is null", 0);
         
-		// logic to process headers only if they are present in the list of headers to parse from a given stack property
-		if(headersToParse.contains(headerName.toLowerCase())) {
-			super.processHeader(header, message, parseExceptionListener, msgBuffer);
+		// logic to process headers only if they are present in the list of headers to parse from a given stack property,
+		// matched on the name bytes, the others are kept as received
+		if(headersToParse.contains(msgBuffer, start, nameEnd - start)) {
+			super.processHeader(msgBuffer, start, end, folded, message, parseExceptionListener);
 		} else {
-			((SelectiveMessage) message).addHeaderNotParsed(headerName, new String(header));
+			((SelectiveMessage) message).addHeaderNotParsed(new UnparsedHeader(msgBuffer, start, end, nameEnd - start, folded));
 		}
 	}
 	
@@ -137,11 +106,10 @@ public class SelectiveCharParser extends CharsMsgParser {
 	
 	protected SIPMessage reprocessFirstLine(char[] firstLine, SIPMessage sipMessage, ParseExceptionListener parseExceptionListener, byte[] msgBuffer) throws ParseException {
 		SIPMessage message = sipMessage;
-		char[] retval = new char[firstLine.length + 1];
-        System.arraycopy(firstLine, 0, retval, 0, firstLine.length);
-        retval[firstLine.length] = '\n';
+		// the first line is already terminated by '\n'
+		char[] retval = firstLine;
         
-        if (!new String(firstLine).startsWith(SIPConstants.SIP_VERSION_STRING)) {
+        if (!isStatusLine(firstLine)) {
         	if(message == null) {
         		message = new SelectiveSIPRequest(headersToParse);
         	}
@@ -22,6 +22,7 @@
 
 package gov.nist.javax.sip.parser.selective;
 
+import gov.nist.javax.sip.message.selective.UnparsedHeader;
 
 /**
  * @author jean.deruelle@gmail.com
@@ -30,4 +31,11 @@ package gov.nist.javax.sip.parser.selective;
 public interface SelectiveMessage {
 
 	void addHeaderNotParsed(String headerName, String header);
+
+	/**
+	 * Adds a header which was not parsed, kept as received until accessed.
+	 * 
+	 * @param header
+	 */
+	void addHeaderNotParsed(UnparsedHeader header);
 }
@@ -40,23 +40,7 @@ import gov.nist.javax.sip.stack.SIPTransactionStack;
 
 import java.io.UnsupportedEncodingException;
 import java.text.ParseException;
-import java.util.HashSet;
 import java.util.Properties;
-import java.util.Set;
-import java.util.StringTokenizer;
-
-import javax.sip.header.CSeqHeader;
-import javax.sip.header.CallIdHeader;
-import javax.sip.header.ContactHeader;
-import javax.sip.header.ContentLengthHeader;
-import javax.sip.header.EventHeader;
-import javax.sip.header.FromHeader;
-import javax.sip.header.MaxForwardsHeader;
-import javax.sip.header.RecordRouteHeader;
-import javax.sip.header.RouteHeader;
-import javax.sip.header.SubscriptionStateHeader;
-import javax.sip.header.ToHeader;
-import javax.sip.header.ViaHeader;
 
 /**
  * @author jean.deruelle@gmail.com
@@ -64,51 +48,29 @@ import javax.sip.header.ViaHeader;
  */
 public class SelectiveParser extends StringMsgParser {
 
-	private static final String HEADERS_TO_PARSE = "gov.nist.java.sip.selective.parser.HEADERS_TO_PARSE"; 
-	private static Set<String> headersToParse = new HashSet<String>();		
+	private final HeaderNameTable headersToParse;
 	
 	StackLogger logger;
 	
 	public SelectiveParser(SIPTransactionStack stack, Properties configurationProperties) {
+		this(stack, HeaderNameTable.getHeadersToParse(configurationProperties));
+	}
+
+	/**
+	 * Creates a parser which parses only the specified headers, the table is
+	 * compiled once for a stack and shared by its parsers.
+	 * 
+	 * @param stack
+	 * @param headersToParse
+	 */
+	public SelectiveParser(SIPTransactionStack stack, HeaderNameTable headersToParse) {
 		logger = stack.getStackLogger();
-		if(headersToParse.size() < 1) {
-			boolean headersToParseFound = false;		
-			if(configurationProperties != null) {
-				String headersToParseString = configurationProperties.getProperty(HEADERS_TO_PARSE);
-				if(headersToParseString != null) {
-					headersToParse.clear();
-					StringTokenizer stringTokenizer = new StringTokenizer(headersToParseString, ",");
-					while (stringTokenizer.hasMoreTokens()) {
-						String headerToParse = stringTokenizer.nextToken();
-						headersToParse.add(headerToParse.trim().toLowerCase());					
-					}
-					headersToParseFound = true;
-				}
-			} 
-			if(!headersToParseFound) {
-				headersToParse.add(FromHeader.NAME.toLowerCase());
-				headersToParse.add(ToHeader.NAME.toLowerCase());
-				headersToParse.add(CSeqHeader.NAME.toLowerCase());
-				headersToParse.add(CallIdHeader.NAME.toLowerCase());
-				headersToParse.add(MaxForwardsHeader.NAME.toLowerCase());
-				headersToParse.add(ViaHeader.NAME.toLowerCase());
-				headersToParse.add(ContactHeader.NAME.toLowerCase());
-				headersToParse.add(RecordRouteHeader.NAME.toLowerCase());
-				headersToParse.add(RouteHeader.NAME.toLowerCase());
-				headersToParse.add(ContentLengthHeader.NAME.toLowerCase());
-				headersToParse.add(SubscriptionStateHeader.NAME.toLowerCase());
-				headersToParse.add(EventHeader.NAME.toLowerCase());
-			}
-			if(logger.isLoggingEnabled()) {
-				logger.logDebug("Headers to parse : ");
-				for (String headerToParse : headersToParse) {
-					logger.logDebug(headerToParse);
-				}
-			}
-		}		
+		this.headersToParse = headersToParse;
+		if(logger.isLoggingEnabled()) {
+			logger.logDebug("Headers to parse : " + headersToParse);
+		}
 	}
 
-	
 	@Override
 	public SIPMessage parseSIPMessage(byte[] msgBuffer, boolean readBody, boolean strict, ParseExceptionListener parseExceptionListener) throws ParseException {	
 		return super.parseSIPMessage(msgBuffer, readBody, strict, parseExceptionListener);
@@ -122,7 +84,7 @@ public class SelectiveParser extends StringMsgParser {
             throw new ParseException("The header name or value is null", 0);
         
 		// logic to process headers only if they are present in the list of headers to parse from a given stack property
-		if(headersToParse.contains(headerName.toLowerCase())) {
+		if(headersToParse.contains(headerName)) {
 			super.processHeader(header, message, parseExceptionListener, msgBuffer);
 		} else {
 			((SelectiveMessage) message).addHeaderNotParsed(headerName, header);
@@ -38,11 +38,19 @@ public class SelectiveParserFactory implements MessageParserFactory {
 
 	private Properties configurationProperties;
 	
+	// compiled from the configuration properties on first use, shared by the parsers of the stack
+	private volatile HeaderNameTable headersToParse;
+	
 	/* (non-Javadoc)
 	 * @see gov.nist.javax.sip.parser.MessageParserFactory#createMessageParser(gov.nist.javax.sip.stack.SIPTransactionStack)
 	 */
 	public MessageParser createMessageParser(SIPTransactionStack stack) {		
-		return new SelectiveParser(stack, configurationProperties);
+		HeaderNameTable headersToParse = this.headersToParse;
+		if(headersToParse == null) {
+			headersToParse = HeaderNameTable.getHeadersToParse(configurationProperties);
+			this.headersToParse = headersToParse;
+		}
+		return new SelectiveParser(stack, headersToParse);
 	}
 
 	/**
@@ -50,6 +58,7 @@ public class SelectiveParserFactory implements MessageParserFactory {
 	 */
 	public void setConfigurationProperties(Properties configurationProperties) {
 		this.configurationProperties = configurationProperties;
+		this.headersToParse = null;
 	}
 
 	/**
@@ -34,10 +34,12 @@ import gov.nist.javax.sip.parser.EventParser;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.sip.DialogState;
@@ -96,6 +98,10 @@ public abstract class AbstractHASipDialog extends SIPDialog implements HASipDial
 	boolean isCreated = false;
 	private AtomicLong version = new AtomicLong(0);
 	private String lastResponseStringified = null;
+	// the meta data as last replicated, used to compute the delta when dialog delta replication is enabled
+	private transient Map<String,Object> replicatedMetaData = null;
+	// the meta data of the replication in progress, becomes the replicated meta data once the cache committed it
+	private transient Map<String,Object> pendingMetaData = null;
 	
 	static {		
 		try {
@@ -273,10 +279,71 @@ public abstract class AbstractHASipDialog extends SIPDialog implements HASipDial
 		if (logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
 			logger.logDebug(getDialogIdToReplicate() + " : localCSeq " + getLocalSeqNumber());
 		}
-		
+		if(((ClusteredSipStack)getStack()).isDialogDeltaReplication()) {
+			return getMetaDataDelta(dialogMetaData);
+		}
 		return dialogMetaData;
 	}
 
+	/**
+	 * Removes from the meta data to replicate the entries whose value didn't change since the last replication,
+	 * the version is always kept so that other nodes can tell whether their copy of the dialog is stale.
+	 * The replicated meta data is only updated once the cache commits, see {@link #commitMetaDataDelta()} 
+	 * @param dialogMetaData the meta data to replicate
+	 * @return the meta data that changed since the last replication
+	 */
+	private synchronized Map<String,Object> getMetaDataDelta(Map<String,Object> dialogMetaData) {
+		final boolean replicationPending = pendingMetaData != null;
+		pendingMetaData = new HashMap<String, Object>(dialogMetaData);
+		if(replicatedMetaData == null || replicationPending) {
+			// nothing replicated yet from this node, or a previous replication didn't complete yet 
+			// and it is unknown what the cache will hold, all the meta data is replicated
+			return dialogMetaData;
+		}
+		final Iterator<Entry<String,Object>> it = dialogMetaData.entrySet().iterator();
+		while (it.hasNext()) {
+			final Entry<String,Object> metaData = it.next();
+			final String key = metaData.getKey();
+			if(VERSION.equals(key)) {
+				continue;
+			}
+			if(replicatedMetaData.containsKey(key) && metaDataEquals(replicatedMetaData.get(key), metaData.getValue())) {
+				it.remove();
+			}
+		}
+		if (logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
+			logger.logDebug(getDialogIdToReplicate() + " : replicating delta " + dialogMetaData.keySet());
+		}
+		return dialogMetaData;
+	}
+	
+	private static boolean metaDataEquals(Object replicated, Object current) {
+		if(replicated instanceof Object[] && current instanceof Object[]) {
+			return Arrays.equals((Object[]) replicated, (Object[]) current);
+		}
+		return replicated == null ? current == null : replicated.equals(current);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.ha.javax.sip.HASipDialog#resetMetaDataDelta()
+	 */
+	public synchronized void resetMetaDataDelta() {
+		replicatedMetaData = null;
+		pendingMetaData = null;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.ha.javax.sip.HASipDialog#commitMetaDataDelta()
+	 */
+	public synchronized void commitMetaDataDelta() {
+		if(pendingMetaData != null) {
+			replicatedMetaData = pendingMetaData;
+			pendingMetaData = null;
+		}
+	}
+
 	public Object getApplicationDataToReplicate() {
 		return getApplicationData();
 	}
@@ -305,6 +372,13 @@ public abstract class AbstractHASipDialog extends SIPDialog implements HASipDial
 			}
 		}
 		version = new AtomicLong((Long)metaData.get(VERSION));
+		if(((ClusteredSipStack)getStack()).isDialogDeltaReplication()) {
+			// the cache now holds this meta data, next replications only need to ship what changes from it
+			synchronized (this) {
+				replicatedMetaData = new HashMap<String, Object>(metaData);
+				pendingMetaData = null;
+			}
+		}
 		if (logger.isLoggingEnabled(StackLogger.TRACE_DEBUG)) {
 			logger.logDebug(getDialogIdToReplicate() + " : version " + version);
 		}
@@ -92,6 +92,8 @@ public class DefaultMobicentsCluster implements MobicentsCluster {
 	private List<Address> currentView;
 	
 	private boolean started;
+
+	private boolean localStore;
 	
 	@SuppressWarnings("unchecked")
 	public DefaultMobicentsCluster(MobicentsCache watchedCache, TransactionManager txMgr, ClusterElector elector) {
@@ -586,6 +588,24 @@ public class DefaultMobicentsCluster implements MobicentsCluster {
 		return clusteredCacheDataIndexingHandler;
 	}
 	
+	/**
+	 * Enables or disables the local memory store, used instead of the cache
+	 * for data which doesn't need to be replicated, if the cache is in local
+	 * mode.
+	 * 
+	 * @param localStore
+	 */
+	public void setLocalStore(boolean localStore) {
+		this.localStore = localStore;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.mobicents.cluster.MobicentsCluster#isLocalStore()
+	 */
+	public boolean isLocalStore() {
+		return localStore && mobicentsCache.isLocalMode();
+	}
+
 	@Override
 	public void startCluster() {
 		synchronized (this) {
@@ -593,6 +613,9 @@ public class DefaultMobicentsCluster implements MobicentsCluster {
 				throw new IllegalStateException("cluster already started");
 			}
 			mobicentsCache.startCache();
+			if (localStore && !mobicentsCache.isLocalMode()) {
+				logger.warn("Local store enabled but the cache is not in local mode, the local store will not be used.");
+			}
 			final Cache<?,?> cache = mobicentsCache.getJBossCache();
 			if (!cache.getConfiguration().getCacheMode().equals(CacheMode.LOCAL)) {
 				// get current cluster members
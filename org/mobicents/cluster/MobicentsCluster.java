@@ -104,6 +104,15 @@ public interface MobicentsCluster {
 	 */
 	public ClusteredCacheDataIndexingHandler getClusteredCacheDataIndexingHandler();
 
+	/**
+	 * Indicates if data which doesn't need to be replicated may be stored in
+	 * local memory, bypassing the cache. Only true if the cache is in local
+	 * mode and the local store was enabled.
+	 * 
+	 * @return
+	 */
+	public boolean isLocalStore();
+
 	/**
 	 * Starts the cluster. This should only be invoked when all listeners are
 	 * added, and when all classes needed to deserialize data in a running
@@ -0,0 +1,480 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.mobicents.ext.javax.sip.dns;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.xbill.DNS.Lookup;
+import org.xbill.DNS.NAPTRRecord;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Resolver;
+import org.xbill.DNS.SRVRecord;
+import org.xbill.DNS.TextParseException;
+import org.xbill.DNS.Type;
+
+/**
+ * {@link DNSLookupPerformer} keeping the records found in a cache for as long as their TTL allows,
+ * so that the routing of outgoing requests doesn't wait on the DNS for every request.
+ * 
+ * <ul>
+ * <li>names that don't exist, or have no record of the type looked up, are cached for the negative TTL</li>
+ * <li>records used after the refresh ahead factor of their TTL elapsed are refreshed in the background before they expire</li>
+ * <li>concurrent lookups of the same name and type are coalesced in a single query</li>
+ * <li>the SRV records pointed by NAPTR records and the addresses of SRV targets are prefetched in the background</li>
+ * <li>when more than the max entries are cached, the least recently used ones are evicted</li>
+ * </ul>
+ * 
+ * A cache miss stays synchronous, the thread that misses performs the DNS query and waits on it as long as the 
+ * {@link Resolver} timeout allows. Threads missing the same records meanwhile wait at most the lookup timeout for 
+ * that query, and then use the expired records still cached if any, or no records.
+ * Transient failures, such as a timeout of the DNS server, are not cached. 
+ * A specific {@link Resolver} can be set, by example a stub resolver pointing to a local DNS server.
+ *
+ */
+public class CachingDNSLookupPerformer extends DefaultDNSLookupPerformer {
+	private static final Logger logger = Logger.getLogger(CachingDNSLookupPerformer.class);
+
+	public static final long DEFAULT_NEGATIVE_TTL = 30;
+	public static final long DEFAULT_MAX_TTL = 3600;
+	public static final float DEFAULT_REFRESH_AHEAD_FACTOR = 0.75f;
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	public static final int DEFAULT_REFRESH_THREADS = 2;
+	public static final long DEFAULT_LOOKUP_TIMEOUT = 2000;
+	private static final int REFRESH_QUEUE_SIZE = 1000;
+
+	// access ordered, guarded by itself
+	private final LruCache cache = new LruCache();
+	private final ConcurrentHashMap<String, FutureTask<CacheEntry>> pendingLookups = new ConcurrentHashMap<String, FutureTask<CacheEntry>>();
+	private final ThreadPoolExecutor refreshExecutor;
+
+	private volatile Resolver resolver;
+	private volatile long negativeTtl = DEFAULT_NEGATIVE_TTL;
+	private volatile long maxTtl = DEFAULT_MAX_TTL;
+	private volatile float refreshAheadFactor = DEFAULT_REFRESH_AHEAD_FACTOR;
+	private volatile int maxEntries = DEFAULT_MAX_ENTRIES;
+	private volatile long lookupTimeout = DEFAULT_LOOKUP_TIMEOUT;
+	private volatile boolean prefetch = true;
+
+	public CachingDNSLookupPerformer() {
+		this(DEFAULT_REFRESH_THREADS);
+	}
+
+	public CachingDNSLookupPerformer(int refreshThreads) {
+		refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS, 
+				new LinkedBlockingQueue<Runnable>(REFRESH_QUEUE_SIZE), new RefreshThreadFactory());
+		refreshExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.mobicents.ext.javax.sip.dns.DefaultDNSLookupPerformer#performNAPTRLookup(java.lang.String, boolean, java.util.Set)
+	 */
+	@Override
+	public List<NAPTRRecord> performNAPTRLookup(String domain, boolean isSecure, Set<String> supportedTransports) {
+		final List<NAPTRRecord> records = super.performNAPTRLookup(domain, isSecure, supportedTransports);
+		if(prefetch) {
+			for (NAPTRRecord naptrRecord : records) {
+				final String flags = naptrRecord.getFlags();
+				if("s".equalsIgnoreCase(flags)) {
+					prefetch(naptrRecord.getReplacement().toString(), Type.SRV);
+				} else if("a".equalsIgnoreCase(flags)) {
+					prefetch(naptrRecord.getReplacement().toString(), Type.A);
+					prefetch(naptrRecord.getReplacement().toString(), Type.AAAA);
+				}
+			}
+		}
+		return records;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.mobicents.ext.javax.sip.dns.DefaultDNSLookupPerformer#performSRVLookup(java.lang.String)
+	 */
+	@Override
+	public List<Record> performSRVLookup(String replacement) {
+		final List<Record> records = super.performSRVLookup(replacement);
+		if(prefetch) {
+			for (Record record : records) {
+				final String target = ((SRVRecord) record).getTarget().toString();
+				prefetch(target, Type.A);
+				prefetch(target, Type.AAAA);
+			}
+		}
+		return records;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.mobicents.ext.javax.sip.dns.DefaultDNSLookupPerformer#lookup(java.lang.String, int)
+	 */
+	@Override
+	protected Record[] lookup(String name, int type) throws TextParseException {
+		final String key = getKey(name, type);
+		final CacheEntry entry = getEntry(key);
+		final long now = currentTimeMillis();
+		if(entry != null && now < entry.expirationTime) {
+			if(now >= entry.refreshTime) {
+				refresh(key, name, type, entry);
+			}
+			if(logger.isDebugEnabled()) {
+				logger.debug("cache hit for " + Type.string(type) + " lookup of " + name);
+			}
+			return copy(entry.records);
+		}
+		return copy(coalescedLookup(key, name, type).records);
+	}
+
+	/**
+	 * Looks up the records of the given type for the given name in the background if they are not cached yet 
+	 * @param name the name to resolve
+	 * @param type the type of records to look up, see {@link Type}
+	 */
+	public void prefetch(String name, int type) {
+		final String key = getKey(name, type);
+		final CacheEntry entry = getEntry(key);
+		if(entry == null || currentTimeMillis() >= entry.refreshTime) {
+			refresh(key, name, type, entry);
+		}
+	}
+
+	/**
+	 * Retrieves the current time against which the TTL of the cached records is checked, 
+	 * can be overridden to control the expiration of the records, by example in tests 
+	 * @return the current time in milliseconds
+	 */
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Removes all the records from the cache
+	 */
+	public void clearCache() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Stops the threads refreshing the cache in the background
+	 */
+	public void shutdown() {
+		refreshExecutor.shutdownNow();
+	}
+
+	private void refresh(final String key, final String name, final int type, final CacheEntry entry) {
+		if(entry != null && !entry.refreshing.compareAndSet(false, true)) {
+			// already being refreshed
+			return;
+		}
+		try {
+			refreshExecutor.execute(new Runnable() {
+				public void run() {
+					try {
+						coalescedLookup(key, name, type);
+					} catch (TextParseException e) {
+						logger.warn("Couldn't parse name " + name, e);
+					} finally {
+						if(entry != null) {
+							// in case of a transient failure the current entry is kept and refreshed again on its next use
+							entry.refreshing.set(false);
+						}
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			if(logger.isDebugEnabled()) {
+				logger.debug("too many pending DNS refreshes, not refreshing " + Type.string(type) + " records of " + name);
+			}
+			if(entry != null) {
+				entry.refreshing.set(false);
+			}
+		}
+	}
+
+	private CacheEntry getEntry(String key) {
+		synchronized (cache) {
+			return cache.get(key);
+		}
+	}
+
+	/**
+	 * Performs the DNS query unless the same query is already in progress, in which case its result is awaited 
+	 * for at most the lookup timeout, falling back to the expired records still cached if any
+	 */
+	private CacheEntry coalescedLookup(final String key, final String name, final int type) throws TextParseException {
+		final FutureTask<CacheEntry> task = new FutureTask<CacheEntry>(new Callable<CacheEntry>() {
+			public CacheEntry call() throws Exception {
+				return query(key, name, type);
+			}
+		});
+		FutureTask<CacheEntry> pendingTask = pendingLookups.putIfAbsent(key, task);
+		if(pendingTask == null) {
+			// a miss stays synchronous, the query is done by this thread and is complete once run returns
+			try {
+				task.run();
+			} finally {
+				pendingLookups.remove(key, task);
+			}
+			pendingTask = task;
+		}
+		try {
+			return getResult(pendingTask, name, type, lookupTimeout);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return getStaleEntry(key);
+		} catch (TimeoutException e) {
+			if(logger.isDebugEnabled()) {
+				logger.debug(Type.string(type) + " lookup of " + name + " still in progress after " + lookupTimeout + " ms, not waiting for it");
+			}
+			return getStaleEntry(key);
+		}
+	}
+
+	private CacheEntry getResult(FutureTask<CacheEntry> task, String name, int type, long timeout) 
+			throws TextParseException, InterruptedException, TimeoutException {
+		try {
+			return task.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			return getFailure(e, name, type);
+		}
+	}
+
+	private CacheEntry getFailure(ExecutionException e, String name, int type) throws TextParseException {
+		if(e.getCause() instanceof TextParseException) {
+			throw (TextParseException) e.getCause();
+		}
+		logger.warn("Unexpected failure of the " + Type.string(type) + " lookup of " + name, e.getCause());
+		return CacheEntry.NONE;
+	}
+
+	private CacheEntry getStaleEntry(String key) {
+		final CacheEntry entry = getEntry(key);
+		return entry != null ? entry : CacheEntry.NONE;
+	}
+
+	private CacheEntry query(String key, String name, int type) throws TextParseException {
+		if(logger.isDebugEnabled()) {
+			logger.debug("doing " + Type.string(type) + " query for " + name);
+		}
+		final Lookup lookup = new Lookup(name, type);
+		// this class is the cache, the records have to come from the DNS server to be refreshed
+		lookup.setCache(null);
+		if(resolver != null) {
+			lookup.setResolver(resolver);
+		}
+		final Record[] records = lookup.run();
+		final long ttl;
+		switch (lookup.getResult()) {
+		case Lookup.SUCCESSFUL:
+			ttl = Math.min(getMinTtl(records), maxTtl);
+			break;
+		case Lookup.HOST_NOT_FOUND:
+		case Lookup.TYPE_NOT_FOUND:
+			ttl = negativeTtl;
+			break;
+		default:
+			if(logger.isDebugEnabled()) {
+				logger.debug(Type.string(type) + " query for " + name + " failed : " + lookup.getErrorString());
+			}
+			return new CacheEntry(records, 0, 0);
+		}
+		final long now = currentTimeMillis();
+		final CacheEntry entry = new CacheEntry(records, now + (long) (ttl * 1000 * refreshAheadFactor), now + ttl * 1000);
+		if(ttl > 0) {
+			synchronized (cache) {
+				cache.put(key, entry);
+			}
+		}
+		return entry;
+	}
+
+	private static long getMinTtl(Record[] records) {
+		long ttl = Long.MAX_VALUE;
+		if(records != null) {
+			for (Record record : records) {
+				ttl = Math.min(ttl, record.getTTL());
+			}
+		}
+		return ttl;
+	}
+
+	private static String getKey(String name, int type) {
+		return type + ":" + name.toLowerCase();
+	}
+
+	private static Record[] copy(Record[] records) {
+		// callers may sort the records
+		return records == null ? null : records.clone();
+	}
+
+	/**
+	 * @param resolver the resolver used for the DNS queries, null to use the default one
+	 */
+	public void setResolver(Resolver resolver) {
+		this.resolver = resolver;
+	}
+
+	/**
+	 * @return the resolver used for the DNS queries, null if the default one is used
+	 */
+	public Resolver getResolver() {
+		return resolver;
+	}
+
+	/**
+	 * @param negativeTtl the time in seconds names or records not found are cached
+	 */
+	public void setNegativeTtl(long negativeTtl) {
+		this.negativeTtl = negativeTtl;
+	}
+
+	/**
+	 * @return the time in seconds names or records not found are cached
+	 */
+	public long getNegativeTtl() {
+		return negativeTtl;
+	}
+
+	/**
+	 * @param maxTtl the maximum time in seconds records are cached, whatever their TTL
+	 */
+	public void setMaxTtl(long maxTtl) {
+		this.maxTtl = maxTtl;
+	}
+
+	/**
+	 * @return the maximum time in seconds records are cached, whatever their TTL
+	 */
+	public long getMaxTtl() {
+		return maxTtl;
+	}
+
+	/**
+	 * @param refreshAheadFactor the fraction of the TTL after which used records are refreshed in the background
+	 */
+	public void setRefreshAheadFactor(float refreshAheadFactor) {
+		this.refreshAheadFactor = refreshAheadFactor;
+	}
+
+	/**
+	 * @return the fraction of the TTL after which used records are refreshed in the background
+	 */
+	public float getRefreshAheadFactor() {
+		return refreshAheadFactor;
+	}
+
+	/**
+	 * @param maxEntries the maximum number of names and types cached
+	 */
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * @return the maximum number of names and types cached
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * @param lookupTimeout the maximum time in milliseconds a lookup waits for the same query already in progress
+	 */
+	public void setLookupTimeout(long lookupTimeout) {
+		this.lookupTimeout = lookupTimeout;
+	}
+
+	/**
+	 * @return the maximum time in milliseconds a lookup waits for the same query already in progress
+	 */
+	public long getLookupTimeout() {
+		return lookupTimeout;
+	}
+
+	/**
+	 * @param prefetch whether the records needed by the next steps of the resolution are looked up in the background
+	 */
+	public void setPrefetch(boolean prefetch) {
+		this.prefetch = prefetch;
+	}
+
+	/**
+	 * @return whether the records needed by the next steps of the resolution are looked up in the background
+	 */
+	public boolean isPrefetch() {
+		return prefetch;
+	}
+
+	@SuppressWarnings("serial")
+	private class LruCache extends LinkedHashMap<String, CacheEntry> {
+
+		LruCache() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+			// expired entries are kept until evicted, as a fallback when a query doesn't complete in time
+			return size() > maxEntries;
+		}
+	}
+
+	private static final class CacheEntry {
+		static final CacheEntry NONE = new CacheEntry(null, 0, 0);
+		
+		// null when the name or the type was not found
+		final Record[] records;
+		final long refreshTime;
+		final long expirationTime;
+		final AtomicBoolean refreshing = new AtomicBoolean();
+
+		CacheEntry(Record[] records, long refreshTime, long expirationTime) {
+			this.records = records;
+			this.refreshTime = refreshTime;
+			this.expirationTime = expirationTime;
+		}
+	}
+
+	private static final class RefreshThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		public Thread newThread(Runnable runnable) {
+			final Thread thread = new Thread(runnable, "DNSLookupRefresher-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
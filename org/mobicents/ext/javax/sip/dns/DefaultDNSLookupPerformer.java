@@ -59,7 +59,7 @@ public class DefaultDNSLookupPerformer implements DNSLookupPerformer {
 		}
 		Record[] srvRecords = null;
 		try {
-			srvRecords = new Lookup(replacement, Type.SRV).run();
+			srvRecords = lookup(replacement, Type.SRV);
 		} catch (TextParseException e) {
 			logger.error("Impossible to parse the parameters for dns lookup",e);
 		}
@@ -79,7 +79,7 @@ public class DefaultDNSLookupPerformer implements DNSLookupPerformer {
 		}
 		Record[] naptrRecords = null;
 		try {
-			naptrRecords = new Lookup(domain, Type.NAPTR).run();
+			naptrRecords = lookup(domain, Type.NAPTR);
 		} catch (TextParseException e) {
 			logger.warn("Couldn't parse domain " + domain, e);
 		}	
@@ -121,7 +121,7 @@ public class DefaultDNSLookupPerformer implements DNSLookupPerformer {
 		Queue<Hop> priorityQueue = new LinkedList<Hop>();
 		
 		try {
-			Record[] aRecords = new Lookup(host, Type.A).run();
+			Record[] aRecords = lookup(host, Type.A);
 			if(logger.isDebugEnabled()) {
 				logger.debug("doing A lookup for host:port/transport = " + host + ":" + port + "/" + transport);
 			}
@@ -134,7 +134,7 @@ public class DefaultDNSLookupPerformer implements DNSLookupPerformer {
 			logger.warn("Couldn't parse domain " + host, e);
 		}	
 		try {
-			final Record[] aaaaRecords = new Lookup(host, Type.AAAA).run();
+			final Record[] aaaaRecords = lookup(host, Type.AAAA);
 			if(logger.isDebugEnabled()) {
 				logger.debug("doing AAAA lookup for host:port/transport = " + host + ":" + port + "/" + transport);
 			}
@@ -148,4 +148,15 @@ public class DefaultDNSLookupPerformer implements DNSLookupPerformer {
 		}	
 		return priorityQueue;
 	}
+
+	/**
+	 * Performs the DNS lookup of the given type for the given name, can be overridden to resolve or cache the records differently
+	 * @param name the name to resolve
+	 * @param type the type of records to look up, see {@link Type}
+	 * @return the records found or null if none could be found
+	 * @throws TextParseException if the name is not a valid DNS name
+	 */
+	protected Record[] lookup(String name, int type) throws TextParseException {
+		return new Lookup(name, type).run();
+	}
 }
@@ -57,19 +57,29 @@ import org.xbill.DNS.SRVRecord;
  * some of the rfc3263 can hardly be implemented and NAPTR query can hardly be done 
  * since the stack populate port and transport automatically.
  * 
+ * The DNS lookups are performed by a {@link CachingDNSLookupPerformer}, unless the 
+ * {@value #CACHING_DNS_LOOKUPS} system property is set to false, in which case every lookup 
+ * is sent to the DNS by a {@link DefaultDNSLookupPerformer}.
+ * 
  * @author jean.deruelle@gmail.com
  *
  */
 public class DefaultDNSServerLocator implements DNSServerLocator {
 	private static final Logger logger = Logger.getLogger(DefaultDNSServerLocator.class);
 	
+	public static final String CACHING_DNS_LOOKUPS = "org.mobicents.ext.javax.sip.dns.CACHING_DNS_LOOKUPS";
+	
 	protected Set<String> supportedTransports;
 	protected Set<String> localHostNames;
 	private DNSLookupPerformer dnsLookupPerformer;
 	
 	public DefaultDNSServerLocator() {
 		localHostNames = new CopyOnWriteArraySet<String>();
-		dnsLookupPerformer = new DefaultDNSLookupPerformer();
+		if(Boolean.valueOf(System.getProperty(CACHING_DNS_LOOKUPS, "true"))) {
+			dnsLookupPerformer = new CachingDNSLookupPerformer();
+		} else {
+			dnsLookupPerformer = new DefaultDNSLookupPerformer();
+		}
 		this.supportedTransports = new CopyOnWriteArraySet<String>();
 	}
 	
@@ -0,0 +1,303 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.mobicents.ext.javax.sip.dns.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.mobicents.ext.javax.sip.dns.CachingDNSLookupPerformer;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Resolver;
+import org.xbill.DNS.ResolverListener;
+import org.xbill.DNS.SRVRecord;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.TSIG;
+
+/**
+ * Tests the {@link CachingDNSLookupPerformer} against a stub {@link Resolver} answering SRV queries 
+ * and counting the queries that reach it
+ */
+public class CachingDNSLookupPerformerTest extends TestCase {
+
+	private static final String SERVICE = "_sip._udp.example.com.";
+	private static final String UNKNOWN_SERVICE = "_sip._udp.unknown.example.com.";
+	private static final String OTHER_SERVICE = "_sip._udp.other.example.com.";
+
+	private StubResolver resolver;
+	private ManualClockPerformer performer;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		resolver = new StubResolver();
+		performer = new ManualClockPerformer();
+		performer.setResolver(resolver);
+		performer.setPrefetch(false);
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		resolver.release();
+		performer.shutdown();
+	}
+
+	public void testRecordsCachedUntilTtlExpires() throws Exception {
+		resolver.ttl = 1;
+		performer.setRefreshAheadFactor(1);
+		assertEquals(1, performer.performSRVLookup(SERVICE).size());
+		assertEquals(1, performer.performSRVLookup(SERVICE).size());
+		assertEquals(1, resolver.queries.get());
+		performer.advance(1000);
+		assertEquals(1, performer.performSRVLookup(SERVICE).size());
+		assertEquals(2, resolver.queries.get());
+	}
+
+	public void testTtlCappedByMaxTtl() throws Exception {
+		resolver.ttl = 3600;
+		performer.setMaxTtl(1);
+		performer.setRefreshAheadFactor(1);
+		performer.performSRVLookup(SERVICE);
+		performer.advance(1000);
+		performer.performSRVLookup(SERVICE);
+		assertEquals(2, resolver.queries.get());
+	}
+
+	public void testNotFoundCachedForNegativeTtl() throws Exception {
+		performer.setNegativeTtl(1);
+		assertTrue(performer.performSRVLookup(UNKNOWN_SERVICE).isEmpty());
+		assertTrue(performer.performSRVLookup(UNKNOWN_SERVICE).isEmpty());
+		assertEquals(1, resolver.queries.get());
+		performer.advance(1000);
+		assertTrue(performer.performSRVLookup(UNKNOWN_SERVICE).isEmpty());
+		assertEquals(2, resolver.queries.get());
+	}
+
+	public void testTransientFailureNotCached() throws Exception {
+		resolver.failing = true;
+		assertTrue(performer.performSRVLookup(SERVICE).isEmpty());
+		resolver.failing = false;
+		assertEquals(1, performer.performSRVLookup(SERVICE).size());
+		assertEquals(2, resolver.queries.get());
+	}
+
+	public void testRefreshAhead() throws Exception {
+		resolver.ttl = 2;
+		performer.setRefreshAheadFactor(0.25f);
+		performer.performSRVLookup(SERVICE);
+		performer.advance(600);
+		// served from the cache while refreshed in the background
+		assertEquals(1, performer.performSRVLookup(SERVICE).size());
+		assertTrue(resolver.awaitQueries(2));
+		// the refreshed records are used without a new query
+		assertEquals(1, performer.performSRVLookup(SERVICE).size());
+		assertEquals(2, resolver.queries.get());
+	}
+
+	public void testLeastRecentlyUsedEvicted() throws Exception {
+		performer.setMaxEntries(2);
+		performer.performSRVLookup("_sip._udp.a.example.com.");
+		performer.performSRVLookup("_sip._udp.b.example.com.");
+		performer.performSRVLookup("_sip._udp.a.example.com.");
+		performer.performSRVLookup("_sip._udp.c.example.com.");
+		assertEquals(3, resolver.queries.get());
+		performer.performSRVLookup("_sip._udp.a.example.com.");
+		assertEquals(3, resolver.queries.get());
+		performer.performSRVLookup("_sip._udp.b.example.com.");
+		assertEquals(4, resolver.queries.get());
+	}
+
+	public void testConcurrentLookupsCoalesced() throws Exception {
+		final int lookups = 8;
+		resolver.block();
+		final ExecutorService executor = Executors.newFixedThreadPool(lookups);
+		try {
+			final List<Future<List<Record>>> results = new ArrayList<Future<List<Record>>>();
+			for (int i = 0; i < lookups; i++) {
+				results.add(lookupInBackground(executor, SERVICE));
+			}
+			assertTrue(resolver.awaitQueries(1));
+			// lets the other lookups join the query in progress
+			Thread.sleep(200);
+			resolver.release();
+			for (Future<List<Record>> result : results) {
+				assertEquals(1, result.get(5, TimeUnit.SECONDS).size());
+			}
+			assertEquals(1, resolver.queries.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	public void testCoalescedLookupWaitIsBounded() throws Exception {
+		resolver.ttl = 1;
+		performer.setRefreshAheadFactor(1);
+		performer.setLookupTimeout(100);
+		performer.performSRVLookup(SERVICE);
+		performer.advance(1000);
+		resolver.block();
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			lookupInBackground(executor, SERVICE);
+			assertTrue(resolver.awaitQueries(2));
+			long start = System.currentTimeMillis();
+			// the expired records are used rather than waiting for the query in progress
+			assertEquals(1, performer.performSRVLookup(SERVICE).size());
+			assertTrue(System.currentTimeMillis() - start < 1000);
+			lookupInBackground(executor, OTHER_SERVICE);
+			assertTrue(resolver.awaitQueries(3));
+			start = System.currentTimeMillis();
+			// no records when none were ever cached
+			assertTrue(performer.performSRVLookup(OTHER_SERVICE).isEmpty());
+			assertTrue(System.currentTimeMillis() - start < 1000);
+			assertEquals(3, resolver.queries.get());
+		} finally {
+			resolver.release();
+			executor.shutdownNow();
+		}
+	}
+
+	private Future<List<Record>> lookupInBackground(ExecutorService executor, final String name) {
+		return executor.submit(new Callable<List<Record>>() {
+			public List<Record> call() throws Exception {
+				return performer.performSRVLookup(name);
+			}
+		});
+	}
+
+	/**
+	 * {@link CachingDNSLookupPerformer} whose time only moves when the test advances it
+	 */
+	private static class ManualClockPerformer extends CachingDNSLookupPerformer {
+
+		private volatile long now = System.currentTimeMillis();
+
+		void advance(long millis) {
+			now += millis;
+		}
+
+		@Override
+		protected long currentTimeMillis() {
+			return now;
+		}
+	}
+
+	/**
+	 * Answers SRV queries with a single record, except for names starting with _sip._udp.unknown which don't exist
+	 */
+	private static class StubResolver implements Resolver {
+
+		final AtomicInteger queries = new AtomicInteger();
+		volatile long ttl = 60;
+		volatile boolean failing;
+		private volatile CountDownLatch blocked = new CountDownLatch(0);
+
+		void block() {
+			blocked = new CountDownLatch(1);
+		}
+
+		void release() {
+			blocked.countDown();
+		}
+
+		boolean awaitQueries(int count) throws InterruptedException {
+			final long deadline = System.currentTimeMillis() + 5000;
+			while (queries.get() < count) {
+				if(System.currentTimeMillis() > deadline) {
+					return false;
+				}
+				Thread.sleep(10);
+			}
+			return true;
+		}
+
+		public Message send(Message query) throws IOException {
+			queries.incrementAndGet();
+			try {
+				blocked.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("interrupted");
+			}
+			final Message response = new Message(query.getHeader().getID());
+			response.getHeader().setFlag(Flags.QR);
+			response.getHeader().setFlag(Flags.AA);
+			final Record question = query.getQuestion();
+			response.addRecord(question, Section.QUESTION);
+			if(failing) {
+				response.getHeader().setRcode(Rcode.SERVFAIL);
+			} else if(question.getName().toString().startsWith("_sip._udp.unknown")) {
+				response.getHeader().setRcode(Rcode.NXDOMAIN);
+			} else {
+				response.addRecord(new SRVRecord(question.getName(), DClass.IN, ttl, 0, 0, 5060, 
+						Name.fromString("sip." + question.getName().toString())), Section.ANSWER);
+			}
+			return response;
+		}
+
+		public Object sendAsync(Message query, ResolverListener listener) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void setPort(int port) {
+		}
+
+		public void setTCP(boolean flag) {
+		}
+
+		public void setIgnoreTruncation(boolean flag) {
+		}
+
+		public void setEDNS(int level) {
+		}
+
+		@SuppressWarnings("rawtypes")
+		public void setEDNS(int level, int payloadSize, int flags, List options) {
+		}
+
+		public void setTSIGKey(TSIG key) {
+		}
+
+		public void setTimeout(int secs, int msecs) {
+		}
+
+		public void setTimeout(int secs) {
+		}
+	}
+}
@@ -45,6 +45,7 @@ public interface ClusteredSipStack extends SipStack {
 	public static final String CACHE_CLASS_NAME_PROPERTY = "org.mobicents.ha.javax.sip.CACHE_CLASS_NAME";
 	public static final String REPLICATION_STRATEGY_PROPERTY = "org.mobicents.ha.javax.sip.REPLICATION_STRATEGY";
 	public static final String REPLICATE_APPLICATION_DATA = "org.mobicents.ha.javax.sip.REPLICATE_APPLICATION_DATA";
+	public static final String DIALOG_DELTA_REPLICATION = "org.mobicents.ha.javax.sip.DIALOG_DELTA_REPLICATION";
 	
 	SIPDialog getDialog(String dialogId);	
 	SIPDialog putDialog(SIPDialog dialog);
@@ -85,6 +86,12 @@ public interface ClusteredSipStack extends SipStack {
     SIPTransaction findTransaction(String transactionId, boolean isServer);
     
     boolean isReplicateApplicationData();
+    /**
+     * Indicates if dialogs replicate only the meta data that changed since their last replication.
+     * 
+     * @return
+     */
+    boolean isDialogDeltaReplication();
 	void remoteServerTransactionRemoval(String transactionId);
 	void remoteClientTransactionRemoval(String transactionId);
 }
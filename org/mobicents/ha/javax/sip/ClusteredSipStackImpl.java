@@ -80,6 +80,7 @@ public abstract class ClusteredSipStackImpl extends gov.nist.javax.sip.SipStackI
 	protected SipProviderFactory sipProviderFactory = null;
 	protected boolean sendTryingRightAway;
 	private boolean replicateApplicationData = false;
+	private boolean dialogDeltaReplication = false;
 	
 	public ClusteredSipStackImpl(Properties configurationProperties) throws PeerUnavailableException {
 		
@@ -169,8 +170,17 @@ public abstract class ClusteredSipStackImpl extends gov.nist.javax.sip.SipStackI
 		if(replicateApplicationDataProperty == null && replicationStrategy == ReplicationStrategy.ConfirmedDialog) {
 			replicateApplicationData = true;
 		}
+		String dialogDeltaReplicationProperty = configurationProperties.getProperty(ClusteredSipStack.DIALOG_DELTA_REPLICATION);
+		if(dialogDeltaReplicationProperty != null) {
+			dialogDeltaReplication = Boolean.valueOf(dialogDeltaReplicationProperty);
+			if(dialogDeltaReplication && replicationStrategy != ReplicationStrategy.ConfirmedDialog && replicationStrategy != ReplicationStrategy.EarlyDialog) {
+				// only the dialog replication strategies replicate dialog meta data on each change
+				getStackLogger().logWarning("Dialog delta replication is not supported by the replication strategy " + replicationStrategy + ", disabling it");
+				dialogDeltaReplication = false;
+			}
+		}
 		if(getStackLogger().isLoggingEnabled(StackLogger.TRACE_INFO)) {
-			getStackLogger().logInfo("Replication Strategy is " + replicationStrategy + " replicating application data " + replicateApplicationData);
+			getStackLogger().logInfo("Replication Strategy is " + replicationStrategy + " replicating application data " + replicateApplicationData + " dialog delta replication " + dialogDeltaReplication);
 		}
 	}		
 	
@@ -638,6 +648,14 @@ public abstract class ClusteredSipStackImpl extends gov.nist.javax.sip.SipStackI
 		return replicateApplicationData;
 	}  
 	
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.ha.javax.sip.ClusteredSipStack#isDialogDeltaReplication()
+	 */
+	public boolean isDialogDeltaReplication() {
+		return dialogDeltaReplication;
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * @see org.mobicents.ha.javax.sip.ClusteredSipStack#remoteServerTransactionRemoval(java.lang.String)
@@ -46,6 +46,16 @@ public interface HASipDialog {
 
 	void setMetaDataToReplicate(Map<String, Object> dialogMetaData, boolean recreation);
 	void setApplicationDataToReplicate(Object dialogAppData);
+	/**
+	 * Forgets the meta data previously replicated, so that the next replication ships all of it,
+	 * used with dialog delta replication when a replication failed
+	 */
+	void resetMetaDataDelta();
+	/**
+	 * Makes the meta data of the last replication the base of the next delta,
+	 * used with dialog delta replication once the cache committed that replication
+	 */
+	void commitMetaDataDelta();
 
 	void setContactHeader(ContactHeader contactHeader);
 
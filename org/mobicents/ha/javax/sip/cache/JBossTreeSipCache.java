@@ -139,7 +139,10 @@ public class JBossTreeSipCache extends AbstractJBossSipCache implements SipCache
 			if(tx != null) {
 				tx.commit();
 			}
+			// the cache holds the meta data now, next delta is computed against it
+			haSipDialog.commitMetaDataDelta();
 		} catch (Exception e) {
+			((HASipDialog) dialog).resetMetaDataDelta();
 			if(tx != null) {
 				try { tx.rollback(); } catch(Throwable t) {}
 			}
@@ -39,6 +39,7 @@ import javax.sip.address.Address;
 import javax.sip.header.ContactHeader;
 import javax.transaction.RollbackException;
 import javax.transaction.Status;
+import javax.transaction.Synchronization;
 import javax.transaction.TransactionManager;
 
 import org.jboss.cache.Cache;
@@ -96,7 +97,7 @@ public class SIPDialogCacheData extends CacheData {
             final Node<String,Object> childNode = getNode().getChild(dialogId);
 			if(childNode != null) {
 				try {
-					final Map<String, Object> dialogMetaData = childNode.getData();		
+					final Map<String, Object> dialogMetaData = SIPDialogMetaDataSerializer.deserialize(childNode.getData(), APPDATA);		
 					final Object dialogAppData = childNode.get(APPDATA);
 						
 					haSipDialog = createDialog(dialogId, dialogMetaData, dialogAppData);
@@ -178,7 +179,7 @@ public class SIPDialogCacheData extends CacheData {
 			final Node<String,Object> childNode = getNode().getChild(dialogId);
 			if(childNode != null) {
 				try {
-					final Map<String, Object> dialogMetaData = childNode.getData();
+					final Map<String, Object> dialogMetaData = SIPDialogMetaDataSerializer.deserialize(childNode.getData(), APPDATA);
 					
 					final HASipDialog haSipDialog = (HASipDialog) sipDialog;
 					final Object dialogAppData = childNode.get(APPDATA);
@@ -327,14 +328,30 @@ public class SIPDialogCacheData extends CacheData {
 				doTx = true;				
 	        }			
 			final Node childNode = getNode().addChild(Fqn.fromElements(dialogId));
-			for (Entry<String, Object> metaData : haSipDialog.getMetaDataToReplicate().entrySet()) {
-				childNode.put(metaData.getKey(), metaData.getValue());
+			if(clusteredSipStack.isDialogDeltaReplication()) {
+				if(transactionManager != null) {
+					// the delta base can only move once the cache really holds the meta data, 
+					// the tx may be our own or an outer one that may still roll back
+					transactionManager.getTransaction().registerSynchronization(new MetaDataDeltaSynchronization(haSipDialog));
+				}
+				// only the changed meta data, in compact form and with a single put, the node keeps the values of the previous replications
+				childNode.putAll(SIPDialogMetaDataSerializer.serialize(haSipDialog.getMetaDataToReplicate()));
+			} else {
+				for (Entry<String, Object> metaData : haSipDialog.getMetaDataToReplicate().entrySet()) {
+					childNode.put(metaData.getKey(), metaData.getValue());
+				}
 			}
 			final Object dialogAppData = haSipDialog.getApplicationDataToReplicate();
 			if(dialogAppData != null) {
 				childNode.put(APPDATA, dialogAppData);
 			}
+			if(transactionManager == null && clusteredSipStack.isDialogDeltaReplication()) {
+				// no tx, the puts are already applied
+				haSipDialog.commitMetaDataDelta();
+			}
 		} catch (Exception ex) {
+			// the delta of the next replication has to be computed against what the cache really holds
+			haSipDialog.resetMetaDataDelta();
 			try {
 				if(transactionManager != null) {
 					// Let's set it no matter what.
@@ -439,4 +456,29 @@ public class SIPDialogCacheData extends CacheData {
 			logger.logDebug("HA SIP Dialog " + dialogId + " evicted");
 		}
 	}
+	
+	/**
+	 * Moves the meta data delta base of a dialog once the tx that replicated it completes,
+	 * or forgets it if the tx rolled back so that the next replication ships all the meta data
+	 */
+	private static class MetaDataDeltaSynchronization implements Synchronization {
+		
+		private final HASipDialog haSipDialog;
+		
+		MetaDataDeltaSynchronization(HASipDialog haSipDialog) {
+			this.haSipDialog = haSipDialog;
+		}
+		
+		public void beforeCompletion() {
+			
+		}
+		
+		public void afterCompletion(int status) {
+			if(status == Status.STATUS_COMMITTED) {
+				haSipDialog.commitMetaDataDelta();
+			} else {
+				haSipDialog.resetMetaDataDelta();
+			}
+		}
+	}
 }
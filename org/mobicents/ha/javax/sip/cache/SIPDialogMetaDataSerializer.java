@@ -0,0 +1,202 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.mobicents.ha.javax.sip.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Compact binary form of the values found in the HA SIP dialog meta data,
+ * replacing java serialization of each value when dialog delta replication is enabled.
+ * 
+ * Each value is written as a one byte tag followed by its content, numbers and
+ * lengths as variable length integers and strings as UTF-8. Values of other types
+ * are left as they are and go through the cache's regular marshalling.
+ *
+ */
+public class SIPDialogMetaDataSerializer {
+
+	private static final byte NULL = 0;
+	private static final byte STRING = 1;
+	private static final byte LONG = 2;
+	private static final byte INTEGER = 3;
+	private static final byte BOOLEAN_TRUE = 4;
+	private static final byte BOOLEAN_FALSE = 5;
+	private static final byte STRING_ARRAY = 6;
+
+	private static final String CHARSET = "UTF-8";
+
+	/**
+	 * Converts the supported values of the meta data to their compact form
+	 * @param metaData
+	 * @return a new map with the same keys
+	 */
+	public static Map<String, Object> serialize(Map<String, Object> metaData) {
+		final Map<String, Object> serialized = new HashMap<String, Object>(metaData.size());
+		for (Entry<String, Object> entry : metaData.entrySet()) {
+			final Object value = entry.getValue();
+			serialized.put(entry.getKey(), isSupported(value) ? serialize(value) : value);
+		}
+		return serialized;
+	}
+
+	/**
+	 * Converts back the values of the meta data that are in compact form, other values are kept as they are
+	 * @param metaData
+	 * @param ignoredKey a key whose value is never converted, may be null
+	 * @return a new map with the same keys
+	 */
+	public static Map<String, Object> deserialize(Map<String, Object> metaData, String ignoredKey) {
+		final Map<String, Object> deserialized = new HashMap<String, Object>(metaData.size());
+		for (Entry<String, Object> entry : metaData.entrySet()) {
+			final Object value = entry.getValue();
+			if(value instanceof byte[] && !entry.getKey().equals(ignoredKey)) {
+				deserialized.put(entry.getKey(), deserialize((byte[]) value));
+			} else {
+				deserialized.put(entry.getKey(), value);
+			}
+		}
+		return deserialized;
+	}
+
+	public static boolean isSupported(Object value) {
+		return value == null || value instanceof String || value instanceof Long || value instanceof Integer 
+			|| value instanceof Boolean || value instanceof String[];
+	}
+
+	public static byte[] serialize(Object value) {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(value instanceof String ? ((String) value).length() + 4 : 16);
+		if(value == null) {
+			out.write(NULL);
+		} else if(value instanceof String) {
+			out.write(STRING);
+			writeString(out, (String) value);
+		} else if(value instanceof Long) {
+			out.write(LONG);
+			writeVarLong(out, zigZag(((Long) value).longValue()));
+		} else if(value instanceof Integer) {
+			out.write(INTEGER);
+			writeVarLong(out, zigZag(((Integer) value).intValue()));
+		} else if(value instanceof Boolean) {
+			out.write(((Boolean) value).booleanValue() ? BOOLEAN_TRUE : BOOLEAN_FALSE);
+		} else if(value instanceof String[]) {
+			final String[] strings = (String[]) value;
+			out.write(STRING_ARRAY);
+			writeVarLong(out, strings.length);
+			for (String string : strings) {
+				writeString(out, string);
+			}
+		} else {
+			throw new IllegalArgumentException("Unsupported meta data value " + value.getClass());
+		}
+		return out.toByteArray();
+	}
+
+	public static Object deserialize(byte[] bytes) {
+		final int[] position = new int[] { 1 };
+		switch (bytes[0]) {
+		case NULL:
+			return null;
+		case STRING:
+			return readString(bytes, position);
+		case LONG:
+			return Long.valueOf(unZigZag(readVarLong(bytes, position)));
+		case INTEGER:
+			return Integer.valueOf((int) unZigZag(readVarLong(bytes, position)));
+		case BOOLEAN_TRUE:
+			return Boolean.TRUE;
+		case BOOLEAN_FALSE:
+			return Boolean.FALSE;
+		case STRING_ARRAY:
+			final String[] strings = new String[(int) readVarLong(bytes, position)];
+			for (int i = 0; i < strings.length; i++) {
+				strings[i] = readString(bytes, position);
+			}
+			return strings;
+		default:
+			throw new IllegalArgumentException("Unknown meta data value tag " + bytes[0]);
+		}
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeVarLong(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static long readVarLong(byte[] bytes, int[] position) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = bytes[position[0]++];
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static void writeString(ByteArrayOutputStream out, String string) {
+		// the length is shifted by one so that zero stands for a null string
+		if(string == null) {
+			writeVarLong(out, 0);
+			return;
+		}
+		final byte[] bytes;
+		try {
+			bytes = string.getBytes(CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			throw new IllegalStateException(e);
+		}
+		writeVarLong(out, bytes.length + 1);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	private static String readString(byte[] bytes, int[] position) {
+		final int length = (int) readVarLong(bytes, position) - 1;
+		if(length < 0) {
+			return null;
+		}
+		final int offset = position[0];
+		position[0] += length;
+		try {
+			return new String(bytes, offset, length, CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			throw new IllegalStateException(e);
+		}
+	}
+}
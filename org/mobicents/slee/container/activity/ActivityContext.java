@@ -25,6 +25,8 @@
  */
 package org.mobicents.slee.container.activity;
 
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -123,6 +125,18 @@ public interface ActivityContext {
 			EventUnreferencedCallback unreferencedCallback)
 			throws ActivityIsEndingException, SLEEException;
 
+	/**
+	 * Fires events, created for this activity context, in the specified
+	 * order. If there is no transaction context the events are submitted at
+	 * once to the activity event queue.
+	 * 
+	 * @param events
+	 * @throws ActivityIsEndingException
+	 * @throws SLEEException
+	 */
+	public void fireEvents(List<EventContext> events)
+			throws ActivityIsEndingException, SLEEException;
+
 	/**
 	 * Fires an event in the activity context.
 	 * 
@@ -192,6 +206,23 @@ public interface ActivityContext {
 	 */
 	public Set<SbbEntityID> getSortedSbbAttachmentSet(Set<SbbEntityID> excludeSet);
 
+	/**
+	 * Retrieves a read only iterator over the SBBs attached to this ac, ordered
+	 * by SBB priority, which skips the ones in the specified exclude set. 
+	 * Unlike {@link #getSortedSbbAttachmentSet(Set)} no copy of the
+	 * attachments is done.
+	 * 
+	 * @param excludeSet
+	 * @return
+	 */
+	public Iterator<SbbEntityID> getSortedSbbAttachmentCursor(Set<SbbEntityID> excludeSet);
+
+	/**
+	 * Indicates the priority of an SBB attached to this ac changed, thus the
+	 * order of the attachments must be computed again.
+	 */
+	public void sbbAttachmentsReordered();
+
 	/**
 	 * test if the activity context is ending.
 	 * 
@@ -25,6 +25,8 @@
  */
 package org.mobicents.slee.container.activity;
 
+import java.util.List;
+
 import javax.transaction.Transaction;
 
 import org.mobicents.slee.container.event.EventContext;
@@ -55,6 +57,13 @@ public interface ActivityEventQueueManager {
 	 */
 	public void fireNotTransacted(EventContext ef);
 	
+	/**
+	 * Similar as doing fireNotTransacted() for each of the specified events,
+	 * in a single step.
+	 * @param events
+	 */
+	public void fireNotTransacted(List<EventContext> events);
+	
 	/**
 	 * Signals that the java transaction who fired the specified event did not
 	 * commit, and thus the event should be not routed.
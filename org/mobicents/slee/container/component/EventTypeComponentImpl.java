@@ -72,6 +72,11 @@ public class EventTypeComponentImpl extends AbstractSleeComponent implements Eve
 	 */
 	private javax.slee.management.EventTypeDescriptor specsDescriptor = null;
 	
+	/**
+	 * indicates if the component was undeployed
+	 */
+	private volatile boolean undeployed = false;
+	
 	/**
 	 * the ordered set of active {@link ServiceComponentImpl} which define this event as initial 
 	 */
@@ -126,6 +131,14 @@ public class EventTypeComponentImpl extends AbstractSleeComponent implements Eve
 		return descriptor.getEventTypeID();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.component.event.EventTypeComponent#isUndeployed()
+	 */
+	public boolean isUndeployed() {
+		return undeployed;
+	}
+
 	/**
 	 * Retrieves the event type descriptor
 	 * @return
@@ -235,6 +248,7 @@ public class EventTypeComponentImpl extends AbstractSleeComponent implements Eve
 	@Override
 	public void undeployed() {		
 		super.undeployed();
+		undeployed = true;
 		eventTypeClass = null;
 		if (activeServicesWhichDefineEventAsInitial != null) {
 			activeServicesWhichDefineEventAsInitial.clear();
@@ -204,8 +204,9 @@ public class ProfileSpecificationComponentImpl extends AbstractSleeComponentWith
 				 if (isSlee11()) {
 					 for (ProfileCMPFieldDescriptor cmpField : getDescriptor().getProfileCMPInterface().getCmpFields()) {
 						 if (cmpField.getCmpFieldName().equals(attributeName)) {
-							 // TODO add index hints ?
 							 profileAttribute.setUnique(cmpField.isUnique());
+							 // index hints are the slee 1.1 way of declaring indexed attributes
+							 profileAttribute.setIndex(!cmpField.getIndexHints().isEmpty());
 						 }
 					 }
 				 }
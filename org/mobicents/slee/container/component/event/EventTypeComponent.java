@@ -63,6 +63,12 @@ public interface EventTypeComponent extends SleeComponent {
 	 */
 	public EventTypeID getEventTypeID();
 	
+	/**
+	 * Indicates if the component was undeployed
+	 * @return
+	 */
+	public boolean isUndeployed();
+	
 	/**
 	 * Retrieves the JAIN SLEE specs event type descriptor
 	 * @return
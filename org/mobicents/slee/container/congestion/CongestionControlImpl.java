@@ -31,10 +31,19 @@ import javax.slee.facilities.AlarmLevel;
 
 import org.apache.log4j.Logger;
 import org.mobicents.slee.container.AbstractSleeContainerModule;
+import org.mobicents.slee.container.eventrouter.EventRouterExecutor;
+import org.mobicents.slee.container.eventrouter.stats.EventRouterExecutorStatistics;
 import org.mobicents.slee.container.management.jmx.CongestionControlConfiguration;
+import org.mobicents.slee.container.util.concurrent.LatencyHistogram;
 
 /**
  * Impl of the congestion control module of the Mobicents slee container.
+ * Congestion control is on while any of the monitored signals, free memory,
+ * event router queues length and the 99th percentile of the event routing
+ * time in the last period, is over its turn on
+ * watermark, and each signal only turns off below its turn off watermark. An
+ * alarm is raised for each signal on.
+ * 
  * @author martins
  *
  */
@@ -44,15 +53,24 @@ public class CongestionControlImpl extends AbstractSleeContainerModule implement
 	
 	private final CongestionControlConfiguration configuration;
 		
-	private boolean notEnoughFreeMemory; 
+	/**
+	 * true if any monitor is on
+	 */
+	private volatile boolean congested; 
 	
 	private ScheduledFuture<?> scheduledFuture;
 	
 	private AlarmFacility alarmFacility;
 	private int alarmIdCounter = 0; 
-	private String alarmID;
 	private static final String ALARM_TYPE = "CONGESTION CONTROL";
 	
+	/**
+	 * the percentile of the event routing times, in each period, compared with the routing time watermarks
+	 */
+	private static final double ROUTING_TIME_PERCENTILE = 99.0;
+	
+	private final Monitor[] monitors = { new FreeMemoryMonitor(), new EventRouterQueueMonitor(), new EventRoutingTimeMonitor() };
+	
 	/**
 	 * 
 	 * @param configuration
@@ -89,8 +107,10 @@ public class CongestionControlImpl extends AbstractSleeContainerModule implement
 			scheduledFuture.cancel(true);
 			scheduledFuture = null;
 		}
-		clearAlarm();
-		notEnoughFreeMemory = false;
+		for (Monitor monitor : monitors) {
+			monitor.reset();
+		}
+		congested = false;
 	}
 	
 	/*
@@ -99,7 +119,7 @@ public class CongestionControlImpl extends AbstractSleeContainerModule implement
 	 */
 	public boolean refuseStartActivity() {
 		if (configuration.isRefuseStartActivity()) {
-			return notEnoughFreeMemory;
+			return congested;
 		}
 		else {
 			return false;
@@ -112,7 +132,7 @@ public class CongestionControlImpl extends AbstractSleeContainerModule implement
 	 */
 	public boolean refuseFireEvent() {
 		if (configuration.isRefuseFireEvent()) {
-			return notEnoughFreeMemory;
+			return congested;
 		}
 		else {
 			return false;
@@ -133,28 +153,196 @@ public class CongestionControlImpl extends AbstractSleeContainerModule implement
 	private class TimerTask implements Runnable {
 
 		public void run() {
-			if (notEnoughFreeMemory) {
+			boolean on = false;
+			for (Monitor monitor : monitors) {
+				try {
+					if (monitor.check()) {
+						on = true;
+					}
+				}
+				catch (Throwable e) {
+					logger.error("Failure checking congestion control "+monitor.getName(), e);
+				}
+			}
+			congested = on;
+		}
+		
+	}
+	
+	/**
+	 * A congestion signal, with hysteresis between turning on and off.
+	 *
+	 */
+	private abstract class Monitor {
+		
+		private boolean on;
+		
+		private String alarmID;
+		
+		/**
+		 * Checks the signal, updating the monitor state. 
+		 * @return true if the monitor is on
+		 */
+		boolean check() {
+			if (on) {
 				// it's on, check if we should turn off
-				if (getFreeMemoryPercentage() > configuration.getMinFreeMemoryToTurnOff()) {
-					clearAlarm();
-					notEnoughFreeMemory = false;
+				if (shouldTurnOff()) {
+					clearAlarm(this);
+					on = false;
 				}
 			}
 			else {
 				// it's off, check if we should turn on
-				if (getFreeMemoryPercentage() < configuration.getMinFreeMemoryToTurnOn()) {
-					raiseAlarm();
-					notEnoughFreeMemory = true;
+				if (shouldTurnOn()) {
+					raiseAlarm(this);
+					on = true;
 				}
 			}
+			return on;
+		}
+		
+		void reset() {
+			clearAlarm(this);
+			on = false;
 		}
 		
+		abstract String getName();
+		
+		abstract boolean shouldTurnOn();
+		
+		abstract boolean shouldTurnOff();
+		
+		abstract String getAlarmMessage();
+		
+	}
+	
+	private class FreeMemoryMonitor extends Monitor {
+		
+		@Override
+		String getName() {
+			return "free memory";
+		}
+		
+		@Override
+		boolean shouldTurnOn() {
+			return getFreeMemoryPercentage() < configuration.getMinFreeMemoryToTurnOn();
+		}
+		
+		@Override
+		boolean shouldTurnOff() {
+			return getFreeMemoryPercentage() > configuration.getMinFreeMemoryToTurnOff();
+		}
+		
+		@Override
+		String getAlarmMessage() {
+			return "Congestion Control activated since free memory is less than "+configuration.getMinFreeMemoryToTurnOn();
+		}
+	}
+	
+	private class EventRouterQueueMonitor extends Monitor {
+		
+		@Override
+		String getName() {
+			return "event router queue length";
+		}
+		
+		@Override
+		boolean shouldTurnOn() {
+			final int max = configuration.getMaxEventRouterQueueLengthToTurnOn();
+			return max > 0 && getMaxEventRouterQueueLength() > max;
+		}
+		
+		@Override
+		boolean shouldTurnOff() {
+			return getMaxEventRouterQueueLength() <= configuration.getMaxEventRouterQueueLengthToTurnOff();
+		}
+		
+		@Override
+		String getAlarmMessage() {
+			return "Congestion Control activated since an event router queue length is more than "+configuration.getMaxEventRouterQueueLengthToTurnOn();
+		}
+	}
+	
+	private class EventRoutingTimeMonitor extends Monitor {
+		
+		/**
+		 * the routing time histograms, merged for all executors, as seen in the previous check
+		 */
+		private LatencyHistogram.Snapshot previousSnapshot = LatencyHistogram.Snapshot.empty();
+		
+		/**
+		 * the routing time at {@link #ROUTING_TIME_PERCENTILE} in the last period, in ms, -1 if unknown
+		 */
+		private long routingTime = -1L;
+		
+		@Override
+		boolean check() {
+			updateRoutingTime();
+			return super.check();
+		}
+		
+		@Override
+		void reset() {
+			super.reset();
+			previousSnapshot = LatencyHistogram.Snapshot.empty();
+			routingTime = -1L;
+		}
+		
+		private void updateRoutingTime() {
+			LatencyHistogram.Snapshot snapshot = LatencyHistogram.Snapshot.empty();
+			for (EventRouterExecutor executor : sleeContainer.getEventRouter().getExecutors()) {
+				final EventRouterExecutorStatistics stats = executor.getStatistics();
+				if (stats == null) {
+					// stats are off
+					routingTime = -1L;
+					return;
+				}
+				snapshot = snapshot.add(stats.getEventRoutingTimeSnapshot());
+			}
+			// the histograms are not reset here, they also provide the routing time percentiles of the stats mbean  
+			final LatencyHistogram.Snapshot periodSnapshot = snapshot.subtract(previousSnapshot);
+			previousSnapshot = snapshot;
+			// 0 if nothing was routed
+			routingTime = TimeUnit.NANOSECONDS.toMillis(periodSnapshot.getValueAtPercentile(ROUTING_TIME_PERCENTILE));
+		}
+		
+		@Override
+		String getName() {
+			return "event routing time";
+		}
+		
+		@Override
+		boolean shouldTurnOn() {
+			final int max = configuration.getMaxEventRoutingTimeToTurnOn();
+			return max > 0 && routingTime > max;
+		}
+		
+		@Override
+		boolean shouldTurnOff() {
+			return routingTime >= 0 && routingTime <= configuration.getMaxEventRoutingTimeToTurnOff();
+		}
+		
+		@Override
+		String getAlarmMessage() {
+			return "Congestion Control activated since the event routing time at percentile "+ROUTING_TIME_PERCENTILE+" is more than "+configuration.getMaxEventRoutingTimeToTurnOn()+" ms";
+		}
 	}
 	
 	private int getFreeMemoryPercentage() {
 		return (int) ((getFreeMemory()*100)/getMaxMemory());
 	}
 	
+	private int getMaxEventRouterQueueLength() {
+		int max = 0;
+		for (EventRouterExecutor executor : sleeContainer.getEventRouter().getExecutors()) {
+			final int queueLength = executor.getQueueLenth();
+			if (queueLength > max) {
+				max = queueLength;
+			}
+		}
+		return max;
+	}
+	
 	// -- EXPOSED DUE TO TESTS
 	
 	protected ScheduledExecutorService getScheduler() {
@@ -169,17 +357,17 @@ public class CongestionControlImpl extends AbstractSleeContainerModule implement
 		return Runtime.getRuntime().maxMemory();
 	}
 	
-	protected void raiseAlarm() {
-		if (alarmID == null) {
+	private void raiseAlarm(Monitor monitor) {
+		if (monitor.alarmID == null) {
 			alarmIdCounter++;
-			alarmID = alarmFacility.raiseAlarm(ALARM_TYPE, Integer.toString(alarmIdCounter), AlarmLevel.CRITICAL, "Congestion Control activated since free memory is less than "+configuration.getMinFreeMemoryToTurnOn());
+			monitor.alarmID = alarmFacility.raiseAlarm(ALARM_TYPE, Integer.toString(alarmIdCounter), AlarmLevel.CRITICAL, monitor.getAlarmMessage());
 		}
 	}
 	
-	protected void clearAlarm() {
-		if (alarmID != null) {
-			alarmFacility.clearAlarm(alarmID);
-			alarmID = null;
+	private void clearAlarm(Monitor monitor) {
+		if (monitor.alarmID != null) {
+			alarmFacility.clearAlarm(monitor.alarmID);
+			monitor.alarmID = null;
 		}
 	}
 }
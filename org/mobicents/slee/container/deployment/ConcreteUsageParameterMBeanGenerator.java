@@ -51,6 +51,7 @@ import org.apache.log4j.Logger;
 import org.mobicents.slee.container.component.ClassPool;
 import org.mobicents.slee.container.component.SleeComponentWithUsageParametersInterface;
 import org.mobicents.slee.container.component.sbb.SbbComponent;
+import org.mobicents.slee.container.management.jmx.SamplePercentilesUsageMBean;
 import org.mobicents.slee.container.management.jmx.SbbUsageMBeanImpl;
 import org.mobicents.slee.container.management.jmx.UsageMBeanImpl;
 
@@ -126,6 +127,7 @@ public class ConcreteUsageParameterMBeanGenerator {
         String concreteMBeanInterfaceName = usageParamInterfaceName + "MBean";
         CtClass ctInterface = classPool.makeInterface(concreteMBeanInterfaceName);
 		ctInterface.addInterface(usageMBeanInterface);
+		ctInterface.addInterface(classPool.get(SamplePercentilesUsageMBean.class.getName()));
         // generate the mbean class
 		String concreteMBeanClassName = usageParamInterfaceName + "MBeanImpl";
         CtClass ctClass = classPool.makeClass(concreteMBeanClassName);
@@ -35,6 +35,10 @@ public class Configuration {
 	
 	private boolean clusteredProfiles;
 	
+	private boolean indexedProfiles = true;
+	
+	private int profileEntityCacheSize = 10000;
+	
 	private String hibernateDatasource;
 	
 	private String hibernateDialect;
@@ -63,6 +67,45 @@ public class Configuration {
 		this.clusteredProfiles = clusteredProfiles;
 	}
 
+	/**
+	 * Indicates if the attributes declared as indexed by profile
+	 * specifications are kept in memory, to serve queries without going to
+	 * the database. Not used with clustered profiles, since other cluster
+	 * nodes may change the profiles.
+	 * 
+	 * @return the indexedProfiles
+	 */
+	public boolean isIndexedProfiles() {
+		return indexedProfiles;
+	}
+
+	/**
+	 *  
+	 * @param indexedProfiles the indexedProfiles to set
+	 */
+	public void setIndexedProfiles(boolean indexedProfiles) {
+		this.indexedProfiles = indexedProfiles;
+	}
+
+	/**
+	 * Retrieves the max number of read only profile snapshots cached in
+	 * memory, 0 disables the cache. Not used with clustered profiles, since
+	 * other cluster nodes may change the profiles.
+	 * 
+	 * @return the profileEntityCacheSize
+	 */
+	public int getProfileEntityCacheSize() {
+		return profileEntityCacheSize;
+	}
+
+	/**
+	 *  
+	 * @param profileEntityCacheSize the profileEntityCacheSize to set
+	 */
+	public void setProfileEntityCacheSize(int profileEntityCacheSize) {
+		this.profileEntityCacheSize = profileEntityCacheSize;
+	}
+
 	/**
 	 *  
 	 * @return the persistProfiles
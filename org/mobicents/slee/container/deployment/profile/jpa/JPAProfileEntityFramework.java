@@ -29,12 +29,14 @@ import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.naming.InitialContext;
 import javax.persistence.EntityManager;
@@ -120,15 +122,31 @@ public class JPAProfileEntityFramework implements ProfileEntityFramework {
 	
 	private final Configuration configuration;
 
+	/**
+	 * the cache of profile entity snapshots, null if not used
+	 */
+	private final ProfileEntityCache profileEntityCache;
+
+	/**
+	 * the tables with profile snapshots stored in the cache, which are
+	 * discarded when the framework is uninstalled
+	 */
+	private final Set<String> cachedProfileTables = Collections
+			.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
 	/**
 	 * 
 	 * @param component
+	 * @param configuration
+	 * @param sleeTransactionManager
+	 * @param profileEntityCache
 	 */
-	public JPAProfileEntityFramework(ProfileSpecificationComponent component, Configuration configuration, SleeTransactionManager sleeTransactionManager) {
+	public JPAProfileEntityFramework(ProfileSpecificationComponent component, Configuration configuration, SleeTransactionManager sleeTransactionManager, ProfileEntityCache profileEntityCache) {
 		this.component = component;
 		this.component.setProfileEntityFramework(this);
 		this.sleeTransactionManager = sleeTransactionManager;
 		this.configuration = configuration;
+		this.profileEntityCache = profileEntityCache;
 	}
 
 	// GETTERS / SETTERS
@@ -494,6 +512,105 @@ public class JPAProfileEntityFramework implements ProfileEntityFramework {
 
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.container.profile.entity.ProfileEntityFramework
+	 * #retrieveProfileSnapshot(java.lang.String, java.lang.String)
+	 */
+	public ProfileEntity retrieveProfileSnapshot(String profileTable,
+			String profileName) {
+
+		if (profileEntityCache == null || profileName == null
+				|| sleeTransactionManager.getTransactionContext().getData()
+						.containsKey(getChangesTxDataKey())) {
+			// the tx may see changes not committed yet
+			return retrieveProfile(profileTable, profileName);
+		}
+
+		ProfileEntity snapshot = profileEntityCache.get(profileTable,
+				profileName);
+		if (snapshot == null) {
+			final long version = profileEntityCache.getVersion();
+			final ProfileEntity profileEntity = retrieveProfile(profileTable,
+					profileName);
+			if (profileEntity == null || profileEntity.isDirty()) {
+				return profileEntity;
+			}
+			snapshot = profileEntityFactory.newInstance(profileTable,
+					profileName);
+			if (System.getSecurityManager() == null) {
+				profileEntityFactory.copyAttributes(profileEntity, snapshot);
+			} else {
+				final ProfileEntity source = profileEntity;
+				final ProfileEntity target = snapshot;
+				AccessController.doPrivileged(new PrivilegedAction<Object>() {
+					public Object run() {
+						profileEntityFactory.copyAttributes(source, target);
+						return null;
+					}
+				});
+			}
+			snapshot.setReadOnly(true);
+			snapshot.setSnapshot(true);
+			cachedProfileTables.add(profileTable);
+			profileEntityCache.put(snapshot, version);
+		}
+		return snapshot;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.container.profile.entity.ProfileEntityFramework
+	 * #profileChanged(java.lang.String, java.lang.String)
+	 */
+	@SuppressWarnings("unchecked")
+	public void profileChanged(final String profileTable,
+			final String profileName) {
+
+		if (profileEntityCache == null || profileName == null) {
+			return;
+		}
+
+		final TransactionContext txContext = sleeTransactionManager
+				.getTransactionContext();
+		txContext.getData().put(getChangesTxDataKey(), Boolean.TRUE);
+		TransactionalAction action = new TransactionalAction() {
+			public void execute() {
+				profileEntityCache.invalidate(profileTable, profileName);
+			}
+		};
+		txContext.getAfterCommitActions().add(action);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.container.profile.entity.ProfileEntityFramework
+	 * #profileTableRemoved(java.lang.String)
+	 */
+	@SuppressWarnings("unchecked")
+	public void profileTableRemoved(final String profileTable) {
+
+		if (profileEntityCache == null) {
+			return;
+		}
+
+		final TransactionContext txContext = sleeTransactionManager
+				.getTransactionContext();
+		txContext.getData().put(getChangesTxDataKey(), Boolean.TRUE);
+		TransactionalAction action = new TransactionalAction() {
+			public void execute() {
+				profileEntityCache.invalidate(profileTable);
+			}
+		};
+		txContext.getAfterCommitActions().add(action);
+	}
+
     /*
      * (non-Javadoc)
      * 
@@ -524,6 +641,16 @@ public class JPAProfileEntityFramework implements ProfileEntityFramework {
               .setParameter(1, newProfileTableName).setParameter(2, oldProfileTableName);
 
       q.executeUpdate();
+
+      if (profileEntityCache != null) {
+    	  final String profileTable = oldProfileTableName;
+    	  TransactionalAction action = new TransactionalAction() {
+    		  public void execute() {
+    			  profileEntityCache.invalidate(profileTable);
+    		  }
+    	  };
+    	  sleeTransactionManager.getTransactionContext().getAfterCommitActions().add(action);
+      }
     }
 
 	/*
@@ -581,6 +708,13 @@ public class JPAProfileEntityFramework implements ProfileEntityFramework {
 			if (entityManagerFactory != null) {
 				entityManagerFactory.close();
 			}
+			if (profileEntityCache != null) {
+				// the snapshots are instances of classes being uninstalled
+				for (String profileTable : cachedProfileTables) {
+					profileEntityCache.invalidate(profileTable);
+				}
+				cachedProfileTables.clear();
+			}
 			try {
 				sleeTransactionManager.resume(tx);
 			} catch (Throwable e) {
@@ -699,6 +833,21 @@ public class JPAProfileEntityFramework implements ProfileEntityFramework {
 	 */
 	private String txDataKey = null;
 
+	private String changesTxDataKey = null;
+
+	/**
+	 * Retrieves the key of the tx context data flag, which indicates the
+	 * current tx changed profiles of the framework profile spec
+	 * 
+	 * @return
+	 */
+	private String getChangesTxDataKey() {
+		if (changesTxDataKey == null) {
+			changesTxDataKey = new StringBuilder("jpapef.changes.").append(component.getProfileSpecificationID()).toString();
+		}
+		return changesTxDataKey;
+	}
+
 	/**
 	 * Retrieves the entity manager for the current tx and the framework profile
 	 * spec
@@ -0,0 +1,272 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.container.deployment.profile.jpa;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mobicents.slee.container.profile.entity.ProfileEntity;
+
+/**
+ * Bounded cache of read only profile entity snapshots, keyed by profile table
+ * and profile name. The cache is split in segments, each one evicting its
+ * least recently used snapshots once full.
+ * 
+ * Snapshots loaded by a transaction are only stored if no profile was
+ * invalidated meanwhile, this way a snapshot loaded before a concurrent
+ * commit never replaces the invalidation done by that commit.
+ * 
+ */
+public class ProfileEntityCache {
+
+	private static final int SEGMENTS = 16;
+
+	private final Segment[] segments;
+
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+	private final AtomicLong evictions = new AtomicLong(0);
+
+	/**
+	 * the number of invalidations, used as version of the cache content
+	 */
+	private final AtomicLong invalidations = new AtomicLong(0);
+
+	/**
+	 * 
+	 * @param capacity
+	 *            the max number of snapshots in the cache
+	 */
+	public ProfileEntityCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("invalid capacity " + capacity);
+		}
+		final int segmentCapacity = Math.max(1, capacity / SEGMENTS);
+		segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(segmentCapacity);
+		}
+	}
+
+	private Segment getSegment(Key key) {
+		int h = key.hashCode();
+		h ^= (h >>> 20) ^ (h >>> 12);
+		h ^= (h >>> 7) ^ (h >>> 4);
+		return segments[h & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * Retrieves the snapshot of the specified profile.
+	 * 
+	 * @param profileTable
+	 * @param profileName
+	 * @return null if the snapshot is not in the cache
+	 */
+	public ProfileEntity get(String profileTable, String profileName) {
+		final Key key = new Key(profileTable, profileName);
+		final Segment segment = getSegment(key);
+		ProfileEntity snapshot = null;
+		synchronized (segment) {
+			snapshot = segment.get(key);
+		}
+		if (snapshot != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Retrieves the current version of the cache content, which must be
+	 * obtained before loading a snapshot to store.
+	 * 
+	 * @return
+	 */
+	public long getVersion() {
+		return invalidations.get();
+	}
+
+	/**
+	 * Stores the snapshot of a profile, if there were no invalidations since
+	 * the specified version.
+	 * 
+	 * @param snapshot
+	 * @param version
+	 */
+	public void put(ProfileEntity snapshot, long version) {
+		final Key key = new Key(snapshot.getTableName(), snapshot
+				.getProfileName());
+		final Segment segment = getSegment(key);
+		synchronized (segment) {
+			if (version == invalidations.get()) {
+				segment.put(key, snapshot);
+			}
+		}
+	}
+
+	/**
+	 * Removes the snapshot of the specified profile.
+	 * 
+	 * @param profileTable
+	 * @param profileName
+	 */
+	public void invalidate(String profileTable, String profileName) {
+		final Key key = new Key(profileTable, profileName);
+		final Segment segment = getSegment(key);
+		synchronized (segment) {
+			invalidations.incrementAndGet();
+			segment.remove(key);
+		}
+	}
+
+	/**
+	 * Removes the snapshots of all profiles in the specified table.
+	 * 
+	 * @param profileTable
+	 */
+	public void invalidate(String profileTable) {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				invalidations.incrementAndGet();
+				for (Iterator<Key> it = segment.keySet().iterator(); it
+						.hasNext();) {
+					if (it.next().profileTable.equals(profileTable)) {
+						it.remove();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all snapshots.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				invalidations.incrementAndGet();
+				segment.clear();
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the number of snapshots in the cache.
+	 * 
+	 * @return
+	 */
+	public int getSize() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Retrieves the ratio of lookups which found the snapshot in the cache.
+	 * 
+	 * @return a value between 0 and 1
+	 */
+	public double getHitRatio() {
+		final long hits = this.hits.get();
+		final long lookups = hits + misses.get();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	@SuppressWarnings("serial")
+	private class Segment extends LinkedHashMap<Key, ProfileEntity> {
+
+		private final int capacity;
+
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, ProfileEntity> eldest) {
+			if (size() > capacity) {
+				evictions.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private static class Key {
+
+		private final String profileTable;
+		private final String profileName;
+
+		Key(String profileTable, String profileName) {
+			this.profileTable = profileTable;
+			this.profileName = profileName;
+		}
+
+		@Override
+		public int hashCode() {
+			return profileTable.hashCode() * 31 + profileName.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			final Key other = (Key) obj;
+			return profileName.equals(other.profileName)
+					&& profileTable.equals(other.profileTable);
+		}
+	}
+}
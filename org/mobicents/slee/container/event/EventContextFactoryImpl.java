@@ -31,6 +31,7 @@ import javax.slee.ServiceID;
 
 import org.mobicents.slee.container.AbstractSleeContainerModule;
 import org.mobicents.slee.container.activity.ActivityContext;
+import org.mobicents.slee.container.eventrouter.EventRouterExecutor;
 
 /**
  * @author martins
@@ -78,6 +79,20 @@ public class EventContextFactoryImpl extends AbstractSleeContainerModule
 			EventProcessingSucceedCallback succeedCallback,
 			EventProcessingFailedCallback failedCallback,
 			EventUnreferencedCallback unreferencedCallback) {
+		if (succeedCallback == null && failedCallback == null
+				&& unreferencedCallback == null) {
+			// no callbacks, use a lean context from the executor pool, if any
+			final EventRouterExecutor executor = ac.getLocalActivityContext().getExecutorService();
+			final EventContextPool pool = executor == null ? null : executor.getEventContextPool();
+			if (pool != null) {
+				PooledEventContextImpl eventContext = pool.acquire();
+				if (eventContext == null) {
+					eventContext = new PooledEventContextImpl(this, pool);
+				}
+				eventContext.init(eventTypeId, eventObject, ac, address, serviceID);
+				return eventContext;
+			}
+		}
 		final EventReferencesHandlerImpl referencesHandler = new EventReferencesHandlerImpl();
 		final EventContextData data = dataSource.newEventContextData(
 				eventTypeId, eventObject, ac, address, serviceID,
@@ -94,6 +109,10 @@ public class EventContextFactoryImpl extends AbstractSleeContainerModule
 	public EventContext createEventContext(EventTypeID eventTypeId,
 			Object eventObject, ActivityContext ac, Address address,
 			ServiceID serviceID, ReferencesHandler referencesHandler) {
+		if (referencesHandler instanceof PooledEventContextImpl) {
+			// the lean context now tracks references of another event too
+			((PooledEventContextImpl) referencesHandler).referencesShared();
+		}
 		final EventContextData data = dataSource.newEventContextData(
 				eventTypeId, eventObject, ac, address, serviceID,
 				null, null, null,referencesHandler);
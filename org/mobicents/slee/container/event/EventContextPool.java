@@ -0,0 +1,95 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.container.event;
+
+import org.mobicents.slee.container.util.concurrent.BoundedRingBuffer;
+
+/**
+ * Bounded pool of {@link PooledEventContextImpl}s, owned by an event router
+ * executor. Contexts are taken by the threads firing events on activities
+ * mapped to the executor, and returned once the routing of the event ends,
+ * thus the pool is backed by a lock-free multi producer and multi consumer
+ * buffer. If the pool is empty a new context is created, if it is full the
+ * context returned is left for the garbage collector.
+ * 
+ */
+public class EventContextPool {
+
+	/**
+	 * the default max number of idle contexts in the pool
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private final BoundedRingBuffer<PooledEventContextImpl> contexts;
+
+	/**
+	 * 
+	 * @param capacity
+	 *            the max number of idle contexts, rounded up to a power of 2
+	 */
+	public EventContextPool(int capacity) {
+		this.contexts = new BoundedRingBuffer<PooledEventContextImpl>(capacity);
+	}
+
+	/**
+	 * Takes an idle context from the pool.
+	 * 
+	 * @return null if the pool is empty
+	 */
+	PooledEventContextImpl acquire() {
+		return contexts.poll();
+	}
+
+	/**
+	 * Returns the specified context to the pool.
+	 * 
+	 * @param eventContext
+	 */
+	void release(PooledEventContextImpl eventContext) {
+		contexts.offer(eventContext);
+	}
+
+	/**
+	 * Retrieves the number of idle contexts in the pool.
+	 * 
+	 * @return
+	 */
+	public int getSize() {
+		return contexts.size();
+	}
+
+	/**
+	 * Retrieves the max number of idle contexts in the pool.
+	 * 
+	 * @return
+	 */
+	public int getCapacity() {
+		return contexts.capacity();
+	}
+
+	@Override
+	public String toString() {
+		return "EventContextPool[ size = " + contexts.size() + " , capacity = "
+				+ contexts.capacity() + " ]";
+	}
+}
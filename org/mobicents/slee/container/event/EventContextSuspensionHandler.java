@@ -52,14 +52,14 @@ public class EventContextSuspensionHandler {
 	 */
 	private static final int DEFAULT_TIMEOUT = 10000;
 
-	private final EventContextImpl event;
+	private final LazyStoredEventContext event;
 
 	private final SleeContainer sleeContainer;
 	
 	/**
 	 * 
 	 */
-	public EventContextSuspensionHandler(EventContextImpl eventContext) {
+	public EventContextSuspensionHandler(LazyStoredEventContext eventContext) {
 		this.event = eventContext;
 		this.sleeContainer = eventContext.factory.getSleeContainer();
 	}
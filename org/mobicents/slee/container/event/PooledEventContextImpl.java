@@ -0,0 +1,361 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.container.event;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.slee.ActivityContextInterface;
+import javax.slee.Address;
+import javax.slee.EventTypeID;
+import javax.slee.SLEEException;
+import javax.slee.ServiceID;
+import javax.slee.TransactionRequiredLocalException;
+import javax.slee.resource.FailureReason;
+
+import org.mobicents.slee.container.activity.ActivityContext;
+import org.mobicents.slee.container.activity.ActivityContextHandle;
+import org.mobicents.slee.container.activity.LocalActivityContext;
+import org.mobicents.slee.container.component.service.ServiceComponent;
+import org.mobicents.slee.container.sbbentity.SbbEntityID;
+
+/**
+ * Lean {@link EventContext} for events fired without callbacks, which is its
+ * own data and references handler, and is returned to the
+ * {@link EventContextPool} of the activity executor once the event is
+ * unreferenced, i.e. its routing ended.
+ * 
+ * A context is not recycled if it was suspended, if its handle was requested,
+ * if its processing failed, or if its references handler was shared with
+ * another event, since in all these cases it may still be reachable.
+ * 
+ */
+public class PooledEventContextImpl extends LazyStoredEventContext implements
+		ReferencesHandler {
+
+	private final EventContextPool pool;
+
+	private final AtomicInteger references = new AtomicInteger(0);
+
+	private EventTypeID eventTypeId;
+	private Object eventObject;
+	private Address address;
+	private ServiceID serviceID;
+	private LocalActivityContext localActivityContext;
+
+	/**
+	 * the set containing all sbb entities that handled the event so far, kept
+	 * (empty) when the context is recycled
+	 */
+	private Set<SbbEntityID> sbbEntitiesThatHandledEvent;
+
+	/**
+	 * the ordered list containing all active services that will process this
+	 * event as initial, kept (empty) when the context is recycled
+	 */
+	private LinkedList<ServiceComponent> activeServicesToProcessEventAsInitial;
+
+	private EventContextSuspensionHandler suspensionHandler;
+
+	/**
+	 * indicates if the context may be returned to the pool once unreferenced
+	 */
+	private volatile boolean recyclable;
+
+	/**
+	 * 
+	 * @param factory
+	 * @param pool
+	 */
+	PooledEventContextImpl(EventContextFactoryImpl factory,
+			EventContextPool pool) {
+		super(factory);
+		this.pool = pool;
+	}
+
+	/**
+	 * Initiates the context for a new event.
+	 * 
+	 * @param eventTypeId
+	 * @param eventObject
+	 * @param ac
+	 * @param address
+	 * @param serviceID
+	 */
+	void init(EventTypeID eventTypeId, Object eventObject, ActivityContext ac,
+			Address address, ServiceID serviceID) {
+		this.eventTypeId = eventTypeId;
+		this.eventObject = eventObject;
+		this.localActivityContext = ac.getLocalActivityContext();
+		this.address = address;
+		this.serviceID = serviceID;
+		this.references.set(0);
+		this.recyclable = true;
+	}
+
+	/**
+	 * Indicates that the references handler of this context was given to
+	 * another event, thus the context can't be recycled.
+	 */
+	void referencesShared() {
+		recyclable = false;
+	}
+
+	private void suspensionHandlerLazyInit() {
+		// once suspended the context is kept by the activity and the timer
+		recyclable = false;
+		if (suspensionHandler == null) {
+			suspensionHandler = new EventContextSuspensionHandler(this);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.event.EventContext#barrierEvent(org.mobicents.slee.container.event.EventContext)
+	 */
+	public void barrierEvent(EventContext event) {
+		suspensionHandlerLazyInit();
+		suspensionHandler.barrierEvent(event);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.event.EventContext#getActiveServicesToProcessEventAsInitial()
+	 */
+	public LinkedList<ServiceComponent> getActiveServicesToProcessEventAsInitial() {
+		if (activeServicesToProcessEventAsInitial == null) {
+			activeServicesToProcessEventAsInitial = new LinkedList<ServiceComponent>();
+		}
+		return activeServicesToProcessEventAsInitial;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.event.EventContext#getActivityContextHandle()
+	 */
+	public ActivityContextHandle getActivityContextHandle() {
+		return localActivityContext.getActivityContextHandle();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see javax.slee.EventContext#getActivityContextInterface()
+	 */
+	public ActivityContextInterface getActivityContextInterface() {
+		return factory.getSleeContainer().getActivityContextFactory().getActivityContext(getActivityContextHandle()).getActivityContextInterface();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.event.LazyStoredEventContext#getEventContextHandle()
+	 */
+	@Override
+	public EventContextHandle getEventContextHandle() {
+		// the handle may be stored, e.g. in a cmp field
+		recyclable = false;
+		return super.getEventContextHandle();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.event.EventContext#getReferencesHandler()
+	 */
+	public ReferencesHandler getReferencesHandler() {
+		return this;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.event.EventContext#getSbbEntitiesThatHandledEvent()
+	 */
+	public Set<SbbEntityID> getSbbEntitiesThatHandledEvent() {
+		if (sbbEntitiesThatHandledEvent == null) {
+			sbbEntitiesThatHandledEvent = new HashSet<SbbEntityID>();
+		}
+		return sbbEntitiesThatHandledEvent;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see javax.slee.EventContext#isSuspended()
+	 */
+	public boolean isSuspended() throws TransactionRequiredLocalException,
+			SLEEException {
+		if (suspensionHandler == null) {
+			// never suspended and no suspend op queued for tx commit
+			factory.getSleeContainer().getTransactionManager().mandateTransaction();
+			return false;
+		}
+		return suspensionHandler.isSuspended();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.event.EventContext#isSuspendedNotTransacted()
+	 */
+	public boolean isSuspendedNotTransacted() {
+		return suspensionHandler != null && suspensionHandler.isSuspendedNotTransacted();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see javax.slee.EventContext#resumeDelivery()
+	 */
+	public void resumeDelivery() throws IllegalStateException,
+			TransactionRequiredLocalException, SLEEException {
+		suspensionHandlerLazyInit();
+		suspensionHandler.resumeDelivery();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see javax.slee.EventContext#suspendDelivery()
+	 */
+	public void suspendDelivery() throws IllegalStateException,
+			TransactionRequiredLocalException, SLEEException {
+		suspensionHandlerLazyInit();
+		suspensionHandler.suspendDelivery();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see javax.slee.EventContext#suspendDelivery(int)
+	 */
+	public void suspendDelivery(int arg0) throws IllegalArgumentException,
+			IllegalStateException, TransactionRequiredLocalException,
+			SLEEException {
+		suspensionHandlerLazyInit();
+		suspensionHandler.suspendDelivery(arg0);
+	}
+
+	public Address getAddress() {
+		return address;
+	}
+
+	public Object getEvent() {
+		return eventObject;
+	}
+
+	public EventTypeID getEventTypeId() {
+		return eventTypeId;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.event.EventContext#eventProcessingFailed(javax.slee.resource.FailureReason)
+	 */
+	public void eventProcessingFailed(FailureReason reason) {
+		// the event may still be in the activity queues
+		recyclable = false;
+		eventUnreferenced();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.event.EventContext#eventProcessingSucceed()
+	 */
+	public void eventProcessingSucceed(boolean sbbProcessedEvent) {
+		// no callback
+	}
+
+	public LocalActivityContext getLocalActivityContext() {
+		return localActivityContext;
+	}
+
+	public ServiceID getService() {
+		return serviceID;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.event.EventContext#isActivityEndEvent()
+	 */
+	public boolean isActivityEndEvent() {
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.event.EventContext#unreferencedCallbackRequiresTransaction()
+	 */
+	public boolean unreferencedCallbackRequiresTransaction() {
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.event.ReferencesHandler#add(org.mobicents.slee.container.activity.ActivityContextHandle)
+	 */
+	public void add(ActivityContextHandle ach) {
+		references.incrementAndGet();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.event.ReferencesHandler#remove(org.mobicents.slee.container.activity.ActivityContextHandle)
+	 */
+	public void remove(ActivityContextHandle ach) {
+		if (references.decrementAndGet() == 0) {
+			eventUnreferenced();
+		}
+	}
+
+	/**
+	 * 
+	 */
+	private void eventUnreferenced() {
+		super.remove();
+		if (recyclable) {
+			recyclable = false;
+			recycle();
+		}
+	}
+
+	/**
+	 * Clears the event state and returns the context to the pool.
+	 */
+	private void recycle() {
+		eventTypeId = null;
+		eventObject = null;
+		address = null;
+		serviceID = null;
+		localActivityContext = null;
+		if (sbbEntitiesThatHandledEvent != null) {
+			sbbEntitiesThatHandledEvent.clear();
+		}
+		if (activeServicesToProcessEventAsInitial != null) {
+			activeServicesToProcessEventAsInitial.clear();
+		}
+		pool.release(this);
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder("EventContext[event type id = ").append(
+				eventTypeId).append(" , event = ").append(eventObject).append(
+				" , local ac = ").append(localActivityContext == null ? null : localActivityContext.getActivityContextHandle()).append(" , address = ").append(
+				address).append(" , serviceID = ").append(serviceID).append(']').toString();
+	}
+}
@@ -29,6 +29,7 @@ import java.util.concurrent.ExecutionException;
 
 import org.mobicents.slee.container.activity.ActivityContextHandle;
 import org.mobicents.slee.container.event.EventContext;
+import org.mobicents.slee.container.event.EventContextPool;
 import org.mobicents.slee.container.eventrouter.stats.EventRouterExecutorStatistics;
 
 /**
@@ -56,7 +57,18 @@ public interface EventRouterExecutor {
 	 * @param ach
 	 */
 	public void activityUnmapped(ActivityContextHandle ach);
-	
+
+	/**
+	 * Retrieves the executor which should be used by the activity with the
+	 * specified handle, after this executor was mapped to it. Single thread
+	 * executors return themselves, executors which share threads between
+	 * activities return a view which serializes the activity tasks.
+	 *
+	 * @param ach
+	 * @return
+	 */
+	public EventRouterExecutor getActivityExecutor(ActivityContextHandle ach);
+
 	/**
 	 * Executes a misc {@link Runnable} task.
 	 * 
@@ -80,6 +92,14 @@ public interface EventRouterExecutor {
 	 */
 	public EventRouterExecutorStatistics getStatistics();
 
+	/**
+	 * Retrieves the pool of lean event contexts, used for events fired on
+	 * activities mapped to this executor, and recycled once routed.
+	 * 
+	 * @return null if the executor is not pooling event contexts.
+	 */
+	public EventContextPool getEventContextPool();
+
 	/**
 	 * Routes the specified event.
 	 * @param event
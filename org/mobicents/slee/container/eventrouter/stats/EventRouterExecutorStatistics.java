@@ -27,6 +27,8 @@ package org.mobicents.slee.container.eventrouter.stats;
 
 import javax.slee.EventTypeID;
 
+import org.mobicents.slee.container.util.concurrent.LatencyHistogram;
+
 /**
  * Performance and load statistics for an {@link EventRouterExecutor}, in the
  * SLEE {@link EventRouter}.
@@ -131,6 +133,13 @@ public interface EventRouterExecutorStatistics {
 	 */
 	public long getAverageEventRoutingTime();
 	
+	/**
+	 * Retrieves a snapshot of the routing time histograms of all event types,
+	 * the histograms are not reset.
+	 * @return
+	 */
+	public LatencyHistogram.Snapshot getEventRoutingTimeSnapshot();
+	
 	/**
 	 * Retrieves the average time spent to route one event of the specified type.
 	 * @return
@@ -109,6 +109,39 @@ public interface EventRouterStatistics {
 	 */
 	public long getEventsRouted(int executor, EventTypeID eventTypeID);
 
+	/**
+	 * Retrieves the event routing time at the specified percentiles, for all
+	 * event router executors.
+	 * 
+	 * @param percentiles
+	 *            the percentiles, between 0 and 100
+	 * @param reset
+	 *            if true the routing time histograms are reset, so the next
+	 *            invocation retrieves an interval snapshot
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if a percentile is not between 0 and 100
+	 */
+	public long[] getEventRoutingTimePercentiles(double[] percentiles,
+			boolean reset) throws IllegalArgumentException;
+
+	/**
+	 * Retrieves the routing time of events of the specified type, at the
+	 * specified percentiles, for all event router executors.
+	 * 
+	 * @param eventTypeID
+	 * @param percentiles
+	 *            the percentiles, between 0 and 100
+	 * @param reset
+	 *            if true the routing time histograms are reset, so the next
+	 *            invocation retrieves an interval snapshot
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if a percentile is not between 0 and 100
+	 */
+	public long[] getEventRoutingTimePercentiles(EventTypeID eventTypeID,
+			double[] percentiles, boolean reset) throws IllegalArgumentException;
+
 	/**
 	 * Retrieves the number of tasks executed, which is the sum of the events
 	 * routed for each {@link EventTypeID}, and also the misc tasks executed.
@@ -27,6 +27,8 @@ package org.mobicents.slee.container.eventrouter.stats;
 
 import javax.slee.EventTypeID;
 
+import org.mobicents.slee.container.util.concurrent.LatencyHistogram;
+
 /**
  * Statistics for the routing of events with a specific {@link EventTypeID}.
  * 
@@ -62,4 +64,12 @@ public interface EventTypeRoutingStatistics {
 	 */
 	public long getRoutingTime();
 
+	/**
+	 * Retrieves the histogram of the time spent to route each event, which
+	 * provides the routing time percentiles.
+	 * 
+	 * @return
+	 */
+	public LatencyHistogram getRoutingTimeHistogram();
+
 }
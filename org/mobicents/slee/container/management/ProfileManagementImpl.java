@@ -49,6 +49,7 @@ import org.mobicents.slee.container.deployment.profile.SleeProfileClassCodeGener
 import org.mobicents.slee.container.deployment.profile.jpa.Configuration;
 import org.mobicents.slee.container.deployment.profile.jpa.JPAProfileEntityFramework;
 import org.mobicents.slee.container.deployment.profile.jpa.JPAProfileTableFramework;
+import org.mobicents.slee.container.deployment.profile.jpa.ProfileEntityCache;
 import org.mobicents.slee.container.profile.ProfileObjectPoolManagement;
 import org.mobicents.slee.container.profile.ProfileTableImpl;
 import org.mobicents.slee.container.profile.entity.ProfileEntityFramework;
@@ -88,6 +89,11 @@ public class ProfileManagementImpl extends AbstractSleeContainerModule implement
 	private final Configuration configuration;
 	private JPAProfileTableFramework profileTableFramework;
 	
+	/**
+	 * the cache of read only profile snapshots, shared by all profile entity frameworks, null if not used
+	 */
+	private ProfileEntityCache profileEntityCache;
+	
 	private ProfileObjectPoolManagement objectPoolManagement;
 	private ProfileFacility profileFacility;
 	private ProfileTableActivityContextInterfaceFactory profileTableActivityContextInterfaceFactory;
@@ -111,6 +117,16 @@ public class ProfileManagementImpl extends AbstractSleeContainerModule implement
 				profileFacility);
 		// FIXME if it is a framework then it should be passed as arg in the beans xml, and if possible be independent of slee 
 		this.profileTableFramework = new JPAProfileTableFramework(this, sleeContainer.getTransactionManager(), configuration);		
+		if (configuration.getProfileEntityCacheSize() > 0 && !configuration.isClusteredProfiles()) {
+			this.profileEntityCache = new ProfileEntityCache(configuration.getProfileEntityCacheSize());
+		}
+	}
+	
+	/**
+	 * @return the cache of read only profile snapshots, null if not used
+	 */
+	public ProfileEntityCache getProfileEntityCache() {
+		return profileEntityCache;
 	}
 	
 	/**
@@ -147,7 +163,7 @@ public class ProfileManagementImpl extends AbstractSleeContainerModule implement
 		try {
 			this.createJndiSpace(component);
 			// FIXME: we wont use trace and alarm in 1.0 way wont we?
-			ProfileEntityFramework profileEntityFramework = new JPAProfileEntityFramework(component,configuration,sleeContainer.getTransactionManager());
+			ProfileEntityFramework profileEntityFramework = new JPAProfileEntityFramework(component,configuration,sleeContainer.getTransactionManager(),profileEntityCache);
 			profileEntityFramework.install();
 			sleeProfileClassCodeGenerator.process(component);
 			profileTableFramework.loadProfileTables(component);			
@@ -46,6 +46,7 @@ import javax.slee.resource.ResourceAdaptorID;
 import javax.slee.resource.ResourceAdaptorTypeID;
 
 import org.mobicents.slee.container.SleeContainerModule;
+import org.mobicents.slee.container.component.event.EventTypeComponent;
 import org.mobicents.slee.container.component.ra.ResourceAdaptorComponent;
 import org.mobicents.slee.container.component.ratype.ResourceAdaptorTypeComponent;
 import org.mobicents.slee.container.resource.ResourceAdaptorEntity;
@@ -250,6 +251,14 @@ public interface ResourceManagement extends SleeContainerModule {
 	public void uninstallResourceAdaptorType(
 			ResourceAdaptorTypeComponent component);
 
+	/**
+	 * Uninstalls the specified {@link EventTypeComponent} from the container,
+	 * i.e. removes the references ra entities keep to it
+	 * 
+	 * @param component
+	 */
+	public void uninstallEventType(EventTypeComponent component);
+
 	/**
 	 * 
 	 * @see ResourceManagementMBean#updateConfigurationProperties(String,
@@ -31,6 +31,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import javax.management.ObjectName;
+import javax.slee.EventTypeID;
 import javax.slee.InvalidArgumentException;
 import javax.slee.InvalidStateException;
 import javax.slee.SLEEException;
@@ -58,6 +59,7 @@ import org.mobicents.slee.container.AbstractSleeContainerModule;
 import org.mobicents.slee.container.SleeContainer;
 import org.mobicents.slee.container.component.ComponentRepository;
 import org.mobicents.slee.container.component.classloading.ReplicationClassLoader;
+import org.mobicents.slee.container.component.event.EventTypeComponent;
 import org.mobicents.slee.container.component.ra.ResourceAdaptorComponent;
 import org.mobicents.slee.container.component.ratype.ResourceAdaptorTypeComponent;
 import org.mobicents.slee.container.component.sbb.ResourceAdaptorEntityBindingDescriptor;
@@ -1012,6 +1014,31 @@ public final class ResourceManagementImpl extends AbstractSleeContainerModule im
 		
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.ResourceManagement#uninstallEventType(org.mobicents.slee.container.component.event.EventTypeComponent)
+	 */
+	public void uninstallEventType(EventTypeComponent component) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Uninstalling " + component);
+		}
+		final EventTypeID eventTypeID = component.getEventTypeID();
+		TransactionalAction action = new TransactionalAction() {
+			public void execute() {
+				for (ResourceAdaptorEntityImpl raEntity : resourceAdaptorEntities.values()) {
+					raEntity.eventTypeUninstalled(eventTypeID);
+				}
+			}
+		};
+		final TransactionContext txContext = sleeContainer.getTransactionManager().getTransactionContext();
+		if (txContext != null) {
+			txContext.getAfterCommitActions().add(action);
+		}
+		else {
+			action.execute();
+		}
+	}
+	
 	/**
 	 * Uninstalls the specified {@link ResourceAdaptorComponent} from the container
 	 * @param component
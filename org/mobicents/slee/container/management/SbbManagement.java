@@ -71,6 +71,12 @@ public interface SbbManagement extends SleeContainerModule {
 	 * @param serviceComponent
 	 */
 	public void serviceInstall(ServiceComponent serviceComponent);
+
+	/**
+	 * Warms up the object pools of the service sbbs, if configured.
+	 * @param serviceComponent
+	 */
+	public void serviceActivate(ServiceComponent serviceComponent);
 	
 	/**
 	 * 
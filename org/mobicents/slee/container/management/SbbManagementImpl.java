@@ -91,6 +91,15 @@ public class SbbManagementImpl extends AbstractSleeContainerModule implements Sb
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.SbbManagement#serviceActivate(org.mobicents.slee.container.component.service.ServiceComponent)
+	 */
+	public void serviceActivate(ServiceComponent serviceComponent) {
+		for (SbbID sbbID : serviceComponent.getSbbIDs(sleeContainer.getComponentRepository())) {
+			sbbPoolManagement.warmUpObjectPool(serviceComponent.getServiceID(), sbbID);
+		}
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.mobicents.slee.container.management.SbbManagement#serviceUninstall(org.mobicents.slee.core.component.service.ServiceComponent)
 	 */
@@ -262,6 +262,9 @@ public class ServiceManagementImpl extends AbstractSleeContainerModule
 			// change service state
 			serviceComponent.setServiceState(ServiceState.ACTIVE);
 
+			// fill the sbb object pools before events are routed
+			sleeContainer.getSbbManagement().serviceActivate(serviceComponent);
+
 			// lets cache some info in the event components this service refer
 			for (EventEntryDescriptor mEventEntry : serviceComponent
 					.getRootSbbComponent().getDescriptor().getEventEntries()
@@ -41,6 +41,14 @@ public class CongestionControlConfiguration implements CongestionControlConfigur
 	
 	private boolean refuseFireEvent;
 	
+	private int maxEventRouterQueueLengthToTurnOn;
+	
+	private int maxEventRouterQueueLengthToTurnOff;
+	
+	private int maxEventRoutingTimeToTurnOn;
+	
+	private int maxEventRoutingTimeToTurnOff;
+	
 	private CongestionControlImpl congestureControl;
 
 	/**
@@ -157,8 +165,96 @@ public class CongestionControlConfiguration implements CongestionControlConfigur
 		this.refuseFireEvent = refuseFireEvent;
 	}	
 	
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.CongestionControlConfigurationMBean#getMaxEventRouterQueueLengthToTurnOn()
+	 */
+	public int getMaxEventRouterQueueLengthToTurnOn() {
+		return maxEventRouterQueueLengthToTurnOn;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.CongestionControlConfigurationMBean#setMaxEventRouterQueueLengthToTurnOn(int)
+	 */
+	public void setMaxEventRouterQueueLengthToTurnOn(int maxEventRouterQueueLengthToTurnOn) throws IllegalArgumentException {
+		if (maxEventRouterQueueLengthToTurnOn < 0) {
+			throw new IllegalArgumentException("param value must not be negative");
+		}
+		this.maxEventRouterQueueLengthToTurnOn = maxEventRouterQueueLengthToTurnOn;
+		if (congestureControl != null) {
+			congestureControl.configurationUpdate();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.CongestionControlConfigurationMBean#getMaxEventRouterQueueLengthToTurnOff()
+	 */
+	public int getMaxEventRouterQueueLengthToTurnOff() {
+		return maxEventRouterQueueLengthToTurnOff;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.CongestionControlConfigurationMBean#setMaxEventRouterQueueLengthToTurnOff(int)
+	 */
+	public void setMaxEventRouterQueueLengthToTurnOff(int maxEventRouterQueueLengthToTurnOff) throws IllegalArgumentException {
+		if (maxEventRouterQueueLengthToTurnOff < 0) {
+			throw new IllegalArgumentException("param value must not be negative");
+		}
+		this.maxEventRouterQueueLengthToTurnOff = maxEventRouterQueueLengthToTurnOff;
+		if (congestureControl != null) {
+			congestureControl.configurationUpdate();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.CongestionControlConfigurationMBean#getMaxEventRoutingTimeToTurnOn()
+	 */
+	public int getMaxEventRoutingTimeToTurnOn() {
+		return maxEventRoutingTimeToTurnOn;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.CongestionControlConfigurationMBean#setMaxEventRoutingTimeToTurnOn(int)
+	 */
+	public void setMaxEventRoutingTimeToTurnOn(int maxEventRoutingTimeToTurnOn) throws IllegalArgumentException {
+		if (maxEventRoutingTimeToTurnOn < 0) {
+			throw new IllegalArgumentException("param value must not be negative");
+		}
+		this.maxEventRoutingTimeToTurnOn = maxEventRoutingTimeToTurnOn;
+		if (congestureControl != null) {
+			congestureControl.configurationUpdate();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.CongestionControlConfigurationMBean#getMaxEventRoutingTimeToTurnOff()
+	 */
+	public int getMaxEventRoutingTimeToTurnOff() {
+		return maxEventRoutingTimeToTurnOff;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.CongestionControlConfigurationMBean#setMaxEventRoutingTimeToTurnOff(int)
+	 */
+	public void setMaxEventRoutingTimeToTurnOff(int maxEventRoutingTimeToTurnOff) throws IllegalArgumentException {
+		if (maxEventRoutingTimeToTurnOff < 0) {
+			throw new IllegalArgumentException("param value must not be negative");
+		}
+		this.maxEventRoutingTimeToTurnOff = maxEventRoutingTimeToTurnOff;
+		if (congestureControl != null) {
+			congestureControl.configurationUpdate();
+		}
+	}
+
 	@Override
 	public String toString() {
-		return "periodBetweenChecks = "+periodBetweenChecks+", minFreeMemoryToTurnOn = "+minFreeMemoryToTurnOn+"%, minFreeMemoryToTurnOff = "+minFreeMemoryToTurnOff+"%, refuseStartActivity = "+refuseStartActivity+", refuseFireEvent = "+refuseFireEvent;
+		return "periodBetweenChecks = "+periodBetweenChecks+", minFreeMemoryToTurnOn = "+minFreeMemoryToTurnOn+"%, minFreeMemoryToTurnOff = "+minFreeMemoryToTurnOff+"%, maxEventRouterQueueLengthToTurnOn = "+maxEventRouterQueueLengthToTurnOn+", maxEventRouterQueueLengthToTurnOff = "+maxEventRouterQueueLengthToTurnOff+", maxEventRoutingTimeToTurnOn = "+maxEventRoutingTimeToTurnOn+"ms, maxEventRoutingTimeToTurnOff = "+maxEventRoutingTimeToTurnOff+"ms, refuseStartActivity = "+refuseStartActivity+", refuseFireEvent = "+refuseFireEvent;
 	}
 }
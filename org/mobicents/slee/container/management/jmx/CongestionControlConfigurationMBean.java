@@ -112,4 +112,76 @@ public interface CongestionControlConfigurationMBean {
 	 */
 	public void setRefuseFireEvent(boolean refuseFireEvent);
 
+	/**
+	 * Retrieves the max length of an event router executor queue to turn on
+	 * congestion control. 0 means the queues are not checked.
+	 * 
+	 * @return
+	 */
+	public int getMaxEventRouterQueueLengthToTurnOn();
+
+	/**
+	 * Sets the max length of an event router executor queue to turn on
+	 * congestion control. Use 0 to not check the queues.
+	 * 
+	 * @param maxEventRouterQueueLengthToTurnOn
+	 */
+	public void setMaxEventRouterQueueLengthToTurnOn(
+			int maxEventRouterQueueLengthToTurnOn);
+
+	/**
+	 * Retrieves the max length of all event router executor queues to turn off
+	 * congestion control.
+	 * 
+	 * @return
+	 */
+	public int getMaxEventRouterQueueLengthToTurnOff();
+
+	/**
+	 * Sets the max length of all event router executor queues to turn off
+	 * congestion control. This value should be set with respect to the value
+	 * on getMaxEventRouterQueueLengthToTurnOn(), a step lower so congestion
+	 * control is not always turning on and off.
+	 * 
+	 * @param maxEventRouterQueueLengthToTurnOff
+	 */
+	public void setMaxEventRouterQueueLengthToTurnOff(
+			int maxEventRouterQueueLengthToTurnOff);
+
+	/**
+	 * Retrieves the max 99th percentile of the event routing time, in milliseconds, in the
+	 * period between checks, to turn on congestion control. 0 means the
+	 * routing time is not checked. Requires event router stats.
+	 * 
+	 * @return
+	 */
+	public int getMaxEventRoutingTimeToTurnOn();
+
+	/**
+	 * Sets the max 99th percentile of the event routing time, in milliseconds, in the period
+	 * between checks, to turn on congestion control. Use 0 to not check the
+	 * routing time. Requires event router stats.
+	 * 
+	 * @param maxEventRoutingTimeToTurnOn
+	 */
+	public void setMaxEventRoutingTimeToTurnOn(int maxEventRoutingTimeToTurnOn);
+
+	/**
+	 * Retrieves the max 99th percentile of the event routing time, in milliseconds, in the
+	 * period between checks, to turn off congestion control.
+	 * 
+	 * @return
+	 */
+	public int getMaxEventRoutingTimeToTurnOff();
+
+	/**
+	 * Sets the max 99th percentile of the event routing time, in milliseconds, in the period
+	 * between checks, to turn off congestion control. This value should be set
+	 * with respect to the value on getMaxEventRoutingTimeToTurnOn(), a step
+	 * lower so congestion control is not always turning on and off.
+	 * 
+	 * @param maxEventRoutingTimeToTurnOff
+	 */
+	public void setMaxEventRoutingTimeToTurnOff(int maxEventRoutingTimeToTurnOff);
+
 }
@@ -455,10 +455,12 @@ public class DeploymentMBeanImpl extends NamedServiceMBeanSupport implements
 						logger.info("Uninstalled " + component);
 					}
 					
-					for (EventTypeID componentID : deployableUnit
-							.getEventTypeComponents().keySet()) {
-						componentRepositoryImpl.removeComponent(componentID);
-						logger.info("Uninstalled " + componentID);
+					for (EventTypeComponent component : deployableUnit
+							.getEventTypeComponents().values()) {
+						resourceManagement.uninstallEventType(component);
+						componentRepositoryImpl.removeComponent(component
+								.getEventTypeID());
+						logger.info("Uninstalled " + component);
 					}
 					
 					for (LibraryID componentID : deployableUnit
@@ -26,6 +26,7 @@
 package org.mobicents.slee.container.management.jmx;
 
 import org.apache.log4j.Logger;
+import org.mobicents.slee.container.event.EventContextPool;
 
 /**
  * @author martins
@@ -41,6 +42,9 @@ public class EventRouterConfiguration implements
 	private String executorMapperClassName;
 	private Boolean collectStats;
 	private boolean confirmSbbEntityAttachement;
+	private Boolean workStealing;
+	private Integer eventRoutingBatchSize;
+	private Integer eventContextPoolSize;
 	
 	@Override
 	public boolean isConfirmSbbEntityAttachement() {
@@ -113,6 +117,69 @@ public class EventRouterConfiguration implements
 				
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.EventRouterConfigurationMBean#isWorkStealing()
+	 */
+	public boolean isWorkStealing() {
+		return workStealing != null && workStealing.booleanValue();
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.EventRouterConfigurationMBean#setWorkStealing(boolean)
+	 */
+	public void setWorkStealing(boolean workStealing) {
+		if (this.workStealing != null) {
+			logger.warn("Setting workStealing property to "
+				+ workStealing
+				+ ". If called with server running a stop and start is need to apply changes.");
+		}
+		this.workStealing = workStealing;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.EventRouterConfigurationMBean#getEventRoutingBatchSize()
+	 */
+	public int getEventRoutingBatchSize() {
+		return eventRoutingBatchSize == null ? 1 : eventRoutingBatchSize.intValue();
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.EventRouterConfigurationMBean#setEventRoutingBatchSize(int)
+	 */
+	public void setEventRoutingBatchSize(int value) {
+		if (value < 1) {
+			throw new IllegalArgumentException("batch size must be greater than 0");
+		}
+		if (this.eventRoutingBatchSize != null) {
+			logger.warn("Setting eventRoutingBatchSize property to "
+				+ value
+				+ ". If called with server running a stop and start is need to apply changes.");
+		}
+		this.eventRoutingBatchSize = value;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.EventRouterConfigurationMBean#getEventContextPoolSize()
+	 */
+	public int getEventContextPoolSize() {
+		return eventContextPoolSize == null ? EventContextPool.DEFAULT_CAPACITY : eventContextPoolSize.intValue();
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.EventRouterConfigurationMBean#setEventContextPoolSize(int)
+	 */
+	public void setEventContextPoolSize(int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("pool size must not be negative");
+		}
+		if (this.eventContextPoolSize != null) {
+			logger.warn("Setting eventContextPoolSize property to "
+				+ value
+				+ ". If called with server running a stop and start is need to apply changes.");
+		}
+		this.eventContextPoolSize = value;
+	}
+	
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
@@ -120,7 +187,7 @@ public class EventRouterConfiguration implements
 	public String toString() {
 		return "Event Router Executors: "
 			+ eventRouterThreads+", Collect Stats: "+collectStats+", Executor<->Activity Mapper Class: "
-			+ executorMapperClassName;
+			+ executorMapperClassName+", Work Stealing: "+workStealing+", Event Routing Batch Size: "+getEventRoutingBatchSize()+", Event Context Pool Size: "+getEventContextPoolSize();
 	}
 }
 
@@ -77,6 +77,69 @@ public interface EventRouterConfigurationMBean {
 	public void setExecutorMapperClassName(String className)
 			throws ClassNotFoundException;
 
+	/**
+	 * Indicates if the event router executors share a pool of threads, which
+	 * steal activities from busy executors, instead of using a single thread
+	 * each.
+	 * 
+	 * @return
+	 */
+	public boolean isWorkStealing();
+
+	/**
+	 * 
+	 * Sets if the event router executors share a pool of threads, which
+	 * steal activities from busy executors.
+	 * 
+	 * Note that setting a different value for this method will only be
+	 * effective on server (re)start.
+	 * 
+	 * @param workStealing
+	 */
+	public void setWorkStealing(boolean workStealing);
+
+	/**
+	 * Retrieves the max number of queued events and tasks an event router
+	 * executor thread executes back to back, updating stats only once for
+	 * all.
+	 * 
+	 * @return
+	 */
+	public int getEventRoutingBatchSize();
+
+	/**
+	 * 
+	 * Sets the max number of queued events and tasks an event router
+	 * executor thread executes back to back.
+	 * 
+	 * Note that setting a different value for this method will only be
+	 * effective on server (re)start.
+	 * 
+	 * @param value
+	 */
+	public void setEventRoutingBatchSize(int value);
+
+	/**
+	 * Retrieves the max number of idle lean event contexts, used for events
+	 * fired without callbacks, which each event router executor keeps for
+	 * reuse.
+	 * 
+	 * @return
+	 */
+	public int getEventContextPoolSize();
+
+	/**
+	 * 
+	 * Sets the max number of idle lean event contexts each event router
+	 * executor keeps for reuse, 0 disables the pooling.
+	 * 
+	 * Note that setting a different value for this method will only be
+	 * effective on server (re)start.
+	 * 
+	 * @param value
+	 */
+	public void setEventContextPoolSize(int value);
+
 	/**
 	 * 
 	 * @return
@@ -134,6 +134,34 @@ public class EventRouterStatistics implements
 				.getEventsRouted(executor, eventTypeID);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.EventRouterStatisticsMBean#getEventRoutingTimePercentiles(double[], boolean)
+	 */
+	public long[] getEventRoutingTimePercentiles(double[] percentiles,
+			boolean reset) throws ManagementException {
+		try {
+			return getEventRouterStatistics().getEventRoutingTimePercentiles(
+					percentiles, reset);
+		} catch (IllegalArgumentException e) {
+			throw new ManagementException(e.getMessage(), e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.EventRouterStatisticsMBean#getEventRoutingTimePercentiles(javax.slee.EventTypeID, double[], boolean)
+	 */
+	public long[] getEventRoutingTimePercentiles(EventTypeID eventTypeID,
+			double[] percentiles, boolean reset) throws ManagementException {
+		try {
+			return getEventRouterStatistics().getEventRoutingTimePercentiles(
+					eventTypeID, percentiles, reset);
+		} catch (IllegalArgumentException e) {
+			throw new ManagementException(e.getMessage(), e);
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -60,6 +60,14 @@ public interface EventRouterStatisticsMBean {
 	 * Return number of events routed of this event type in particular executor..
 	 */
 	public long getEventsRouted(int executor, EventTypeID eventTypeID) throws ManagementException;
+	/**
+	 * Return routing time at the passed percentiles (0 to 100), this includes all executors. If reset is true the next call returns values for a new interval.
+	 */
+	public long[] getEventRoutingTimePercentiles(double[] percentiles, boolean reset) throws ManagementException;
+	/**
+	 * Return routing time of particular event type at the passed percentiles (0 to 100), this includes all executors. If reset is true the next call returns values for a new interval.
+	 */
+	public long[] getEventRoutingTimePercentiles(EventTypeID eventTypeID, double[] percentiles, boolean reset) throws ManagementException;
 	/**
 	 * Return number of all tasks executed in executors, this includes event routing and misc tasks.
 	 */
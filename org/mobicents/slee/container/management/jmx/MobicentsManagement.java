@@ -45,6 +45,17 @@ public class MobicentsManagement extends ServiceMBeanSupport implements
 	// removed.
 	public static int entitiesRemovalDelay = 0;
 
+	// Period in milliseconds between sending coalesced usage notifications, 0
+	// means a notification is sent for each usage parameter update.
+	public static int usageNotificationsInterval = 0;
+
+	// Number of locks shared by all sbb entities, 0 means a lock is kept for
+	// each sbb entity. Unrelated sbb entities hashed to the same lock are
+	// serialized, and threads locking several sbb entities in different
+	// orders may deadlock until the lock timeout expires, thus the default
+	// keeps a lock per sbb entity.
+	public static int sbbEntityLockStripes = 0;
+
 	// mobicents version
 	private String mobicentsVersion = Version.instance.toString();
 
@@ -56,6 +67,28 @@ public class MobicentsManagement extends ServiceMBeanSupport implements
 		MobicentsManagement.entitiesRemovalDelay = entitiesRemovalDelay;
 	}
 
+	public int getUsageNotificationsInterval() {
+		return MobicentsManagement.usageNotificationsInterval;
+	}
+
+	public void setUsageNotificationsInterval(int usageNotificationsInterval) {
+		if (usageNotificationsInterval < 0) {
+			throw new IllegalArgumentException("param value must not be negative");
+		}
+		MobicentsManagement.usageNotificationsInterval = usageNotificationsInterval;
+	}
+
+	public int getSbbEntityLockStripes() {
+		return MobicentsManagement.sbbEntityLockStripes;
+	}
+
+	public void setSbbEntityLockStripes(int sbbEntityLockStripes) {
+		if (sbbEntityLockStripes < 0) {
+			throw new IllegalArgumentException("param value must not be negative");
+		}
+		MobicentsManagement.sbbEntityLockStripes = sbbEntityLockStripes;
+	}
+
 	public String getVersion() {
 		return mobicentsVersion;
 	}
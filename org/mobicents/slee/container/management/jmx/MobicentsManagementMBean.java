@@ -41,6 +41,48 @@ public interface MobicentsManagementMBean extends ServiceMBean {
 	 * @param entitiesRemovalDelay
 	 */
 	public void setEntitiesRemovalDelay(int entitiesRemovalDelay);
+
+	/**
+	 * Retrieves the period, in milliseconds, between sending coalesced usage
+	 * notifications. 0 means a notification is sent for each usage parameter
+	 * update.
+	 * 
+	 * @return
+	 */
+	public int getUsageNotificationsInterval();
+
+	/**
+	 * Sets the period, in milliseconds, between sending coalesced usage
+	 * notifications, each with the latest state of an updated parameter. Use
+	 * 0 to send a notification for each usage parameter update. Only applies
+	 * to usage parameter sets created afterwards.
+	 * 
+	 * @param usageNotificationsInterval
+	 */
+	public void setUsageNotificationsInterval(int usageNotificationsInterval);
+
+	/**
+	 * Retrieves the number of locks shared by all sbb entities. 0 means a
+	 * lock is kept for each sbb entity.
+	 * 
+	 * @return
+	 */
+	public int getSbbEntityLockStripes();
+
+	/**
+	 * Sets the number of locks shared by all sbb entities, rounded up to a
+	 * power of 2, which bounds the memory used for locks. Use 0 to keep a
+	 * lock for each sbb entity, the default. Only applies when the SLEE is
+	 * initialized.
+	 * <p>
+	 * With shared locks unrelated sbb entities may get the same lock, their
+	 * event routing is then serialized, and threads locking several sbb
+	 * entities in a different order may deadlock, until the lock acquisition
+	 * times out and the event routing fails.
+	 * 
+	 * @param sbbEntityLockStripes
+	 */
+	public void setSbbEntityLockStripes(int sbbEntityLockStripes);
 		
 	/**
 	 * 
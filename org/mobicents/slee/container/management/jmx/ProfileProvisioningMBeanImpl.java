@@ -68,6 +68,7 @@ import javax.transaction.Transaction;
 import org.apache.log4j.Logger;
 import org.mobicents.slee.container.SleeContainer;
 import org.mobicents.slee.container.component.profile.ProfileSpecificationComponent;
+import org.mobicents.slee.container.deployment.profile.jpa.ProfileEntityCache;
 import org.mobicents.slee.container.management.ProfileManagementImpl;
 import org.mobicents.slee.container.profile.AbstractProfileMBeanImpl;
 import org.mobicents.slee.container.profile.ProfileTableImpl;
@@ -838,6 +839,62 @@ public class ProfileProvisioningMBeanImpl extends MobicentsServiceMBeanSupport i
 		}
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.ProfileProvisioningMBeanImplMBean#getProfileEntityCacheSize()
+	 */
+	public int getProfileEntityCacheSize() {
+		final ProfileEntityCache cache = sleeProfileManagement.getProfileEntityCache();
+		return cache == null ? 0 : cache.getSize();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.ProfileProvisioningMBeanImplMBean#getProfileEntityCacheHits()
+	 */
+	public long getProfileEntityCacheHits() {
+		final ProfileEntityCache cache = sleeProfileManagement.getProfileEntityCache();
+		return cache == null ? 0 : cache.getHits();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.ProfileProvisioningMBeanImplMBean#getProfileEntityCacheMisses()
+	 */
+	public long getProfileEntityCacheMisses() {
+		final ProfileEntityCache cache = sleeProfileManagement.getProfileEntityCache();
+		return cache == null ? 0 : cache.getMisses();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.ProfileProvisioningMBeanImplMBean#getProfileEntityCacheEvictions()
+	 */
+	public long getProfileEntityCacheEvictions() {
+		final ProfileEntityCache cache = sleeProfileManagement.getProfileEntityCache();
+		return cache == null ? 0 : cache.getEvictions();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.ProfileProvisioningMBeanImplMBean#getProfileEntityCacheHitRatio()
+	 */
+	public double getProfileEntityCacheHitRatio() {
+		final ProfileEntityCache cache = sleeProfileManagement.getProfileEntityCache();
+		return cache == null ? 0 : cache.getHitRatio();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.ProfileProvisioningMBeanImplMBean#clearProfileEntityCache()
+	 */
+	public void clearProfileEntityCache() {
+		final ProfileEntityCache cache = sleeProfileManagement.getProfileEntityCache();
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
 	/**
 	 * 
 	 * start MBean service lifecycle method
@@ -36,4 +36,41 @@ import javax.slee.management.ProfileProvisioningMBean;
  */
 public interface ProfileProvisioningMBeanImplMBean extends 
 	org.jboss.system.ServiceMBean, ProfileProvisioningMBean {
+
+	/**
+	 * Retrieves the number of read only profile snapshots in the cache.
+	 * @return
+	 */
+	public int getProfileEntityCacheSize();
+
+	/**
+	 * Retrieves the number of profile loads served by the cache.
+	 * @return
+	 */
+	public long getProfileEntityCacheHits();
+
+	/**
+	 * Retrieves the number of profile loads which missed the cache.
+	 * @return
+	 */
+	public long getProfileEntityCacheMisses();
+
+	/**
+	 * Retrieves the number of snapshots evicted from the cache, due to its
+	 * size limit.
+	 * @return
+	 */
+	public long getProfileEntityCacheEvictions();
+
+	/**
+	 * Retrieves the ratio of profile loads served by the cache.
+	 * @return
+	 */
+	public double getProfileEntityCacheHitRatio();
+
+	/**
+	 * Removes all snapshots from the cache.
+	 */
+	public void clearProfileEntityCache();
+
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.container.management.jmx;
+
+import javax.slee.management.ManagementException;
+
+/**
+ * Extension of the usage mbeans, exposing the distribution of the values of
+ * sample usage parameters, which the JAIN SLEE {@link javax.slee.usage.SampleStatistics}
+ * only summarizes with min, max and mean.
+ * 
+ */
+public interface SamplePercentilesUsageMBean {
+
+	/**
+	 * Retrieves the values at the specified percentiles, of the samples of the
+	 * specified sample usage parameter, recorded since the parameter set
+	 * creation or the last reset.
+	 * 
+	 * @param parameterName
+	 *            the name of the sample usage parameter, e.g. "TimeBetweenCalls"
+	 *            for a parameter sampled with sampleTimeBetweenCalls(long)
+	 * @param percentiles
+	 *            the percentiles, between 0 and 100, e.g. 99.9
+	 * @param reset
+	 *            if true the samples distribution is reset after being read,
+	 *            so the next invocation retrieves an interval snapshot
+	 * @return
+	 * @throws ManagementException
+	 *             if the parameter does not exist or a percentile is invalid
+	 */
+	public long[] getSampleParameterPercentiles(String parameterName,
+			double[] percentiles, boolean reset) throws ManagementException;
+
+}
@@ -45,6 +45,8 @@ import org.mobicents.slee.container.sbbentity.SbbEntity;
 import org.mobicents.slee.container.sbbentity.SbbEntityFactory;
 import org.mobicents.slee.container.sbbentity.SbbEntityID;
 import org.mobicents.slee.container.transaction.SleeTransactionManager;
+import org.mobicents.slee.runtime.sbbentity.SbbEntityFactoryImpl;
+import org.mobicents.slee.runtime.sbbentity.SbbEntityLockFacility;
 
 public class SbbEntitiesMBeanImpl extends MobicentsServiceMBeanSupport implements
 		SbbEntitiesMBeanImplMBean {
@@ -265,4 +267,24 @@ public class SbbEntitiesMBeanImpl extends MobicentsServiceMBeanSupport implement
 		}
 	}
 
+	private SbbEntityLockFacility getLockFacility() {
+		return ((SbbEntityFactoryImpl) sbbEntityFactory).getLockFacility();
+	}
+	
+	public int getSbbEntityLockCount() {
+		return getLockFacility().getLockCount();
+	}
+	
+	public long getContendedSbbEntityLockAcquisitions() {
+		return getLockFacility().getContendedAcquisitions();
+	}
+	
+	public long getSbbEntityLockWaitingTime() {
+		return getLockFacility().getWaitingTime();
+	}
+	
+	public long getSbbEntityLockTimeouts() {
+		return getLockFacility().getTimeouts();
+	}
+
 }
@@ -69,4 +69,34 @@ public interface SbbEntitiesMBeanImplMBean
 	 * @throws ManagementException 
 	 */
 	public Object[] retrieveSbbEntitiesBySbbId(SbbID sbbId) throws ManagementException;
+
+	/**
+	 * Number of locks currently kept for sbb entities, which is fixed if the
+	 * locks are striped.
+	 * 
+	 * @return
+	 */
+	public int getSbbEntityLockCount();
+
+	/**
+	 * Number of sbb entity lock acquisitions which had to wait for another
+	 * thread.
+	 * 
+	 * @return
+	 */
+	public long getContendedSbbEntityLockAcquisitions();
+
+	/**
+	 * Total time, in milliseconds, spent waiting for sbb entity locks.
+	 * 
+	 * @return
+	 */
+	public long getSbbEntityLockWaitingTime();
+
+	/**
+	 * Number of sbb entity lock acquisitions which timed out.
+	 * 
+	 * @return
+	 */
+	public long getSbbEntityLockTimeouts();
 }
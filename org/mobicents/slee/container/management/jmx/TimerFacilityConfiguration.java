@@ -40,6 +40,13 @@ public class TimerFacilityConfiguration implements
 	private Integer timerThreads;
 
 	private Integer purgePeriod;
+
+	private Integer timingWheelTickDuration;
+
+	/**
+	 * the default tick duration, matching the timer facility resolution
+	 */
+	private static final int DEFAULT_TIMING_WHEEL_TICK_DURATION = 10;
 	
 	/*
 	 * (non-Javadoc)
@@ -96,4 +103,43 @@ public class TimerFacilityConfiguration implements
 		}
 		this.purgePeriod = value;
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.container.management.jmx.TimerFacilityConfigurationMBean
+	 * #getTimingWheelTickDuration()
+	 */
+	public int getTimingWheelTickDuration() {
+		return timingWheelTickDuration != null ? timingWheelTickDuration
+				.intValue() : DEFAULT_TIMING_WHEEL_TICK_DURATION;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.container.management.jmx.TimerFacilityConfigurationMBean
+	 * #setTimingWheelTickDuration(int)
+	 */
+	public void setTimingWheelTickDuration(int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException(
+					"timing wheel tick duration must not be negative");
+		}
+		if (this.timingWheelTickDuration == null) {
+			logger
+			.info("SLEE Timer facility initiated with "
+					+ value
+					+ " ms for timing wheel tick duration.");
+		}
+		else {
+			logger
+			.warn("Setting timer facility timing wheel tick duration to "
+					+ value
+					+ ". If called with server running a stop and start is need to apply changes.");
+		}
+		this.timingWheelTickDuration = value;
+	}
 }
@@ -59,4 +59,23 @@ public interface TimerFacilityConfigurationMBean {
 	 */
 	public void setPurgePeriod(int value);
 	
+	/**
+	 * Retrieves the tick duration (in milliseconds) of the timing wheel used
+	 * to schedule timers, 0 means timers are scheduled in a thread pool
+	 * executor.
+	 * @return
+	 */
+	public int getTimingWheelTickDuration();
+	
+	/**
+	 * Sets the tick duration (in milliseconds) of the timing wheel used to
+	 * schedule timers. Use 0 to schedule timers in a thread pool executor,
+	 * with canceled timers purged as defined by the purge period.
+	 * 
+	 * Note that setting a different value for this method will only be effective on server (re)start.
+	 * 
+	 * @param value
+	 */
+	public void setTimingWheelTickDuration(int value);
+	
 }
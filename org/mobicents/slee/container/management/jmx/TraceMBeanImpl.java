@@ -57,6 +57,7 @@ import org.mobicents.slee.container.management.TraceManagement;
 import org.mobicents.slee.container.transaction.SleeTransactionManager;
 import org.mobicents.slee.container.transaction.TransactionalAction;
 import org.mobicents.slee.container.util.JndiRegistrationManager;
+import org.mobicents.slee.runtime.facilities.TraceDispatcher;
 import org.mobicents.slee.runtime.facilities.TraceFacilityImpl;
 import org.mobicents.slee.runtime.facilities.TracerImpl;
 import org.mobicents.slee.runtime.facilities.TracerStorage;
@@ -75,6 +76,8 @@ public class TraceMBeanImpl extends MobicentsServiceMBeanSupport implements Trac
 	
 	private final TraceFacilityImpl traceFacility;
 	
+	private final TraceDispatcher traceDispatcher = new TraceDispatcher();
+	
 	// used in sync level ops between log4j and slee tracers
 	private static final int LOG4J_LEVEL_SYNC_PERIOD = 1; 
 	private ScheduledFuture<?> scheduledFuture = null;
@@ -111,6 +114,49 @@ public class TraceMBeanImpl extends MobicentsServiceMBeanSupport implements Trac
 	public TraceFacilityImpl getTraceFacility() {
 		return traceFacility;
 	}
+	
+	/**
+	 * 
+	 * @return the dispatcher which outputs the traces of slee 1.1 tracers
+	 */
+	public TraceDispatcher getTraceDispatcher() {
+		return traceDispatcher;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.TraceMBeanImplMBean#isAsyncTraces()
+	 */
+	public boolean isAsyncTraces() {
+		return traceDispatcher.isAsync();
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.TraceMBeanImplMBean#setAsyncTraces(boolean)
+	 */
+	public void setAsyncTraces(boolean asyncTraces) {
+		traceDispatcher.setAsync(asyncTraces);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.TraceMBeanImplMBean#getQueuedTraces()
+	 */
+	public int getQueuedTraces() {
+		return traceDispatcher.getQueuedTraces();
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.TraceMBeanImplMBean#getDroppedTraces()
+	 */
+	public long getDroppedTraces() {
+		return traceDispatcher.getDroppedTraces();
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.TraceMBeanImplMBean#getOverflowedTraces()
+	 */
+	public long getOverflowedTraces() {
+		return traceDispatcher.getOverflowedTraces();
+	}
 
 	@Override
 	public String toString() {
@@ -519,6 +565,7 @@ public class TraceMBeanImpl extends MobicentsServiceMBeanSupport implements Trac
 			}
 		};
 		scheduledFuture = sleeContainer.getNonClusteredScheduler().scheduleWithFixedDelay(r, LOG4J_LEVEL_SYNC_PERIOD,LOG4J_LEVEL_SYNC_PERIOD, TimeUnit.MINUTES);
+		traceDispatcher.start();
 	}
 	
 	@Override
@@ -546,6 +593,7 @@ public class TraceMBeanImpl extends MobicentsServiceMBeanSupport implements Trac
 		if (!sleeContainer.getNonClusteredScheduler().isShutdown()) {
 			scheduledFuture.cancel(false);
 		}
+		traceDispatcher.stop();
 	}
 	
 }
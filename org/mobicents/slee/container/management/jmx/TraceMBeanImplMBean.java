@@ -40,4 +40,42 @@ import org.jboss.system.ServiceMBean;
  */
 public interface TraceMBeanImplMBean extends ServiceMBean, NotificationBroadcaster, TraceMBean {
 
+	/**
+	 * Indicates if the notifications and log4j events of slee 1.1 tracers are
+	 * output by a background thread, instead of the thread tracing.
+	 * 
+	 * @return
+	 */
+	public boolean isAsyncTraces();
+
+	/**
+	 * Defines if the notifications and log4j events of slee 1.1 tracers are
+	 * output by a background thread, instead of the thread tracing.
+	 * 
+	 * @param asyncTraces
+	 */
+	public void setAsyncTraces(boolean asyncTraces);
+
+	/**
+	 * Retrieves the number of traces waiting to be output by the background
+	 * thread.
+	 * 
+	 * @return
+	 */
+	public int getQueuedTraces();
+
+	/**
+	 * Retrieves the number of traces dropped, since the queue was full.
+	 * 
+	 * @return
+	 */
+	public long getDroppedTraces();
+
+	/**
+	 * Retrieves the number of warning and severe traces output by the thread
+	 * tracing, since the queue was full.
+	 * 
+	 * @return
+	 */
+	public long getOverflowedTraces();
 }
@@ -22,6 +22,7 @@
 
 package org.mobicents.slee.container.management.jmx;
 
+import java.beans.Introspector;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -46,7 +47,7 @@ import javax.slee.usage.UsageNotification;
 import org.mobicents.slee.runtime.usage.AbstractUsageParameterSet;
 
 public class UsageMBeanImpl extends StandardMBean implements UsageMBean,
-		NotificationBroadcaster {
+		SamplePercentilesUsageMBean, NotificationBroadcaster {
 
 	private static final MBeanNotificationInfo[] notificationInfo = initNotificationInfo();
 	
@@ -126,6 +127,21 @@ public class UsageMBeanImpl extends StandardMBean implements UsageMBean,
 		usageParameterSet.reset();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.management.jmx.SamplePercentilesUsageMBean#getSampleParameterPercentiles(java.lang.String, double[], boolean)
+	 */
+	public long[] getSampleParameterPercentiles(String parameterName,
+			double[] percentiles, boolean reset) throws ManagementException {
+		try {
+			// parameter names are decapitalized in the usage parameter set
+			return usageParameterSet.getParameterSamplePercentiles(
+					Introspector.decapitalize(parameterName), percentiles, reset);
+		} catch (IllegalArgumentException e) {
+			throw new ManagementException(e.getMessage(), e);
+		}
+	}
+
 	// --- NOTIFICATION BROADCASTER IMPL
 
 	private final Map<NotificationListener, ListenerFilterHandbackTriplet> listeners = new ConcurrentHashMap<NotificationListener, ListenerFilterHandbackTriplet>();
@@ -157,6 +173,24 @@ public class UsageMBeanImpl extends StandardMBean implements UsageMBean,
 		}
 	}
 
+	/**
+	 * Indicates if a notification for the specified usage parameter would be
+	 * delivered to any listener, allowing the caller to skip computing it.
+	 * 
+	 * @param usageParameterName
+	 * @return
+	 */
+	public boolean isUsageNotificationRequired(String usageParameterName) {
+		if (listeners.isEmpty()) {
+			return false;
+		}
+		final UsageNotificationManagerMBeanImpl notificationManager = parent
+				.getUsageNotificationManagerMBean(notificationSource);
+		return notificationManager == null
+				|| notificationManager
+						.getNotificationsEnabled(usageParameterName);
+	}
+
 	/**
 	 * Send the notification.
 	 * 
@@ -233,7 +233,7 @@ public abstract class AbstractProfileMBeanImpl extends StandardMBean implements
 			}
 			// get object & make it writable
 			ProfileObjectImpl profileObject = profileTable.getProfile(profileName);
-			profileObject.getProfileEntity().setReadOnly(false);
+			profileObject.setProfileEntityWriteable();
 			// change state
 			state = State.write;
 		}
@@ -358,7 +358,15 @@ public abstract class AbstractProfileMBeanImpl extends StandardMBean implements
 					try {
 						txManager.begin();
 						this.transaction = txManager.getTransaction();
-						ProfileEntity newTxProfileEntity = profileEntity.isCreate() ? profileTable.createProfile(profileName).getProfileEntity() : getProfileObject().getProfileEntity();
+						ProfileEntity newTxProfileEntity = null;
+						if (profileEntity.isCreate()) {
+							newTxProfileEntity = profileTable.createProfile(profileName).getProfileEntity();
+						}
+						else {
+							ProfileObjectImpl profileObject = getProfileObject();
+							profileObject.setProfileEntityWriteable();
+							newTxProfileEntity = profileObject.getProfileEntity();
+						}
 						profileTable.getProfileSpecificationComponent().getProfileEntityFramework().getProfileEntityFactory().copyAttributes(profileEntity, newTxProfileEntity);
 						newTxProfileEntity.setReadOnly(false);		
 						txManager.suspend();
@@ -112,6 +112,13 @@ public class ProfileObjectImpl implements ProfileObject {
 	 */
 	private final boolean readOnlyProfileTable;
 	
+	/**
+	 * indicates if the profile entity is a read only snapshot, which may be
+	 * shared with other transactions, and must be replaced by the persistent
+	 * entity before any change
+	 */
+	private boolean profileEntityShared;
+	
 	/**
 	 * 
 	 */
@@ -333,6 +340,7 @@ public class ProfileObjectImpl implements ProfileObject {
 	 */
 	public void profileActivate(ProfileEntity profileEntity) {		
 		profileActivate();	
+		profileEntityShared = false;
 		profileLoad(profileEntity);
 	}
 		
@@ -381,7 +389,9 @@ public class ProfileObjectImpl implements ProfileObject {
 		}
 		
 		ProfileEntity profileEntity = loadProfileEntity(profileName);
-		profileEntity.setReadOnly(readOnlyProfileTable);
+		if (!profileEntityShared) {
+			profileEntity.setReadOnly(readOnlyProfileTable);
+		}
 		profileLoad(profileEntity);				
 	}
 	
@@ -561,7 +571,9 @@ public class ProfileObjectImpl implements ProfileObject {
 		}
 		
 		if(profileEntity.getProfileName() != null && !isUninstall) {
+			loadPersistentProfileEntity();
 			profileEntityFramework.removeprofile(profileEntity);
+			profileTable.getTransactionView().profileRemoved(profileEntity.getProfileName());
 		}
 		else {
 			// the default profile entity is not stored in the framework
@@ -713,13 +725,17 @@ public class ProfileObjectImpl implements ProfileObject {
 	private ProfileEntity loadProfileEntity(String profileName) throws UnrecognizedProfileNameException {
 		
 		if (profileName != null) {
-			ProfileEntity profileEntity = profileEntityFramework.retrieveProfile(profileTable.getProfileTableName(), profileName);
+			// objects of read only tables may only be changed through management, after replacing the snapshot
+			ProfileEntity profileEntity = readOnlyProfileTable ? profileEntityFramework.retrieveProfileSnapshot(profileTable.getProfileTableName(), profileName) : profileEntityFramework.retrieveProfile(profileTable.getProfileTableName(), profileName);
 			if (profileEntity == null) {
 				throw new UnrecognizedProfileNameException();
 			}
+			// the framework may return the persistent entity instead of a snapshot
+			profileEntityShared = profileEntity.isSnapshot();
 			return profileEntity;
 		}
 		else {
+			profileEntityShared = false;
 			// clone default profile entity 
 			final ProfileEntity profileEntity = cloneEntity(profileTable.getDefaultProfileEntity());
 			// add a tx action after commit to update the state on the one stored in the table
@@ -733,6 +749,33 @@ public class ProfileObjectImpl implements ProfileObject {
 		}		
 	}
 	
+	/**
+	 * Replaces the profile entity, if it is a shared snapshot, with the
+	 * persistent entity of the current transaction.
+	 */
+	private void loadPersistentProfileEntity() {
+		if (profileEntityShared) {
+			final ProfileEntity persistentProfileEntity = profileEntityFramework.retrieveProfile(profileTable.getProfileTableName(), profileEntity.getProfileName());
+			if (persistentProfileEntity == null) {
+				throw new SLEEException("profile "+profileEntity.getProfileName()+" no longer exists in table "+profileTable.getProfileTableName());
+			}
+			persistentProfileEntity.setReadOnly(profileEntity.isReadOnly());
+			this.profileEntity = persistentProfileEntity;
+			profileEntityShared = false;
+		}
+	}
+	
+	/**
+	 * Makes the profile entity writeable, used by profile management.
+	 */
+	public void setProfileEntityWriteable() {
+		if (state != ProfileObjectState.READY) {
+			throw new SLEEException(this.toString());
+		}
+		loadPersistentProfileEntity();
+		profileEntity.setReadOnly(false);
+	}
+	
 	/**
 	 * 
 	 */
@@ -26,6 +26,7 @@ import javax.slee.SLEEException;
 
 import org.apache.commons.pool.ObjectPool;
 import org.apache.log4j.Logger;
+import org.mobicents.slee.container.util.concurrent.AffinityObjectPool;
 
 /**
  * Wrapper for apache commons objectpool, allows better logging and future exposure of jmx stats.
@@ -73,6 +74,18 @@ public class ProfileObjectPool {
 		}
 	}
 	
+	/**
+	 * Adds the pool stats to the specified statistics, if the wrapped pool
+	 * collects these.
+	 * 
+	 * @param statistics
+	 */
+	public void addStatistics(AffinityObjectPool.Statistics statistics) {
+		if (pool instanceof AffinityObjectPool) {
+			((AffinityObjectPool) pool).addStatistics(statistics);
+		}
+	}
+	
 	@Override
 	public String toString() {
 		return "Profile Object Pool : active objects = "+this.pool.getNumActive() + ", idle objects "+this.pool.getNumIdle();
@@ -30,12 +30,14 @@ import javax.slee.SLEEException;
 import javax.slee.profile.UnrecognizedProfileTableNameException;
 
 import org.apache.commons.pool.ObjectPool;
+import org.apache.commons.pool.PoolableObjectFactory;
 import org.apache.commons.pool.impl.GenericObjectPool;
 import org.apache.commons.pool.impl.GenericObjectPoolFactory;
 import org.apache.log4j.Logger;
 import org.mobicents.slee.container.SleeContainer;
 import org.mobicents.slee.container.transaction.SleeTransactionManager;
 import org.mobicents.slee.container.transaction.TransactionalAction;
+import org.mobicents.slee.container.util.concurrent.AffinityObjectPool;
 
 /**
  * 
@@ -54,6 +56,11 @@ public class ProfileObjectPoolManagement implements ProfileObjectPoolManagementM
 
 	private GenericObjectPool.Config config;
 
+	/**
+	 * off by default, affinity pools ignore the eviction and min idle config
+	 */
+	private boolean affinityPool = false;
+
 	public ProfileObjectPoolManagement(SleeContainer sleeContainer) {
 		this.sleeContainer = sleeContainer;
 		// create pool config mbean with default pool configuration
@@ -140,9 +147,7 @@ public class ProfileObjectPoolManagement implements ProfileObjectPoolManagementM
 	 */
 	private void createObjectPool(final ProfileTableImpl profileTable) {
 		// create the pool
-		GenericObjectPoolFactory poolFactory = new GenericObjectPoolFactory(
-				new ProfileObjectPoolFactory(profileTable), config);
-		final ObjectPool objectPool = poolFactory.createPool();
+		final ObjectPool objectPool = createPool(new ProfileObjectPoolFactory(profileTable));
 		final ProfileObjectPool oldObjectPool = pools.put(profileTable.getProfileTableName(),
 				new ProfileObjectPool(objectPool));
 		if (oldObjectPool != null) {
@@ -160,6 +165,22 @@ public class ProfileObjectPoolManagement implements ProfileObjectPoolManagementM
 		}
 	}
 
+	/**
+	 * Creates a pool with the current configuration.
+	 * 
+	 * @param factory
+	 * @return
+	 */
+	private ObjectPool createPool(PoolableObjectFactory factory) {
+		if (affinityPool) {
+			return new AffinityObjectPool(factory, config.maxIdle,
+					config.testOnBorrow, config.testOnReturn);
+		}
+		else {
+			return new GenericObjectPoolFactory(factory, config).createPool();
+		}
+	}
+
 	/**
 	 * Removes the object pool for the specified profile table. If a
 	 * transaction manager is used then the removal is only after the tx commit.
@@ -319,6 +340,38 @@ public class ProfileObjectPoolManagement implements ProfileObjectPoolManagementM
 		config.whenExhaustedAction = whenExhaustedAction;
 	}
 
+	public boolean getAffinityPool() {
+		return affinityPool;
+	}
+
+	public void setAffinityPool(boolean affinityPool) {
+		this.affinityPool = affinityPool;
+	}
+
+	public long getLocalHits() {
+		return getStatistics().getLocalHits();
+	}
+
+	public long getSharedHits() {
+		return getStatistics().getSharedHits();
+	}
+
+	public long getMisses() {
+		return getStatistics().getMisses();
+	}
+
+	public long getCreatedObjects() {
+		return getStatistics().getCreated();
+	}
+
+	private AffinityObjectPool.Statistics getStatistics() {
+		final AffinityObjectPool.Statistics statistics = new AffinityObjectPool.Statistics();
+		for (ProfileObjectPool pool : pools.values()) {
+			pool.addStatistics(statistics);
+		}
+		return statistics;
+	}
+
 	public void reconfig() {
 		for (String key : pools.keySet()) {
 			ProfileTableImpl profileTable;
@@ -125,6 +125,11 @@ public class ProfileTableImpl implements ProfileTable, Serializable {
 	 */
 	private final ProfileTableTransactionView transactionView;
 	
+	/**
+	 * the in memory index of the table, null if not used
+	 */
+	private final ProfileTableIndex index;
+	
 	/**
 	 * the entity with the default profile attribute values
 	 */
@@ -154,6 +159,10 @@ public class ProfileTableImpl implements ProfileTable, Serializable {
 		
 		this.fireEvents = component.getDescriptor().getEventsEnabled();
 		this.transactionView = new ProfileTableTransactionView(this);
+		this.index = profileManagement.getJPAConfiguration().isIndexedProfiles()
+				&& !profileManagement.getJPAConfiguration().isClusteredProfiles() ? ProfileTableIndex
+				.create(this)
+				: null;
 	}
 	
 	private boolean traceRegistred = false;
@@ -215,6 +224,22 @@ public class ProfileTableImpl implements ProfileTable, Serializable {
 		return component;
 	}
 
+	/**
+	 * 
+	 * @return
+	 */
+	ProfileTableTransactionView getTransactionView() {
+		return transactionView;
+	}
+	
+	/**
+	 * Retrieves the in memory index of the table.
+	 * @return null if the table is not indexed
+	 */
+	public ProfileTableIndex getIndex() {
+		return index;
+	}
+
 	/**
 	 * 
 	 * @return
@@ -507,7 +532,12 @@ public class ProfileTableImpl implements ProfileTable, Serializable {
 		// We get profile entities
 		Collection<ProfileEntity> profileEntities = null;
 		try {
-			profileEntities = getProfileEntitiesByAttribute(attributeName, attributeValue, true);
+			ProfileAttribute profileAttribute = validateProfileAttribute(attributeName, attributeValue, true);
+			Collection<String> profileNames = index != null ? index.getProfilesByAttribute(profileAttribute, attributeValue) : null;
+			if (profileNames != null) {
+				return getProfileLocalObjects(profileNames);
+			}
+			profileEntities = component.getProfileEntityFramework().findProfilesByAttribute(this.getProfileTableName(), profileAttribute, attributeValue);
 		}
 		catch (AttributeNotIndexedException e) {
 			throw new SLEEException(e.getMessage(),e);
@@ -538,11 +568,22 @@ public class ProfileTableImpl implements ProfileTable, Serializable {
 			logger.debug("getProfilesByAttribute( attributeName = "+attributeName+" , attributeValue = "+attributeValue+" , isSlee11 = "+isSlee11+" )");
 		}
 		
+		ProfileAttribute profileAttribute = validateProfileAttribute(attributeName, attributeValue, isSlee11);
+		
+		Collection<ProfileID> profileIDs = new ArrayList<ProfileID>();
+		
+		Collection<String> profileNames = index != null ? index.getProfilesByAttribute(profileAttribute, attributeValue) : null;
+		if (profileNames != null) {
+			for (String profileName : profileNames) {
+				profileIDs.add(new ProfileID(profileTableName, profileName));
+			}
+			return Collections.unmodifiableCollection( profileIDs );
+		}
+		
 		// We get profile entities
-		Collection<ProfileEntity> profileEntities = getProfileEntitiesByAttribute(attributeName, attributeValue, isSlee11);
+		Collection<ProfileEntity> profileEntities = component.getProfileEntityFramework().findProfilesByAttribute(this.getProfileTableName(), profileAttribute, attributeValue);
 
 		// We need ProfileIDs
-		Collection<ProfileID> profileIDs = new ArrayList<ProfileID>();
 		for(ProfileEntity profileEntity : profileEntities) {
 			profileIDs.add( new ProfileID(profileEntity.getTableName(), profileEntity.getProfileName()) );    
 		}
@@ -551,7 +592,7 @@ public class ProfileTableImpl implements ProfileTable, Serializable {
 	}	
 	
 	/**
-	 * Retrieves the {@link ProfileEntity}s from the persistent store, matching specified attribute name and value type
+	 * Retrieves the {@link ProfileAttribute} which may be used to search profiles, matching specified attribute name and value type
 	 * @param attributeName
 	 * @param attributeValue
 	 * @param isSlee11
@@ -561,16 +602,12 @@ public class ProfileTableImpl implements ProfileTable, Serializable {
 	 * @throws AttributeTypeMismatchException
 	 * @throws SLEEException
 	 */
-	private Collection<ProfileEntity> getProfileEntitiesByAttribute(
+	private ProfileAttribute validateProfileAttribute(
 			String attributeName, Object attributeValue, boolean isSlee11)
 			throws UnrecognizedAttributeException,
 			AttributeNotIndexedException, AttributeTypeMismatchException,
 			SLEEException {
     
-		if (logger.isDebugEnabled()) {
-			logger.debug("getProfileEntitiesByAttribute( attributeName = "+attributeName+" , attributeValue = "+attributeValue+" , isSlee11 = "+isSlee11+" )");
-		}
-		
 		ProfileAttribute profileAttribute = getProfileAttribute(attributeName, attributeValue);
 		
 		if (isSlee11)  {
@@ -585,9 +622,26 @@ public class ProfileTableImpl implements ProfileTable, Serializable {
 			}
 		}
 		
-		return component.getProfileEntityFramework().findProfilesByAttribute(this.getProfileTableName(), profileAttribute, attributeValue);
+		return profileAttribute;
 	}	
 	
+	/**
+	 * Retrieves the {@link ProfileLocalObject}s for the specified profile names, skipping profiles which no longer exist
+	 * @param profileNames
+	 * @return
+	 */
+	private Collection<ProfileLocalObject> getProfileLocalObjects(Collection<String> profileNames) {
+		ArrayList<ProfileLocalObject> plocs = new ArrayList<ProfileLocalObject>(profileNames.size());
+		ProfileObjectImpl profileObject = null;
+		for (String profileName : profileNames) {
+			profileObject = transactionView.getProfile(profileName);
+			if (profileObject != null) {
+				plocs.add(profileObject.getProfileLocalObject());
+			}
+		}
+		return Collections.unmodifiableCollection(plocs);
+	}
+	
 	/**
 	 * Retrieves the {@link ProfileAttribute} from the component, matching specified attribute name and value type
 	 * @param attributeName
@@ -687,6 +741,9 @@ public class ProfileTableImpl implements ProfileTable, Serializable {
 			this.removeProfile(null, false, false);
 		}
 		
+		// profiles removed on uninstall are not invalidated one by one
+		component.getProfileEntityFramework().profileTableRemoved(profileTableName);
+		
 		// add action after commit to remove tracer and close uncommitted mbeans
 		TransactionalAction commitAction = new TransactionalAction() {
 			public void execute() {
@@ -760,6 +817,15 @@ public class ProfileTableImpl implements ProfileTable, Serializable {
 		
 		sleeContainer.getTransactionManager().mandateTransaction();
 		
+		if (queryName == null) {
+			throw new NullPointerException("query name is null");
+		}
+		
+		Collection<String> profileNames = index != null ? index.getProfilesByStaticQuery(queryName, arguments) : null;
+		if (profileNames != null) {
+			return getProfileLocalObjects(profileNames);
+		}
+		
 		Collection<ProfileLocalObject> plocs = new ArrayList<ProfileLocalObject>();
 
 		for(ProfileEntity profileEntity : component.getProfileEntityFramework().getProfilesByStaticQuery( this.getProfileTableName(), queryName, arguments )) {
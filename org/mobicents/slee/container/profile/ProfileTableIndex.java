@@ -0,0 +1,685 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.container.profile;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+import org.mobicents.slee.container.component.profile.ProfileAttribute;
+import org.mobicents.slee.container.component.profile.ProfileSpecificationComponent;
+import org.mobicents.slee.container.component.profile.query.CompareDescriptor;
+import org.mobicents.slee.container.component.profile.query.QueryDescriptor;
+import org.mobicents.slee.container.component.profile.query.QueryExpressionDescriptor;
+import org.mobicents.slee.container.component.profile.query.QueryParameterDescriptor;
+import org.mobicents.slee.container.component.profile.query.RangeMatchDescriptor;
+import org.mobicents.slee.container.profile.entity.ProfileEntity;
+
+/**
+ * In memory secondary index of a profile table, for the profile attributes
+ * declared as indexed in the profile specification. The index is built
+ * lazily, from the persistent state, on the first lookup, and then kept up to
+ * date with the profile changes of committed transactions, through the
+ * {@link ProfileTableTransactionView}.
+ * 
+ * Lookups return null whenever the index can't serve them, e.g. a query on a
+ * not indexed attribute, or the active transaction has uncommitted changes in
+ * the table, in such case the profile entity framework must be used.
+ * 
+ */
+public class ProfileTableIndex {
+
+	private static final Logger logger = Logger
+			.getLogger(ProfileTableIndex.class);
+
+	private final ProfileTableImpl profileTable;
+
+	/**
+	 * the getters of the indexed attributes in the profile entity class, by
+	 * attribute name
+	 */
+	private final Map<String, Method> getters = new HashMap<String, Method>();
+
+	/**
+	 * the indexed attributes which values are sorted, thus can serve range
+	 * lookups
+	 */
+	private final Set<String> sortedAttributes = new HashSet<String>();
+
+	/**
+	 * the static queries already parsed, by query name
+	 */
+	private final ConcurrentHashMap<String, StaticQuery> staticQueries = new ConcurrentHashMap<String, StaticQuery>();
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * the attribute indexes, by attribute name, null if the index is not
+	 * built yet
+	 */
+	private Map<String, AttributeIndex> attributeIndexes;
+
+	/**
+	 * the number of profile changes applied, used to detect changes
+	 * committed while the index is built
+	 */
+	private long changes;
+
+	private boolean building;
+
+	/**
+	 * 
+	 * @param profileTable
+	 */
+	private ProfileTableIndex(ProfileTableImpl profileTable) {
+		this.profileTable = profileTable;
+	}
+
+	/**
+	 * Creates the index for the specified profile table, if its profile
+	 * specification declares indexed attributes which can be kept in memory.
+	 * 
+	 * @param profileTable
+	 * @return null if there is no attribute to index
+	 */
+	static ProfileTableIndex create(ProfileTableImpl profileTable) {
+		final ProfileSpecificationComponent component = profileTable
+				.getProfileSpecificationComponent();
+		final Class<?> profileEntityClass = component
+				.getProfileEntityFramework().getProfileEntityClass();
+		final ProfileTableIndex index = new ProfileTableIndex(profileTable);
+		for (ProfileAttribute profileAttribute : component
+				.getProfileAttributes().values()) {
+			if (!profileAttribute.isIndex() || profileAttribute.isArray()) {
+				// array values are stored in their own entities, not worth
+				// to index
+				continue;
+			}
+			try {
+				// the entity getters are generated with the attribute name
+				// prefixed with C
+				index.getters.put(profileAttribute.getName(),
+						profileEntityClass.getMethod("getC"
+								+ profileAttribute.getName()));
+			} catch (Throwable e) {
+				logger.warn("Unable to index attribute "
+						+ profileAttribute.getName() + " of " + profileTable, e);
+				continue;
+			}
+			final Class<?> type = profileAttribute.getNonPrimitiveType();
+			if (Number.class.isAssignableFrom(type)
+					&& Comparable.class.isAssignableFrom(type)
+					|| type == Character.class) {
+				// string ordering is left to the database, which may use a
+				// different collation
+				index.sortedAttributes.add(profileAttribute.getName());
+			}
+		}
+		return index.getters.isEmpty() ? null : index;
+	}
+
+	/**
+	 * Retrieves the names of the profiles with the specified attribute value.
+	 * 
+	 * @param profileAttribute
+	 * @param attributeValue
+	 * @return null if the index can't serve the lookup
+	 */
+	public Collection<String> getProfilesByAttribute(
+			ProfileAttribute profileAttribute, Object attributeValue) {
+		if (attributeValue == null
+				|| !getters.containsKey(profileAttribute.getName())) {
+			return null;
+		}
+		final Map<String, AttributeIndex> attributeIndexes = getAttributeIndexes();
+		if (attributeIndexes == null) {
+			return null;
+		}
+		lock.readLock().lock();
+		try {
+			return attributeIndexes.get(profileAttribute.getName()).get(
+					attributeValue);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Retrieves the names of the profiles matching the specified static query.
+	 * Only queries which are a compare or range match on indexed attributes,
+	 * or an and of those, can be served.
+	 * 
+	 * @param queryName
+	 * @param arguments
+	 * @return null if the index can't serve the query
+	 */
+	public Collection<String> getProfilesByStaticQuery(String queryName,
+			Object[] arguments) {
+		StaticQuery staticQuery = staticQueries.get(queryName);
+		if (staticQuery == null) {
+			staticQuery = parseStaticQuery(queryName);
+			staticQueries.put(queryName, staticQuery);
+		}
+		if (staticQuery == StaticQuery.NOT_INDEXED
+				|| (arguments == null ? 0 : arguments.length) != staticQuery.parameters) {
+			return null;
+		}
+		// resolve the bounds before going for the index
+		final Object[][] bounds = new Object[staticQuery.conditions.size()][];
+		for (int i = 0; i < bounds.length; i++) {
+			final IndexedCondition condition = staticQuery.conditions.get(i);
+			final Object from = condition.from == null ? null
+					: condition.from.resolve(arguments);
+			final Object to = condition.to == null ? null : condition.to
+					.resolve(arguments);
+			if ((condition.from != null && from == null)
+					|| (condition.to != null && to == null)) {
+				return null;
+			}
+			bounds[i] = new Object[] { from, to };
+		}
+		final Map<String, AttributeIndex> attributeIndexes = getAttributeIndexes();
+		if (attributeIndexes == null) {
+			return null;
+		}
+		Collection<String> result = null;
+		lock.readLock().lock();
+		try {
+			for (int i = 0; i < bounds.length; i++) {
+				final IndexedCondition condition = staticQuery.conditions.get(i);
+				final AttributeIndex attributeIndex = attributeIndexes
+						.get(condition.attributeName);
+				final Collection<String> profileNames = condition.equals ? attributeIndex
+						.get(bounds[i][0])
+						: attributeIndex.get(bounds[i][0], condition.fromInclusive,
+								bounds[i][1], condition.toInclusive);
+				if (result == null) {
+					result = profileNames;
+				} else {
+					result.retainAll(profileNames);
+				}
+				if (result.isEmpty()) {
+					break;
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		if (staticQuery.maxMatches > 0 && result.size() > staticQuery.maxMatches) {
+			final List<String> truncated = new ArrayList<String>(
+					(int) staticQuery.maxMatches);
+			for (String profileName : result) {
+				if (truncated.size() == staticQuery.maxMatches) {
+					break;
+				}
+				truncated.add(profileName);
+			}
+			result = truncated;
+		}
+		return result;
+	}
+
+	/**
+	 * Retrieves the values of the indexed attributes in the specified profile
+	 * entity.
+	 * 
+	 * @param profileEntity
+	 * @return
+	 */
+	Map<String, Object> getIndexedValues(ProfileEntity profileEntity) {
+		final Map<String, Object> values = new HashMap<String, Object>(getters
+				.size());
+		for (Map.Entry<String, Method> entry : getters.entrySet()) {
+			try {
+				values.put(entry.getKey(), entry.getValue()
+						.invoke(profileEntity));
+			} catch (Throwable e) {
+				throw new IllegalStateException("failed to read attribute "
+						+ entry.getKey() + " of " + profileEntity, e);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Updates the index with the attribute values of a profile, committed by a
+	 * transaction.
+	 * 
+	 * @param profileName
+	 * @param values
+	 */
+	void profileStored(String profileName, Map<String, Object> values) {
+		lock.writeLock().lock();
+		try {
+			changes++;
+			if (attributeIndexes != null) {
+				for (Map.Entry<String, AttributeIndex> entry : attributeIndexes
+						.entrySet()) {
+					entry.getValue().put(profileName,
+							values.get(entry.getKey()));
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a profile from the index, the removal was committed by a
+	 * transaction.
+	 * 
+	 * @param profileName
+	 */
+	void profileRemoved(String profileName) {
+		lock.writeLock().lock();
+		try {
+			changes++;
+			if (attributeIndexes != null) {
+				for (AttributeIndex attributeIndex : attributeIndexes.values()) {
+					attributeIndex.remove(profileName);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Retrieves the attribute indexes, building them if needed.
+	 * 
+	 * @return null if the index can't be used by the active transaction, or is
+	 *         being built by another one
+	 */
+	private Map<String, AttributeIndex> getAttributeIndexes() {
+		if (profileTable.getTransactionView().hasUncommittedChanges()) {
+			// the persistent state seen by the transaction differs from the
+			// committed one
+			return null;
+		}
+		final long changes;
+		lock.readLock().lock();
+		try {
+			if (attributeIndexes != null) {
+				return attributeIndexes;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		lock.writeLock().lock();
+		try {
+			if (attributeIndexes != null) {
+				return attributeIndexes;
+			}
+			if (building) {
+				return null;
+			}
+			building = true;
+			changes = this.changes;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		Map<String, AttributeIndex> attributeIndexes = null;
+		try {
+			attributeIndexes = build();
+		} catch (Throwable e) {
+			logger.error("Failed to build index of " + profileTable, e);
+		}
+		lock.writeLock().lock();
+		try {
+			building = false;
+			if (attributeIndexes != null && changes == this.changes) {
+				this.attributeIndexes = attributeIndexes;
+				return attributeIndexes;
+			} else {
+				// profiles were changed meanwhile, build it later
+				return null;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private Map<String, AttributeIndex> build() {
+		final long startTime = System.currentTimeMillis();
+		final Map<String, AttributeIndex> attributeIndexes = new HashMap<String, AttributeIndex>();
+		for (String attributeName : getters.keySet()) {
+			attributeIndexes.put(attributeName, new AttributeIndex(
+					sortedAttributes.contains(attributeName)));
+		}
+		int profiles = 0;
+		for (ProfileEntity profileEntity : profileTable
+				.getProfileSpecificationComponent().getProfileEntityFramework()
+				.findAll(profileTable.getProfileTableName())) {
+			if (profileEntity.getProfileName() == null) {
+				// the default profile is not returned by queries
+				continue;
+			}
+			final Map<String, Object> values = getIndexedValues(profileEntity);
+			for (Map.Entry<String, AttributeIndex> entry : attributeIndexes
+					.entrySet()) {
+				entry.getValue().put(profileEntity.getProfileName(),
+						values.get(entry.getKey()));
+			}
+			profiles++;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Built index of " + profileTable + " with " + profiles
+					+ " profile(s) in "
+					+ (System.currentTimeMillis() - startTime) + "ms");
+		}
+		return attributeIndexes;
+	}
+
+	private StaticQuery parseStaticQuery(String queryName) {
+		QueryDescriptor queryDescriptor = null;
+		for (QueryDescriptor query : profileTable
+				.getProfileSpecificationComponent().getDescriptor()
+				.getQueryElements()) {
+			if (query.getName().equals(queryName)) {
+				queryDescriptor = query;
+				break;
+			}
+		}
+		if (queryDescriptor == null) {
+			return StaticQuery.NOT_INDEXED;
+		}
+		final Map<String, Integer> parameters = new HashMap<String, Integer>();
+		for (QueryParameterDescriptor parameter : queryDescriptor
+				.getQueryParameters()) {
+			parameters.put(parameter.getName(), parameters.size());
+		}
+		final List<IndexedCondition> conditions = new ArrayList<IndexedCondition>();
+		if (!parseExpression(queryDescriptor.getQueryExpression(), parameters,
+				conditions) || conditions.isEmpty()) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Static query " + queryName + " of "
+						+ profileTable + " can't be served by the index");
+			}
+			return StaticQuery.NOT_INDEXED;
+		}
+		final long maxMatches = queryDescriptor.getQueryOptions() == null ? -1
+				: queryDescriptor.getQueryOptions().getMaxMatches();
+		return new StaticQuery(conditions, parameters.size(), maxMatches);
+	}
+
+	private boolean parseExpression(QueryExpressionDescriptor expression,
+			Map<String, Integer> parameters, List<IndexedCondition> conditions) {
+		switch (expression.getType()) {
+		case And:
+			for (QueryExpressionDescriptor and : expression.getAnd()) {
+				if (!parseExpression(and, parameters, conditions)) {
+					return false;
+				}
+			}
+			return true;
+		case Compare:
+			final CompareDescriptor compare = expression.getCompare();
+			if (compare.getCollatorRef() != null
+					|| !getters.containsKey(compare.getAttributeName())) {
+				return false;
+			}
+			final Bound bound = parseBound(compare.getAttributeName(), compare
+					.getParameter(), compare.getValue(), parameters);
+			if (bound == null) {
+				return false;
+			}
+			final String op = compare.getOp();
+			if (op.equals("equals")) {
+				conditions.add(new IndexedCondition(compare.getAttributeName(),
+						true, bound, true, null, false));
+				return true;
+			}
+			if (!sortedAttributes.contains(compare.getAttributeName())) {
+				return false;
+			}
+			if (op.equals("less-than")) {
+				conditions.add(new IndexedCondition(compare.getAttributeName(),
+						false, null, false, bound, false));
+			} else if (op.equals("less-than-or-equals")) {
+				conditions.add(new IndexedCondition(compare.getAttributeName(),
+						false, null, false, bound, true));
+			} else if (op.equals("greater-than")) {
+				conditions.add(new IndexedCondition(compare.getAttributeName(),
+						false, bound, false, null, false));
+			} else if (op.equals("greater-than-or-equals")) {
+				conditions.add(new IndexedCondition(compare.getAttributeName(),
+						false, bound, true, null, false));
+			} else {
+				// not-equals
+				return false;
+			}
+			return true;
+		case RangeMatch:
+			final RangeMatchDescriptor rangeMatch = expression.getRangeMatch();
+			if (rangeMatch.getCollatorRef() != null
+					|| !sortedAttributes.contains(rangeMatch.getAttributeName())) {
+				return false;
+			}
+			final Bound from = parseBound(rangeMatch.getAttributeName(),
+					rangeMatch.getFromParameter(), rangeMatch.getFromValue(),
+					parameters);
+			final Bound to = parseBound(rangeMatch.getAttributeName(),
+					rangeMatch.getToParameter(), rangeMatch.getToValue(),
+					parameters);
+			if (from == null || to == null) {
+				return false;
+			}
+			conditions.add(new IndexedCondition(rangeMatch.getAttributeName(),
+					false, from, true, to, true));
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private Bound parseBound(String attributeName, String parameter,
+			String value, Map<String, Integer> parameters) {
+		final Class<?> type = profileTable.getProfileSpecificationComponent()
+				.getProfileAttributes().get(attributeName)
+				.getNonPrimitiveType();
+		if (parameter != null) {
+			final Integer index = parameters.get(parameter);
+			return index == null ? null : new Bound(index, null, type);
+		}
+		if (value == null) {
+			return null;
+		}
+		Object literal = null;
+		if (type == String.class) {
+			literal = value;
+		} else if (type == Character.class) {
+			literal = value.length() == 1 ? Character.valueOf(value.charAt(0))
+					: null;
+		} else {
+			try {
+				literal = type.getMethod("valueOf", String.class).invoke(null,
+						value);
+			} catch (Throwable e) {
+				// not a type with a string representation, e.g. address
+			}
+		}
+		return literal == null ? null : new Bound(-1, literal, type);
+	}
+
+	/**
+	 * The values of a single indexed attribute.
+	 * 
+	 */
+	private static class AttributeIndex {
+
+		/**
+		 * the profile names by attribute value
+		 */
+		private final Map<Object, Set<String>> values;
+
+		/**
+		 * the attribute value by profile name
+		 */
+		private final Map<String, Object> profiles = new HashMap<String, Object>();
+
+		AttributeIndex(boolean sorted) {
+			this.values = sorted ? new TreeMap<Object, Set<String>>()
+					: new HashMap<Object, Set<String>>();
+		}
+
+		void put(String profileName, Object value) {
+			remove(profileName);
+			profiles.put(profileName, value);
+			if (value != null) {
+				Set<String> profileNames = values.get(value);
+				if (profileNames == null) {
+					profileNames = new HashSet<String>();
+					values.put(value, profileNames);
+				}
+				profileNames.add(profileName);
+			}
+		}
+
+		void remove(String profileName) {
+			final Object value = profiles.remove(profileName);
+			if (value != null) {
+				final Set<String> profileNames = values.get(value);
+				profileNames.remove(profileName);
+				if (profileNames.isEmpty()) {
+					values.remove(value);
+				}
+			}
+		}
+
+		Collection<String> get(Object value) {
+			final Set<String> profileNames = values.get(value);
+			return profileNames == null ? new HashSet<String>()
+					: new HashSet<String>(profileNames);
+		}
+
+		Collection<String> get(Object from, boolean fromInclusive, Object to,
+				boolean toInclusive) {
+			NavigableMap<Object, Set<String>> range = (TreeMap<Object, Set<String>>) values;
+			try {
+				if (from != null && to != null) {
+					range = range.subMap(from, fromInclusive, to, toInclusive);
+				} else if (from != null) {
+					range = range.tailMap(from, fromInclusive);
+				} else {
+					range = range.headMap(to, toInclusive);
+				}
+			} catch (IllegalArgumentException e) {
+				// from is greater than to
+				return new HashSet<String>();
+			}
+			final Set<String> result = new HashSet<String>();
+			for (Set<String> profileNames : range.values()) {
+				result.addAll(profileNames);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * A static query parsed into conditions on indexed attributes, which all
+	 * must match.
+	 * 
+	 */
+	private static class StaticQuery {
+
+		static final StaticQuery NOT_INDEXED = new StaticQuery(Collections
+				.<IndexedCondition> emptyList(), -1, -1);
+
+		final List<IndexedCondition> conditions;
+		final int parameters;
+		final long maxMatches;
+
+		StaticQuery(List<IndexedCondition> conditions, int parameters,
+				long maxMatches) {
+			this.conditions = conditions;
+			this.parameters = parameters;
+			this.maxMatches = maxMatches;
+		}
+	}
+
+	/**
+	 * An equality or range condition on an indexed attribute.
+	 * 
+	 */
+	private static class IndexedCondition {
+
+		final String attributeName;
+		final boolean equals;
+		final Bound from;
+		final boolean fromInclusive;
+		final Bound to;
+		final boolean toInclusive;
+
+		IndexedCondition(String attributeName, boolean equals, Bound from,
+				boolean fromInclusive, Bound to, boolean toInclusive) {
+			this.attributeName = attributeName;
+			this.equals = equals;
+			this.from = from;
+			this.fromInclusive = fromInclusive;
+			this.to = to;
+			this.toInclusive = toInclusive;
+		}
+	}
+
+	/**
+	 * A condition value, either a query parameter or a literal.
+	 * 
+	 */
+	private static class Bound {
+
+		final int parameter;
+		final Object value;
+		final Class<?> type;
+
+		Bound(int parameter, Object value, Class<?> type) {
+			this.parameter = parameter;
+			this.value = value;
+			this.type = type;
+		}
+
+		/**
+		 * 
+		 * @param arguments
+		 * @return null if the argument is null or of a different type than
+		 *         the attribute
+		 */
+		Object resolve(Object[] arguments) {
+			if (parameter < 0) {
+				return value;
+			}
+			final Object argument = arguments[parameter];
+			return type.isInstance(argument) ? argument : null;
+		}
+	}
+}
@@ -47,6 +47,12 @@ public class ProfileTableTransactionView {
 	 */
 	private final ProfileTableImpl profileTable;
 
+	/**
+	 * the key of the tx data flag which indicates profiles of the table were
+	 * removed in the transaction
+	 */
+	private final Object profilesRemovedKey = new Object();
+
 	/**
 	 * 
 	 * @param profileTable
@@ -182,6 +188,10 @@ public class ProfileTableTransactionView {
 			public void execute() {
 				if (profileObject.getState() == ProfileObjectState.READY) {
 					if (!profileObject.getProfileEntity().isRemove()) {
+						if (profileObject.getProfileEntity().isDirty()) {
+							profileObject.getProfileTable().getTransactionView()
+									.profileStored(profileObject.getProfileEntity());
+						}
 						profileObject.fireAddOrUpdatedEventIfNeeded();
 						profileObject.profilePassivate();
 					} else {
@@ -196,6 +206,95 @@ public class ProfileTableTransactionView {
 		txContext.getBeforeCommitActions().add(beforeCommitAction);		
 	}
 
+	/**
+	 * Notifies the profile entity framework that the specified profile entity
+	 * is stored, and adds a transactional action to the active transaction,
+	 * to update the table index with its attribute values, once the
+	 * transaction commits.
+	 * 
+	 * @param profileEntity
+	 */
+	void profileStored(ProfileEntity profileEntity) {
+		final String profileName = profileEntity.getProfileName();
+		if (profileName == null) {
+			return;
+		}
+		profileTable.getProfileSpecificationComponent()
+				.getProfileEntityFramework().profileChanged(
+						profileTable.getProfileTableName(), profileName);
+		final ProfileTableIndex index = profileTable.getIndex();
+		if (index == null) {
+			return;
+		}
+		final Map<String, Object> values = index.getIndexedValues(profileEntity);
+		TransactionalAction afterCommitAction = new TransactionalAction() {
+			public void execute() {
+				index.profileStored(profileName, values);
+			}
+		};
+		profileTable.getSleeContainer().getTransactionManager()
+				.getTransactionContext().getAfterCommitActions().add(
+						afterCommitAction);
+	}
+
+	/**
+	 * Notifies the profile entity framework that the specified profile is
+	 * removed, and adds a transactional action to the active transaction, to
+	 * remove it from the table index, once the transaction commits.
+	 * 
+	 * @param profileName
+	 */
+	void profileRemoved(final String profileName) {
+		if (profileName == null) {
+			return;
+		}
+		profileTable.getProfileSpecificationComponent()
+				.getProfileEntityFramework().profileChanged(
+						profileTable.getProfileTableName(), profileName);
+		final ProfileTableIndex index = profileTable.getIndex();
+		if (index == null) {
+			return;
+		}
+		final TransactionContext txContext = profileTable.getSleeContainer()
+				.getTransactionManager().getTransactionContext();
+		txContext.getData().put(profilesRemovedKey, Boolean.TRUE);
+		TransactionalAction afterCommitAction = new TransactionalAction() {
+			public void execute() {
+				index.profileRemoved(profileName);
+			}
+		};
+		txContext.getAfterCommitActions().add(afterCommitAction);
+	}
+
+	/**
+	 * Indicates if the active transaction, if any, has created, updated or
+	 * removed profiles of the table, which are not committed yet.
+	 * 
+	 * @return
+	 */
+	boolean hasUncommittedChanges() {
+		final TransactionContext txContext = profileTable.getSleeContainer()
+				.getTransactionManager().getTransactionContext();
+		if (txContext == null) {
+			return false;
+		}
+		final Map txData = txContext.getData();
+		if (txData.containsKey(profilesRemovedKey)) {
+			return true;
+		}
+		for (Object value : txData.values()) {
+			if (value instanceof ProfileObjectImpl) {
+				final ProfileObjectImpl profileObject = (ProfileObjectImpl) value;
+				if (profileObject.getProfileTable() == profileTable
+						&& profileObject.getState() == ProfileObjectState.READY
+						&& profileObject.getProfileEntity().isDirty()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * 
 	 * @author martins
@@ -62,6 +62,11 @@ public abstract class ProfileEntity {
 	 */
 	private boolean readOnly = false;
 	
+	/**
+	 * indicates if the pojo is a read only snapshot, shared by transactions, and not the persistent pojo
+	 */
+	private boolean snapshot = false;
+	
 	/**
 	 * 
 	 * @return
@@ -126,6 +131,14 @@ public abstract class ProfileEntity {
 		return remove;
 	}
     
+    /**
+     * 
+     * @return
+     */
+    public boolean isSnapshot() {
+		return snapshot;
+	}
+    
     /**
      * 
      */
@@ -147,6 +160,13 @@ public abstract class ProfileEntity {
     	this.readOnly = readOnly;
     }
     
+    /**
+     * 
+     */
+    public void setSnapshot(boolean snapshot) {
+    	this.snapshot = snapshot;
+    }
+    
     /**
      * 
      */
@@ -158,7 +178,7 @@ public abstract class ProfileEntity {
     }
     
     public String toString() {
-		return "ProfileEntity( profileName = "+getProfileName()+" , tableName = "+tableName+" , create = "+create+" , dirty = "+dirty+ " , readOnly = "+readOnly+" , remove = "+remove+" )";
+		return "ProfileEntity( profileName = "+getProfileName()+" , tableName = "+tableName+" , create = "+create+" , dirty = "+dirty+ " , readOnly = "+readOnly+" , remove = "+remove+" , snapshot = "+snapshot+" )";
 	}    
         
     
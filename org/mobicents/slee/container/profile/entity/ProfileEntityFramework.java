@@ -138,6 +138,41 @@ public interface ProfileEntityFramework {
 	public ProfileEntity retrieveProfile(String profileTable,
 			String profileName);
 
+	/**
+	 * Retrieves a read only snapshot of the specified profile, which may be
+	 * shared with other transactions, thus must not be changed. To change the
+	 * profile the entity must be retrieved with
+	 * {@link #retrieveProfile(String, String)}. If no snapshot can be used,
+	 * e.g. the transaction changed profiles, the persistent entity is
+	 * returned instead, {@link ProfileEntity#isSnapshot()} tells which one
+	 * was returned.
+	 * 
+	 * @param profileTable
+	 * @param profileName
+	 * @return
+	 */
+	public ProfileEntity retrieveProfileSnapshot(String profileTable,
+			String profileName);
+
+	/**
+	 * Indicates the specified profile was stored or removed in the active
+	 * transaction, snapshots of the profile retrieved before the transaction
+	 * commits can't be used anymore.
+	 * 
+	 * @param profileTable
+	 * @param profileName
+	 */
+	public void profileChanged(String profileTable, String profileName);
+
+	/**
+	 * Indicates the specified profile table was removed in the active
+	 * transaction, once it commits the snapshots of the table profiles are
+	 * discarded.
+	 * 
+	 * @param profileTable
+	 */
+	public void profileTableRemoved(String profileTable);
+
 	/**
 	 * 
 	 * @param component
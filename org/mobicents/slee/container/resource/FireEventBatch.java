@@ -0,0 +1,188 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.container.resource;
+
+import javax.slee.Address;
+import javax.slee.resource.ActivityHandle;
+import javax.slee.resource.EventFlags;
+import javax.slee.resource.FireableEventType;
+import javax.slee.resource.ReceivableService;
+
+/**
+ * A batch of events to fire through
+ * {@link SleeEndpoint#fireEvents(FireEventBatch)}, e.g. all messages read
+ * from a socket at once. The batch keeps the events in parallel arrays, and
+ * may be cleared and reused, it is not thread safe.
+ * 
+ */
+public class FireEventBatch {
+
+	private ActivityHandle[] handles;
+	private FireableEventType[] eventTypes;
+	private Object[] events;
+	private Address[] addresses;
+	private ReceivableService[] receivableServices;
+	private int[] eventFlags;
+	
+	private int size;
+	
+	/**
+	 * 
+	 */
+	public FireEventBatch() {
+		this(16);
+	}
+	
+	/**
+	 * 
+	 * @param initialCapacity
+	 */
+	public FireEventBatch(int initialCapacity) {
+		if (initialCapacity < 1) {
+			throw new IllegalArgumentException("invalid initial capacity "+initialCapacity);
+		}
+		handles = new ActivityHandle[initialCapacity];
+		eventTypes = new FireableEventType[initialCapacity];
+		events = new Object[initialCapacity];
+		addresses = new Address[initialCapacity];
+		receivableServices = new ReceivableService[initialCapacity];
+		eventFlags = new int[initialCapacity];
+	}
+	
+	/**
+	 * Adds an event to the batch, with normal event flags. See
+	 * {@link javax.slee.resource.SleeEndpoint#fireEvent(ActivityHandle, FireableEventType, Object, Address, ReceivableService)}
+	 * for info on params.
+	 * 
+	 * @param handle
+	 * @param eventType
+	 * @param event
+	 * @param address
+	 * @param receivableService
+	 */
+	public void add(ActivityHandle handle, FireableEventType eventType,
+			Object event, Address address, ReceivableService receivableService) {
+		add(handle, eventType, event, address, receivableService,
+				EventFlags.NO_FLAGS);
+	}
+	
+	/**
+	 * Adds an event to the batch, specifying event flags. See
+	 * {@link javax.slee.resource.SleeEndpoint#fireEvent(ActivityHandle, FireableEventType, Object, Address, ReceivableService, int)}
+	 * for info on params.
+	 * 
+	 * @param handle
+	 * @param eventType
+	 * @param event
+	 * @param address
+	 * @param receivableService
+	 * @param eventFlags
+	 */
+	public void add(ActivityHandle handle, FireableEventType eventType,
+			Object event, Address address, ReceivableService receivableService,
+			int eventFlags) {
+		if (size == handles.length) {
+			grow();
+		}
+		this.handles[size] = handle;
+		this.eventTypes[size] = eventType;
+		this.events[size] = event;
+		this.addresses[size] = address;
+		this.receivableServices[size] = receivableService;
+		this.eventFlags[size] = eventFlags;
+		size++;
+	}
+	
+	private void grow() {
+		final int capacity = handles.length << 1;
+		final ActivityHandle[] handles = new ActivityHandle[capacity];
+		System.arraycopy(this.handles, 0, handles, 0, size);
+		this.handles = handles;
+		final FireableEventType[] eventTypes = new FireableEventType[capacity];
+		System.arraycopy(this.eventTypes, 0, eventTypes, 0, size);
+		this.eventTypes = eventTypes;
+		final Object[] events = new Object[capacity];
+		System.arraycopy(this.events, 0, events, 0, size);
+		this.events = events;
+		final Address[] addresses = new Address[capacity];
+		System.arraycopy(this.addresses, 0, addresses, 0, size);
+		this.addresses = addresses;
+		final ReceivableService[] receivableServices = new ReceivableService[capacity];
+		System.arraycopy(this.receivableServices, 0, receivableServices, 0, size);
+		this.receivableServices = receivableServices;
+		final int[] eventFlags = new int[capacity];
+		System.arraycopy(this.eventFlags, 0, eventFlags, 0, size);
+		this.eventFlags = eventFlags;
+	}
+	
+	/**
+	 * Removes all events from the batch, so it can be reused.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			handles[i] = null;
+			eventTypes[i] = null;
+			events[i] = null;
+			addresses[i] = null;
+			receivableServices[i] = null;
+		}
+		size = 0;
+	}
+	
+	/**
+	 * Retrieves the number of events in the batch.
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+	
+	public ActivityHandle getHandle(int index) {
+		return handles[index];
+	}
+	
+	public FireableEventType getEventType(int index) {
+		return eventTypes[index];
+	}
+	
+	public Object getEvent(int index) {
+		return events[index];
+	}
+	
+	public Address getAddress(int index) {
+		return addresses[index];
+	}
+	
+	public ReceivableService getReceivableService(int index) {
+		return receivableServices[index];
+	}
+	
+	public int getEventFlags(int index) {
+		return eventFlags[index];
+	}
+	
+	@Override
+	public String toString() {
+		return "FireEventBatch[size = " + size + "]";
+	}
+}
@@ -201,6 +201,49 @@ public interface SleeEndpoint extends javax.slee.resource.SleeEndpoint {
 			IllegalEventException, TransactionRequiredLocalException,
 			ActivityIsEndingException, FireEventException, SLEEException;
 
+	/**
+	 * Fires a batch of events, without a transaction context, same as invoking
+	 * {@link #fireEvent(ActivityHandle, FireableEventType, Object, Address, ReceivableService, int)}
+	 * for each event in the batch, but validating the batch and resolving the
+	 * activity contexts once, and submitting the events of each activity at
+	 * once. The events of each activity are routed in the order they were
+	 * added to the batch.
+	 * 
+	 * All events are validated before any is fired, thus an exception due to
+	 * an invalid event, an unknown or ending activity means no event in the
+	 * batch was fired, unless the activity ends concurrently, in such case
+	 * the events of activities preceding it in the batch may have been fired.
+	 * 
+	 * @param batch
+	 * @throws NullPointerException
+	 * @throws UnrecognizedActivityHandleException
+	 * @throws IllegalEventException
+	 * @throws ActivityIsEndingException
+	 * @throws FireEventException
+	 * @throws SLEEException
+	 */
+	public void fireEvents(FireEventBatch batch) throws NullPointerException,
+			UnrecognizedActivityHandleException, IllegalEventException,
+			ActivityIsEndingException, FireEventException, SLEEException;
+
+	/**
+	 * Fires a batch of events on replicated activities, without a transaction
+	 * context. See {@link #fireEvents(FireEventBatch)} for info on params and
+	 * exceptions.
+	 * 
+	 * @param batch
+	 * @throws NullPointerException
+	 * @throws UnrecognizedActivityHandleException
+	 * @throws IllegalEventException
+	 * @throws ActivityIsEndingException
+	 * @throws FireEventException
+	 * @throws SLEEException
+	 */
+	public void fireEventsOnReplicatedActivities(FireEventBatch batch)
+			throws NullPointerException, UnrecognizedActivityHandleException,
+			IllegalEventException, ActivityIsEndingException,
+			FireEventException, SLEEException;
+
 	/**
 	 * Suspends a replicated activity.
 	 * 
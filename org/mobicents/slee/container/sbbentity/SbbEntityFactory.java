@@ -48,6 +48,15 @@ public interface SbbEntityFactory extends SleeContainerModule {
 	public SbbEntity createRootSbbEntity(ServiceID serviceID,
 			String convergenceName);
 
+	/**
+	 * Creates a new root sbb entity, with the specified id, or retrieves it
+	 * if it already exists.
+	 * 
+	 * @param rootSbbEntityID
+	 * @return
+	 */
+	public SbbEntity createRootSbbEntity(SbbEntityID rootSbbEntityID);
+
 	/**
 	 * Creates a new non root sbb entity, if it does not exists. 
 	 * 
@@ -0,0 +1,552 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.container.util.concurrent;
+
+import java.lang.ref.WeakReference;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.pool.ObjectPool;
+import org.apache.commons.pool.PoolableObjectFactory;
+import org.apache.log4j.Logger;
+
+/**
+ * Lock-free {@link ObjectPool}, where each thread has a small local free list,
+ * and only when it is empty, or full, the thread uses the shared overflow
+ * stack. Objects are thus reused, in LIFO order, by the thread which last
+ * returned them, and threads borrowing and returning objects, such as the
+ * event router ones, don't contend with each other.
+ * 
+ * All stats are kept in the local free lists, written only by the owner
+ * thread, and aggregated on read.
+ * 
+ */
+public class AffinityObjectPool implements ObjectPool {
+
+	private static final Logger logger = Logger.getLogger(AffinityObjectPool.class);
+
+	/**
+	 * the default max number of idle objects in each thread local free list
+	 */
+	public static final int DEFAULT_LOCAL_CAPACITY = 4;
+
+	private volatile PoolableObjectFactory factory;
+
+	private final int localCapacity;
+
+	/**
+	 * the max number of idle objects in the shared stack, negative for no limit
+	 */
+	private final int maxIdle;
+
+	private final boolean testOnBorrow;
+
+	private final boolean testOnReturn;
+
+	private volatile boolean closed;
+
+	/**
+	 * the top of the shared overflow stack
+	 */
+	private final AtomicReference<Node> sharedTop = new AtomicReference<Node>();
+
+	/**
+	 * the number of idle objects in the shared overflow stack
+	 */
+	private final AtomicInteger sharedIdle = new AtomicInteger(0);
+
+	/**
+	 * all local free lists, needed to clear the pool and aggregate stats
+	 */
+	private final ConcurrentLinkedQueue<LocalFreeList> localFreeLists = new ConcurrentLinkedQueue<LocalFreeList>();
+
+	/**
+	 * the stats of the local free lists of dead threads
+	 */
+	private final Statistics retiredStatistics = new Statistics();
+
+	/**
+	 * the number of objects borrowed minus the ones returned, by dead threads
+	 */
+	private long retiredNumActive;
+
+	private final ThreadLocal<LocalFreeList> localFreeList = new ThreadLocal<LocalFreeList>() {
+		@Override
+		protected LocalFreeList initialValue() {
+			return newLocalFreeList();
+		}
+	};
+
+	/**
+	 * 
+	 * @param factory
+	 * @param maxIdle
+	 *            the max number of idle objects in the shared overflow stack,
+	 *            negative for no limit
+	 * @param testOnBorrow
+	 * @param testOnReturn
+	 */
+	public AffinityObjectPool(PoolableObjectFactory factory, int maxIdle,
+			boolean testOnBorrow, boolean testOnReturn) {
+		this(factory, DEFAULT_LOCAL_CAPACITY, maxIdle, testOnBorrow, testOnReturn);
+	}
+
+	/**
+	 * 
+	 * @param factory
+	 * @param localCapacity
+	 *            the max number of idle objects in each thread local free list
+	 * @param maxIdle
+	 *            the max number of idle objects in the shared overflow stack,
+	 *            negative for no limit
+	 * @param testOnBorrow
+	 * @param testOnReturn
+	 */
+	public AffinityObjectPool(PoolableObjectFactory factory, int localCapacity,
+			int maxIdle, boolean testOnBorrow, boolean testOnReturn) {
+		if (localCapacity < 0) {
+			throw new IllegalArgumentException("invalid local capacity "+localCapacity);
+		}
+		this.factory = factory;
+		this.localCapacity = localCapacity;
+		this.maxIdle = maxIdle;
+		this.testOnBorrow = testOnBorrow;
+		this.testOnReturn = testOnReturn;
+	}
+
+	private LocalFreeList newLocalFreeList() {
+		// retire the lists of dead threads, moving the idle objects to the
+		// shared stack
+		for (LocalFreeList list : localFreeLists) {
+			if (!list.isOwnerAlive() && localFreeLists.remove(list)) {
+				Object obj = null;
+				for (int i = 0; i < localCapacity; i++) {
+					obj = list.slots.getAndSet(i, null);
+					if (obj != null && !pushShared(obj)) {
+						destroy(obj, list);
+					}
+				}
+				synchronized (retiredStatistics) {
+					retiredStatistics.add(list);
+					retiredNumActive += list.borrowed - list.returned;
+				}
+			}
+		}
+		final LocalFreeList list = new LocalFreeList(localCapacity);
+		localFreeLists.add(list);
+		return list;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.commons.pool.ObjectPool#borrowObject()
+	 */
+	public Object borrowObject() throws Exception, NoSuchElementException,
+			IllegalStateException {
+		final LocalFreeList list = localFreeList.get();
+		final PoolableObjectFactory factory = this.factory;
+		Object obj = null;
+		boolean created = false;
+		while (true) {
+			if (closed) {
+				throw new IllegalStateException("Pool closed");
+			}
+			obj = list.pop();
+			if (obj != null) {
+				list.localHits++;
+			}
+			else {
+				obj = popShared();
+				if (obj != null) {
+					list.sharedHits++;
+				}
+				else {
+					obj = factory.makeObject();
+					list.misses++;
+					list.created++;
+					created = true;
+				}
+			}
+			try {
+				factory.activateObject(obj);
+				if (testOnBorrow && !factory.validateObject(obj)) {
+					throw new Exception("validation failed");
+				}
+				break;
+			}
+			catch (Throwable e) {
+				destroy(obj, list);
+				if (created) {
+					throw new NoSuchElementException("Could not create a validated object, cause: "+e.getMessage());
+				}
+			}
+		}
+		list.borrowed++;
+		return obj;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.commons.pool.ObjectPool#returnObject(java.lang.Object)
+	 */
+	public void returnObject(Object obj) throws Exception {
+		final LocalFreeList list = localFreeList.get();
+		list.returned++;
+		if (testOnReturn && !factory.validateObject(obj)) {
+			destroy(obj, list);
+			return;
+		}
+		try {
+			factory.passivateObject(obj);
+		}
+		catch (Exception e) {
+			destroy(obj, list);
+			return;
+		}
+		if (closed || (!list.push(obj) && !pushShared(obj))) {
+			destroy(obj, list);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.commons.pool.ObjectPool#invalidateObject(java.lang.Object)
+	 */
+	public void invalidateObject(Object obj) throws Exception {
+		final LocalFreeList list = localFreeList.get();
+		list.returned++;
+		list.destroyed++;
+		factory.destroyObject(obj);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.commons.pool.ObjectPool#addObject()
+	 */
+	public void addObject() throws Exception, IllegalStateException,
+			UnsupportedOperationException {
+		if (closed) {
+			throw new IllegalStateException("Pool closed");
+		}
+		final LocalFreeList list = localFreeList.get();
+		final Object obj = factory.makeObject();
+		list.created++;
+		try {
+			factory.passivateObject(obj);
+		}
+		catch (Exception e) {
+			destroy(obj, list);
+			throw e;
+		}
+		if (!pushShared(obj)) {
+			destroy(obj, list);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.commons.pool.ObjectPool#getNumIdle()
+	 */
+	public int getNumIdle() throws UnsupportedOperationException {
+		int numIdle = sharedIdle.get();
+		for (LocalFreeList list : localFreeLists) {
+			numIdle += list.size();
+		}
+		return numIdle;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.commons.pool.ObjectPool#getNumActive()
+	 */
+	public int getNumActive() throws UnsupportedOperationException {
+		// an object may be returned by a thread other than the borrower
+		long numActive = 0L;
+		synchronized (retiredStatistics) {
+			numActive = retiredNumActive;
+		}
+		for (LocalFreeList list : localFreeLists) {
+			numActive += list.borrowed - list.returned;
+		}
+		return (int) numActive;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.commons.pool.ObjectPool#clear()
+	 */
+	public void clear() throws Exception, UnsupportedOperationException {
+		final LocalFreeList ownList = localFreeList.get();
+		Object obj = null;
+		for (LocalFreeList list : localFreeLists) {
+			for (int i = 0; i < localCapacity; i++) {
+				obj = list.slots.getAndSet(i, null);
+				if (obj != null) {
+					destroy(obj, ownList);
+				}
+			}
+		}
+		while ((obj = popShared()) != null) {
+			destroy(obj, ownList);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.commons.pool.ObjectPool#close()
+	 */
+	public void close() throws Exception {
+		closed = true;
+		clear();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.commons.pool.ObjectPool#setFactory(org.apache.commons.pool.PoolableObjectFactory)
+	 */
+	public void setFactory(PoolableObjectFactory factory)
+			throws IllegalStateException, UnsupportedOperationException {
+		if (getNumActive() > 0) {
+			throw new IllegalStateException("Objects borrowed from the pool");
+		}
+		try {
+			clear();
+		}
+		catch (Exception e) {
+			logger.error("Failed to clear pool", e);
+		}
+		this.factory = factory;
+	}
+
+	/**
+	 * Adds the pool stats to the specified statistics.
+	 * 
+	 * @param statistics
+	 */
+	public void addStatistics(Statistics statistics) {
+		synchronized (retiredStatistics) {
+			statistics.add(retiredStatistics);
+		}
+		for (LocalFreeList list : localFreeLists) {
+			statistics.add(list);
+		}
+	}
+
+	private void destroy(Object obj, LocalFreeList list) {
+		list.destroyed++;
+		try {
+			factory.destroyObject(obj);
+		}
+		catch (Throwable e) {
+			logger.error("Failed to destroy object " + obj, e);
+		}
+	}
+
+	private boolean pushShared(Object obj) {
+		if (sharedIdle.incrementAndGet() > maxIdle && maxIdle >= 0) {
+			sharedIdle.decrementAndGet();
+			return false;
+		}
+		final Node node = new Node(obj);
+		do {
+			node.next = sharedTop.get();
+		} while (!sharedTop.compareAndSet(node.next, node));
+		return true;
+	}
+
+	private Object popShared() {
+		Node node = null;
+		do {
+			node = sharedTop.get();
+			if (node == null) {
+				return null;
+			}
+		} while (!sharedTop.compareAndSet(node, node.next));
+		sharedIdle.decrementAndGet();
+		return node.obj;
+	}
+
+	@Override
+	public String toString() {
+		return "AffinityObjectPool[active = " + getNumActive() + ", idle = "
+				+ getNumIdle() + "]";
+	}
+
+	/**
+	 * A node of the shared overflow stack.
+	 */
+	private static class Node {
+
+		private final Object obj;
+		private Node next;
+
+		Node(Object obj) {
+			this.obj = obj;
+		}
+	}
+
+	/**
+	 * The free list of a thread. Only the owner thread pushes, pops and
+	 * updates stats, other threads may only take the objects out of the
+	 * slots, when clearing the pool.
+	 */
+	private static class LocalFreeList {
+
+		private final AtomicReferenceArray<Object> slots;
+
+		/**
+		 * the owner's view of the number of objects in the slots, may be
+		 * higher than the real one if another thread cleared the slots
+		 */
+		private int size;
+
+		private final WeakReference<Thread> owner = new WeakReference<Thread>(Thread.currentThread());
+
+		private volatile long localHits;
+		private volatile long sharedHits;
+		private volatile long misses;
+		private volatile long created;
+		private volatile long destroyed;
+		private volatile long borrowed;
+		private volatile long returned;
+
+		LocalFreeList(int capacity) {
+			this.slots = new AtomicReferenceArray<Object>(capacity);
+		}
+
+		boolean isOwnerAlive() {
+			final Thread thread = owner.get();
+			return thread != null && thread.isAlive();
+		}
+
+		Object pop() {
+			if (size == 0) {
+				return null;
+			}
+			final Object obj = slots.getAndSet(--size, null);
+			if (obj == null) {
+				// cleared
+				size = 0;
+			}
+			return obj;
+		}
+
+		boolean push(Object obj) {
+			if (size == slots.length()) {
+				return false;
+			}
+			slots.set(size++, obj);
+			return true;
+		}
+
+		int size() {
+			int size = 0;
+			for (int i = 0; i < slots.length(); i++) {
+				if (slots.get(i) != null) {
+					size++;
+				}
+			}
+			return size;
+		}
+	}
+
+	/**
+	 * Pool stats, aggregated from one or more pools.
+	 */
+	public static class Statistics {
+
+		private long localHits;
+		private long sharedHits;
+		private long misses;
+		private long created;
+		private long destroyed;
+
+		private void add(LocalFreeList list) {
+			localHits += list.localHits;
+			sharedHits += list.sharedHits;
+			misses += list.misses;
+			created += list.created;
+			destroyed += list.destroyed;
+		}
+
+		private void add(Statistics other) {
+			localHits += other.localHits;
+			sharedHits += other.sharedHits;
+			misses += other.misses;
+			created += other.created;
+			destroyed += other.destroyed;
+		}
+
+		/**
+		 * Retrieves the number of objects borrowed from the thread local free
+		 * lists.
+		 * 
+		 * @return
+		 */
+		public long getLocalHits() {
+			return localHits;
+		}
+
+		/**
+		 * Retrieves the number of objects borrowed from the shared overflow
+		 * stack.
+		 * 
+		 * @return
+		 */
+		public long getSharedHits() {
+			return sharedHits;
+		}
+
+		/**
+		 * Retrieves the number of objects borrowed when the pool had no idle
+		 * objects, and thus were created.
+		 * 
+		 * @return
+		 */
+		public long getMisses() {
+			return misses;
+		}
+
+		/**
+		 * Retrieves the number of objects created, including the ones created
+		 * on warm up.
+		 * 
+		 * @return
+		 */
+		public long getCreated() {
+			return created;
+		}
+
+		/**
+		 * Retrieves the number of objects destroyed.
+		 * 
+		 * @return
+		 */
+		public long getDestroyed() {
+			return destroyed;
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.container.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free, multi producer and multi consumer FIFO queue, backed by
+ * a ring of slots. Each slot has a sequence number, which tells producers and
+ * consumers if the slot is free or filled for the position they claim, thus a
+ * full or empty buffer is detected without a shared counter, and offer or poll
+ * only need a CAS on the tail or head position.
+ * 
+ */
+public class BoundedRingBuffer<E> {
+
+	private final AtomicReferenceArray<E> elements;
+
+	private final AtomicLongArray sequences;
+
+	private final int mask;
+
+	/**
+	 * the next position to fill
+	 */
+	private final AtomicLong tail = new AtomicLong(0L);
+
+	/**
+	 * the next position to take
+	 */
+	private final AtomicLong head = new AtomicLong(0L);
+
+	/**
+	 * 
+	 * @param capacity
+	 *            the max number of elements, rounded up to a power of 2
+	 */
+	public BoundedRingBuffer(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("invalid capacity "+capacity);
+		}
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		elements = new AtomicReferenceArray<E>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+		mask = size - 1;
+	}
+
+	/**
+	 * Adds the specified element to the tail of the buffer.
+	 * 
+	 * @param e
+	 * @return false if the buffer is full
+	 */
+	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException("null element");
+		}
+		long pos = tail.get();
+		while (true) {
+			final int index = (int) pos & mask;
+			final long diff = sequences.get(index) - pos;
+			if (diff == 0L) {
+				// slot free for this position
+				if (tail.compareAndSet(pos, pos + 1)) {
+					elements.set(index, e);
+					sequences.set(index, pos + 1);
+					return true;
+				}
+				pos = tail.get();
+			}
+			else if (diff < 0L) {
+				// slot still filled for the previous lap
+				return false;
+			}
+			else {
+				// another producer claimed the position
+				pos = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Takes the element at the head of the buffer.
+	 * 
+	 * @return null if the buffer is empty
+	 */
+	public E poll() {
+		long pos = head.get();
+		while (true) {
+			final int index = (int) pos & mask;
+			final long diff = sequences.get(index) - (pos + 1);
+			if (diff == 0L) {
+				// slot filled for this position
+				if (head.compareAndSet(pos, pos + 1)) {
+					final E e = elements.get(index);
+					elements.set(index, null);
+					// free the slot for the next lap
+					sequences.set(index, pos + mask + 1);
+					return e;
+				}
+				pos = head.get();
+			}
+			else if (diff < 0L) {
+				// slot not filled yet
+				return null;
+			}
+			else {
+				// another consumer took the position
+				pos = head.get();
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the approximate number of elements in the buffer.
+	 * 
+	 * @return
+	 */
+	public int size() {
+		final long size = tail.get() - head.get();
+		return size < 0L ? 0 : (int) size;
+	}
+
+	/**
+	 * Indicates if the buffer is empty.
+	 * 
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return tail.get() == head.get();
+	}
+
+	/**
+	 * Retrieves the max number of elements in the buffer.
+	 * 
+	 * @return
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.container.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed memory, lock-free, log-linear histogram of non negative long values,
+ * such as latencies. Each power of 2 range is split in 32 linear buckets, thus
+ * values are recorded with a relative error below 1/32, and recording a value
+ * is just an atomic increment of the bucket counter.
+ * 
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	
+	private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+	
+	/**
+	 * the number of buckets needed to cover all positive long values
+	 */
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+	
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	
+	/**
+	 * Records the specified value, negative values are recorded as 0.
+	 * @param value
+	 */
+	public void record(long value) {
+		buckets.incrementAndGet(getBucketIndex(value));
+	}
+	
+	/**
+	 * Retrieves a snapshot of the histogram, optionally resetting it, so the
+	 * next snapshot only includes the values recorded after this one.
+	 * 
+	 * @param reset
+	 * @return
+	 */
+	public Snapshot snapshot(boolean reset) {
+		final long[] counts = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = reset ? buckets.getAndSet(i, 0L) : buckets.get(i);
+		}
+		return new Snapshot(counts);
+	}
+	
+	/**
+	 * Resets the histogram.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets.set(i, 0L);
+		}
+	}
+	
+	private static int getBucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return value < 0L ? 0 : (int) value;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK);
+	}
+	
+	/**
+	 * Retrieves the highest value recorded in the bucket with the specified index.
+	 * @param index
+	 * @return
+	 */
+	private static long getHighestBucketValue(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+		final long lowest = ((long) (SUB_BUCKET_COUNT + (index & SUB_BUCKET_MASK))) << shift;
+		return lowest + (1L << shift) - 1L;
+	}
+	
+	/**
+	 * Immutable snapshot of a {@link LatencyHistogram}.
+	 * 
+	 */
+	public static class Snapshot {
+		
+		private final long[] counts;
+		
+		private final long count;
+		
+		private Snapshot(long[] counts) {
+			this.counts = counts;
+			long count = 0L;
+			for (int i = 0; i < counts.length; i++) {
+				count += counts[i];
+			}
+			this.count = count;
+		}
+		
+		/**
+		 * Retrieves the number of values recorded.
+		 * @return
+		 */
+		public long getCount() {
+			return count;
+		}
+		
+		/**
+		 * Retrieves the value below or equal to which the specified percentage
+		 * of the recorded values fall, 0 if there are no values recorded.
+		 * 
+		 * @param percentile
+		 *            the percentile, between 0 and 100
+		 * @return
+		 * @throws IllegalArgumentException
+		 *             if the percentile is not between 0 and 100
+		 */
+		public long getValueAtPercentile(double percentile) throws IllegalArgumentException {
+			if (percentile < 0.0 || percentile > 100.0) {
+				throw new IllegalArgumentException("invalid percentile "+percentile);
+			}
+			if (count == 0L) {
+				return 0L;
+			}
+			long target = (long) Math.ceil(percentile * count / 100.0);
+			if (target < 1L) {
+				target = 1L;
+			}
+			long total = 0L;
+			for (int i = 0; i < counts.length; i++) {
+				total += counts[i];
+				if (total >= target) {
+					return getHighestBucketValue(i);
+				}
+			}
+			return getMaxValue();
+		}
+		
+		/**
+		 * Retrieves the values at the specified percentiles.
+		 * 
+		 * @param percentiles
+		 * @return
+		 * @throws IllegalArgumentException
+		 *             if a percentile is not between 0 and 100
+		 * @see #getValueAtPercentile(double)
+		 */
+		public long[] getValuesAtPercentiles(double[] percentiles) throws IllegalArgumentException {
+			final long[] values = new long[percentiles.length];
+			for (int i = 0; i < percentiles.length; i++) {
+				values[i] = getValueAtPercentile(percentiles[i]);
+			}
+			return values;
+		}
+		
+		/**
+		 * Retrieves the highest value recorded, 0 if there are no values recorded.
+		 * @return
+		 */
+		public long getMaxValue() {
+			for (int i = counts.length - 1; i >= 0; i--) {
+				if (counts[i] != 0L) {
+					return getHighestBucketValue(i);
+				}
+			}
+			return 0L;
+		}
+		
+		/**
+		 * Creates a new snapshot, with the values of this snapshot and the specified one.
+		 * @param other
+		 * @return
+		 */
+		public Snapshot add(Snapshot other) {
+			final long[] counts = new long[BUCKET_COUNT];
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				counts[i] = this.counts[i] + other.counts[i];
+			}
+			return new Snapshot(counts);
+		}
+		
+		/**
+		 * Creates a new snapshot, with the values of this snapshot which are
+		 * not in the specified previous snapshot of the same histogram. If the
+		 * histogram was reset after the previous snapshot this snapshot is
+		 * returned.
+		 * 
+		 * @param previous
+		 * @return
+		 */
+		public Snapshot subtract(Snapshot previous) {
+			final long[] counts = new long[BUCKET_COUNT];
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				counts[i] = this.counts[i] - previous.counts[i];
+				if (counts[i] < 0L) {
+					return this;
+				}
+			}
+			return new Snapshot(counts);
+		}
+		
+		/**
+		 * Retrieves an empty snapshot.
+		 * @return
+		 */
+		public static Snapshot empty() {
+			return new Snapshot(new long[BUCKET_COUNT]);
+		}
+		
+		@Override
+		public String toString() {
+			return "count = " + count + ", p50 = " + getValueAtPercentile(50.0)
+					+ ", p99 = " + getValueAtPercentile(99.0) + ", p99.9 = "
+					+ getValueAtPercentile(99.9) + ", max = " + getMaxValue();
+		}
+	}
+}
@@ -23,6 +23,7 @@
 package org.mobicents.slee.resource;
 
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.slee.EventTypeID;
 import javax.slee.UnrecognizedEventException;
@@ -52,6 +53,12 @@ public class EventLookupFacilityImpl implements EventLookupFacility {
 	 */
 	private final ResourceAdaptorEntity raEntity;
 
+	/**
+	 * the event types looked up, reused so the event classes verified when
+	 * firing events are shared
+	 */
+	private final ConcurrentHashMap<EventTypeID, FireableEventTypeImpl> fireableEventTypes = new ConcurrentHashMap<EventTypeID, FireableEventTypeImpl>();
+
 	public EventLookupFacilityImpl(ResourceAdaptorEntity raEntity,SleeContainer container
 			) {
 		this.container = container;
@@ -83,9 +90,23 @@ public class EventLookupFacilityImpl implements EventLookupFacility {
 			throw new UnrecognizedEventException("ra not allowed to lookup "
 					+ eventTypeID);
 		}
-		return new FireableEventTypeImpl(eventTypeComponent.getClassLoader(),
-				eventTypeComponent.getDescriptor().getEventClassName(),
-				eventTypeComponent.getEventTypeID());
+		FireableEventTypeImpl fireableEventType = fireableEventTypes.get(eventTypeID);
+		if (fireableEventType == null || fireableEventType.getEventTypeComponent() != eventTypeComponent) {
+			// not looked up before, or the component was redeployed
+			fireableEventType = new FireableEventTypeImpl(eventTypeComponent,raEntity);
+			fireableEventTypes.put(eventTypeID, fireableEventType);
+		}
+		return fireableEventType;
+	}
+
+	/**
+	 * Forgets the fireable event type of the specified event type, which is
+	 * being uninstalled, so that its component is not kept reachable.
+	 * 
+	 * @param eventTypeID
+	 */
+	public void eventTypeUninstalled(EventTypeID eventTypeID) {
+		fireableEventTypes.remove(eventTypeID);
 	}
 
 }
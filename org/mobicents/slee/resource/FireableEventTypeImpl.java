@@ -25,13 +25,28 @@ package org.mobicents.slee.resource;
 import javax.slee.EventTypeID;
 import javax.slee.resource.FireableEventType;
 
+import org.mobicents.slee.container.component.event.EventTypeComponent;
+import org.mobicents.slee.container.resource.ResourceAdaptorEntity;
+
 /**
- * Implementation of the SLEE 1.1 specs {@link FireableEventType} class.
+ * Implementation of the SLEE 1.1 specs {@link FireableEventType} class. Besides
+ * the specs data, it carries what is needed to validate the firing of events
+ * without looking up the component repository: the event type component, the
+ * ra entity which looked up the event type, and a small cache of event
+ * classes already verified as assignable to the event type class.
+ * 
  * @author martins
  *
  */
 public class FireableEventTypeImpl implements FireableEventType {
 
+	private static final Class<?>[] NO_CLASSES = {};
+	
+	/**
+	 * the max number of event classes cached as verified
+	 */
+	private static final int MAX_VERIFIED_EVENT_CLASSES = 4;
+	
 	/**
 	 * the event's class loader, which can be used to load the class returned by {@link FireableEventType#getEventClassName()}
 	 */
@@ -47,14 +62,97 @@ public class FireableEventTypeImpl implements FireableEventType {
 	 */
 	private final EventTypeID eventTypeID;
 	
+	/**
+	 * the event type component, when this event type was looked up
+	 */
+	private final EventTypeComponent eventTypeComponent;
 	
-	public FireableEventTypeImpl(ClassLoader eventClassLoader,
-			String eventClassName, EventTypeID eventTypeID) {
-		this.eventClassLoader = eventClassLoader;
-		this.eventClassName = eventClassName;
-		this.eventTypeID = eventTypeID;
+	/**
+	 * the ra entity which looked up the event type, and thus is allowed to fire it
+	 */
+	private final ResourceAdaptorEntity raEntity;
+	
+	/**
+	 * the event classes verified as assignable to the event type class,
+	 * replaced on each update
+	 */
+	private volatile Class<?>[] verifiedEventClasses = NO_CLASSES;
+	
+	/**
+	 * 
+	 * @param eventTypeComponent
+	 * @param raEntity
+	 */
+	public FireableEventTypeImpl(EventTypeComponent eventTypeComponent,
+			ResourceAdaptorEntity raEntity) {
+		this.eventClassLoader = eventTypeComponent.getClassLoader();
+		this.eventClassName = eventTypeComponent.getDescriptor().getEventClassName();
+		this.eventTypeID = eventTypeComponent.getEventTypeID();
+		this.eventTypeComponent = eventTypeComponent;
+		this.raEntity = raEntity;
 	}
 
+	/**
+	 * Retrieves the event type component, null if it was undeployed since
+	 * this event type was looked up.
+	 * 
+	 * @return
+	 */
+	public EventTypeComponent getEventTypeComponent() {
+		return eventTypeComponent.isUndeployed() ? null : eventTypeComponent;
+	}
+	
+	/**
+	 * Indicates if the specified ra entity looked up this event type, and
+	 * thus is allowed to fire it.
+	 * 
+	 * @param raEntity
+	 * @return
+	 */
+	public boolean isAllowedToFire(ResourceAdaptorEntity raEntity) {
+		return this.raEntity == raEntity;
+	}
+	
+	/**
+	 * Indicates if the specified event class was already verified as
+	 * assignable to the event type class.
+	 * 
+	 * @param eventClass
+	 * @return
+	 */
+	public boolean isEventClassVerified(Class<?> eventClass) {
+		final Class<?>[] verifiedEventClasses = this.verifiedEventClasses;
+		for (int i = 0; i < verifiedEventClasses.length; i++) {
+			if (verifiedEventClasses[i] == eventClass) {
+				return !eventTypeComponent.isUndeployed();
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Indicates the specified event class was verified as assignable to the
+	 * class of the specified event type component. The class is only cached
+	 * if the component is the one of this event type, and there is room in
+	 * the cache.
+	 * 
+	 * @param eventTypeComponent
+	 * @param eventClass
+	 */
+	public void eventClassVerified(EventTypeComponent eventTypeComponent, Class<?> eventClass) {
+		if (eventTypeComponent != this.eventTypeComponent) {
+			return;
+		}
+		final Class<?>[] verifiedEventClasses = this.verifiedEventClasses;
+		if (verifiedEventClasses.length < MAX_VERIFIED_EVENT_CLASSES) {
+			final Class<?>[] newVerifiedEventClasses = new Class<?>[verifiedEventClasses.length+1];
+			System.arraycopy(verifiedEventClasses, 0, newVerifiedEventClasses, 0, verifiedEventClasses.length);
+			newVerifiedEventClasses[verifiedEventClasses.length] = eventClass;
+			// concurrent updates may lose a class, which is just verified again
+			this.verifiedEventClasses = newVerifiedEventClasses;
+		}
+	}
+	
 	public ClassLoader getEventClassLoader() {
 		return eventClassLoader;
 	}
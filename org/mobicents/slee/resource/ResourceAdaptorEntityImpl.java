@@ -592,6 +592,17 @@ public class ResourceAdaptorEntityImpl implements ResourceAdaptorEntity {
 		}
 	}
 
+	/**
+	 * Indicates an event type is being uninstalled, the entity will forget the
+	 * fireable event type looked up for it.
+	 * 
+	 * @param eventTypeID
+	 */
+	public void eventTypeUninstalled(EventTypeID eventTypeID) {
+		((EventLookupFacilityImpl) resourceAdaptorContext
+				.getEventLookupFacility()).eventTypeUninstalled(eventTypeID);
+	}
+
 	/**
 	 * Return Notification source representing this RA Entity
 	 * 
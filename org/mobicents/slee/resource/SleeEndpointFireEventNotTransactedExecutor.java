@@ -32,6 +32,7 @@ import javax.slee.resource.ReceivableService;
 import javax.slee.resource.UnrecognizedActivityHandleException;
 
 import org.mobicents.slee.container.SleeContainer;
+import org.mobicents.slee.container.resource.FireEventBatch;
 import org.mobicents.slee.container.transaction.SleeTransaction;
 
 /**
@@ -84,4 +85,27 @@ public class SleeEndpointFireEventNotTransactedExecutor extends
 			}
 		}
 	}
+
+	/**
+	 * Executes a non transacted batched fire event operation.
+	 * 
+	 * @param batch
+	 * @param refHandles
+	 * @throws ActivityIsEndingException
+	 * @throws SLEEException
+	 * @throws UnrecognizedActivityHandleException
+	 */
+	void execute(final FireEventBatch batch, final ActivityHandle[] refHandles)
+			throws ActivityIsEndingException, SLEEException,
+			UnrecognizedActivityHandleException {
+
+		final SleeTransaction tx = super.suspendTransaction();
+		try {
+			sleeEndpoint._fireEvents(batch, refHandles, tx);
+		} finally {
+			if (tx != null) {
+				super.resumeTransaction(tx);
+			}
+		}
+	}
 }
@@ -22,6 +22,11 @@
 
 package org.mobicents.slee.resource;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.slee.Address;
 import javax.slee.SLEEException;
 import javax.slee.TransactionRequiredLocalException;
@@ -46,9 +51,13 @@ import org.mobicents.slee.container.activity.ActivityContextHandle;
 import org.mobicents.slee.container.activity.ActivityEventQueueManager;
 import org.mobicents.slee.container.component.ComponentRepository;
 import org.mobicents.slee.container.component.event.EventTypeComponent;
+import org.mobicents.slee.container.congestion.CongestionControl;
+import org.mobicents.slee.container.event.EventContext;
+import org.mobicents.slee.container.event.EventContextFactory;
 import org.mobicents.slee.container.event.EventProcessingFailedCallback;
 import org.mobicents.slee.container.event.EventProcessingSucceedCallback;
 import org.mobicents.slee.container.event.EventUnreferencedCallback;
+import org.mobicents.slee.container.resource.FireEventBatch;
 import org.mobicents.slee.container.resource.ResourceAdaptorObjectState;
 import org.mobicents.slee.container.resource.SleeEndpoint;
 import org.mobicents.slee.container.transaction.SleeTransaction;
@@ -67,6 +76,8 @@ public class SleeEndpointImpl implements SleeEndpoint {
 	private final SleeTransactionManager txManager;
 	private final ActivityContextFactory acFactory;
 	private final ComponentRepository componentRepository;
+	private final CongestionControl congestionControl;
+	private final EventContextFactory eventContextFactory;
 
 	private static Logger logger = Logger.getLogger(SleeEndpointImpl.class);
 
@@ -83,6 +94,8 @@ public class SleeEndpointImpl implements SleeEndpoint {
 		this.txManager = container.getTransactionManager();
 		this.acFactory = container.getActivityContextFactory();
 		this.componentRepository = container.getComponentRepository();
+		this.congestionControl = container.getCongestionControl();
+		this.eventContextFactory = container.getEventContextFactory();
 		this.raEntity = raEntity;
 		this.fireEventNotTransactedExecutor = new SleeEndpointFireEventNotTransactedExecutor(
 				container, this);
@@ -173,6 +186,7 @@ public class SleeEndpointImpl implements SleeEndpoint {
 		}
 
 		checkStartActivityParameters(handle, activity);
+		checkStartActivityCongestion(handle);
 		startActivityNotTransactedExecutor.execute(handle, activityFlags,false);
 	}
 
@@ -212,6 +226,7 @@ public class SleeEndpointImpl implements SleeEndpoint {
 		// need to check tx before doing out of tx scope activity start
 		txManager.mandateTransaction();	
 		checkStartActivityParameters(handle, activity);
+		checkStartActivityCongestion(handle);
 		startActivityNotTransactedExecutor.execute(handle, activityFlags,true);		
 	}
 
@@ -249,6 +264,7 @@ public class SleeEndpointImpl implements SleeEndpoint {
 		}
 
 		checkStartActivityParameters(handle, activity);
+		checkStartActivityCongestion(handle);
 		// check tx state
 		txManager.mandateTransaction();
 		_startActivity(handle, activityFlags,null);
@@ -279,6 +295,22 @@ public class SleeEndpointImpl implements SleeEndpoint {
 		}
 	}
 
+	/**
+	 * Checks if congestion control refuses the start of an activity, before
+	 * any work is done to start it.
+	 * 
+	 * @param handle
+	 * @throws StartActivityException
+	 */
+	private void checkStartActivityCongestion(ActivityHandle handle)
+			throws StartActivityException {
+		if (congestionControl.refuseStartActivity()) {
+			throw new StartActivityException(
+					"congestion control refused the start of activity with handle "
+							+ handle);
+		}
+	}
+
 	/**
 	 * Start activity logic, independent of transaction management.
 	 * @param handle
@@ -439,16 +471,7 @@ public class SleeEndpointImpl implements SleeEndpoint {
 		if (ac != null) {
 			// suspend activity if needed
 			if (barrierTx != null) {
-				final ActivityEventQueueManager aeqm = ac.getLocalActivityContext().getEventQueueManager();
-				aeqm.createBarrier(barrierTx);
-				TransactionalAction action = new TransactionalAction() {
-					public void execute() {
-						aeqm.removeBarrier(barrierTx);					
-					}
-				};
-				final TransactionContext tc = barrierTx.getTransactionContext();
-				tc.getAfterCommitActions().add(action);
-				tc.getAfterRollbackActions().add(action);
+				createBarrier(ac, barrierTx);
 			}
 			// end the activity
 			ac.endActivity();
@@ -546,6 +569,7 @@ public class SleeEndpointImpl implements SleeEndpoint {
 		}
 
 		checkFireEventPreconditions(handle, eventType, event);
+		checkFireEventCongestion(handle, eventType);
 
 		// get ref handle if we are in cluster and the handle is to be not
 		// replicated
@@ -649,6 +673,7 @@ public class SleeEndpointImpl implements SleeEndpoint {
 		}
 
 		checkFireEventPreconditions(handle, eventType, event);
+		checkFireEventCongestion(handle, eventType);
 		txManager.mandateTransaction();
 
 		// get ref handle if we are in cluster and the handle is to be not
@@ -683,28 +708,47 @@ public class SleeEndpointImpl implements SleeEndpoint {
 		if (handle == null)
 			throw new NullPointerException("handle is null");
 
+		checkEventClass(eventType, checkFireableEventType(eventType), event);
+	}
+
+	/**
+	 * Checks that the specified event type can be fired. The event type
+	 * component and the ra entity allowed to fire the event type are
+	 * resolved when the event type is looked up, thus the component
+	 * repository and the ra entity allowed event types are only used if the
+	 * event type component was undeployed since, or the event type was looked
+	 * up by another ra entity.
+	 * 
+	 * @param eventType
+	 * @return the component of the event type
+	 * @throws NullPointerException
+	 * @throws IllegalEventException
+	 */
+	private EventTypeComponent checkFireableEventType(
+			FireableEventType eventType) throws NullPointerException,
+			IllegalEventException {
+
 		if (eventType == null) {
 			throw new NullPointerException("eventType is null");
 		}
-		final EventTypeComponent eventTypeComponent = componentRepository
-				.getComponentByID(eventType.getEventType());
-		if (eventTypeComponent == null) {
-			throw new IllegalEventException(
-					"event type not installed (more on SLEE 1.1 specs 15.14.8)");
-		}
-
-		if (!eventTypeComponent.getEventTypeClass().isAssignableFrom(
-				event.getClass())) {
-			throw new IllegalEventException(
-					"the class of the event object fired is not assignable to the event class of the event type (more on SLEE 1.1 specs 15.14.8) ");
-		}
 
 		if (eventType.getClass() != FireableEventTypeImpl.class) {
 			throw new IllegalEventException(
 					"unknown implementation of FireableEventType");
 		}
+		final FireableEventTypeImpl fireableEventTypeImpl = (FireableEventTypeImpl) eventType;
+
+		EventTypeComponent eventTypeComponent = fireableEventTypeImpl.getEventTypeComponent();
+		if (eventTypeComponent == null) {
+			eventTypeComponent = componentRepository
+				.getComponentByID(eventType.getEventType());
+			if (eventTypeComponent == null) {
+				throw new IllegalEventException(
+					"event type not installed (more on SLEE 1.1 specs 15.14.8)");
+			}
+		}
 
-		if (raEntity.getAllowedEventTypes() != null
+		if (!fireableEventTypeImpl.isAllowedToFire(raEntity) && raEntity.getAllowedEventTypes() != null
 				&& !raEntity.getAllowedEventTypes().contains(
 						eventType.getEventType())) {
 			throw new IllegalEventException(
@@ -712,6 +756,53 @@ public class SleeEndpointImpl implements SleeEndpoint {
 							+ eventType.getEventType()
 							+ " does not belongs to any of the ra types implemented by the resource adaptor");
 		}
+		return eventTypeComponent;
+	}
+
+	/**
+	 * Checks that the class of the specified event object is assignable to
+	 * the event class of the specified event type component. The event
+	 * classes verified are cached in the event type, while its component is
+	 * not undeployed.
+	 * 
+	 * @param eventType
+	 *            the event type, already checked with
+	 *            {@link #checkFireableEventType(FireableEventType)}
+	 * @param eventTypeComponent
+	 * @param event
+	 * @throws IllegalEventException
+	 */
+	private void checkEventClass(FireableEventType eventType,
+			EventTypeComponent eventTypeComponent, Object event)
+			throws IllegalEventException {
+		final FireableEventTypeImpl fireableEventTypeImpl = (FireableEventTypeImpl) eventType;
+		final Class<?> eventClass = event.getClass();
+		if (fireableEventTypeImpl.isEventClassVerified(eventClass)) {
+			return;
+		}
+		if (!eventTypeComponent.getEventTypeClass().isAssignableFrom(
+				eventClass)) {
+			throw new IllegalEventException(
+					"the class of the event object fired is not assignable to the event class of the event type (more on SLEE 1.1 specs 15.14.8) ");
+		}
+		fireableEventTypeImpl.eventClassVerified(eventTypeComponent, eventClass);
+	}
+
+	/**
+	 * Checks if congestion control refuses the firing of an event, before any
+	 * work is done to fire it.
+	 * 
+	 * @param handle
+	 * @param eventType
+	 * @throws FireEventException
+	 */
+	private void checkFireEventCongestion(ActivityHandle handle,
+			FireableEventType eventType) throws FireEventException {
+		if (congestionControl.refuseFireEvent()) {
+			throw new FireEventException("congestion control refused event "
+					+ eventType.getEventType() + " on activity with handle "
+					+ handle);
+		}
 	}
 
 	/**
@@ -744,20 +835,13 @@ public class SleeEndpointImpl implements SleeEndpoint {
 		} else {
 			// suspend activity if needed
 			if (barrierTx != null) {
-				final ActivityEventQueueManager aeqm = ac.getLocalActivityContext().getEventQueueManager();
-				aeqm.createBarrier(barrierTx);
-				TransactionalAction action = new TransactionalAction() {
-					public void execute() {
-						aeqm.removeBarrier(barrierTx);					
-					}
-				};
-				final TransactionContext tc = barrierTx.getTransactionContext();
-				tc.getAfterCommitActions().add(action);
-				tc.getAfterRollbackActions().add(action);
+				createBarrier(ac, barrierTx);
 			}
-			final EventProcessingCallbacks callbacks = new EventProcessingCallbacks(
+			// callbacks are only created if requested, events without them
+			// get a lean event context
+			final EventProcessingCallbacks callbacks = hasCallbacks(eventFlags) ? new EventProcessingCallbacks(
 					realHandle, eventType, event, address, receivableService,
-					eventFlags, raEntity);
+					eventFlags, raEntity) : null;
 			final EventProcessingSucceedCallback succeedCallback = EventFlags
 					.hasRequestProcessingSuccessfulCallback(eventFlags) ? callbacks
 					: null;
@@ -774,6 +858,232 @@ public class SleeEndpointImpl implements SleeEndpoint {
 		}
 	}
 
+	/**
+	 * Indicates if the specified event flags request any event processing
+	 * callback.
+	 * 
+	 * @param eventFlags
+	 * @return
+	 */
+	private static boolean hasCallbacks(int eventFlags) {
+		return EventFlags.hasRequestProcessingSuccessfulCallback(eventFlags)
+				|| EventFlags.hasRequestProcessingFailedCallback(eventFlags)
+				|| EventFlags.hasRequestEventReferenceReleasedCallback(eventFlags);
+	}
+
+	/**
+	 * Creates a barrier in the event queue of the specified activity context,
+	 * which is removed once the specified tx ends.
+	 * 
+	 * @param ac
+	 * @param barrierTx
+	 */
+	private void createBarrier(ActivityContext ac, final SleeTransaction barrierTx) {
+		final ActivityEventQueueManager aeqm = ac.getLocalActivityContext().getEventQueueManager();
+		aeqm.createBarrier(barrierTx);
+		TransactionalAction action = new TransactionalAction() {
+			public void execute() {
+				aeqm.removeBarrier(barrierTx);					
+			}
+		};
+		final TransactionContext tc = barrierTx.getTransactionContext();
+		tc.getAfterCommitActions().add(action);
+		tc.getAfterRollbackActions().add(action);
+	}
+
+	// BATCHED EVENT FIRING
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.container.resource.SleeEndpoint#fireEvents(org.mobicents
+	 * .slee.container.resource.FireEventBatch)
+	 */
+	public void fireEvents(FireEventBatch batch) throws NullPointerException,
+			UnrecognizedActivityHandleException, IllegalEventException,
+			ActivityIsEndingException, FireEventException, SLEEException {
+		fireEvents(batch, true);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.container.resource.SleeEndpoint#fireEventsOnReplicatedActivities
+	 * (org.mobicents.slee.container.resource.FireEventBatch)
+	 */
+	public void fireEventsOnReplicatedActivities(FireEventBatch batch)
+			throws NullPointerException, UnrecognizedActivityHandleException,
+			IllegalEventException, ActivityIsEndingException,
+			FireEventException, SLEEException {
+		fireEvents(batch, false);
+	}
+
+	private void fireEvents(FireEventBatch batch, boolean checkHandleRef)
+			throws NullPointerException, UnrecognizedActivityHandleException,
+			IllegalEventException, ActivityIsEndingException,
+			FireEventException, SLEEException {
+
+		if (batch == null) {
+			throw new NullPointerException("batch is null");
+		}
+
+		if (doTraceLogs) {
+			logger.trace("fireEvents( batch = " + batch + " )");
+		}
+
+		final int size = batch.size();
+		if (size == 0) {
+			return;
+		}
+
+		// validate all events before firing any, the event type is only
+		// checked when it changes in the batch, the same for the event class
+		FireableEventType eventType = null;
+		EventTypeComponent eventTypeComponent = null;
+		Class<?> eventClass = null;
+		Object event = null;
+		for (int i = 0; i < size; i++) {
+			event = batch.getEvent(i);
+			if (event == null)
+				throw new NullPointerException("event is null");
+			if (batch.getHandle(i) == null)
+				throw new NullPointerException("handle is null");
+			if (eventType == null || batch.getEventType(i) != eventType) {
+				eventType = batch.getEventType(i);
+				eventTypeComponent = checkFireableEventType(eventType);
+				eventClass = null;
+			}
+			if (event.getClass() != eventClass) {
+				checkEventClass(eventType, eventTypeComponent, event);
+				eventClass = event.getClass();
+			}
+		}
+
+		if (congestionControl.refuseFireEvent()) {
+			throw new FireEventException("congestion control refused batch of "
+					+ size + " events");
+		}
+
+		// get ref handles if we are in cluster and the handles are to be not
+		// replicated
+		final ActivityHandle[] refHandles = new ActivityHandle[size];
+		final ActivityHandleReferenceFactory handleReferenceFactory = checkHandleRef ? raEntity
+				.getHandleReferenceFactory()
+				: null;
+		for (int i = 0; i < size; i++) {
+			refHandles[i] = handleReferenceFactory != null ? handleReferenceFactory
+					.getReference(batch.getHandle(i))
+					: batch.getHandle(i);
+		}
+
+		fireEventNotTransactedExecutor.execute(batch, refHandles);
+	}
+
+	/**
+	 * The indexes of the events in a batch, which target the same activity.
+	 * 
+	 */
+	private static class ActivityEvents {
+
+		private final ActivityHandle refHandle;
+		private final ActivityContext ac;
+		private int[] indexes = new int[4];
+		private int size;
+
+		ActivityEvents(ActivityHandle refHandle, ActivityContext ac) {
+			this.refHandle = refHandle;
+			this.ac = ac;
+		}
+
+		void add(int index) {
+			if (size == indexes.length) {
+				final int[] indexes = new int[size << 1];
+				System.arraycopy(this.indexes, 0, indexes, 0, size);
+				this.indexes = indexes;
+			}
+			indexes[size++] = index;
+		}
+	}
+
+	/**
+	 * Batched event firing logic independent of transaction management.
+	 * 
+	 * @param batch
+	 * @param refHandles
+	 * @param barrierTx
+	 * @throws ActivityIsEndingException
+	 * @throws SLEEException
+	 */
+	void _fireEvents(FireEventBatch batch, ActivityHandle[] refHandles,
+			final SleeTransaction barrierTx) throws ActivityIsEndingException,
+			SLEEException {
+		// resolve the activity context of each event, once per activity, and
+		// group the events by activity, keeping the order of the batch
+		final Map<ActivityHandle, ActivityEvents> activities = new LinkedHashMap<ActivityHandle, ActivityEvents>();
+		ActivityEvents activityEvents = null;
+		ActivityHandle refHandle = null;
+		for (int i = 0; i < refHandles.length; i++) {
+			refHandle = refHandles[i];
+			// consecutive events usually target the same activity
+			if (activityEvents == null
+					|| !activityEvents.refHandle.equals(refHandle)) {
+				activityEvents = activities.get(refHandle);
+				if (activityEvents == null) {
+					final ActivityContext ac = acFactory
+							.getActivityContext(new ResourceAdaptorActivityContextHandleImpl(
+									raEntity, refHandle));
+					if (ac == null) {
+						throw new UnrecognizedActivityHandleException(
+								"Unable to fire "
+										+ batch.getEventType(i).getEventType()
+										+ " on activity handle "
+										+ batch.getHandle(i)
+										+ " , the handle is not mapped to an activity context");
+					}
+					if (ac.isEnding()) {
+						throw new ActivityIsEndingException(ac
+								.getActivityContextHandle().toString());
+					}
+					activityEvents = new ActivityEvents(refHandle, ac);
+					activities.put(refHandle, activityEvents);
+				}
+			}
+			activityEvents.add(i);
+		}
+		// now fire the events of each activity at once
+		for (ActivityEvents e : activities.values()) {
+			// suspend activity if needed
+			if (barrierTx != null) {
+				createBarrier(e.ac, barrierTx);
+			}
+			final List<EventContext> events = new ArrayList<EventContext>(e.size);
+			int index = 0;
+			int eventFlags = 0;
+			for (int i = 0; i < e.size; i++) {
+				index = e.indexes[i];
+				eventFlags = batch.getEventFlags(index);
+				final EventProcessingCallbacks callbacks = hasCallbacks(eventFlags) ? new EventProcessingCallbacks(
+						batch.getHandle(index), batch.getEventType(index),
+						batch.getEvent(index), batch.getAddress(index),
+						batch.getReceivableService(index), eventFlags, raEntity) : null;
+				events.add(eventContextFactory.createEventContext(batch
+						.getEventType(index).getEventType(), batch
+						.getEvent(index), e.ac, batch.getAddress(index), batch
+						.getReceivableService(index) == null ? null : batch
+						.getReceivableService(index).getService(), EventFlags
+						.hasRequestProcessingSuccessfulCallback(eventFlags) ? callbacks
+						: null, EventFlags
+						.hasRequestProcessingFailedCallback(eventFlags) ? callbacks
+						: null, EventFlags
+						.hasRequestEventReferenceReleasedCallback(eventFlags) ? callbacks
+						: null));
+			}
+			e.ac.fireEvents(events);
+		}
+	}
+
 	// OTHER ...
 
 	/*
@@ -44,7 +44,8 @@ import org.mobicents.slee.container.sbbentity.SbbEntityID;
  * 
  */
 @SuppressWarnings("rawtypes")
-public class ActivityContextCacheData extends CacheData {
+public class ActivityContextCacheData extends CacheData implements
+		ActivityContextData {
 
 	/**
 	 * the fqn of the node that holds all activity context cache child nodes
@@ -131,6 +132,8 @@ public class ActivityContextCacheData extends CacheData {
 		return _cmpAttributesNode;
 	}
 	
+	private final ActivityContextHandle activityContextHandle;
+	
 	/**
 	 * 
 	 * @param activityContextHandle
@@ -139,17 +142,28 @@ public class ActivityContextCacheData extends CacheData {
 			MobicentsCluster cluster) {
 		super(Fqn.fromElements(parentNodeFqn, activityContextHandle),
 				cluster.getMobicentsCache());
+		this.activityContextHandle = activityContextHandle;
 	}
 
 	/**
-	 * Puts an object in cache data
+	 * Puts an object in cache data. If there is a tx the write is buffered
+	 * till the tx commits.
 	 * 
 	 * @param key
 	 * @param value
-	 * @return the old object for the specified key, null if key was not mapped
+	 * @return the old object for the specified key, null if key was not
+	 *         mapped, or if the write was buffered and there was no previous
+	 *         write of the key in the tx
 	 */
-	@SuppressWarnings("unchecked")
 	public Object putObject(Object key, Object value) {
+		final ActivityContextWriteBuffer buffer = ActivityContextWriteBuffer
+				.get(activityContextHandle, this, true);
+		return buffer != null ? buffer.putObject(key, value) : putObjectInCache(
+				key, value);
+	}
+
+	@SuppressWarnings("unchecked")
+	Object putObjectInCache(Object key, Object value) {
 		return getNode().put(key, value);
 	}
 
@@ -161,20 +175,49 @@ public class ActivityContextCacheData extends CacheData {
 	 */
 	@SuppressWarnings("unchecked")
 	public Object getObject(Object key) {
+		final ActivityContextWriteBuffer buffer = ActivityContextWriteBuffer
+				.get(activityContextHandle, this, false);
+		if (buffer != null && buffer.hasObject(key)) {
+			return buffer.getObject(key);
+		}
 		return getNode().get(key);
 	}
 
 	/**
-	 * Removes an object in cache data mapped to the specified key
+	 * Removes an object in cache data mapped to the specified key. If there
+	 * is a tx the removal is buffered till the tx commits.
 	 * 
 	 * @param key
-	 * @return the object removed, null if the key was not mapped
+	 * @return the object removed, null if the key was not mapped, or if the
+	 *         removal was buffered and there was no previous write of the key
+	 *         in the tx
 	 */
-	@SuppressWarnings("unchecked")
 	public Object removeObject(Object key) {
+		final ActivityContextWriteBuffer buffer = ActivityContextWriteBuffer
+				.get(activityContextHandle, this, true);
+		return buffer != null ? buffer.removeObject(key)
+				: removeObjectInCache(key);
+	}
+
+	@SuppressWarnings("unchecked")
+	Object removeObjectInCache(Object key) {
 		return getNode().remove(key);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.cache.CacheData#remove()
+	 */
+	@Override
+	public boolean remove() {
+		final ActivityContextWriteBuffer buffer = ActivityContextWriteBuffer
+				.get(activityContextHandle, this, false);
+		if (buffer != null) {
+			buffer.discard();
+		}
+		return super.remove();
+	}
+
 	public boolean isEnding() {
 		return getNode().hasChild(IS_ENDING_NODE_NAME);
 	}
@@ -337,13 +380,24 @@ public class ActivityContextCacheData extends CacheData {
 	}
 
 	/**
-	 * Sets the aci cmp attribute
+	 * Sets the aci cmp attribute. If there is a tx the write is buffered till
+	 * the tx commits.
 	 * 
 	 * @param attrName
 	 * @param attrValue
 	 */
-	@SuppressWarnings("unchecked")
 	public void setCmpAttribute(String attrName, Object attrValue) {
+		final ActivityContextWriteBuffer buffer = ActivityContextWriteBuffer
+				.get(activityContextHandle, this, true);
+		if (buffer != null) {
+			buffer.setCmpAttribute(attrName, attrValue);
+		} else {
+			setCmpAttributeInCache(attrName, attrValue);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	void setCmpAttributeInCache(String attrName, Object attrValue) {
 		final Node node = getCmpAttributesNode(true);
 		Node cmpNode = node.getChild(attrName);
 		if (cmpNode == null) {
@@ -360,6 +414,11 @@ public class ActivityContextCacheData extends CacheData {
 	 */
 	@SuppressWarnings("unchecked")
 	public Object getCmpAttribute(String attrName) {
+		final ActivityContextWriteBuffer buffer = ActivityContextWriteBuffer
+				.get(activityContextHandle, this, false);
+		if (buffer != null && buffer.hasCmpAttribute(attrName)) {
+			return buffer.getCmpAttribute(attrName);
+		}
 		final Node node = getCmpAttributesNode(false);
 		if(node == null) {
 			return null;
@@ -382,20 +441,27 @@ public class ActivityContextCacheData extends CacheData {
 	 */
 	@SuppressWarnings("unchecked")
 	public Map getCmpAttributesCopy() {
+		final ActivityContextWriteBuffer buffer = ActivityContextWriteBuffer
+				.get(activityContextHandle, this, false);
 		final Node node = getCmpAttributesNode(false);
-		if(node == null) {
+		if(node == null && buffer == null) {
 			return Collections.EMPTY_MAP;
 		}
 		else {
 			Map result = new HashMap();
-			Node cmpNode = null;
-			for (Object obj : node.getChildren()) {
-				cmpNode = (Node) obj;
-				result.put(cmpNode.getFqn().getLastElement(), cmpNode
-						.get(CMP_ATTRIBUTES_NODE_MAP_KEY));
+			if (node != null) {
+				Node cmpNode = null;
+				for (Object obj : node.getChildren()) {
+					cmpNode = (Node) obj;
+					result.put(cmpNode.getFqn().getLastElement(), cmpNode
+							.get(CMP_ATTRIBUTES_NODE_MAP_KEY));
+				}
+			}
+			if (buffer != null) {
+				buffer.mergeCmpAttributes(result);
 			}
 			return result;
 		}
 	}
 
-}
\ No newline at end of file
+}
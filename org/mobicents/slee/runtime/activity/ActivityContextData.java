@@ -0,0 +1,205 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.activity;
+
+import java.util.Map;
+import java.util.Set;
+
+import javax.slee.facilities.TimerID;
+
+import org.mobicents.slee.container.sbbentity.SbbEntityID;
+
+/**
+ * The runtime data of an activity context, stored in JBoss Cache by
+ * {@link ActivityContextCacheData}, or in local memory by
+ * {@link InMemoryActivityContextData}.
+ * 
+ */
+@SuppressWarnings("rawtypes")
+public interface ActivityContextData {
+
+	/**
+	 * Verifies if the ac data exists.
+	 * 
+	 * @return
+	 */
+	public boolean exists();
+
+	/**
+	 * Creates the ac data.
+	 * 
+	 * @return true if created, false if it already existed
+	 */
+	public boolean create();
+
+	/**
+	 * Removes the ac data.
+	 * 
+	 * @return true if removed, false if it didn't exist
+	 */
+	public boolean remove();
+
+	/**
+	 * Puts an object in the ac data
+	 * 
+	 * @param key
+	 * @param value
+	 * @return the old object for the specified key, null if key was not
+	 *         mapped, or the write was deferred
+	 */
+	public Object putObject(Object key, Object value);
+
+	/**
+	 * Retrieves an object in the ac data mapped to the specified key
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public Object getObject(Object key);
+
+	/**
+	 * Removes an object in the ac data mapped to the specified key
+	 * 
+	 * @param key
+	 * @return the object removed, null if the key was not mapped, or the
+	 *         removal was deferred
+	 */
+	public Object removeObject(Object key);
+
+	public boolean isEnding();
+
+	public boolean setEnding(boolean value);
+
+	/**
+	 * Tries to attaches an sbb entity
+	 * 
+	 * @param sbbEntityId
+	 * @return true if it was attached, false if already was attached
+	 */
+	public boolean attachSbbEntity(SbbEntityID sbbEntityId);
+
+	/**
+	 * Detaches an sbb entity
+	 * 
+	 * @param sbbEntityId
+	 * @return true if it was detached, false if it was not attached
+	 */
+	public boolean detachSbbEntity(SbbEntityID sbbEntityId);
+
+	/**
+	 * Verifies if there at least one sbb entity attached
+	 * 
+	 * @return false is there are no sbb entities attached, true otherwise
+	 */
+	public boolean noSbbEntitiesAttached();
+
+	/**
+	 * Return a set with all sbb entities attached.
+	 * 
+	 * @return
+	 */
+	public Set<SbbEntityID> getSbbEntitiesAttached();
+
+	/**
+	 * Attaches a timer
+	 * 
+	 * @param timerID
+	 * @return true if it was attached, false if already was attached
+	 */
+	public boolean attachTimer(TimerID timerID);
+
+	/**
+	 * Detaches a timer
+	 * 
+	 * @param timerID
+	 * @return true if it was detached, false if it was not attached
+	 */
+	public boolean detachTimer(TimerID timerID);
+
+	/**
+	 * Verifies if there at least one timer attached
+	 * 
+	 * @return false is there are no timers attached, true otherwise
+	 */
+	public boolean noTimersAttached();
+
+	/**
+	 * Returns the set of timers attached to the ac
+	 * 
+	 * @return
+	 */
+	public Set getAttachedTimers();
+
+	/**
+	 * Adds the specified name to the set of names bound to the ac
+	 * 
+	 * @param name
+	 */
+	public void nameBound(String name);
+
+	/**
+	 * Removes the specified name from the set of names bound to the ac
+	 * 
+	 * @param name
+	 * @return true if the name was bound
+	 */
+	public boolean nameUnbound(String name);
+
+	/**
+	 * Verifies if there at least one name bound to the ac
+	 * 
+	 * @return false is there are no names bound, true otherwise
+	 */
+	public boolean noNamesBound();
+
+	/**
+	 * Returns the set of names bound to the ac
+	 * 
+	 * @return
+	 */
+	public Set getNamesBoundCopy();
+
+	/**
+	 * Sets the aci cmp attribute
+	 * 
+	 * @param attrName
+	 * @param attrValue
+	 */
+	public void setCmpAttribute(String attrName, Object attrValue);
+
+	/**
+	 * Retrieves the aci cmp attribute
+	 * 
+	 * @param attrName
+	 * @return
+	 */
+	public Object getCmpAttribute(String attrName);
+
+	/**
+	 * Retrieves a map copy of the aci attributes set
+	 * 
+	 * @return
+	 */
+	public Map getCmpAttributesCopy();
+
+}
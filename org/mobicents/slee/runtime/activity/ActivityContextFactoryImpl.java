@@ -25,7 +25,6 @@ package org.mobicents.slee.runtime.activity;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
-import javax.slee.SLEEException;
 import javax.slee.resource.ActivityAlreadyExistsException;
 
 import org.apache.log4j.Logger;
@@ -62,6 +61,11 @@ public class ActivityContextFactoryImpl extends AbstractSleeContainerModule impl
 	
 	private ActivityContextFactoryCacheData cacheData;
 	
+	/**
+	 * the local memory store of ac data, null if data is stored in the cache
+	 */
+	private InMemoryActivityContextStore localStore;
+	
 	private final ActivityManagementConfiguration configuration;
 	
 	private final static boolean doTraceLogs = logger.isTraceEnabled();
@@ -87,6 +91,29 @@ public class ActivityContextFactoryImpl extends AbstractSleeContainerModule impl
 	public void sleeStarting() {
 		cacheData = new ActivityContextFactoryCacheData(sleeContainer.getCluster());
 		cacheData.create();
+		if (sleeContainer.getCluster().isLocalStore()) {
+			localStore = new InMemoryActivityContextStore();
+			logger.info("Activity context data will be stored in local memory, bypassing the cache.");
+		}
+		else {
+			localStore = null;
+		}
+	}
+	
+	/**
+	 * Retrieves the data of the specified ac, from the local memory store or the cache.
+	 * 
+	 * @param ach
+	 * @return
+	 */
+	private ActivityContextData getActivityContextData(ActivityContextHandle ach) {
+		final InMemoryActivityContextStore localStore = this.localStore;
+		if (localStore != null) {
+			return localStore.getActivityContextData(ach);
+		}
+		else {
+			return new ActivityContextCacheData(ach, sleeContainer.getCluster());
+		}
 	}
 	
 	/*
@@ -97,6 +124,16 @@ public class ActivityContextFactoryImpl extends AbstractSleeContainerModule impl
 		return sleeContainer;
 	}
 	
+	/**
+	 * Retrieves the local ac for the specified handle, without creating it.
+	 * 
+	 * @param ach
+	 * @return null if the activity has no local ac in this node
+	 */
+	LocalActivityContextImpl getExistingLocalActivityContext(ActivityContextHandle ach) {
+		return localActivityContexts.get(ach);
+	}
+	
 	LocalActivityContextImpl getLocalActivityContext(ActivityContextImpl ac) {
 		final ActivityContextHandle ach = ac.getActivityContextHandle();
 		LocalActivityContextImpl localActivityContext = localActivityContexts.get(ach);
@@ -105,7 +142,7 @@ public class ActivityContextFactoryImpl extends AbstractSleeContainerModule impl
 			localActivityContext = localActivityContexts.putIfAbsent(ach,newLocalActivityContext);
 			if (localActivityContext == null) {
 				localActivityContext = newLocalActivityContext;
-				EventRouterExecutor executor = sleeContainer.getEventRouter().getEventRouterExecutorMapper().getExecutor(ach);
+				EventRouterExecutor executor = sleeContainer.getEventRouter().getEventRouterExecutorMapper().getExecutor(ach).getActivityExecutor(ach);
 				localActivityContext.setExecutorService(executor);
 				executor.activityMapped(ach);
 			}
@@ -119,17 +156,13 @@ public class ActivityContextFactoryImpl extends AbstractSleeContainerModule impl
 	 */
 	public ActivityContextImpl createActivityContext(final ActivityContextHandle ach, int activityFlags) throws ActivityAlreadyExistsException {
 		
-		if (sleeContainer.getCongestionControl().refuseStartActivity()) {
-			throw new SLEEException("congestion control refused activity start");
-		}
-		
 		// create ac
-		ActivityContextCacheData activityContextCacheData = new ActivityContextCacheData(ach, sleeContainer.getCluster());
-		if (activityContextCacheData.exists()) {
+		ActivityContextData activityContextData = getActivityContextData(ach);
+		if (activityContextData.exists()) {
 			throw new ActivityAlreadyExistsException(ach.toString());
 		}
 				
-		ActivityContextImpl ac = new ActivityContextImpl(ach,activityContextCacheData,tracksIdleTime(ach,true),Integer.valueOf(activityFlags),this);
+		ActivityContextImpl ac = new ActivityContextImpl(ach,activityContextData,tracksIdleTime(ach,true),Integer.valueOf(activityFlags),this);
 		if (logger.isDebugEnabled()) {
 			logger.debug("Created activity context with handle "+ach);			
 		}
@@ -153,9 +186,9 @@ public class ActivityContextFactoryImpl extends AbstractSleeContainerModule impl
 	
 	@Override
 	public ActivityContextImpl getActivityContext(ActivityContextHandle ach, boolean updateLastAccessTime) {
-		ActivityContextCacheData activityContextCacheData = new ActivityContextCacheData(ach, sleeContainer.getCluster());
-		if (activityContextCacheData.exists()) {
-			return new ActivityContextImpl(ach,activityContextCacheData,tracksIdleTime(ach, updateLastAccessTime),this);
+		ActivityContextData activityContextData = getActivityContextData(ach);
+		if (activityContextData.exists()) {
+			return new ActivityContextImpl(ach,activityContextData,tracksIdleTime(ach, updateLastAccessTime),this);
 		}
 		else {
 			return null; 
@@ -167,6 +200,10 @@ public class ActivityContextFactoryImpl extends AbstractSleeContainerModule impl
 	 * @see org.mobicents.slee.container.activity.ActivityContextFactory#getAllActivityContextsHandles()
 	 */
 	public Set<ActivityContextHandle> getAllActivityContextsHandles() {
+		final InMemoryActivityContextStore localStore = this.localStore;
+		if (localStore != null) {
+			return localStore.getActivityContextHandles();
+		}
 		return cacheData.getActivityContextHandles();
 	}
 	
@@ -200,7 +237,7 @@ public class ActivityContextFactoryImpl extends AbstractSleeContainerModule impl
 	 * @see org.mobicents.slee.container.activity.ActivityContextFactory#activityContextExists(org.mobicents.slee.container.activity.ActivityContextHandle)
 	 */
 	public boolean activityContextExists(ActivityContextHandle ach) {
-		return new ActivityContextCacheData(ach, sleeContainer.getCluster()).exists();
+		return getActivityContextData(ach).exists();
 	}	
 	
 	@Override
@@ -22,10 +22,11 @@
 
 package org.mobicents.slee.runtime.activity;
 
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import javax.slee.Address;
 import javax.slee.EventTypeID;
@@ -52,6 +53,7 @@ import org.mobicents.slee.container.resource.ResourceAdaptorActivityContextHandl
 import org.mobicents.slee.container.sbbentity.SbbEntityID;
 import org.mobicents.slee.container.service.ServiceActivityHandle;
 import org.mobicents.slee.container.transaction.TransactionContext;
+import org.mobicents.slee.container.transaction.TransactionalAction;
 import org.mobicents.slee.runtime.event.ActivityEndEventUnreferencedCallback;
 import org.mobicents.slee.runtime.event.CommitEventContextAction;
 import org.mobicents.slee.runtime.event.RollbackEventContextAction;
@@ -81,6 +83,8 @@ public class ActivityContextImpl implements ActivityContext {
 
 	private static final String NODE_MAP_KEY_LAST_ACCESS = "time";
 
+	private static final String NODE_MAP_KEY_ATTACHMENTS_VERSION = "attachments-version";
+
 	/**
 	 * the handle for this ac
 	 */
@@ -89,7 +93,7 @@ public class ActivityContextImpl implements ActivityContext {
 	/**
 	 * the data stored in cache for this ac
 	 */
-	protected final ActivityContextCacheData cacheData;
+	protected final ActivityContextData cacheData;
 
 	private static final SbbEntityComparator sbbEntityComparator = new SbbEntityComparator(
 			sleeContainer.getSbbEntityFactory());
@@ -102,7 +106,7 @@ public class ActivityContextImpl implements ActivityContext {
 
 	public ActivityContextImpl(
 			final ActivityContextHandle activityContextHandle,
-			ActivityContextCacheData cacheData, boolean updateAccessTime,
+			ActivityContextData cacheData, boolean updateAccessTime,
 			Integer activityFlags, ActivityContextFactoryImpl factory) {
 		this.activityContextHandle = activityContextHandle;
 		this.factory = factory;
@@ -125,7 +129,7 @@ public class ActivityContextImpl implements ActivityContext {
 	}
 
 	public ActivityContextImpl(ActivityContextHandle activityContextHandle,
-			ActivityContextCacheData cacheData, boolean updateAccessTime,
+			ActivityContextData cacheData, boolean updateAccessTime,
 			ActivityContextFactoryImpl factory) {
 		this.activityContextHandle = activityContextHandle;
 		this.factory = factory;
@@ -359,6 +363,7 @@ public class ActivityContextImpl implements ActivityContext {
 
 		boolean attached = cacheData.attachSbbEntity(sbbEntityId);
 		if (attached) {
+			sbbAttachmentsChanged(sbbEntityId, true);
 			if (acReferencesHandler != null) {
 				acReferencesHandler.sbbeReferenceCreated(false);
 			}
@@ -381,6 +386,10 @@ public class ActivityContextImpl implements ActivityContext {
 
 		boolean detached = cacheData.detachSbbEntity(sbbEntityId);
 
+		if (detached) {
+			sbbAttachmentsChanged(sbbEntityId, false);
+		}
+
 		if (detached && acReferencesHandler != null && !isEnding()) {
 			acReferencesHandler.sbbeReferenceRemoved();
 			if (logger.isTraceEnabled()) {
@@ -397,20 +406,94 @@ public class ActivityContextImpl implements ActivityContext {
 	 * @return list of SbbEIDs
 	 * 
 	 */
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public Set<SbbEntityID> getSortedSbbAttachmentSet(
 			Set<SbbEntityID> excludeSet) {
-		final Set<SbbEntityID> sbbAttachementSet = cacheData
-				.getSbbEntitiesAttached();
-		final SortedSet orderSbbSet = new TreeSet(sbbEntityComparator);
-		for (SbbEntityID sbbEntityId : sbbAttachementSet) {
-			if (!excludeSet.contains(sbbEntityId)) {
-				orderSbbSet.add(sbbEntityId);
-			}
+		final Set<SbbEntityID> orderSbbSet = new LinkedHashSet<SbbEntityID>();
+		for (Iterator<SbbEntityID> it = getSortedSbbAttachmentCursor(excludeSet); it
+				.hasNext();) {
+			orderSbbSet.add(it.next());
 		}
 		return orderSbbSet;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.container.activity.ActivityContext#getSortedSbbAttachmentCursor
+	 * (java.util.Set)
+	 */
+	public Iterator<SbbEntityID> getSortedSbbAttachmentCursor(
+			Set<SbbEntityID> excludeSet) {
+		final long version = getSbbAttachmentsVersion();
+		final SbbAttachmentIndex index = getLocalActivityContext()
+				.getSbbAttachmentIndex();
+		SbbEntityID[] sortedSbbEntities = index.get(version);
+		if (sortedSbbEntities == null) {
+			// index is stale, rebuild it from cache
+			sortedSbbEntities = SbbAttachmentIndex.sort(cacheData
+					.getSbbEntitiesAttached(), sbbEntityComparator);
+			index.set(version, sortedSbbEntities);
+		}
+		return new SbbAttachmentIndex.Cursor(sortedSbbEntities, excludeSet);
+	}
+
+	private long getSbbAttachmentsVersion() {
+		final Long version = (Long) cacheData
+				.getObject(NODE_MAP_KEY_ATTACHMENTS_VERSION);
+		return version == null ? SbbAttachmentIndex.INITIAL_VERSION : version
+				.longValue();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.container.activity.ActivityContext#sbbAttachmentsReordered()
+	 */
+	public void sbbAttachmentsReordered() {
+		// a new version makes the local index stale, the next reader rebuilds
+		// it in the new order, while a rollback restores the previous version
+		cacheData.putObject(NODE_MAP_KEY_ATTACHMENTS_VERSION, Long
+				.valueOf(SbbAttachmentIndex.newVersion()));
+	}
+
+	/**
+	 * Changes the version of the sbb attachments in cache, and schedules the
+	 * update of the local attachment index, once the tx commits.
+	 * 
+	 * @param sbbEntityId
+	 * @param attached
+	 */
+	private void sbbAttachmentsChanged(final SbbEntityID sbbEntityId,
+			final boolean attached) {
+		final long fromVersion = getSbbAttachmentsVersion();
+		final long toVersion = SbbAttachmentIndex.newVersion();
+		cacheData.putObject(NODE_MAP_KEY_ATTACHMENTS_VERSION, Long
+				.valueOf(toVersion));
+		final LocalActivityContextImpl localActivityContext = factory
+				.getExistingLocalActivityContext(activityContextHandle);
+		if (localActivityContext == null) {
+			// the activity is not routed in this node, nothing to index
+			return;
+		}
+		final SbbAttachmentIndex index = localActivityContext
+				.getSbbAttachmentIndex();
+		final TransactionalAction action = new TransactionalAction() {
+			public void execute() {
+				index.update(fromVersion, toVersion, sbbEntityId, attached,
+						sbbEntityComparator);
+			}
+		};
+		final TransactionContext txContext = sleeContainer
+				.getTransactionManager().getTransactionContext();
+		if (txContext != null) {
+			txContext.getAfterCommitActions().add(action);
+		} else {
+			action.execute();
+		}
+	}
+
 	public Set<SbbEntityID> getSbbAttachmentSet() {
 		return cacheData.getSbbEntitiesAttached();
 	}
@@ -559,6 +642,47 @@ public class ActivityContextImpl implements ActivityContext {
 						.getTransactionManager().getTransactionContext());
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.container.activity.ActivityContext#fireEvents(java
+	 * .util.List)
+	 */
+	public void fireEvents(List<EventContext> events)
+			throws ActivityIsEndingException, SLEEException {
+
+		if (isEnding()) {
+			throw new ActivityIsEndingException(getActivityContextHandle()
+					.toString());
+		}
+
+		if (acReferencesHandler != null) {
+			for (int i = 0; i < events.size(); i++) {
+				acReferencesHandler.eventReferenceCreated();
+			}
+		}
+
+		final TransactionContext txContext = sleeContainer
+				.getTransactionManager().getTransactionContext();
+		if (txContext != null) {
+			for (EventContext event : events) {
+				fireEvent(event, txContext);
+			}
+		} else {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Firing " + events);
+			}
+			final ActivityEventQueueManager aeqm = getLocalActivityContext()
+					.getEventQueueManager();
+			if (aeqm != null) {
+				aeqm.fireNotTransacted(events);
+			} else {
+				throw new SLEEException("unable to find ACs event queue manager");
+			}
+		}
+	}
+
 	/**
 	 * Ends the activity context.
 	 */
@@ -0,0 +1,260 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.activity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mobicents.slee.container.SleeContainer;
+import org.mobicents.slee.container.activity.ActivityContextHandle;
+import org.mobicents.slee.container.transaction.TransactionContext;
+import org.mobicents.slee.container.transaction.TransactionalAction;
+
+/**
+ * Transaction scoped write-behind buffer for the data of an activity context.
+ * Writes of node map objects and cmp attributes are kept in the buffer, which
+ * collapses repeated writes of the same key and serves reads in the same tx,
+ * and are flushed to the cache as a single change set, right before the tx
+ * commits. If the tx rolls back the buffer is simply discarded.
+ * 
+ */
+public class ActivityContextWriteBuffer implements TransactionalAction {
+
+	private static final SleeContainer sleeContainer = SleeContainer
+			.lookupFromJndi();
+
+	/**
+	 * marks a key removed in the buffer
+	 */
+	private static final Object REMOVED = new Object();
+
+	/**
+	 * the key used to store the buffer in the tx context data
+	 */
+	private static class Key {
+
+		private final ActivityContextHandle ach;
+
+		Key(ActivityContextHandle ach) {
+			this.ach = ach;
+		}
+
+		@Override
+		public int hashCode() {
+			return ach.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj != null && obj.getClass() == Key.class
+					&& ((Key) obj).ach.equals(this.ach);
+		}
+	}
+
+	private final ActivityContextCacheData cacheData;
+
+	private Map<Object, Object> objects;
+
+	private Map<String, Object> cmpAttributes;
+
+	/**
+	 * true if the buffer was flushed or discarded, from then on writes go
+	 * directly to the cache
+	 */
+	private boolean closed;
+
+	private ActivityContextWriteBuffer(ActivityContextCacheData cacheData) {
+		this.cacheData = cacheData;
+	}
+
+	/**
+	 * Retrieves the buffer of the specified ac in the current tx.
+	 * 
+	 * @param ach
+	 * @param cacheData
+	 *            the cache data to flush the buffer, if it needs to be created
+	 * @param create
+	 *            if true and the buffer doesn't exist it is created
+	 * @return null if there is no tx, if the buffer doesn't exist and create
+	 *         is false, or if the buffer is already closed
+	 */
+	@SuppressWarnings("unchecked")
+	static ActivityContextWriteBuffer get(ActivityContextHandle ach,
+			ActivityContextCacheData cacheData, boolean create) {
+		final TransactionContext txContext = sleeContainer
+				.getTransactionManager().getTransactionContext();
+		if (txContext == null) {
+			return null;
+		}
+		final Map txData = txContext.getData();
+		final Key key = new Key(ach);
+		ActivityContextWriteBuffer buffer = (ActivityContextWriteBuffer) txData
+				.get(key);
+		if (buffer == null) {
+			if (!create) {
+				return null;
+			}
+			buffer = new ActivityContextWriteBuffer(cacheData);
+			txData.put(key, buffer);
+			txContext.getBeforeCommitActions().add(buffer);
+		}
+		return buffer.closed ? null : buffer;
+	}
+
+	/**
+	 * Indicates if the buffer has the specified node map object.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	boolean hasObject(Object key) {
+		return objects != null && objects.containsKey(key);
+	}
+
+	/**
+	 * Retrieves the buffered node map object, see {@link #hasObject(Object)}.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	Object getObject(Object key) {
+		final Object value = objects.get(key);
+		return value == REMOVED ? null : value;
+	}
+
+	/**
+	 * Buffers a node map object write.
+	 * 
+	 * @param key
+	 * @param value
+	 * @return the previous value in the buffer, if any
+	 */
+	Object putObject(Object key, Object value) {
+		if (objects == null) {
+			objects = new HashMap<Object, Object>();
+		}
+		final Object previous = objects.put(key, value);
+		return previous == REMOVED ? null : previous;
+	}
+
+	/**
+	 * Buffers a node map object removal.
+	 * 
+	 * @param key
+	 * @return the previous value in the buffer, if any
+	 */
+	Object removeObject(Object key) {
+		return putObject(key, REMOVED);
+	}
+
+	/**
+	 * Indicates if the buffer has the specified cmp attribute.
+	 * 
+	 * @param attrName
+	 * @return
+	 */
+	boolean hasCmpAttribute(String attrName) {
+		return cmpAttributes != null && cmpAttributes.containsKey(attrName);
+	}
+
+	/**
+	 * Retrieves the buffered cmp attribute, see
+	 * {@link #hasCmpAttribute(String)}.
+	 * 
+	 * @param attrName
+	 * @return
+	 */
+	Object getCmpAttribute(String attrName) {
+		return cmpAttributes.get(attrName);
+	}
+
+	/**
+	 * Buffers a cmp attribute write.
+	 * 
+	 * @param attrName
+	 * @param attrValue
+	 */
+	void setCmpAttribute(String attrName, Object attrValue) {
+		if (cmpAttributes == null) {
+			cmpAttributes = new HashMap<String, Object>();
+		}
+		cmpAttributes.put(attrName, attrValue);
+	}
+
+	/**
+	 * Applies the buffered cmp attributes to the specified map copy of the
+	 * attributes in cache.
+	 * 
+	 * @param attributes
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	void mergeCmpAttributes(Map attributes) {
+		if (cmpAttributes != null) {
+			attributes.putAll(cmpAttributes);
+		}
+	}
+
+	/**
+	 * Discards the buffer, e.g. the ac data was removed from cache.
+	 */
+	void discard() {
+		closed = true;
+		objects = null;
+		cmpAttributes = null;
+	}
+
+	/**
+	 * Flushes the buffer to the cache, invoked right before the tx commits.
+	 */
+	public void execute() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (cacheData.isRemoved() || !cacheData.exists()) {
+			return;
+		}
+		if (objects != null) {
+			for (Map.Entry<Object, Object> entry : objects.entrySet()) {
+				if (entry.getValue() == REMOVED) {
+					cacheData.removeObjectInCache(entry.getKey());
+				} else {
+					cacheData.putObjectInCache(entry.getKey(), entry.getValue());
+				}
+			}
+			objects = null;
+		}
+		if (cmpAttributes != null) {
+			for (Map.Entry<String, Object> entry : cmpAttributes.entrySet()) {
+				cacheData.setCmpAttributeInCache(entry.getKey(), entry
+						.getValue());
+			}
+			cmpAttributes = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ActivityContextWriteBuffer[" + cacheData.getNodeFqn() + "]";
+	}
+}
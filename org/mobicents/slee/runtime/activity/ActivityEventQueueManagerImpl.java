@@ -25,12 +25,14 @@ package org.mobicents.slee.runtime.activity;
 import java.util.Deque;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 
 import javax.slee.resource.FailureReason;
 import javax.transaction.Transaction;
 
 import org.apache.log4j.Logger;
+import org.mobicents.slee.container.activity.ActivityContextHandle;
 import org.mobicents.slee.container.activity.ActivityEventQueueManager;
 import org.mobicents.slee.container.event.EventContext;
 
@@ -159,6 +161,37 @@ public class ActivityEventQueueManagerImpl implements ActivityEventQueueManager
 		localAC.getExecutorService().execute(r);
 	}
 
+	@Override
+	public void fireNotTransacted(final List<EventContext> events) {
+		// manage event references
+		final ActivityContextHandle ach = localAC.getActivityContextHandle();
+		for (EventContext event : events) {
+			event.getReferencesHandler().add(ach);
+		}
+		// commit events, all at once
+		Runnable r = new Runnable() {
+			@Override
+			public void run() {
+				for (EventContext event : events) {
+					if (activityEndEvent == null) {
+						commit(event, false);
+					} else {
+						// processing of the event failed
+						if (doTraceLogs) {
+							logger.trace("Unable to commit event of type "
+									+ event.getEventTypeId()
+									+ " in AC with handle "
+									+ event.getActivityContextHandle()
+									+ ", the activity end event is already committed");
+						}
+						event.eventProcessingFailed(FailureReason.OTHER_REASON);
+					}
+				}
+			}
+		};
+		localAC.getExecutorService().execute(r);
+	}
+
 	private void commit(EventContext event, boolean isPendingEvent) {
 		if (isPendingEvent) {
 			if (pendingEvents == null || !pendingEvents.remove(event)) {
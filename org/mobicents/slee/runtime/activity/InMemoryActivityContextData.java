@@ -0,0 +1,726 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.activity;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.slee.facilities.TimerID;
+
+import org.mobicents.slee.container.SleeContainer;
+import org.mobicents.slee.container.activity.ActivityContextHandle;
+import org.mobicents.slee.container.sbbentity.SbbEntityID;
+import org.mobicents.slee.container.transaction.TransactionContext;
+import org.mobicents.slee.container.transaction.TransactionalAction;
+
+/**
+ * {@link ActivityContextData} stored in a {@link InMemoryActivityContextStore}.
+ * Changes done in a tx are kept in the tx context, and only applied to the
+ * store when the tx commits, thus a rollback simply drops them.
+ * 
+ * The first write of a tx acquires the ac write lock, which is held till the
+ * tx ends, thus concurrent txs writing the same ac are serialized and each
+ * check done before a write, e.g. if an sbb entity is already attached, sees
+ * the data committed by the others.
+ * 
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class InMemoryActivityContextData implements ActivityContextData {
+
+	private static final SleeContainer sleeContainer = SleeContainer
+			.lookupFromJndi();
+
+	/**
+	 * marks a key removed in the tx changes
+	 */
+	private static final Object REMOVED = new Object();
+
+	/**
+	 * the key used to store the changes in the tx context data
+	 */
+	private static class Key {
+
+		private final ActivityContextHandle ach;
+
+		Key(ActivityContextHandle ach) {
+			this.ach = ach;
+		}
+
+		@Override
+		public int hashCode() {
+			return ach.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj != null && obj.getClass() == Key.class
+					&& ((Key) obj).ach.equals(this.ach);
+		}
+	}
+
+	/**
+	 * The changes done to the ac data in a tx, applied to the store after
+	 * commit.
+	 */
+	private class Changes implements TransactionalAction {
+
+		/**
+		 * if true the committed data is replaced, the ac was created or
+		 * removed in the tx
+		 */
+		boolean reset;
+
+		/**
+		 * if the data exists in the tx, only relevant if reset is true
+		 */
+		boolean exists;
+
+		/*
+		 * the maps of changes are null until the first change of their kind,
+		 * most txs only touch one or two of them
+		 */
+
+		Map<Object, Object> objects;
+
+		Map<String, Object> cmpAttributes;
+
+		Map<SbbEntityID, Boolean> sbbEntities;
+
+		Map<TimerID, Boolean> timers;
+
+		Map<String, Boolean> names;
+
+		Boolean ending;
+
+		Map<Object, Object> objects() {
+			if (objects == null) {
+				objects = new HashMap<Object, Object>(4);
+			}
+			return objects;
+		}
+
+		Map<String, Object> cmpAttributes() {
+			if (cmpAttributes == null) {
+				cmpAttributes = new HashMap<String, Object>(4);
+			}
+			return cmpAttributes;
+		}
+
+		Map<SbbEntityID, Boolean> sbbEntities() {
+			if (sbbEntities == null) {
+				sbbEntities = new HashMap<SbbEntityID, Boolean>(4);
+			}
+			return sbbEntities;
+		}
+
+		Map<TimerID, Boolean> timers() {
+			if (timers == null) {
+				timers = new HashMap<TimerID, Boolean>(4);
+			}
+			return timers;
+		}
+
+		Map<String, Boolean> names() {
+			if (names == null) {
+				names = new HashMap<String, Boolean>(4);
+			}
+			return names;
+		}
+
+		void reset(boolean exists) {
+			reset = true;
+			this.exists = exists;
+			objects = null;
+			cmpAttributes = null;
+			sbbEntities = null;
+			timers = null;
+			names = null;
+			ending = null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see
+		 * org.mobicents.slee.container.transaction.TransactionalAction#execute()
+		 */
+		public void execute() {
+			try {
+				apply();
+			} finally {
+				store.unlockWrite(ach, this);
+			}
+		}
+
+		private void apply() {
+			InMemoryActivityContextStore.State state = null;
+			if (reset) {
+				if (!exists) {
+					store.removeState(ach);
+					return;
+				}
+				state = store.resetState(ach);
+			} else {
+				state = store.getState(ach);
+				if (state == null) {
+					return;
+				}
+			}
+			if (objects != null) {
+				for (Map.Entry<Object, Object> entry : objects.entrySet()) {
+					if (entry.getValue() == REMOVED) {
+						state.objects.remove(entry.getKey());
+					} else {
+						state.objects.put(entry.getKey(), entry.getValue());
+					}
+				}
+			}
+			if (cmpAttributes != null) {
+				for (Map.Entry<String, Object> entry : cmpAttributes
+						.entrySet()) {
+					if (entry.getValue() == REMOVED) {
+						state.cmpAttributes.remove(entry.getKey());
+					} else {
+						state.cmpAttributes.put(entry.getKey(), entry
+								.getValue());
+					}
+				}
+			}
+			apply(sbbEntities, state.sbbEntities);
+			apply(timers, state.timers);
+			apply(names, state.names);
+			if (ending != null) {
+				state.ending = ending.booleanValue();
+			}
+		}
+
+		private <T> void apply(Map<T, Boolean> delta, Set<T> set) {
+			if (delta == null) {
+				return;
+			}
+			for (Map.Entry<T, Boolean> entry : delta.entrySet()) {
+				if (entry.getValue().booleanValue()) {
+					set.add(entry.getKey());
+				} else {
+					set.remove(entry.getKey());
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "InMemoryActivityContextData.Changes[" + ach + "]";
+		}
+	}
+
+	private final ActivityContextHandle ach;
+
+	private final InMemoryActivityContextStore store;
+
+	/**
+	 * the changes done without a tx, only used while a write executes
+	 */
+	private Changes nonTxChanges;
+
+	InMemoryActivityContextData(ActivityContextHandle ach,
+			InMemoryActivityContextStore store) {
+		this.ach = ach;
+		this.store = store;
+	}
+
+	/**
+	 * Retrieves the changes of the current tx.
+	 * 
+	 * @param create
+	 *            if true and the changes don't exist they are created, and
+	 *            the ac write lock acquired, if there is no tx the changes
+	 *            returned are applied by {@link #written()}
+	 * @return
+	 */
+	private Changes getChanges(boolean create) {
+		final TransactionContext txContext = sleeContainer
+				.getTransactionManager().getTransactionContext();
+		if (txContext == null) {
+			if (create) {
+				final Changes changes = new Changes();
+				store.lockWrite(ach, changes);
+				nonTxChanges = changes;
+				return changes;
+			}
+			return null;
+		}
+		final Map txData = txContext.getData();
+		final Key key = new Key(ach);
+		Changes changes = (Changes) txData.get(key);
+		if (changes == null && create) {
+			final Changes newChanges = new Changes();
+			store.lockWrite(ach, newChanges);
+			changes = newChanges;
+			txData.put(key, changes);
+			// applied before any other after commit action, e.g. routing of
+			// events fired in the tx, sees the committed data
+			txContext.getAfterCommitPriorityActions().add(0, changes);
+			txContext.getAfterRollbackActions().add(new TransactionalAction() {
+				public void execute() {
+					store.unlockWrite(ach, newChanges);
+				}
+			});
+		}
+		return changes;
+	}
+
+	/**
+	 * Applies the changes done without tx, if any.
+	 */
+	private void written() {
+		if (nonTxChanges != null) {
+			final Changes changes = nonTxChanges;
+			nonTxChanges = null;
+			changes.execute();
+		}
+	}
+
+	/**
+	 * Retrieves the committed data visible in the tx, null if the ac was
+	 * created or removed in the tx, or if it doesn't exist.
+	 * 
+	 * @param changes
+	 * @return
+	 */
+	private InMemoryActivityContextStore.State getCommittedState(
+			Changes changes) {
+		return changes != null && changes.reset ? null : store.getState(ach);
+	}
+
+	private <T> boolean contains(Map<T, Boolean> delta, Set<T> committed,
+			T element) {
+		if (delta != null) {
+			final Boolean value = delta.get(element);
+			if (value != null) {
+				return value.booleanValue();
+			}
+		}
+		return committed != null && committed.contains(element);
+	}
+
+	private <T> Set<T> view(Map<T, Boolean> delta, Set<T> committed) {
+		final Set<T> result = committed != null ? new HashSet<T>(committed)
+				: new HashSet<T>();
+		if (delta != null) {
+			for (Map.Entry<T, Boolean> entry : delta.entrySet()) {
+				if (entry.getValue().booleanValue()) {
+					result.add(entry.getKey());
+				} else {
+					result.remove(entry.getKey());
+				}
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.mobicents.slee.runtime.activity.ActivityContextData#exists()
+	 */
+	public boolean exists() {
+		return exists(getChanges(false));
+	}
+
+	private boolean exists(Changes changes) {
+		if (changes != null && changes.reset) {
+			return changes.exists;
+		}
+		return store.getState(ach) != null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.mobicents.slee.runtime.activity.ActivityContextData#create()
+	 */
+	public boolean create() {
+		final Changes changes = getChanges(true);
+		if (exists(changes)) {
+			written();
+			return false;
+		}
+		changes.reset(true);
+		written();
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.mobicents.slee.runtime.activity.ActivityContextData#remove()
+	 */
+	public boolean remove() {
+		final Changes changes = getChanges(true);
+		if (!exists(changes)) {
+			written();
+			return false;
+		}
+		changes.reset(false);
+		written();
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#putObject(java
+	 * .lang.Object, java.lang.Object)
+	 */
+	public Object putObject(Object key, Object value) {
+		final Changes changes = getChanges(true);
+		final Object oldValue = getObject(changes, key);
+		changes.objects().put(key, value == null ? REMOVED : value);
+		written();
+		return oldValue;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#getObject(java
+	 * .lang.Object)
+	 */
+	public Object getObject(Object key) {
+		return getObject(getChanges(false), key);
+	}
+
+	private Object getObject(Changes changes, Object key) {
+		if (changes != null && changes.objects != null) {
+			final Object value = changes.objects.get(key);
+			if (value != null) {
+				return value == REMOVED ? null : value;
+			}
+		}
+		final InMemoryActivityContextStore.State state = getCommittedState(changes);
+		return state == null ? null : state.objects.get(key);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#removeObject(
+	 * java.lang.Object)
+	 */
+	public Object removeObject(Object key) {
+		final Changes changes = getChanges(true);
+		final Object oldValue = getObject(changes, key);
+		if (oldValue != null) {
+			changes.objects().put(key, REMOVED);
+		}
+		written();
+		return oldValue;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.mobicents.slee.runtime.activity.ActivityContextData#isEnding()
+	 */
+	public boolean isEnding() {
+		return isEnding(getChanges(false));
+	}
+
+	private boolean isEnding(Changes changes) {
+		if (changes != null && changes.ending != null) {
+			return changes.ending.booleanValue();
+		}
+		final InMemoryActivityContextStore.State state = getCommittedState(changes);
+		return state != null && state.ending;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#setEnding(boolean)
+	 */
+	public boolean setEnding(boolean value) {
+		final Changes changes = getChanges(true);
+		if (isEnding(changes) == value) {
+			written();
+			return false;
+		}
+		changes.ending = Boolean.valueOf(value);
+		written();
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#attachSbbEntity
+	 * (org.mobicents.slee.container.sbbentity.SbbEntityID)
+	 */
+	public boolean attachSbbEntity(SbbEntityID sbbEntityId) {
+		final Changes changes = getChanges(true);
+		final InMemoryActivityContextStore.State state = getCommittedState(changes);
+		if (contains(changes.sbbEntities,
+				state == null ? null : state.sbbEntities, sbbEntityId)) {
+			written();
+			return false;
+		}
+		changes.sbbEntities().put(sbbEntityId, Boolean.TRUE);
+		written();
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#detachSbbEntity
+	 * (org.mobicents.slee.container.sbbentity.SbbEntityID)
+	 */
+	public boolean detachSbbEntity(SbbEntityID sbbEntityId) {
+		final Changes changes = getChanges(true);
+		final InMemoryActivityContextStore.State state = getCommittedState(changes);
+		if (!contains(changes.sbbEntities,
+				state == null ? null : state.sbbEntities, sbbEntityId)) {
+			written();
+			return false;
+		}
+		changes.sbbEntities().put(sbbEntityId, Boolean.FALSE);
+		written();
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#noSbbEntitiesAttached
+	 * ()
+	 */
+	public boolean noSbbEntitiesAttached() {
+		return getSbbEntitiesAttached().isEmpty();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#getSbbEntitiesAttached
+	 * ()
+	 */
+	public Set<SbbEntityID> getSbbEntitiesAttached() {
+		final Changes changes = getChanges(false);
+		final InMemoryActivityContextStore.State state = getCommittedState(changes);
+		return view(changes == null ? null : changes.sbbEntities,
+				state == null ? null : state.sbbEntities);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#attachTimer(javax
+	 * .slee.facilities.TimerID)
+	 */
+	public boolean attachTimer(TimerID timerID) {
+		final Changes changes = getChanges(true);
+		final InMemoryActivityContextStore.State state = getCommittedState(changes);
+		if (contains(changes.timers,
+				state == null ? null : state.timers, timerID)) {
+			written();
+			return false;
+		}
+		changes.timers().put(timerID, Boolean.TRUE);
+		written();
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#detachTimer(javax
+	 * .slee.facilities.TimerID)
+	 */
+	public boolean detachTimer(TimerID timerID) {
+		final Changes changes = getChanges(true);
+		final InMemoryActivityContextStore.State state = getCommittedState(changes);
+		if (!contains(changes.timers,
+				state == null ? null : state.timers, timerID)) {
+			written();
+			return false;
+		}
+		changes.timers().put(timerID, Boolean.FALSE);
+		written();
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#noTimersAttached
+	 * ()
+	 */
+	public boolean noTimersAttached() {
+		return getAttachedTimers().isEmpty();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#getAttachedTimers
+	 * ()
+	 */
+	public Set getAttachedTimers() {
+		final Changes changes = getChanges(false);
+		final InMemoryActivityContextStore.State state = getCommittedState(changes);
+		return view(changes == null ? null : changes.timers,
+				state == null ? null : state.timers);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#nameBound(java
+	 * .lang.String)
+	 */
+	public void nameBound(String name) {
+		getChanges(true).names.put(name, Boolean.TRUE);
+		written();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#nameUnbound(java
+	 * .lang.String)
+	 */
+	public boolean nameUnbound(String name) {
+		final Changes changes = getChanges(true);
+		final InMemoryActivityContextStore.State state = getCommittedState(changes);
+		if (!contains(changes.names,
+				state == null ? null : state.names, name)) {
+			written();
+			return false;
+		}
+		changes.names().put(name, Boolean.FALSE);
+		written();
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#noNamesBound()
+	 */
+	public boolean noNamesBound() {
+		return getNamesBoundCopy().isEmpty();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#getNamesBoundCopy
+	 * ()
+	 */
+	public Set getNamesBoundCopy() {
+		final Changes changes = getChanges(false);
+		final InMemoryActivityContextStore.State state = getCommittedState(changes);
+		return view(changes == null ? null : changes.names,
+				state == null ? null : state.names);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#setCmpAttribute
+	 * (java.lang.String, java.lang.Object)
+	 */
+	public void setCmpAttribute(String attrName, Object attrValue) {
+		getChanges(true).cmpAttributes().put(attrName,
+				attrValue == null ? REMOVED : attrValue);
+		written();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#getCmpAttribute
+	 * (java.lang.String)
+	 */
+	public Object getCmpAttribute(String attrName) {
+		final Changes changes = getChanges(false);
+		if (changes != null && changes.cmpAttributes != null) {
+			final Object value = changes.cmpAttributes.get(attrName);
+			if (value != null) {
+				return value == REMOVED ? null : value;
+			}
+		}
+		final InMemoryActivityContextStore.State state = getCommittedState(changes);
+		return state == null ? null : state.cmpAttributes.get(attrName);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.activity.ActivityContextData#getCmpAttributesCopy
+	 * ()
+	 */
+	public Map getCmpAttributesCopy() {
+		final Changes changes = getChanges(false);
+		final InMemoryActivityContextStore.State state = getCommittedState(changes);
+		final Map<String, Object> result = state == null ? new HashMap<String, Object>()
+				: new HashMap<String, Object>(state.cmpAttributes);
+		if (changes != null && changes.cmpAttributes != null) {
+			for (Map.Entry<String, Object> entry : changes.cmpAttributes
+					.entrySet()) {
+				if (entry.getValue() == REMOVED) {
+					result.remove(entry.getKey());
+				} else {
+					result.put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "InMemoryActivityContextData[" + ach + "]";
+	}
+}
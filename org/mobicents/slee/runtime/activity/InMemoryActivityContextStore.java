@@ -0,0 +1,195 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.activity;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.slee.SLEEException;
+import javax.slee.facilities.TimerID;
+
+import org.mobicents.slee.container.activity.ActivityContextHandle;
+import org.mobicents.slee.container.sbbentity.SbbEntityID;
+
+/**
+ * Local memory store of activity contexts data, used instead of JBoss Cache
+ * when the cluster is configured with a local store, i.e. there is no data
+ * replication. Holds the committed data only, changes done in a tx are kept
+ * by each {@link InMemoryActivityContextData} till the tx commits.
+ * 
+ */
+public class InMemoryActivityContextStore {
+
+	/**
+	 * The committed data of an activity context.
+	 */
+	static class State {
+
+		final ConcurrentHashMap<Object, Object> objects = new ConcurrentHashMap<Object, Object>();
+
+		final ConcurrentHashMap<String, Object> cmpAttributes = new ConcurrentHashMap<String, Object>();
+
+		final Set<SbbEntityID> sbbEntities = Collections
+				.newSetFromMap(new ConcurrentHashMap<SbbEntityID, Boolean>());
+
+		final Set<TimerID> timers = Collections
+				.newSetFromMap(new ConcurrentHashMap<TimerID, Boolean>());
+
+		final Set<String> names = Collections
+				.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+		volatile boolean ending;
+	}
+
+	private final ConcurrentHashMap<ActivityContextHandle, State> states = new ConcurrentHashMap<ActivityContextHandle, State>();
+
+	/**
+	 * the time in ms to wait for the write lock of an ac
+	 */
+	private static final long WRITE_LOCK_TIMEOUT = 10000;
+
+	/**
+	 * the owners of the acs write locks, a tx holds the lock of an ac from its
+	 * first write on the ac till it commits or rolls back
+	 */
+	private final ConcurrentHashMap<ActivityContextHandle, Object> writeLocks = new ConcurrentHashMap<ActivityContextHandle, Object>();
+
+	/**
+	 * Retrieves the data of the specified activity context, which may not
+	 * exist yet.
+	 * 
+	 * @param ach
+	 * @return
+	 */
+	public InMemoryActivityContextData getActivityContextData(
+			ActivityContextHandle ach) {
+		return new InMemoryActivityContextData(ach, this);
+	}
+
+	/**
+	 * Retrieves a set containing all activity context handles in the store.
+	 * 
+	 * @return
+	 */
+	public Set<ActivityContextHandle> getActivityContextHandles() {
+		return new HashSet<ActivityContextHandle>(states.keySet());
+	}
+
+	State getState(ActivityContextHandle ach) {
+		return states.get(ach);
+	}
+
+	/**
+	 * Retrieves the committed data of the specified ac, creating it if
+	 * needed.
+	 * 
+	 * @param ach
+	 * @return
+	 */
+	State getOrCreateState(ActivityContextHandle ach) {
+		State state = states.get(ach);
+		if (state == null) {
+			final State newState = new State();
+			state = states.putIfAbsent(ach, newState);
+			if (state == null) {
+				state = newState;
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Replaces the committed data of the specified ac with an empty one.
+	 * 
+	 * @param ach
+	 * @return
+	 */
+	State resetState(ActivityContextHandle ach) {
+		final State state = new State();
+		states.put(ach, state);
+		return state;
+	}
+
+	void removeState(ActivityContextHandle ach) {
+		states.remove(ach);
+	}
+
+	/**
+	 * Acquires the write lock of the specified ac for the specified owner,
+	 * waiting till the current owner releases it.
+	 * 
+	 * @param ach
+	 * @param owner
+	 * @throws SLEEException
+	 *             if the lock is not acquired in {@link #WRITE_LOCK_TIMEOUT}
+	 *             ms
+	 */
+	void lockWrite(ActivityContextHandle ach, Object owner)
+			throws SLEEException {
+		final long deadline = System.currentTimeMillis() + WRITE_LOCK_TIMEOUT;
+		while (true) {
+			final Object currentOwner = writeLocks.putIfAbsent(ach, owner);
+			if (currentOwner == null || currentOwner == owner) {
+				return;
+			}
+			synchronized (currentOwner) {
+				while (writeLocks.get(ach) == currentOwner) {
+					final long timeout = deadline - System.currentTimeMillis();
+					if (timeout <= 0) {
+						throw new SLEEException(
+								"timeout while acquiring write lock for activity context "
+										+ ach);
+					}
+					try {
+						currentOwner.wait(timeout);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SLEEException(e.getMessage(), e);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Releases the write lock of the specified ac, if held by the specified
+	 * owner.
+	 * 
+	 * @param ach
+	 * @param owner
+	 */
+	void unlockWrite(ActivityContextHandle ach, Object owner) {
+		if (writeLocks.remove(ach, owner)) {
+			synchronized (owner) {
+				owner.notifyAll();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "InMemoryActivityContextStore[ size = " + states.size() + " ]";
+	}
+}
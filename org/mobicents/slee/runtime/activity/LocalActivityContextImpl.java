@@ -64,6 +64,11 @@ public class LocalActivityContextImpl implements LocalActivityContext {
 	 */
 	private Runnable activityReferencesCheck;
 
+	/**
+	 * the local priority ordered index of sbb entities attached
+	 */
+	private final SbbAttachmentIndex sbbAttachmentIndex = new SbbAttachmentIndex();
+
 	public LocalActivityContextImpl(ActivityContextHandle ach, int activityFlags, ActivityContextFactoryImpl acFactory) {
 		this.ach = ach;
 		this.eventQueueManager = new ActivityEventQueueManagerImpl(this);
@@ -121,6 +126,10 @@ public class LocalActivityContextImpl implements LocalActivityContext {
 		this.activityReferencesCheck = activityReferencesCheck;
 	}
 	
+	public SbbAttachmentIndex getSbbAttachmentIndex() {
+		return sbbAttachmentIndex;
+	}
+	
 	@Override
 	public boolean equals(Object obj) {
 		if (obj != null && obj.getClass() == this.getClass()) {
@@ -0,0 +1,254 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.activity;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import org.mobicents.slee.container.sbbentity.SbbEntityID;
+
+/**
+ * Local, priority ordered, index of the sbb entities attached to an activity
+ * context. The index is an immutable sorted snapshot, tagged with the version
+ * of the ac attachments it reflects, which is changed in cache by each attach
+ * or detach, thus a snapshot is only used if its version matches the one seen
+ * by the tx reading it. Committed attachment changes are applied to the
+ * snapshot incrementally, avoiding a full sort when the next event is routed.
+ * 
+ */
+public class SbbAttachmentIndex {
+
+	private static final SbbEntityID[] EMPTY = {};
+
+	/**
+	 * versions are random, not sequential, so a snapshot built with the
+	 * attachments of a tx which is rolled back, or of a concurrent tx in
+	 * another cluster node, can't be mistaken by a committed one
+	 */
+	private static final Random versionGenerator = new Random();
+
+	/**
+	 * the version of an ac without attachments version in cache, i.e. no sbb
+	 * entity was ever attached
+	 */
+	static final long INITIAL_VERSION = 0L;
+
+	private static class Snapshot {
+
+		final long version;
+		final SbbEntityID[] sbbEntities;
+
+		Snapshot(long version, SbbEntityID[] sbbEntities) {
+			this.version = version;
+			this.sbbEntities = sbbEntities;
+		}
+	}
+
+	private volatile Snapshot snapshot = new Snapshot(INITIAL_VERSION, EMPTY);
+
+	/**
+	 * Generates a new attachments version.
+	 * 
+	 * @return
+	 */
+	static long newVersion() {
+		long version;
+		do {
+			version = versionGenerator.nextLong();
+		} while (version == INITIAL_VERSION);
+		return version;
+	}
+
+	/**
+	 * Retrieves the sorted sbb entities of the snapshot, if it has the
+	 * specified version.
+	 * 
+	 * @param version
+	 * @return null if the snapshot version doesn't match
+	 */
+	SbbEntityID[] get(long version) {
+		final Snapshot snapshot = this.snapshot;
+		return snapshot != null && snapshot.version == version ? snapshot.sbbEntities
+				: null;
+	}
+
+	/**
+	 * Replaces the snapshot.
+	 * 
+	 * @param version
+	 * @param sortedSbbEntities
+	 */
+	void set(long version, SbbEntityID[] sortedSbbEntities) {
+		this.snapshot = new Snapshot(version, sortedSbbEntities);
+	}
+
+	/**
+	 * Applies a committed attach or detach to the snapshot, if it reflects the
+	 * attachments before the change, otherwise the snapshot is discarded, and
+	 * will be rebuilt by the next reader.
+	 * 
+	 * @param fromVersion
+	 *            the attachments version before the change
+	 * @param toVersion
+	 *            the attachments version after the change
+	 * @param sbbEntityID
+	 * @param attached
+	 *            true if the sbb entity was attached, false if detached
+	 * @param comparator
+	 */
+	synchronized void update(long fromVersion, long toVersion,
+			SbbEntityID sbbEntityID, boolean attached,
+			Comparator<SbbEntityID> comparator) {
+		final Snapshot snapshot = this.snapshot;
+		if (snapshot == null || snapshot.version != fromVersion) {
+			this.snapshot = null;
+			return;
+		}
+		final SbbEntityID[] current = snapshot.sbbEntities;
+		int index = indexOf(current, sbbEntityID);
+		SbbEntityID[] updated = null;
+		if (attached) {
+			if (index >= 0) {
+				updated = current;
+			} else {
+				try {
+					index = Arrays.binarySearch(current, sbbEntityID,
+							comparator);
+				} catch (RuntimeException e) {
+					// sbb entities removed concurrently, let the next
+					// reader rebuild the index
+					this.snapshot = null;
+					return;
+				}
+				if (index < 0) {
+					index = -(index + 1);
+				}
+				updated = new SbbEntityID[current.length + 1];
+				System.arraycopy(current, 0, updated, 0, index);
+				updated[index] = sbbEntityID;
+				System.arraycopy(current, index, updated, index + 1,
+						current.length - index);
+			}
+		} else {
+			if (index < 0) {
+				updated = current;
+			} else {
+				updated = new SbbEntityID[current.length - 1];
+				System.arraycopy(current, 0, updated, 0, index);
+				System.arraycopy(current, index + 1, updated, index,
+						current.length - index - 1);
+			}
+		}
+		this.snapshot = new Snapshot(toVersion, updated);
+	}
+
+	private static int indexOf(SbbEntityID[] sbbEntities,
+			SbbEntityID sbbEntityID) {
+		for (int i = 0; i < sbbEntities.length; i++) {
+			if (sbbEntities[i].equals(sbbEntityID)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Builds a sorted array from the specified sbb entities.
+	 * 
+	 * @param sbbEntities
+	 * @param comparator
+	 * @return
+	 */
+	static SbbEntityID[] sort(Set<SbbEntityID> sbbEntities,
+			Comparator<SbbEntityID> comparator) {
+		if (sbbEntities.isEmpty()) {
+			return EMPTY;
+		}
+		final SbbEntityID[] sorted = sbbEntities
+				.toArray(new SbbEntityID[sbbEntities.size()]);
+		Arrays.sort(sorted, comparator);
+		return sorted;
+	}
+
+	/**
+	 * Read only iterator over a sorted snapshot, which skips the sbb entities
+	 * in the exclude set, without copying the snapshot.
+	 * 
+	 */
+	static class Cursor implements Iterator<SbbEntityID> {
+
+		private final SbbEntityID[] sbbEntities;
+		private final Set<SbbEntityID> excludeSet;
+		private int next = -1;
+
+		Cursor(SbbEntityID[] sbbEntities, Set<SbbEntityID> excludeSet) {
+			this.sbbEntities = sbbEntities;
+			this.excludeSet = excludeSet;
+			advance();
+		}
+
+		private void advance() {
+			next++;
+			while (next < sbbEntities.length
+					&& excludeSet.contains(sbbEntities[next])) {
+				next++;
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.Iterator#hasNext()
+		 */
+		public boolean hasNext() {
+			return next < sbbEntities.length;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.Iterator#next()
+		 */
+		public SbbEntityID next() {
+			if (next >= sbbEntities.length) {
+				throw new NoSuchElementException();
+			}
+			final SbbEntityID result = sbbEntities[next];
+			advance();
+			return result;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.Iterator#remove()
+		 */
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.eventrouter;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.mobicents.slee.container.activity.ActivityContextHandle;
+import org.mobicents.slee.container.event.EventContext;
+import org.mobicents.slee.container.event.EventContextPool;
+import org.mobicents.slee.container.eventrouter.EventRouterExecutor;
+import org.mobicents.slee.container.eventrouter.stats.EventRouterExecutorStatistics;
+import org.mobicents.slee.runtime.eventrouter.routingtask.EventRoutingTaskImpl;
+
+/**
+ * The view of a {@link WorkStealingEventRouterExecutorImpl} for a single
+ * activity. Holds the FIFO queue of the activity tasks, which is scheduled as
+ * a whole in the {@link WorkStealingExecutorPool}, and drained by a single
+ * worker at a time.
+ *
+ */
+public class ActivityEventRouterExecutor implements EventRouterExecutor {
+
+	private static final Logger logger = Logger
+			.getLogger(ActivityEventRouterExecutor.class);
+
+	/**
+	 * the max number of tasks executed each time the queue is scheduled, so
+	 * a busy activity doesn't starve others sharing the same worker
+	 */
+	private static final int MAX_TASKS_PER_DRAIN = 64;
+
+	private final ActivityContextHandle ach;
+
+	private final WorkStealingEventRouterExecutorImpl executor;
+
+	private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+	/**
+	 * indicates if the queue is scheduled in the pool, or being drained by a
+	 * worker
+	 */
+	private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+	/**
+	 *
+	 * @param ach
+	 *            the handle of the activity, null if the view is used for
+	 *            misc tasks
+	 * @param executor
+	 */
+	ActivityEventRouterExecutor(ActivityContextHandle ach,
+			WorkStealingEventRouterExecutorImpl executor) {
+		this.ach = ach;
+		this.executor = executor;
+	}
+
+	private void enqueue(Runnable task) {
+		tasks.offer(task);
+		executor.taskQueued();
+		if (scheduled.compareAndSet(false, true)) {
+			executor.schedule(this);
+		}
+	}
+
+	/**
+	 * Executes the tasks queued, up to {@link #MAX_TASKS_PER_DRAIN}, and
+	 * schedules the queue again if it is not empty. Invoked by the pool
+	 * worker which owns or stole the queue.
+	 */
+	void drain() {
+		Runnable task = null;
+		for (int i = 0; i < MAX_TASKS_PER_DRAIN; i++) {
+			task = tasks.poll();
+			if (task == null) {
+				break;
+			}
+			executor.taskDequeued();
+			try {
+				task.run();
+			} catch (Throwable e) {
+				logger.error("Failure executing task for " + ach, e);
+			}
+		}
+		scheduled.set(false);
+		if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+			executor.schedule(this);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#activityMapped
+	 * (org.mobicents.slee.container.activity.ActivityContextHandle)
+	 */
+	public void activityMapped(ActivityContextHandle ach) {
+		executor.activityMapped(ach);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#activityUnmapped
+	 * (org.mobicents.slee.container.activity.ActivityContextHandle)
+	 */
+	public void activityUnmapped(ActivityContextHandle ach) {
+		executor.activityUnmapped(ach);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.mobicents.slee.container.eventrouter.EventRouterExecutor#
+	 * getActivityExecutor
+	 * (org.mobicents.slee.container.activity.ActivityContextHandle)
+	 */
+	public EventRouterExecutor getActivityExecutor(ActivityContextHandle ach) {
+		return this;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#execute(java
+	 * .lang.Runnable)
+	 */
+	public void execute(Runnable task) {
+		enqueue(executor.wrapMiscTask(task));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#executeNow
+	 * (java.lang.Runnable)
+	 */
+	public void executeNow(Runnable task) throws InterruptedException,
+			ExecutionException {
+		final FutureTask<Object> futureTask = new FutureTask<Object>(task, null);
+		execute(futureTask);
+		futureTask.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#getStatistics
+	 * ()
+	 */
+	public EventRouterExecutorStatistics getStatistics() {
+		return executor.getStatistics();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.mobicents.slee.container.eventrouter.EventRouterExecutor#
+	 * getEventContextPool()
+	 */
+	public EventContextPool getEventContextPool() {
+		return executor.getEventContextPool();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#routeEvent
+	 * (org.mobicents.slee.container.event.EventContext)
+	 */
+	public void routeEvent(EventContext event) {
+		enqueue(executor.wrapEventRoutingTask(new EventRoutingTaskImpl(event,
+				executor.getSleeContainer())));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#shutdown()
+	 */
+	public void shutdown() {
+		// nothing to do, the worker threads are owned by the pool
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#getQueueLenth
+	 * ()
+	 */
+	public int getQueueLenth() {
+		return tasks.size();
+	}
+
+	@Override
+	public String toString() {
+		return "ActivityEventRouterExecutor[" + ach + "] @ " + executor;
+	}
+}
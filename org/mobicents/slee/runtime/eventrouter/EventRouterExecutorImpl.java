@@ -21,116 +21,268 @@
  */
 
 /**
- * 
+ *
  */
 package org.mobicents.slee.runtime.eventrouter;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.slee.EventTypeID;
 
+import org.apache.log4j.Logger;
 import org.mobicents.slee.container.SleeContainer;
 import org.mobicents.slee.container.activity.ActivityContextHandle;
+import org.mobicents.slee.container.activity.LocalActivityContext;
 import org.mobicents.slee.container.event.EventContext;
+import org.mobicents.slee.container.event.EventContextPool;
 import org.mobicents.slee.container.eventrouter.EventRouterExecutor;
-import org.mobicents.slee.container.eventrouter.EventRoutingTask;
 import org.mobicents.slee.container.eventrouter.stats.EventRouterExecutorStatistics;
 import org.mobicents.slee.runtime.eventrouter.routingtask.EventRoutingTaskImpl;
 import org.mobicents.slee.runtime.eventrouter.stats.EventRouterExecutorStatisticsImpl;
+import org.mobicents.slee.runtime.eventrouter.stats.EventTypeRoutingStatisticsImpl;
 
 /**
- * 
+ * Single thread {@link EventRouterExecutor}. Events and misc tasks are queued
+ * in a single FIFO queue, which the executor thread drains in batches, routing
+ * events back to back with the same {@link EventRoutingTaskImpl} instance, and
+ * updating stats once per batch.
+ *
  * @author martins
- * 
+ *
  */
-//public class EventRouterExecutorImpl implements EventRouterExecutor {
-
 public class EventRouterExecutorImpl implements EventRouterExecutor {
 
+	private static final Logger logger = Logger.getLogger(EventRouterExecutorImpl.class);
+
 	private final ExecutorService executor;
 	private final EventRouterExecutorStatisticsImpl stats;
 	private final SleeContainer sleeContainer;
-	
+	private final EventContextPool eventContextPool;
+
 	/**
-	 * Used to collect executing stats of an {@link EventRoutingTask}.
-	 * 
-	 * @author martins
-	 * 
+	 * the max number of queued events and tasks executed in each drain
 	 */
-	private class EventRoutingTaskStatsCollector implements Runnable {
+	private final int batchSize;
 
-		private final EventRoutingTask eventRoutingTask;
+	/**
+	 * the queue of {@link EventContext}s and misc {@link Runnable}s to execute
+	 */
+	private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<Object>();
 
-		public EventRoutingTaskStatsCollector(EventRoutingTask eventRoutingTask) {
-			this.eventRoutingTask = eventRoutingTask;
-		}
+	/**
+	 * the number of events and tasks in the queue
+	 */
+	private final AtomicInteger queueLength = new AtomicInteger(0);
+
+	/**
+	 * indicates if the drainer is submitted to the executor, or running
+	 */
+	private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+	private final Drainer drainer;
+
+	/**
+	 * Drains the queue, up to the batch size.
+	 *
+	 */
+	private class Drainer implements Runnable {
+
+		/**
+		 * the routing task reused for each event
+		 */
+		private EventRoutingTaskImpl eventRoutingTask;
+
+		private final BatchStatistics batchStats = stats == null ? null : new BatchStatistics();
 
 		/*
 		 * (non-Javadoc)
-		 * 
+		 *
 		 * @see java.lang.Runnable#run()
 		 */
 		public void run() {
-			final long startTime = System.nanoTime();
-			eventRoutingTask.run();
-			stats.eventRouted(eventRoutingTask.getEventContext().getEventTypeId(), System
-					.nanoTime()
-					- startTime);
+			try {
+				long time = stats == null ? 0L : System.nanoTime();
+				long now = 0L;
+				Object item = null;
+				for (int i = 0; i < batchSize; i++) {
+					item = queue.poll();
+					if (item == null) {
+						break;
+					}
+					queueLength.decrementAndGet();
+					if (item instanceof EventContext) {
+						final EventContext eventContext = (EventContext) item;
+						// the event context may be recycled once routed
+						final EventTypeID eventTypeID = eventContext.getEventTypeId();
+						routeEvent(eventContext);
+						if (stats != null) {
+							now = System.nanoTime();
+							batchStats.eventRouted(eventTypeID, now - time);
+							time = now;
+						}
+					}
+					else {
+						try {
+							((Runnable) item).run();
+						}
+						catch (Throwable e) {
+							logger.error("Failure executing misc task "+item, e);
+						}
+						if (stats != null) {
+							now = System.nanoTime();
+							batchStats.miscTaskExecuted(now - time);
+							time = now;
+						}
+					}
+				}
+				if (stats != null) {
+					batchStats.flush();
+				}
+			}
+			finally {
+				drainScheduled.set(false);
+				if (!queue.isEmpty()) {
+					scheduleDrain();
+				}
+			}
+		}
+
+		private void routeEvent(EventContext eventContext) {
+			final LocalActivityContext lac = eventContext.getLocalActivityContext();
+			EventRoutingTaskImpl task = eventRoutingTask;
+			if (task == null) {
+				task = new EventRoutingTaskImpl(eventContext, sleeContainer);
+			}
+			else {
+				task.reset(eventContext);
+			}
+			try {
+				task.run();
+			}
+			catch (Throwable e) {
+				logger.error("Failure routing event "+eventContext, e);
+			}
+			// the task can only be reused if it is not the activity's current
+			// routing task, i.e. the event context was not suspended
+			eventRoutingTask = lac.getCurrentEventRoutingTask() == task ? null : task;
 		}
 	}
 
 	/**
-	 * Used to collect executing stats of a misc {@link Runnable} task.
-	 * 
-	 * @author martins
-	 * 
+	 * Aggregates the stats of a batch, to update the executor stats only when
+	 * the batch ends, or the type of the events routed changes. The routing
+	 * time of each event is still recorded in the event type histogram.
+	 *
 	 */
-	private class MiscTaskStatsCollector implements Runnable {
+	private class BatchStatistics {
 
-		private final Runnable runnable;
+		private EventTypeID eventTypeID;
+		private EventTypeRoutingStatisticsImpl eventTypeRoutingStatistics;
+		private int eventsRouted;
+		private long routingTime;
+		private int miscTasksExecuted;
+		private long miscTasksExecutingTime;
 
-		public MiscTaskStatsCollector(Runnable runnable) {
-			this.runnable = runnable;
+		void eventRouted(EventTypeID eventTypeID, long routingTime) {
+			if (eventsRouted > 0 && !eventTypeID.equals(this.eventTypeID)) {
+				flushEventsRouted();
+			}
+			if (eventTypeRoutingStatistics == null || !eventTypeID.equals(this.eventTypeID)) {
+				eventTypeRoutingStatistics = stats.getEventTypeRoutingStatisticsOrCreate(eventTypeID);
+			}
+			eventTypeRoutingStatistics.eventRoutingTimeSampled(routingTime);
+			this.eventTypeID = eventTypeID;
+			this.eventsRouted++;
+			this.routingTime += routingTime;
 		}
 
-		/*
-		 * (non-Javadoc)
-		 * 
-		 * @see java.lang.Runnable#run()
-		 */
-		public void run() {
-			final long startTime = System.nanoTime();
-			runnable.run();
-			stats.miscTaskExecuted(System.nanoTime() - startTime);
+		void miscTaskExecuted(long executionTime) {
+			miscTasksExecuted++;
+			miscTasksExecutingTime += executionTime;
+		}
+
+		private void flushEventsRouted() {
+			stats.eventsRouted(eventTypeID, eventsRouted, routingTime);
+			eventTypeID = null;
+			eventsRouted = 0;
+			routingTime = 0L;
+		}
+
+		void flush() {
+			if (eventsRouted > 0) {
+				flushEventsRouted();
+			}
+			if (miscTasksExecuted > 0) {
+				stats.miscTasksExecuted(miscTasksExecuted, miscTasksExecutingTime);
+				miscTasksExecuted = 0;
+				miscTasksExecutingTime = 0L;
+			}
 		}
 	}
 
 	/**
-	 * 
+	 *
 	 */
-	public EventRouterExecutorImpl(boolean collectStats, SleeContainer sleeContainer) {		
-		//this.executor = Executors.newSingleThreadExecutor();
-		/*
-			@sainty 2016-07-04
-			滻ԭеĵ̵߳ıͲԲµŶӻ
-		*/
-		ThreadPoolExecutor executor_new = new ThreadPoolExecutor(1, 1,
-                0L, TimeUnit.MILLISECONDS,new LinkedBlockingQueue<Runnable>(10));
-		executor_new.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
-		this.executor = executor_new;
-		
-		stats = collectStats ? new EventRouterExecutorStatisticsImpl() : null;
+	public EventRouterExecutorImpl(boolean collectStats, SleeContainer sleeContainer) {
+		this(collectStats, 1, sleeContainer);
+	}
+
+	/**
+	 *
+	 * @param collectStats
+	 * @param batchSize
+	 *            the max number of queued events and tasks executed back to
+	 *            back, before the executor thread checks for other work
+	 * @param sleeContainer
+	 */
+	public EventRouterExecutorImpl(boolean collectStats, int batchSize, SleeContainer sleeContainer) {
+		this(collectStats, batchSize, EventContextPool.DEFAULT_CAPACITY, sleeContainer);
+	}
+
+	/**
+	 *
+	 * @param collectStats
+	 * @param batchSize
+	 *            the max number of queued events and tasks executed back to
+	 *            back, before the executor thread checks for other work
+	 * @param eventContextPoolSize
+	 *            the max number of idle lean event contexts kept for reuse,
+	 *            0 disables pooling
+	 * @param sleeContainer
+	 */
+	public EventRouterExecutorImpl(boolean collectStats, int batchSize, int eventContextPoolSize, SleeContainer sleeContainer) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("invalid batch size "+batchSize);
+		}
+		this.executor = Executors.newSingleThreadExecutor();
+		this.batchSize = batchSize;
+		this.stats = collectStats ? new EventRouterExecutorStatisticsImpl() : null;
 		this.sleeContainer = sleeContainer;
+		this.eventContextPool = eventContextPoolSize > 0 ? new EventContextPool(eventContextPoolSize) : null;
+		this.drainer = new Drainer();
+	}
+
+	private void enqueue(Object item) {
+		queue.offer(item);
+		queueLength.incrementAndGet();
+		scheduleDrain();
+	}
+
+	private void scheduleDrain() {
+		if (drainScheduled.compareAndSet(false, true)) {
+			executor.execute(drainer);
+		}
 	}
 
 	/*
 	 * (non-Javadoc)
-	 * 
+	 *
 	 * @see
 	 * org.mobicents.slee.runtime.eventrouter.EventRouterExecutor#getStatistics
 	 * ()
@@ -139,9 +291,16 @@ public class EventRouterExecutorImpl implements EventRouterExecutor {
 		return stats;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.eventrouter.EventRouterExecutor#getEventContextPool()
+	 */
+	public EventContextPool getEventContextPool() {
+		return eventContextPool;
+	}
+
 	/*
 	 * (non-Javadoc)
-	 * 
+	 *
 	 * @see
 	 * org.mobicents.slee.runtime.eventrouter.EventRouterExecutor#shutdown()
 	 */
@@ -151,30 +310,24 @@ public class EventRouterExecutorImpl implements EventRouterExecutor {
 
 	/*
 	 * (non-Javadoc)
-	 * 
+	 *
 	 * @see
 	 * org.mobicents.slee.runtime.eventrouter.EventRouterExecutor#execute(java
 	 * .lang.Runnable)
 	 */
 	public void execute(Runnable task) {
-		if (stats == null) {
-			executor.execute(task);
-		} else {
-			executor.execute(new MiscTaskStatsCollector(task));
-		}
+		enqueue(task);
 	}
 
 	/* (non-Javadoc)
 	 * @see org.mobicents.slee.core.runtime.eventrouter.EventRouterExecutor#executeNow(java.lang.Runnable)
 	 */
 	public void executeNow(Runnable task) throws InterruptedException, ExecutionException {
-		if (stats == null) {
-			executor.submit(task).get();
-		} else {
-			executor.submit(new MiscTaskStatsCollector(task)).get();
-		}
+		final FutureTask<Object> futureTask = new FutureTask<Object>(task, null);
+		enqueue(futureTask);
+		futureTask.get();
 	}
-	
+
 	/* (non-Javadoc)
 	 * @see org.mobicents.slee.runtime.eventrouter.EventRouterExecutor#activityMapped(org.mobicents.slee.runtime.activity.ActivityContextHandle)
 	 */
@@ -183,7 +336,7 @@ public class EventRouterExecutorImpl implements EventRouterExecutor {
 			stats.activityMapped(ach);
 		}
 	}
-	
+
 	/* (non-Javadoc)
 	 * @see org.mobicents.slee.runtime.eventrouter.EventRouterExecutor#activityUnmapped(org.mobicents.slee.runtime.activity.ActivityContextHandle)
 	 */
@@ -192,36 +345,32 @@ public class EventRouterExecutorImpl implements EventRouterExecutor {
 			stats.activityUnmapped(ach);
 		}
 	}
-	
+
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.eventrouter.EventRouterExecutor#getActivityExecutor(org.mobicents.slee.container.activity.ActivityContextHandle)
+	 */
+	public EventRouterExecutor getActivityExecutor(ActivityContextHandle ach) {
+		// single thread executor, tasks of all activities are already serialized
+		return this;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.mobicents.slee.runtime.eventrouter.EventRouterExecutor#routeEvent(org.mobicents.slee.core.event.SleeEvent)
 	 */
 	public void routeEvent(EventContext event) {
-		final EventRoutingTaskImpl eventRoutingTask = new EventRoutingTaskImpl(event,sleeContainer);
-		if (stats == null) {
-			executor.execute(eventRoutingTask);
-		} else {
-			executor.execute(new EventRoutingTaskStatsCollector(
-					eventRoutingTask));
-		}
-		/*try {
-			Thread.sleep(3000);
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}*/
-		System.out.println("ǰִеexecutorǣ"+executor.hashCode());
-		System.out.println("ǰִеexecutorе:"+((ThreadPoolExecutor)executor).getQueue().size());
+		enqueue(event);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.container.eventrouter.EventRouterExecutor#getQueueLenth()
+	 */
 	public int getQueueLenth() {
-		// TODO Auto-generated method stub
-		return ((ThreadPoolExecutor)executor).getQueue().size();
+		return queueLength.get();
 	}
-	
+
+	@Override
 	public String toString() {
-		// TODO Auto-generated method stub
-		return "" + ((ThreadPoolExecutor)executor).getQueue().size();
+		return "EventRouterExecutor[queue length = " + queueLength.get() + "]";
 	}
 
 }
@@ -40,6 +40,12 @@ public class EventRouterImpl extends AbstractSleeContainerModule implements Even
 
 	private static Logger logger = Logger.getLogger(EventRouter.class);
 	
+	/**
+	 * The max number of executors, when resizing, relative to the number of
+	 * event router threads configured.
+	 */
+	private static final int MAX_EXECUTORS_FACTOR = 4;
+	
 	/**
 	 * The array of {@link EventRouterExecutor}s that are used to route events
 	 */
@@ -55,6 +61,11 @@ public class EventRouterImpl extends AbstractSleeContainerModule implements Even
 	 */
 	private EventRouterStatistics statistics;
 	
+	/**
+	 * The pool of threads shared by the executors, if work stealing is enabled.
+	 */
+	private WorkStealingExecutorPool executorPool;
+	
 	private final EventRouterConfiguration configuration;
 	
 	/**
@@ -72,20 +83,22 @@ public class EventRouterImpl extends AbstractSleeContainerModule implements Even
 	
 	@Override
 	public void sleeStarting() {
-		System.out.println("sleeStarting()");
 		// get ridden of old executors, if any
-		if (this.executors != null) {
-			for (EventRouterExecutor executor : this.executors) {
-				executor.shutdown();
+		shutdownExecutors();
+		// create new ones
+		final int eventRouterThreads = configuration.getEventRouterThreads();
+		this.executors = new EventRouterExecutor[eventRouterThreads];
+		if (configuration.isWorkStealing()) {
+			this.executorPool = new WorkStealingExecutorPool(eventRouterThreads);
+			for (int i = 0; i < eventRouterThreads; i++) {
+				this.executors[i] = new WorkStealingEventRouterExecutorImpl(i,executorPool,configuration.isCollectStats(),configuration.getEventContextPoolSize(),sleeContainer);
+			}
+		}
+		else {
+			for (int i = 0; i < eventRouterThreads; i++) {
+				this.executors[i] = new EventRouterExecutorImpl(configuration.isCollectStats(),configuration.getEventRoutingBatchSize(),configuration.getEventContextPoolSize(),sleeContainer);
 			}
 		}
-		// create new ones
-		//this.executors = new EventRouterExecutor[configuration.getEventRouterThreads()];
-		//for (int i = 0; i < configuration.getEventRouterThreads(); i++) {
-		this.executors = new EventRouterExecutor[50];
-		for (int i = 0; i < 50; i++) {
-			this.executors[i] = new EventRouterExecutorImpl(configuration.isCollectStats(),sleeContainer);
-		}			
 		// create mapper
 		try {
 			Class<?> executorMapperClass = Class.forName(configuration.getExecutorMapperClassName());
@@ -98,6 +111,23 @@ public class EventRouterImpl extends AbstractSleeContainerModule implements Even
 		statistics = new EventRouterStatisticsImpl(this);
 	}
 	
+	/**
+	 * Shuts down the executors, and the pool of threads shared by these, if
+	 * work stealing is enabled. New executors are only created when the SLEE
+	 * starts again.
+	 */
+	public synchronized void shutdownExecutors() {
+		if (this.executors != null) {
+			for (EventRouterExecutor executor : this.executors) {
+				executor.shutdown();
+			}
+		}
+		if (this.executorPool != null) {
+			this.executorPool.shutdown();
+			this.executorPool = null;
+		}
+	}
+	
 	@Override
 	public String toString() {
 		return "EventRouter: "
@@ -131,18 +161,27 @@ public class EventRouterImpl extends AbstractSleeContainerModule implements Even
 		return configuration;
 	}
 	
-	public void resize(){
-		// TODO Auto-generated method stub
-			int len = this.executors.length;
-			EventRouterExecutor[] newExecutors = new EventRouterExecutor[len*2];
-			for(int i=0;i<len;i++){
-				newExecutors[i] = this.executors[i];
-			}
-			for(int i=len;i<len*2;i++){
-				newExecutors[i] = new EventRouterExecutorImpl(configuration.isCollectStats(),sleeContainer);
-			}
-			this.executors = newExecutors;
-			executorMapper.setExecutors(this,executors);
-			System.out.println("len :"+len*2);
+	/**
+	 * Adds an executor, up to {@link #MAX_EXECUTORS_FACTOR} times the
+	 * configured number of event router threads, and publishes the new
+	 * executors to the mapper.
+	 */
+	public synchronized void resize(){
+		if (executorPool != null) {
+			// idle workers steal activities from the busy ones, no need to add executors
+			return;
 		}
-}
\ No newline at end of file
+		final int len = this.executors.length;
+		if (len >= configuration.getEventRouterThreads() * MAX_EXECUTORS_FACTOR) {
+			return;
+		}
+		final EventRouterExecutor[] newExecutors = new EventRouterExecutor[len+1];
+		System.arraycopy(this.executors, 0, newExecutors, 0, len);
+		newExecutors[len] = new EventRouterExecutorImpl(configuration.isCollectStats(),configuration.getEventRoutingBatchSize(),configuration.getEventContextPoolSize(),sleeContainer);
+		this.executors = newExecutors;
+		executorMapper.setExecutors(this,newExecutors);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Resized event router executors to "+newExecutors.length);
+		}
+	}
+}
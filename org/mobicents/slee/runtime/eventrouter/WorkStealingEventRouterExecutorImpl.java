@@ -0,0 +1,332 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.eventrouter;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.slee.EventTypeID;
+
+import org.mobicents.slee.container.SleeContainer;
+import org.mobicents.slee.container.activity.ActivityContextHandle;
+import org.mobicents.slee.container.event.EventContext;
+import org.mobicents.slee.container.event.EventContextPool;
+import org.mobicents.slee.container.eventrouter.EventRouterExecutor;
+import org.mobicents.slee.container.eventrouter.EventRoutingTask;
+import org.mobicents.slee.container.eventrouter.stats.EventRouterExecutorStatistics;
+import org.mobicents.slee.runtime.eventrouter.stats.EventRouterExecutorStatisticsImpl;
+
+/**
+ * An {@link EventRouterExecutor} backed by a {@link WorkStealingExecutorPool}.
+ * Each activity mapped to this executor gets its own
+ * {@link ActivityEventRouterExecutor}, which is scheduled on the pool worker
+ * with the same index as this executor, but may be stolen by any idle worker.
+ *
+ */
+public class WorkStealingEventRouterExecutorImpl implements EventRouterExecutor {
+
+	private final int index;
+	private final WorkStealingExecutorPool pool;
+	private final EventRouterExecutorStatisticsImpl stats;
+	private final SleeContainer sleeContainer;
+	private final EventContextPool eventContextPool;
+
+	/**
+	 * the queue of misc tasks not related with a specific activity
+	 */
+	private final ActivityEventRouterExecutor miscTasksExecutor;
+
+	/**
+	 * the number of tasks queued and not executed yet, for all activities
+	 * mapped to this executor
+	 */
+	private final AtomicInteger queuedTasks = new AtomicInteger(0);
+
+	/**
+	 * Used to collect executing stats of an {@link EventRoutingTask}.
+	 *
+	 */
+	private class EventRoutingTaskStatsCollector implements Runnable {
+
+		private final EventRoutingTask eventRoutingTask;
+
+		public EventRoutingTaskStatsCollector(EventRoutingTask eventRoutingTask) {
+			this.eventRoutingTask = eventRoutingTask;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			// the event context may be recycled once routed
+			final EventTypeID eventTypeID = eventRoutingTask.getEventContext()
+					.getEventTypeId();
+			final long startTime = System.nanoTime();
+			eventRoutingTask.run();
+			final long routingTime = System.nanoTime() - startTime;
+			// the task may have been executed by a worker which stole the
+			// activity, thus stats may be updated concurrently
+			synchronized (stats) {
+				stats.eventRouted(eventTypeID, routingTime);
+			}
+		}
+	}
+
+	/**
+	 * Used to collect executing stats of a misc {@link Runnable} task.
+	 *
+	 */
+	private class MiscTaskStatsCollector implements Runnable {
+
+		private final Runnable runnable;
+
+		public MiscTaskStatsCollector(Runnable runnable) {
+			this.runnable = runnable;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			final long startTime = System.nanoTime();
+			runnable.run();
+			final long executionTime = System.nanoTime() - startTime;
+			synchronized (stats) {
+				stats.miscTaskExecuted(executionTime);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param index
+	 *            the index of the pool worker which this executor uses
+	 * @param pool
+	 * @param collectStats
+	 * @param sleeContainer
+	 */
+	public WorkStealingEventRouterExecutorImpl(int index,
+			WorkStealingExecutorPool pool, boolean collectStats,
+			SleeContainer sleeContainer) {
+		this(index, pool, collectStats, EventContextPool.DEFAULT_CAPACITY,
+				sleeContainer);
+	}
+
+	/**
+	 *
+	 * @param index
+	 *            the index of the pool worker which this executor uses
+	 * @param pool
+	 * @param collectStats
+	 * @param eventContextPoolSize
+	 *            the max number of idle lean event contexts kept for reuse,
+	 *            0 disables pooling
+	 * @param sleeContainer
+	 */
+	public WorkStealingEventRouterExecutorImpl(int index,
+			WorkStealingExecutorPool pool, boolean collectStats,
+			int eventContextPoolSize, SleeContainer sleeContainer) {
+		this.index = index;
+		this.pool = pool;
+		this.stats = collectStats ? new EventRouterExecutorStatisticsImpl()
+				: null;
+		this.sleeContainer = sleeContainer;
+		this.eventContextPool = eventContextPoolSize > 0 ? new EventContextPool(
+				eventContextPoolSize) : null;
+		this.miscTasksExecutor = new ActivityEventRouterExecutor(null, this);
+	}
+
+	/**
+	 * Retrieves the index of the pool worker used by this executor.
+	 *
+	 * @return
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	SleeContainer getSleeContainer() {
+		return sleeContainer;
+	}
+
+	/**
+	 * Schedules the specified activity queue in the pool.
+	 *
+	 * @param activityExecutor
+	 */
+	void schedule(ActivityEventRouterExecutor activityExecutor) {
+		pool.schedule(activityExecutor, index);
+	}
+
+	void taskQueued() {
+		queuedTasks.incrementAndGet();
+	}
+
+	void taskDequeued() {
+		queuedTasks.decrementAndGet();
+	}
+
+	/**
+	 * Wraps the specified event routing task, if stats are being collected.
+	 *
+	 * @param eventRoutingTask
+	 * @return
+	 */
+	Runnable wrapEventRoutingTask(EventRoutingTask eventRoutingTask) {
+		return stats == null ? eventRoutingTask
+				: new EventRoutingTaskStatsCollector(eventRoutingTask);
+	}
+
+	/**
+	 * Wraps the specified misc task, if stats are being collected.
+	 *
+	 * @param task
+	 * @return
+	 */
+	Runnable wrapMiscTask(Runnable task) {
+		return stats == null ? task : new MiscTaskStatsCollector(task);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#activityMapped
+	 * (org.mobicents.slee.container.activity.ActivityContextHandle)
+	 */
+	public void activityMapped(ActivityContextHandle ach) {
+		if (stats != null) {
+			stats.activityMapped(ach);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#activityUnmapped
+	 * (org.mobicents.slee.container.activity.ActivityContextHandle)
+	 */
+	public void activityUnmapped(ActivityContextHandle ach) {
+		if (stats != null) {
+			stats.activityUnmapped(ach);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.mobicents.slee.container.eventrouter.EventRouterExecutor#
+	 * getActivityExecutor
+	 * (org.mobicents.slee.container.activity.ActivityContextHandle)
+	 */
+	public EventRouterExecutor getActivityExecutor(ActivityContextHandle ach) {
+		return new ActivityEventRouterExecutor(ach, this);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#execute(java
+	 * .lang.Runnable)
+	 */
+	public void execute(Runnable task) {
+		miscTasksExecutor.execute(task);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#executeNow
+	 * (java.lang.Runnable)
+	 */
+	public void executeNow(Runnable task) throws InterruptedException,
+			ExecutionException {
+		miscTasksExecutor.executeNow(task);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#getStatistics
+	 * ()
+	 */
+	public EventRouterExecutorStatistics getStatistics() {
+		return stats;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.mobicents.slee.container.eventrouter.EventRouterExecutor#
+	 * getEventContextPool()
+	 */
+	public EventContextPool getEventContextPool() {
+		return eventContextPool;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#routeEvent
+	 * (org.mobicents.slee.container.event.EventContext)
+	 */
+	public void routeEvent(EventContext event) {
+		miscTasksExecutor.routeEvent(event);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#shutdown()
+	 */
+	public void shutdown() {
+		// the worker threads are owned by the pool, which is shutdown by the
+		// event router
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#getQueueLenth
+	 * ()
+	 */
+	public int getQueueLenth() {
+		return queuedTasks.get();
+	}
+
+	@Override
+	public String toString() {
+		return "WorkStealingEventRouterExecutor[" + index + "]";
+	}
+}
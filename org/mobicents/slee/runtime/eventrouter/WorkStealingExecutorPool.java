@@ -0,0 +1,173 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.eventrouter;
+
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A pool of event router worker threads, each with its own queue of
+ * {@link ActivityEventRouterExecutor}s with tasks ready to run. A worker
+ * without work steals whole activity queues from the tail of other workers'
+ * queues, and since an activity queue is only scheduled once at a time, the
+ * tasks of each activity are still executed one by one, in FIFO order.
+ *
+ */
+public class WorkStealingExecutorPool {
+
+	private static final Logger logger = Logger
+			.getLogger(WorkStealingExecutorPool.class);
+
+	/**
+	 * the max time, in milliseconds, an idle worker waits for work in its own
+	 * queue, before trying to steal work from other workers
+	 */
+	private static final long IDLE_WAIT_TIME = 5;
+
+	private final Worker[] workers;
+
+	private volatile boolean shutdown = false;
+
+	/**
+	 *
+	 * @param size
+	 *            the number of worker threads
+	 */
+	public WorkStealingExecutorPool(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("invalid pool size " + size);
+		}
+		workers = new Worker[size];
+		for (int i = 0; i < size; i++) {
+			workers[i] = new Worker(i);
+		}
+		for (Worker worker : workers) {
+			worker.start();
+		}
+	}
+
+	/**
+	 * Retrieves the number of worker threads in the pool.
+	 *
+	 * @return
+	 */
+	public int getSize() {
+		return workers.length;
+	}
+
+	/**
+	 * Schedules the specified activity queue in the queue of the worker with
+	 * the specified index.
+	 *
+	 * @param activityExecutor
+	 * @param worker
+	 */
+	void schedule(ActivityEventRouterExecutor activityExecutor, int worker) {
+		if (shutdown) {
+			logger.warn("Pool is shutdown, discarding tasks of "
+					+ activityExecutor);
+			return;
+		}
+		workers[worker].runQueue.offer(activityExecutor);
+	}
+
+	/**
+	 * Retrieves the number of activities with tasks waiting to be executed in
+	 * the queue of the worker with the specified index.
+	 *
+	 * @param worker
+	 * @return
+	 */
+	public int getScheduledActivities(int worker) {
+		return workers[worker].runQueue.size();
+	}
+
+	/**
+	 * Shuts down the pool, tasks not yet executed are discarded.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		for (Worker worker : workers) {
+			worker.interrupt();
+		}
+	}
+
+	/**
+	 * Tries to steal an activity queue from any other worker than the one
+	 * with the specified index, starting with the next one.
+	 *
+	 * @param thief
+	 * @return null if there is no work to steal
+	 */
+	private ActivityEventRouterExecutor steal(int thief) {
+		ActivityEventRouterExecutor activityExecutor = null;
+		for (int i = 1; i < workers.length; i++) {
+			activityExecutor = workers[(thief + i) % workers.length].runQueue
+					.pollLast();
+			if (activityExecutor != null) {
+				break;
+			}
+		}
+		return activityExecutor;
+	}
+
+	/**
+	 *
+	 *
+	 */
+	private class Worker extends Thread {
+
+		private final int index;
+
+		private final LinkedBlockingDeque<ActivityEventRouterExecutor> runQueue = new LinkedBlockingDeque<ActivityEventRouterExecutor>();
+
+		public Worker(int index) {
+			super("SLEE-EventRouterExecutor-" + index);
+			this.index = index;
+		}
+
+		@Override
+		public void run() {
+			ActivityEventRouterExecutor activityExecutor = null;
+			while (!shutdown) {
+				activityExecutor = runQueue.pollFirst();
+				if (activityExecutor == null) {
+					activityExecutor = steal(index);
+					if (activityExecutor == null) {
+						try {
+							activityExecutor = runQueue.poll(IDLE_WAIT_TIME,
+									TimeUnit.MILLISECONDS);
+						} catch (InterruptedException e) {
+							continue;
+						}
+					}
+				}
+				if (activityExecutor != null) {
+					activityExecutor.drain();
+				}
+			}
+		}
+	}
+}
@@ -25,16 +25,28 @@
  */
 package org.mobicents.slee.runtime.eventrouter.mapping;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.mobicents.slee.container.SleeContainer;
+import org.apache.log4j.Logger;
 import org.mobicents.slee.container.activity.ActivityContextHandle;
 import org.mobicents.slee.container.eventrouter.EventRouterExecutor;
 import org.mobicents.slee.runtime.eventrouter.EventRouterImpl;
 
 /**
- * Simple {@link EventRouterExecutor} to {@link ActivityContextHandle} mapping
- * using the hashcode of the latter.
+ * {@link EventRouterExecutor} to {@link ActivityContextHandle} mapping using
+ * consistent hashing of the latter.
+ * 
+ * The mapping is done without locks, against an immutable
+ * {@link ExecutorHashRing} snapshot. When the executor mapped to a new
+ * activity is overloaded, the event router is asked, in the background, to add
+ * an executor, and once the new ring is published only the activities which
+ * hash to the new executor, about 1/N of all, are migrated, each one only after
+ * its already submitted tasks are executed.
  * 
  * @author martins
  * 
@@ -42,15 +54,73 @@ import org.mobicents.slee.runtime.eventrouter.EventRouterImpl;
 public class ActivityHashingEventRouterExecutorMapper extends
 		AbstractEventRouterExecutorMapper {
 
-	EventRouterImpl eventrouterimpl = null;
+	private static final Logger logger = Logger
+			.getLogger(ActivityHashingEventRouterExecutorMapper.class);
+
+	/**
+	 * the queue length of the mapped executor which triggers a resize
+	 */
+	private static final int RESIZE_QUEUE_LENGTH = 4;
 
+	/**
+	 * the single thread running the resizes, which times out when idle
+	 */
+	private static final ThreadPoolExecutor RESIZE_EXECUTOR = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			final Thread t = new Thread(r, "SLEE-EventRouterExecutorMapper-Resize");
+			t.setDaemon(true);
+			return t;
+		}
+	});
 	
-	public void setExecutors(EventRouterImpl eventrouterimpl,EventRouterExecutor[] executors) {
-		super.setExecutors(eventrouterimpl,executors);
-		this.eventrouterimpl = eventrouterimpl;
+	static {
+		RESIZE_EXECUTOR.allowCoreThreadTimeOut(true);
 	}
-	
-	
+
+	private EventRouterImpl eventRouter;
+
+	/**
+	 * the current ring snapshot
+	 */
+	private volatile ExecutorHashRing ring;
+
+	/**
+	 * the activities mapped, which may need to migrate when the ring changes
+	 */
+	private final ConcurrentHashMap<ActivityContextHandle, MigratableActivityEventRouterExecutor> activityExecutors = new ConcurrentHashMap<ActivityContextHandle, MigratableActivityEventRouterExecutor>();
+
+	/**
+	 * guard to ensure only one resize is in progress
+	 */
+	private final AtomicBoolean resizing = new AtomicBoolean(false);
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.mobicents.slee.runtime.eventrouter.mapping.AbstractEventRouterExecutorMapper
+	 * #setExecutors(org.mobicents.slee.runtime.eventrouter.EventRouterImpl,
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor[])
+	 */
+	public void setExecutors(EventRouterImpl eventRouter,EventRouterExecutor[] executors) {
+		super.setExecutors(eventRouter,executors);
+		this.eventRouter = eventRouter;
+		final ExecutorHashRing newRing = new ExecutorHashRing(executors);
+		this.ring = newRing;
+		// migrate activities which are now owned by another executor
+		int migrated = 0;
+		for (MigratableActivityEventRouterExecutor activityExecutor : activityExecutors.values()) {
+			final EventRouterExecutor newExecutor = newRing.getExecutor(activityExecutor.getActivityContextHandle().hashCode());
+			if (newExecutor != activityExecutor.getMappedExecutor()) {
+				activityExecutor.migrate(newExecutor);
+				migrated++;
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executors set, "+executors.length+" executors, "+migrated+" activities migrating");
+		}
+	}
+		
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -58,24 +128,47 @@ public class ActivityHashingEventRouterExecutorMapper extends
 	 * AbstractEventRouterExecutorMapper
 	 * #getExecutor(org.mobicents.slee.runtime.activity.ActivityContextHandle)
 	 */
-
-
 	public EventRouterExecutor getExecutor(
 			ActivityContextHandle activityContextHandle) {
-		synchronized (eventrouterimpl) {
-			System.out.println("++"+eventrouterimpl.hashCode());
-			int len = executors.length;
-			System.out.println("num_of_executors :"+len);
-			for(int i=0;i<len;i++){
-				if((Integer.parseInt(executors[i].toString())) >= 4){
-					eventrouterimpl.resize();
-					break;
+		final EventRouterExecutor executor = ring.getExecutor(activityContextHandle.hashCode());
+		if (executor.getQueueLenth() >= RESIZE_QUEUE_LENGTH) {
+			resize();
+		}
+		final MigratableActivityEventRouterExecutor activityExecutor = new MigratableActivityEventRouterExecutor(activityContextHandle, executor, this);
+		activityExecutors.put(activityContextHandle, activityExecutor);
+		return activityExecutor;
+	}
+
+	/**
+	 * Asks the event router, in the background, to add executors, unless a
+	 * resize is already in progress.
+	 */
+	private void resize() {
+		if (resizing.compareAndSet(false, true)) {
+			final Runnable r = new Runnable() {
+				public void run() {
+					try {
+						eventRouter.resize();
+					} catch (Throwable e) {
+						logger.error("Failed to resize event router executors", e);
+					} finally {
+						resizing.set(false);
+					}
 				}
-			}
-			System.out.println("finish");
+			};
+			RESIZE_EXECUTOR.execute(r);
 		}
-		return executors[(activityContextHandle.hashCode() & Integer.MAX_VALUE)
-				% executors.length];
+	}
+
+	/**
+	 * Indicates the activity with the specified handle was unmapped, and thus
+	 * won't need to migrate anymore.
+	 * 
+	 * @param ach
+	 * @param activityExecutor
+	 */
+	void activityUnmapped(ActivityContextHandle ach, MigratableActivityEventRouterExecutor activityExecutor) {
+		activityExecutors.remove(ach, activityExecutor);
 	}
 
 }
@@ -0,0 +1,123 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.eventrouter.mapping;
+
+import java.util.Arrays;
+
+import org.mobicents.slee.container.eventrouter.EventRouterExecutor;
+
+/**
+ * Immutable consistent hashing ring of {@link EventRouterExecutor}s. Each
+ * executor is placed in multiple points of the ring, which only depend on its
+ * index in the executors array, thus when an executor is added only the keys
+ * falling in its points, about 1/N of all, change executor.
+ *
+ */
+public class ExecutorHashRing {
+
+	/**
+	 * the number of points in the ring for each executor
+	 */
+	private static final int POINTS_PER_EXECUTOR = 64;
+
+	private final EventRouterExecutor[] executors;
+
+	/**
+	 * the sorted ring points
+	 */
+	private final int[] points;
+
+	/**
+	 * the index of the executor which owns each point
+	 */
+	private final int[] owners;
+
+	/**
+	 *
+	 * @param executors
+	 */
+	public ExecutorHashRing(EventRouterExecutor[] executors) {
+		this.executors = executors.clone();
+		final int size = executors.length * POINTS_PER_EXECUTOR;
+		// pack point and owner in a long, so a single sort orders both
+		final long[] entries = new long[size];
+		int entry = 0;
+		for (int i = 0; i < executors.length; i++) {
+			for (int j = 0; j < POINTS_PER_EXECUTOR; j++) {
+				final int point = mix(i * POINTS_PER_EXECUTOR + j + 1);
+				entries[entry++] = ((long) point << 32) | i;
+			}
+		}
+		Arrays.sort(entries);
+		points = new int[size];
+		owners = new int[size];
+		for (int i = 0; i < size; i++) {
+			points[i] = (int) (entries[i] >> 32);
+			owners[i] = (int) entries[i];
+		}
+	}
+
+	/**
+	 * Retrieves the executors in the ring.
+	 *
+	 * @return
+	 */
+	public EventRouterExecutor[] getExecutors() {
+		return executors;
+	}
+
+	/**
+	 * Retrieves the executor which owns the specified key hash.
+	 *
+	 * @param hashCode
+	 * @return
+	 */
+	public EventRouterExecutor getExecutor(int hashCode) {
+		final int hash = mix(hashCode);
+		int index = Arrays.binarySearch(points, hash);
+		if (index < 0) {
+			// not an exact match, use the next point in the ring
+			index = -(index + 1);
+			if (index == points.length) {
+				index = 0;
+			}
+		}
+		return executors[owners[index]];
+	}
+
+	/**
+	 * Spreads the bits of the specified value, murmur3 finalizer.
+	 *
+	 * @param h
+	 * @return
+	 */
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+}
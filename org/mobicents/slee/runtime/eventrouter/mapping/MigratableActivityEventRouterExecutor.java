@@ -0,0 +1,338 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.eventrouter.mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mobicents.slee.container.activity.ActivityContextHandle;
+import org.mobicents.slee.container.event.EventContext;
+import org.mobicents.slee.container.event.EventContextPool;
+import org.mobicents.slee.container.eventrouter.EventRouterExecutor;
+import org.mobicents.slee.container.eventrouter.stats.EventRouterExecutorStatistics;
+
+/**
+ * The {@link EventRouterExecutor} of a single activity, which may be migrated
+ * to another executor while the activity is running. The migration is
+ * quiesced: a barrier task is queued in the current executor, tasks submitted
+ * meanwhile are held, and only when the barrier runs, i.e. all tasks
+ * submitted before the migration are done, the executor is switched and the
+ * held tasks are submitted to the new one, keeping the activity FIFO order.
+ * 
+ * Tasks and events are submitted without locks, a submission only counts
+ * itself in the migration state, which the migration flags and then waits to
+ * drain before queuing the barrier. The monitor is only taken while a
+ * migration is in progress.
+ *
+ */
+public class MigratableActivityEventRouterExecutor implements
+		EventRouterExecutor {
+
+	/**
+	 * the migration state flag, the lower bits count the submissions in
+	 * progress to the current executor
+	 */
+	private static final int MIGRATING = 1 << 30;
+
+	private final ActivityContextHandle ach;
+
+	private final ActivityHashingEventRouterExecutorMapper mapper;
+
+	/**
+	 * the executor mapped to the activity, as returned by the mapper's ring
+	 */
+	private volatile EventRouterExecutor mappedExecutor;
+
+	/**
+	 * the executor used by the activity, provided by the mapped executor
+	 */
+	private volatile EventRouterExecutor executor;
+
+	/**
+	 * the mapped executor which the activity is migrating to, null if there
+	 * is no migration in progress
+	 */
+	private volatile EventRouterExecutor migratingTo;
+
+	/**
+	 * the events and tasks submitted while migrating, guarded by this
+	 */
+	private volatile List<Object> heldTasks;
+
+	/**
+	 * the migration flag plus the number of lock free submissions in progress
+	 */
+	private final AtomicInteger state = new AtomicInteger(0);
+
+	private boolean unmapped = false;
+
+	/**
+	 *
+	 * @param ach
+	 * @param mappedExecutor
+	 * @param mapper
+	 */
+	MigratableActivityEventRouterExecutor(ActivityContextHandle ach,
+			EventRouterExecutor mappedExecutor,
+			ActivityHashingEventRouterExecutorMapper mapper) {
+		this.ach = ach;
+		this.mapper = mapper;
+		this.mappedExecutor = mappedExecutor;
+		this.executor = mappedExecutor.getActivityExecutor(ach);
+	}
+
+	ActivityContextHandle getActivityContextHandle() {
+		return ach;
+	}
+
+	/**
+	 * Retrieves the executor currently mapped to the activity, or the one the
+	 * activity is migrating to.
+	 *
+	 * @return
+	 */
+	EventRouterExecutor getMappedExecutor() {
+		final EventRouterExecutor target = migratingTo;
+		return target != null ? target : mappedExecutor;
+	}
+
+	/**
+	 * Migrates the activity to the specified executor, once all tasks
+	 * submitted till now are executed.
+	 *
+	 * @param newMappedExecutor
+	 */
+	synchronized void migrate(EventRouterExecutor newMappedExecutor) {
+		if (unmapped) {
+			return;
+		}
+		if (migratingTo != null) {
+			// barrier already queued, just retarget the migration
+			migratingTo = newMappedExecutor;
+			return;
+		}
+		if (newMappedExecutor == mappedExecutor) {
+			return;
+		}
+		migratingTo = newMappedExecutor;
+		heldTasks = new ArrayList<Object>();
+		// from now on submissions are held, wait for the lock free ones in
+		// progress to reach the current executor, so they run before the barrier
+		int s = state.addAndGet(MIGRATING);
+		while (s != MIGRATING) {
+			Thread.yield();
+			s = state.get();
+		}
+		executor.execute(new Runnable() {
+			public void run() {
+				completeMigration();
+			}
+		});
+	}
+
+	private synchronized void completeMigration() {
+		final List<Object> tasks = heldTasks;
+		if (migratingTo != mappedExecutor) {
+			if (!unmapped) {
+				mappedExecutor.activityUnmapped(ach);
+			}
+			mappedExecutor = migratingTo;
+			executor = mappedExecutor.getActivityExecutor(ach);
+			if (!unmapped) {
+				mappedExecutor.activityMapped(ach);
+			}
+		}
+		for (Object task : tasks) {
+			submit(executor, task);
+		}
+		heldTasks = null;
+		migratingTo = null;
+		state.addAndGet(-MIGRATING);
+	}
+
+	private static void submit(EventRouterExecutor executor, Object task) {
+		if (task instanceof EventContext) {
+			executor.routeEvent((EventContext) task);
+		} else {
+			executor.execute((Runnable) task);
+		}
+	}
+
+	/**
+	 * Submits the task or event to the current executor, holding it if a
+	 * migration is in progress.
+	 * 
+	 * @param task
+	 */
+	private void submit(Object task) {
+		int s = state.get();
+		while ((s & MIGRATING) == 0) {
+			if (state.compareAndSet(s, s + 1)) {
+				try {
+					submit(executor, task);
+				} finally {
+					state.decrementAndGet();
+				}
+				return;
+			}
+			s = state.get();
+		}
+		synchronized (this) {
+			if (heldTasks != null) {
+				heldTasks.add(task);
+				return;
+			}
+		}
+		// the migration completed meanwhile
+		submit(task);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#activityMapped
+	 * (org.mobicents.slee.container.activity.ActivityContextHandle)
+	 */
+	public synchronized void activityMapped(ActivityContextHandle ach) {
+		executor.activityMapped(ach);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#activityUnmapped
+	 * (org.mobicents.slee.container.activity.ActivityContextHandle)
+	 */
+	public void activityUnmapped(ActivityContextHandle ach) {
+		synchronized (this) {
+			unmapped = true;
+			executor.activityUnmapped(ach);
+		}
+		mapper.activityUnmapped(ach, this);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.mobicents.slee.container.eventrouter.EventRouterExecutor#
+	 * getActivityExecutor
+	 * (org.mobicents.slee.container.activity.ActivityContextHandle)
+	 */
+	public EventRouterExecutor getActivityExecutor(ActivityContextHandle ach) {
+		return this;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#execute(java
+	 * .lang.Runnable)
+	 */
+	public void execute(Runnable task) {
+		submit(task);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#executeNow
+	 * (java.lang.Runnable)
+	 */
+	public void executeNow(Runnable task) throws InterruptedException,
+			ExecutionException {
+		final FutureTask<Object> futureTask = new FutureTask<Object>(task, null);
+		execute(futureTask);
+		futureTask.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#getStatistics
+	 * ()
+	 */
+	public EventRouterExecutorStatistics getStatistics() {
+		return executor.getStatistics();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.mobicents.slee.container.eventrouter.EventRouterExecutor#
+	 * getEventContextPool()
+	 */
+	public EventContextPool getEventContextPool() {
+		// contexts keep the pool they were taken from, thus may be returned
+		// to the previous executor pool after a migration, which is harmless
+		return executor.getEventContextPool();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#routeEvent
+	 * (org.mobicents.slee.container.event.EventContext)
+	 */
+	public void routeEvent(EventContext event) {
+		submit(event);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#shutdown()
+	 */
+	public void shutdown() {
+		// the executors are shutdown by the event router
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.mobicents.slee.container.eventrouter.EventRouterExecutor#getQueueLenth
+	 * ()
+	 */
+	public int getQueueLenth() {
+		// an approximation while migrating, the held tasks are not guarded
+		final List<Object> tasks = heldTasks;
+		return tasks == null ? executor.getQueueLenth() : executor
+				.getQueueLenth()
+				+ tasks.size();
+	}
+
+	@Override
+	public String toString() {
+		return "MigratableActivityEventRouterExecutor[" + ach + "]";
+	}
+}
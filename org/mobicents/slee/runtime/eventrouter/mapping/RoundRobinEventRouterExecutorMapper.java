@@ -29,6 +29,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.mobicents.slee.container.activity.ActivityContextHandle;
 import org.mobicents.slee.container.eventrouter.EventRouterExecutor;
+import org.mobicents.slee.runtime.eventrouter.EventRouterImpl;
 
 /**
  * Round Robin {@link EventRouterExecutor} to {@link ActivityContextHandle} mapping.
@@ -46,8 +47,8 @@ public class RoundRobinEventRouterExecutorMapper extends AbstractEventRouterExec
 	 * @see org.mobicents.slee.runtime.eventrouter.mapping.AbstractEventRouterExecutorMapper#setExecutors(org.mobicents.slee.runtime.eventrouter.EventRouterExecutor[])
 	 */
 	@Override
-	public void setExecutors(EventRouterExecutor[] executors) {
-		super.setExecutors(executors);
+	public void setExecutors(EventRouterImpl eventRouter, EventRouterExecutor[] executors) {
+		super.setExecutors(eventRouter, executors);
 		//reset index
 		index = new AtomicInteger(0);
 	}
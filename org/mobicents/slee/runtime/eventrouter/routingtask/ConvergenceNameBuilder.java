@@ -0,0 +1,124 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.eventrouter.routingtask;
+
+/**
+ * Reusable builder of convergence names, one per thread, which avoids the
+ * intermediate strings and builders of each initial event processing. The
+ * name is only turned into a {@link String} if not found in the
+ * {@link ConvergenceNameIndex}.
+ * 
+ */
+final class ConvergenceNameBuilder {
+
+	private static final ThreadLocal<ConvergenceNameBuilder> builders = new ThreadLocal<ConvergenceNameBuilder>() {
+		protected ConvergenceNameBuilder initialValue() {
+			return new ConvergenceNameBuilder();
+		}
+	};
+
+	/**
+	 * the max capacity kept between uses, larger buffers are replaced so a
+	 * single huge name does not stay around
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 1024;
+
+	private StringBuilder buffer = new StringBuilder(128);
+
+	private ConvergenceNameBuilder() {
+	}
+
+	/**
+	 * Retrieves the builder of the current thread, reset.
+	 * 
+	 * @return
+	 */
+	static ConvergenceNameBuilder get() {
+		final ConvergenceNameBuilder builder = builders.get();
+		if (builder.buffer.capacity() > MAX_RETAINED_CAPACITY) {
+			builder.buffer = new StringBuilder(128);
+		} else {
+			builder.buffer.setLength(0);
+		}
+		return builder;
+	}
+
+	ConvergenceNameBuilder append(int i) {
+		buffer.append(i);
+		return this;
+	}
+
+	ConvergenceNameBuilder append(char c) {
+		buffer.append(c);
+		return this;
+	}
+
+	ConvergenceNameBuilder append(String s) {
+		buffer.append(s);
+		return this;
+	}
+
+	ConvergenceNameBuilder append(Object o) {
+		buffer.append(o);
+		return this;
+	}
+
+	/**
+	 * Computes the hash of the name, same as {@link String#hashCode()} of the
+	 * built name.
+	 * 
+	 * @return
+	 */
+	int hash() {
+		int h = 0;
+		final int length = buffer.length();
+		for (int i = 0; i < length; i++) {
+			h = 31 * h + buffer.charAt(i);
+		}
+		return h;
+	}
+
+	/**
+	 * Indicates if the name built is equal to the specified string.
+	 * 
+	 * @param s
+	 * @return
+	 */
+	boolean contentEquals(String s) {
+		final int length = buffer.length();
+		if (s.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (s.charAt(i) != buffer.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return buffer.toString();
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.eventrouter.routingtask;
+
+import javax.slee.ServiceID;
+
+import org.mobicents.slee.container.sbbentity.SbbEntityID;
+import org.mobicents.slee.runtime.sbbentity.RootSbbEntityID;
+
+/**
+ * Bounded local index of convergence names to root {@link SbbEntityID}s,
+ * which allows the processing of initial events with a recently seen
+ * convergence name, e.g. retransmissions or requests of the same address,
+ * to reuse the root sbb entity id, without creating the name string. The
+ * index is direct mapped, a new name simply replaces the one in its slot.
+ * 
+ * <p>
+ * The index says nothing about the existence of the sbb entity, which still
+ * must be checked by the sbb entity factory.
+ * 
+ */
+final class ConvergenceNameIndex {
+
+	/**
+	 * an immutable index entry, thus entries may be published without
+	 * synchronization
+	 */
+	private static final class Entry {
+
+		final int hash;
+		final ServiceID serviceID;
+		final String convergenceName;
+		final SbbEntityID sbbEntityID;
+
+		Entry(int hash, ServiceID serviceID, String convergenceName,
+				SbbEntityID sbbEntityID) {
+			this.hash = hash;
+			this.serviceID = serviceID;
+			this.convergenceName = convergenceName;
+			this.sbbEntityID = sbbEntityID;
+		}
+	}
+
+	private final Entry[] entries;
+
+	private final int mask;
+
+	/**
+	 * 
+	 * @param size
+	 *            the max number of entries, rounded up to a power of two
+	 */
+	ConvergenceNameIndex(int size) {
+		int capacity = 1;
+		while (capacity < size) {
+			capacity <<= 1;
+		}
+		this.entries = new Entry[capacity];
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Retrieves the root sbb entity id for the specified service and the
+	 * convergence name in the builder.
+	 * 
+	 * @param serviceID
+	 * @param builder
+	 * @return
+	 */
+	SbbEntityID getRootSbbEntityID(ServiceID serviceID,
+			ConvergenceNameBuilder builder) {
+		final int hash = builder.hash();
+		int slot = hash * 31 + serviceID.hashCode();
+		slot ^= slot >>> 16;
+		slot &= mask;
+		final Entry entry = entries[slot];
+		if (entry != null && entry.hash == hash
+				&& entry.serviceID.equals(serviceID)
+				&& builder.contentEquals(entry.convergenceName)) {
+			return entry.sbbEntityID;
+		}
+		final String convergenceName = builder.toString();
+		final SbbEntityID sbbEntityID = new RootSbbEntityID(serviceID,
+				convergenceName);
+		entries[slot] = new Entry(hash, serviceID, convergenceName,
+				sbbEntityID);
+		return sbbEntityID;
+	}
+
+}
@@ -84,7 +84,7 @@ public class EventRoutingTaskImpl implements EventRoutingTask {
 	/**
 	 * 
 	 */
-	private final EventContext eventContext;
+	private EventContext eventContext;
 	
 	/**
 	 * indicates which phase we are in routing of event
@@ -100,6 +100,17 @@ public class EventRoutingTaskImpl implements EventRoutingTask {
 		this.container = sleeContainer;
 	}
 	
+	/**
+	 * Prepares the task to route another event, which allows an executor to
+	 * reuse the task once the routing of the previous event ends.
+	 * 
+	 * @param eventContext
+	 */
+	public void reset(EventContext eventContext) {
+		this.eventContext = eventContext;
+		this.routingPhase = RoutingPhase.DELIVERING;
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.mobicents.slee.container.eventrouter.EventRoutingTask#getEventContext()
 	 */
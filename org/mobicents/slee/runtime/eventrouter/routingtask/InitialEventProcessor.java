@@ -47,31 +47,40 @@ import org.mobicents.slee.container.profile.ProfileTable;
 import org.mobicents.slee.container.sbb.SbbObject;
 import org.mobicents.slee.container.sbb.SbbObjectPool;
 import org.mobicents.slee.container.sbbentity.SbbEntity;
+import org.mobicents.slee.container.sbbentity.SbbEntityID;
 
 public class InitialEventProcessor {
 
 	private static final Logger logger = Logger.getLogger(InitialEventProcessor.class);
 
 	private static final char NOT_SELECTED = '_';
-	private static final String NOT_SELECTED_STRING = "_";
 	private static final String ALL_NOT_SELECTED_EXCEPT_AC = "____";
 	
+	/**
+	 * the max number of convergence names in the local index
+	 */
+	private static final int CONVERGENCE_NAME_INDEX_SIZE = 4096;
+	
+	private final ConvergenceNameIndex convergenceNameIndex = new ConvergenceNameIndex(CONVERGENCE_NAME_INDEX_SIZE);
+	
 	/**
 	 * Compute a convergence name for the Sbb for the given Slee event.
-	 * Convergence names are used to instantiate the Sbb. I really ought to move
-	 * this to SleeContainer.java
+	 * Convergence names are used to instantiate the Sbb. The name is built in
+	 * the thread's {@link ConvergenceNameBuilder}, and the root sbb entity id
+	 * retrieved from the local {@link ConvergenceNameIndex}, thus a name
+	 * recently computed does not create any string.
 	 * 
 	 * @param eventContext -
 	 *            slee event for the convergence name computation
-	 * @return the convergence name or null if this is not an initial event for
-	 *         this service
+	 * @return the id of the root sbb entity with the convergence name, or null
+	 *         if this is not an initial event for this service
 	 */
-	private String computeConvergenceName(EventContext eventContext,
+	private SbbEntityID computeConvergenceName(EventContext eventContext,
 			ServiceComponent serviceComponent, SleeContainer sleeContainer) throws Exception {
 
 		final SbbComponent sbbComponent = serviceComponent.getRootSbbComponent();
 		final EventEntryDescriptor eventEntryDescriptor = sbbComponent.getDescriptor().getEventEntries().get(eventContext.getEventTypeId());
-		StringBuilder buff = null;
+		ConvergenceNameBuilder buff = null;
 		
 		/*
 		 * An initial-event-selector-method-name element. This element is
@@ -108,16 +117,18 @@ public class InitialEventProcessor {
 				Thread.currentThread().setContextClassLoader(oldCl);
 				pool.returnObject(sbbObject);
 			}
-			// build convergence name
+			// build convergence name, the builder is only retrieved now,
+			// after the sbb code is invoked
+			buff = ConvergenceNameBuilder.get();
 			// AC VARIABLE
 			if (selector.isActivityContextSelected()) {
-				buff = new StringBuilder(Integer.toString(eventContext.getActivityContextHandle().hashCode()));
+				buff.append(eventContext.getActivityContextHandle().hashCode());
 			} else {
-				buff = new StringBuilder(NOT_SELECTED_STRING);
+				buff.append(NOT_SELECTED);
 			}
 			// ADDRESS VARIABLE
 			if (selector.isAddressSelected() && selector.getAddress() != null) {
-				buff.append(selector.getAddress().toString());
+				buff.append(selector.getAddress());
 			}
 			else {
 				buff.append(NOT_SELECTED);
@@ -158,23 +169,23 @@ public class InitialEventProcessor {
 		else {
 			// NO IES METHOD DEFINED
 			// build convergence name considering the variabes selected in sbb's xml descriptor
+			buff = ConvergenceNameBuilder.get();
 			// AC VARIABLE
 			final InitialEventSelectorVariables initialEventSelectorVariables = eventEntryDescriptor.getInitialEventSelectVariables();
 			if(initialEventSelectorVariables.isActivityContextSelected()) {
+				buff.append(eventContext.getActivityContextHandle().hashCode());
 				if (initialEventSelectorVariables.isActivityContextOnlySelected()) {
 					// special most used case where convergence name is only bound to activity context
-					return new StringBuilder(Integer.toString(eventContext.getActivityContextHandle().hashCode())).append(ALL_NOT_SELECTED_EXCEPT_AC).toString();
-				}
-				else {
-					buff = new StringBuilder(Integer.toString(eventContext.getActivityContextHandle().hashCode()));
+					buff.append(ALL_NOT_SELECTED_EXCEPT_AC);
+					return convergenceNameIndex.getRootSbbEntityID(serviceComponent.getServiceID(), buff);
 				}
 			}
 			else {
-				buff = new StringBuilder(NOT_SELECTED_STRING);
+				buff.append(NOT_SELECTED);
 			}
 			// ADDRESS VARIABLE
 			if(initialEventSelectorVariables.isAddressSelected() && eventContext.getAddress() != null) {
-				buff.append(eventContext.getAddress().toString());
+				buff.append(eventContext.getAddress());
 			}
 			else {
 				buff.append(NOT_SELECTED);
@@ -208,7 +219,7 @@ public class InitialEventProcessor {
 			}
 		}
 		
-		return buff.toString();
+		return convergenceNameIndex.getRootSbbEntityID(serviceComponent.getServiceID(), buff);
 	}
 
 	private Collection<ProfileID> getAddressProfilesMatching(Address address, ServiceComponent serviceComponent, SbbComponent sbbComponent, SleeContainer sleeContainer) throws NullPointerException, UnrecognizedProfileTableNameException, SLEEException, UnrecognizedAttributeException, AttributeNotIndexedException, AttributeTypeMismatchException {
@@ -246,27 +257,27 @@ public class InitialEventProcessor {
 		 * service deployment. The names set is composed by only one
 		 * convergence name the error is due an error in the pseudocode
 		 */
-		String name = null;
+		SbbEntityID sbbEntityID = null;
 		try {
-			name = computeConvergenceName(deferredEvent,serviceComponent,sleeContainer);
+			sbbEntityID = computeConvergenceName(deferredEvent,serviceComponent,sleeContainer);
 		}
 		catch (Exception e) {
 			logger.error("Failed to compute convergance name: "+e.getMessage(),e);
 		}
 
-		if (name != null) {
-			sbbEntity = sleeContainer.getSbbEntityFactory().createRootSbbEntity(serviceComponent.getServiceID(),name);
+		if (sbbEntityID != null) {
+			sbbEntity = sleeContainer.getSbbEntityFactory().createRootSbbEntity(sbbEntityID);
 			if (sbbEntity.isCreated()) {
 				if (logger.isDebugEnabled()) {
 					logger.debug("Computed convergence name for "+serviceComponent+" and "+deferredEvent+" is "
-							+ name + ", creating sbb entity and attaching to activity context.");
+							+ sbbEntityID.getServiceConvergenceName() + ", creating sbb entity and attaching to activity context.");
 				}
 				// set priority
 				sbbEntity.setPriority(serviceComponent.getDescriptor().getDefaultPriority());				
 			} else {
 				if (logger.isDebugEnabled()) {
 					logger.debug("Computed convergence name for "+serviceComponent.getServiceID()+" and "+deferredEvent+" is "
-							+ name + ", sbb entity already exists, attaching to activity context (if not attached yet)");
+							+ sbbEntityID.getServiceConvergenceName() + ", sbb entity already exists, attaching to activity context (if not attached yet)");
 				}				
 			}
 			// ensure sbb entity is attached to AC
@@ -83,7 +83,7 @@ public class NextSbbEntityFinder {
 		EventEntryDescriptor mEventEntry = null;
 				
 		// get the highest priority sbb from sbb entities attached to AC
-		for (Iterator<SbbEntityID> iter = ac.getSortedSbbAttachmentSet(sbbEntitiesThatHandledCurrentEvent).iterator(); iter
+		for (Iterator<SbbEntityID> iter = ac.getSortedSbbAttachmentCursor(sbbEntitiesThatHandledCurrentEvent); iter
 				.hasNext();) {
 			sbbEntityId = iter.next();
 			sbbEntity = sleeContainer.getSbbEntityFactory().getSbbEntity(sbbEntityId,true);
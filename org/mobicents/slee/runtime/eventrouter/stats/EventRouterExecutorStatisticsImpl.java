@@ -34,6 +34,7 @@ import javax.slee.EventTypeID;
 import org.mobicents.slee.container.activity.ActivityContextHandle;
 import org.mobicents.slee.container.eventrouter.stats.EventRouterExecutorStatistics;
 import org.mobicents.slee.container.eventrouter.stats.EventTypeRoutingStatistics;
+import org.mobicents.slee.container.util.concurrent.LatencyHistogram;
 
 /**
  * Impl of {@link EventRouterExecutorStatistics}. This class is not thread safe
@@ -59,8 +60,8 @@ public class EventRouterExecutorStatisticsImpl implements
 
 	private final long startTime = System.nanoTime();
 
-	private void taskExecuted(long executionTime) {
-		tasksExecuted++;
+	private void tasksExecuted(int tasks, long executionTime) {
+		tasksExecuted += tasks;
 		taskExecutingTime += executionTime;
 	}
 
@@ -89,6 +90,33 @@ public class EventRouterExecutorStatisticsImpl implements
 	 *            the time spent to route the event, in milliseconds
 	 */
 	public void eventRouted(EventTypeID eventTypeID, long routingTime) {
+		getEventTypeRoutingStatisticsOrCreate(eventTypeID).eventRouted(routingTime);
+		tasksExecuted(1, routingTime);
+	}
+
+	/**
+	 * Adds the time for multiple event routings with a specific {@link EventTypeID}.
+	 * 
+	 * @param eventTypeID
+	 *            the id of the event type
+	 * @param events
+	 *            the number of events routed
+	 * @param routingTime
+	 *            the time spent to route all events
+	 */
+	public void eventsRouted(EventTypeID eventTypeID, int events, long routingTime) {
+		getEventTypeRoutingStatisticsOrCreate(eventTypeID).eventsRouted(events, routingTime);
+		tasksExecuted(events, routingTime);
+	}
+
+	/**
+	 * Retrieves the statistics for the routing of events with a specific
+	 * {@link EventTypeID}, creating those if needed.
+	 * 
+	 * @param eventTypeID
+	 * @return
+	 */
+	public EventTypeRoutingStatisticsImpl getEventTypeRoutingStatisticsOrCreate(EventTypeID eventTypeID) {
 		EventTypeRoutingStatisticsImpl eventTypeRoutingStatistics = eventTypeRoutingStatisticsMap.get(eventTypeID);
 		if (eventTypeRoutingStatistics == null) {
 			synchronized (eventTypeRoutingStatisticsMap) {
@@ -96,8 +124,7 @@ public class EventRouterExecutorStatisticsImpl implements
 				eventTypeRoutingStatisticsMap.put(eventTypeID, eventTypeRoutingStatistics); 
 			}
 		}
-		eventTypeRoutingStatistics.eventRouted(routingTime);
-		taskExecuted(routingTime);
+		return eventTypeRoutingStatistics;
 	}
 
 	/*
@@ -133,6 +160,20 @@ public class EventRouterExecutorStatisticsImpl implements
 		return time == 0L ? 0L : time / events;
 	}
 	
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.eventrouter.stats.EventRouterExecutorStatistics#getEventRoutingTimeSnapshot()
+	 */
+	public LatencyHistogram.Snapshot getEventRoutingTimeSnapshot() {
+		LatencyHistogram.Snapshot snapshot = LatencyHistogram.Snapshot.empty();
+		synchronized (eventTypeRoutingStatisticsMap) {
+			for(EventTypeRoutingStatistics eventTypeRoutingStatistics : eventTypeRoutingStatisticsMap.values()) {
+				snapshot = snapshot.add(eventTypeRoutingStatistics.getRoutingTimeHistogram().snapshot(false));
+			}
+		}
+		return snapshot;
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * @see org.mobicents.slee.container.eventrouter.stats.EventRouterExecutorStatistics#getAverageEventRoutingTime(javax.slee.EventTypeID)
@@ -254,9 +295,21 @@ public class EventRouterExecutorStatisticsImpl implements
 	 *            the time spent to execute the misc task
 	 */
 	public void miscTaskExecuted(long executionTime) {
-		miscTasksExecuted++;
+		miscTasksExecuted(1, executionTime);
+	}
+
+	/**
+	 * Adds the time for multiple misc task executions.
+	 * 
+	 * @param tasks
+	 *            the number of misc tasks executed
+	 * @param executionTime
+	 *            the time spent to execute all misc tasks
+	 */
+	public void miscTasksExecuted(int tasks, long executionTime) {
+		miscTasksExecuted += tasks;
 		miscTaskExecutingTime += executionTime;
-		taskExecuted(executionTime);
+		tasksExecuted(tasks, executionTime);
 	}
 
 	/*
@@ -28,6 +28,7 @@ package org.mobicents.slee.runtime.eventrouter.stats;
 import javax.slee.EventTypeID;
 
 import org.mobicents.slee.container.eventrouter.EventRouterExecutor;
+import org.mobicents.slee.container.util.concurrent.LatencyHistogram;
 import org.mobicents.slee.container.eventrouter.stats.EventRouterExecutorStatistics;
 import org.mobicents.slee.container.eventrouter.stats.EventRouterStatistics;
 import org.mobicents.slee.container.eventrouter.stats.EventTypeRoutingStatistics;
@@ -112,6 +113,48 @@ public class EventRouterStatisticsImpl implements EventRouterStatistics {
 		return time == 0L ? 0L : time / events;
 	}
 	
+	/**
+	 * Retrieves a snapshot of the routing time histograms of events of the
+	 * specified type, merged for all executors.
+	 * 
+	 * @param eventTypeID
+	 * @param reset
+	 * @return
+	 */
+	private LatencyHistogram.Snapshot getEventRoutingTimeSnapshot(EventTypeID eventTypeID, boolean reset) {
+		LatencyHistogram.Snapshot snapshot = LatencyHistogram.Snapshot.empty();
+		for (int i = 0; i < getExecutors().length; i++) {
+			final EventRouterExecutorStatistics executorStats = getEventRouterExecutorStatistics(i);
+			if (executorStats != null) {
+				final EventTypeRoutingStatistics eventTypeRoutingStatistics = executorStats.getEventTypeRoutingStatistics(eventTypeID);
+				if (eventTypeRoutingStatistics != null) {
+					snapshot = snapshot.add(eventTypeRoutingStatistics.getRoutingTimeHistogram().snapshot(reset));
+				}
+			}
+		}
+		return snapshot;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.eventrouter.stats.EventRouterStatistics#getEventRoutingTimePercentiles(double[], boolean)
+	 */
+	public long[] getEventRoutingTimePercentiles(double[] percentiles, boolean reset) {
+		LatencyHistogram.Snapshot snapshot = LatencyHistogram.Snapshot.empty();
+		for (EventTypeID eventTypeID : eventRouter.getSleeContainer().getComponentManagement().getComponentRepository().getEventComponentIDs()) {
+			snapshot = snapshot.add(getEventRoutingTimeSnapshot(eventTypeID, reset));
+		}
+		return snapshot.getValuesAtPercentiles(percentiles);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.eventrouter.stats.EventRouterStatistics#getEventRoutingTimePercentiles(javax.slee.EventTypeID, double[], boolean)
+	 */
+	public long[] getEventRoutingTimePercentiles(EventTypeID eventTypeID, double[] percentiles, boolean reset) {
+		return getEventRoutingTimeSnapshot(eventTypeID, reset).getValuesAtPercentiles(percentiles);
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * @see org.mobicents.slee.container.eventrouter.stats.EventRouterStatistics#getAverageEventRoutingTime(int)
@@ -29,6 +29,7 @@ import javax.slee.EventTypeID;
 
 import org.mobicents.slee.container.eventrouter.stats.EventRouterExecutorStatistics;
 import org.mobicents.slee.container.eventrouter.stats.EventTypeRoutingStatistics;
+import org.mobicents.slee.container.util.concurrent.LatencyHistogram;
 
 /**
  * Impl of {@link EventRouterExecutorStatistics}. This class is not thread safe
@@ -45,6 +46,7 @@ public class EventTypeRoutingStatisticsImpl implements
 	private final EventTypeID eventTypeID;
 	private long eventsRouted = 0L;
 	private long routingTime = 0L;
+	private final LatencyHistogram routingTimeHistogram = new LatencyHistogram();
 
 	/**
 	 * 
@@ -65,6 +67,32 @@ public class EventTypeRoutingStatisticsImpl implements
 	public void eventRouted(long routingTime) {
 		this.eventsRouted++;
 		this.routingTime += routingTime;
+		routingTimeHistogram.record(routingTime);
+	}
+
+	/**
+	 * Records the time for an event routing in the routing time histogram,
+	 * without accounting the event routed, which is expected to be done
+	 * later through {@link #eventsRouted(int, long)}.
+	 * 
+	 * @param routingTime
+	 */
+	public void eventRoutingTimeSampled(long routingTime) {
+		routingTimeHistogram.record(routingTime);
+	}
+	
+	/**
+	 * Adds the time for multiple event routings, which is not recorded in the
+	 * routing time histogram.
+	 * 
+	 * @param events
+	 *            the number of events routed
+	 * @param routingTime
+	 *            the time spent to route all events
+	 */
+	public void eventsRouted(int events, long routingTime) {
+		this.eventsRouted += events;
+		this.routingTime += routingTime;
 	}
 
 	/*
@@ -108,6 +136,14 @@ public class EventTypeRoutingStatisticsImpl implements
 		return routingTime;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.slee.container.eventrouter.stats.EventTypeRoutingStatistics#getRoutingTimeHistogram()
+	 */
+	public LatencyHistogram getRoutingTimeHistogram() {
+		return routingTimeHistogram;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -141,6 +177,6 @@ public class EventTypeRoutingStatisticsImpl implements
 	 */
 	@Override
 	public String toString() {
-		return eventTypeID+" routing statistics: EVENTS = "+eventsRouted+", TIME = "+routingTime+", AVERAGE "+getAverageEventRoutingTime();
+		return eventTypeID+" routing statistics: EVENTS = "+eventsRouted+", TIME = "+routingTime+", AVERAGE "+getAverageEventRoutingTime()+", "+routingTimeHistogram.snapshot(false);
 	}
 }
@@ -22,6 +22,8 @@
 
 package org.mobicents.slee.runtime.facilities;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.slee.ActivityContextInterface;
 import javax.slee.Address;
 import javax.slee.TransactionRequiredLocalException;
@@ -38,6 +40,9 @@ import org.mobicents.slee.container.management.jmx.TimerFacilityConfiguration;
 import org.mobicents.slee.container.transaction.SleeTransactionManager;
 import org.mobicents.slee.container.util.JndiRegistrationManager;
 import org.mobicents.timers.FaultTolerantScheduler;
+import org.mobicents.timers.SchedulerEngine;
+import org.mobicents.timers.ThreadPoolSchedulerEngine;
+import org.mobicents.timers.TimingWheelSchedulerEngine;
 
 /**
  * Implementation of the SLEE timer facility. timer is the timer object
@@ -90,7 +95,8 @@ public class TimerFacilityImpl extends AbstractSleeContainerModule implements Ti
 		if (scheduler != null) {
 			scheduler.shutdownNow();
 		}
-		scheduler = new FaultTolerantScheduler("timer-facility",configuration.getTimerThreads(),sleeContainer.getCluster(),(byte)10, sleeContainer.getTransactionManager().getRealTransactionManager(),new TimerFacilityTimerTaskFactory(),configuration.getPurgePeriod());
+		final SchedulerEngine engine = configuration.getTimingWheelTickDuration() > 0 ? new TimingWheelSchedulerEngine("timer-facility",Math.max(1,configuration.getTimerThreads()),configuration.getTimingWheelTickDuration(),TimeUnit.MILLISECONDS) : new ThreadPoolSchedulerEngine(configuration.getTimerThreads(),configuration.getPurgePeriod());
+		scheduler = new FaultTolerantScheduler("timer-facility",engine,sleeContainer.getCluster(),(byte)10, sleeContainer.getTransactionManager().getRealTransactionManager(),new TimerFacilityTimerTaskFactory());
 	}
 	
 	/**
@@ -0,0 +1,300 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.facilities;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.slee.facilities.TraceLevel;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.mobicents.slee.container.util.concurrent.BoundedRingBuffer;
+
+/**
+ * Outputs the traces of {@link TracerImpl}s, i.e. sends the JMX trace
+ * notifications and writes the log4j events, in a background thread. Traces
+ * are queued in a bounded ring buffer, which the thread drains in batches.
+ * When the buffer is full, warning and severe traces are output by the
+ * tracing thread, others are dropped.
+ * 
+ */
+public class TraceDispatcher {
+
+	private static final Logger logger = Logger.getLogger(TraceDispatcher.class);
+
+	/**
+	 * the max number of traces queued
+	 */
+	private static final int CAPACITY = 8192;
+
+	/**
+	 * the max number of traces output before checking if the thread should stop
+	 */
+	private static final int BATCH_SIZE = 256;
+
+	/**
+	 * the max time the thread waits for traces, before checking if it should
+	 * stop
+	 */
+	private static final long MAX_WAIT_TIME = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final BoundedRingBuffer<TraceRecord> buffer = new BoundedRingBuffer<TraceRecord>(CAPACITY);
+
+	/**
+	 * the number of traces dropped since the buffer was full
+	 */
+	private final AtomicLong droppedTraces = new AtomicLong(0L);
+
+	/**
+	 * the number of traces output by the tracing thread since the buffer was
+	 * full
+	 */
+	private final AtomicLong overflowedTraces = new AtomicLong(0L);
+
+	private volatile boolean async = true;
+
+	private volatile Thread thread;
+
+	/**
+	 * indicates the thread is parked, waiting for traces
+	 */
+	private volatile boolean waiting;
+
+	/**
+	 * A trace to output, with all the data which depends on the tracing thread
+	 * captured.
+	 */
+	static class TraceRecord {
+
+		private final TracerImpl tracer;
+		private final TraceLevel level;
+		private final String message;
+		private final Throwable t;
+		private final long sequence;
+		private final long timestamp;
+		private final LoggingEvent loggingEvent;
+
+		/**
+		 * 
+		 * @param tracer
+		 * @param level
+		 * @param message
+		 * @param t
+		 * @param sequence
+		 *            the notification sequence number, negative if no
+		 *            notification should be sent
+		 * @param log4jLevel
+		 *            the level of the log4j event, null if no event should be
+		 *            written
+		 */
+		TraceRecord(TracerImpl tracer, TraceLevel level, String message,
+				Throwable t, long sequence, Level log4jLevel) {
+			this.tracer = tracer;
+			this.level = level;
+			this.message = message;
+			this.t = t;
+			this.sequence = sequence;
+			this.timestamp = System.currentTimeMillis();
+			if (log4jLevel != null) {
+				loggingEvent = new LoggingEvent(TracerImpl.class.getName(),
+						tracer.getLogger(), timestamp, log4jLevel, message, t);
+				// capture the tracing thread context, as log4j's AsyncAppender
+				loggingEvent.getThreadName();
+				loggingEvent.getNDC();
+				loggingEvent.getMDCCopy();
+			} else {
+				loggingEvent = null;
+			}
+		}
+
+		TraceLevel getLevel() {
+			return level;
+		}
+
+		void output() {
+			if (sequence >= 0L) {
+				tracer.sendNotification(level, message, t, sequence, timestamp);
+			}
+			if (loggingEvent != null) {
+				tracer.getLogger().callAppenders(loggingEvent);
+			}
+		}
+	}
+
+	private final Runnable drainer = new Runnable() {
+		public void run() {
+			final Thread currentThread = Thread.currentThread();
+			while (thread == currentThread) {
+				if (drain(BATCH_SIZE) == 0) {
+					waiting = true;
+					if (buffer.isEmpty() && thread == currentThread) {
+						LockSupport.parkNanos(this, MAX_WAIT_TIME);
+					}
+					else {
+						// a trace is being published
+						Thread.yield();
+					}
+					waiting = false;
+				}
+			}
+		}
+	};
+
+	/**
+	 * Starts the background thread.
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			return;
+		}
+		final Thread thread = new Thread(drainer, "SLEE-TraceDispatcher");
+		thread.setDaemon(true);
+		this.thread = thread;
+		thread.start();
+	}
+
+	/**
+	 * Stops the background thread, and outputs the traces still queued.
+	 */
+	public synchronized void stop() {
+		final Thread thread = this.thread;
+		if (thread == null) {
+			return;
+		}
+		this.thread = null;
+		LockSupport.unpark(thread);
+		try {
+			thread.join(TimeUnit.NANOSECONDS.toMillis(MAX_WAIT_TIME) * 10);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		while (drain(BATCH_SIZE) > 0) {
+			// keep draining
+		}
+	}
+
+	/**
+	 * Outputs the specified trace, in the background thread if running and
+	 * async output is enabled.
+	 * 
+	 * @param record
+	 */
+	void dispatch(TraceRecord record) {
+		final Thread thread = this.thread;
+		if (thread == null || !async) {
+			output(record);
+		}
+		else if (buffer.offer(record)) {
+			if (waiting) {
+				LockSupport.unpark(thread);
+			}
+		}
+		else {
+			if (record.getLevel().isHigherLevel(TraceLevel.INFO)) {
+				// warning or severe, don't lose it
+				overflowedTraces.incrementAndGet();
+				output(record);
+			}
+			else {
+				droppedTraces.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Outputs queued traces, up to the specified number.
+	 * 
+	 * @param max
+	 * @return the number of traces output
+	 */
+	private int drain(int max) {
+		TraceRecord record = null;
+		int i = 0;
+		for (; i < max; i++) {
+			record = buffer.poll();
+			if (record == null) {
+				break;
+			}
+			output(record);
+		}
+		return i;
+	}
+
+	private void output(TraceRecord record) {
+		try {
+			record.output();
+		}
+		catch (Throwable e) {
+			logger.error("Failed to output trace", e);
+		}
+	}
+
+	/**
+	 * Indicates if traces are output in the background thread.
+	 * 
+	 * @return
+	 */
+	public boolean isAsync() {
+		return async;
+	}
+
+	/**
+	 * Defines if traces are output in the background thread.
+	 * 
+	 * @param async
+	 */
+	public void setAsync(boolean async) {
+		this.async = async;
+	}
+
+	/**
+	 * Retrieves the number of traces dropped since the buffer was full.
+	 * 
+	 * @return
+	 */
+	public long getDroppedTraces() {
+		return droppedTraces.get();
+	}
+
+	/**
+	 * Retrieves the number of warning and severe traces output by the tracing
+	 * thread since the buffer was full.
+	 * 
+	 * @return
+	 */
+	public long getOverflowedTraces() {
+		return overflowedTraces.get();
+	}
+
+	/**
+	 * Retrieves the number of traces queued.
+	 * 
+	 * @return
+	 */
+	public int getQueuedTraces() {
+		return buffer.size();
+	}
+}
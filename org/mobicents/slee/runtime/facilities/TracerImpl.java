@@ -55,11 +55,19 @@ public class TracerImpl implements Tracer {
 	
 	private TraceLevel level;
 	
+	/**
+	 * the level of this tracer, or the inherited one if not set, cached to
+	 * avoid walking the parents in each trace
+	 */
+	private volatile TraceLevel effectiveLevel;
+	
 	private final Logger logger;
 	
 	private final NotificationSourceWrapperImpl notificationSource;
 	
 	private final TraceMBeanImpl traceMBean;
+	
+	private final TraceDispatcher traceDispatcher;
 
 	private final String name;
 	
@@ -67,13 +75,13 @@ public class TracerImpl implements Tracer {
 		
 	private boolean requestedBySource = false;
 	
-	private boolean configEnabled = false;
-	private boolean infoEnabled = false;
-	private boolean fineEnabled = false;
-	private boolean finerEnabled = false;
-	private boolean finestEnabled = false;
-	private boolean warningEnabled = false;
-	private boolean severeEnabled = false;
+	private volatile boolean configEnabled = false;
+	private volatile boolean infoEnabled = false;
+	private volatile boolean fineEnabled = false;
+	private volatile boolean finerEnabled = false;
+	private volatile boolean finestEnabled = false;
+	private volatile boolean warningEnabled = false;
+	private volatile boolean severeEnabled = false;
 	
 	private final ConcurrentLinkedQueue<TracerImpl> childs = new ConcurrentLinkedQueue<TracerImpl>(); 
 	
@@ -89,6 +97,7 @@ public class TracerImpl implements Tracer {
 		this.logger = Logger.getLogger(tracerNameToLog4JLoggerName(name, notificationSource.getNotificationSource()));
 		this.notificationSource = notificationSource;
 		this.traceMBean = traceMBean;
+		this.traceDispatcher = traceMBean.getTraceDispatcher();
 		syncLevelWithLog4j();
 	}
 	
@@ -113,6 +122,7 @@ public class TracerImpl implements Tracer {
 	void syncLevelWithLog4j() {
 		// get the level from log4j, only the root one uses effective level
 		Level log4jLevel = parent == null ? logger.getEffectiveLevel() : logger.getLevel();
+		final TraceLevel oldLevel = level;
 		if (level == null) {
 			// set the level
 			assignLog4JLevel(log4jLevel);
@@ -129,8 +139,8 @@ public class TracerImpl implements Tracer {
 			logger.setLevel(Level.INFO);
 			level = TraceLevel.INFO;			
 		}
-		// reset the flags
-		resetCacheFlags(false);
+		// reset the flags, and the ones of childs inheriting the level if it changed
+		resetCacheFlags(level != oldLevel);
 	}
 	
 	/**
@@ -165,68 +175,15 @@ public class TracerImpl implements Tracer {
 	 * manages the flags which cache if levels are enabled
 	 */
 	void resetCacheFlags(boolean resetChilds) {
-		if (isTraceable(TraceLevel.FINEST)) {
-			finestEnabled = true;
-			finerEnabled = true;
-			fineEnabled = true;
-			configEnabled = true;
-			infoEnabled = true;
-			warningEnabled = true;
-			severeEnabled = true;
-		}
-		else {
-			finestEnabled = false;
-			if (isTraceable(TraceLevel.FINER)) {
-				finerEnabled = true;
-				fineEnabled = true;
-				configEnabled = true;
-				infoEnabled = true;
-				warningEnabled = true;
-				severeEnabled = true;
-			}
-			else {
-				finerEnabled = false;
-				if (isTraceable(TraceLevel.FINE)) {
-					fineEnabled = true;
-					configEnabled = true;
-					infoEnabled = true;
-					warningEnabled = true;
-					severeEnabled = true;
-				}
-				else {
-					fineEnabled = false;
-					if (isTraceable(TraceLevel.CONFIG)) {
-						configEnabled = true;
-						infoEnabled = true;
-						warningEnabled = true;
-						severeEnabled = true;
-					}
-					else {
-						if (isTraceable(TraceLevel.INFO)) {
-							infoEnabled = true;
-							warningEnabled = true;
-							severeEnabled = true;
-						}
-						else {
-							infoEnabled = false;
-							if (isTraceable(TraceLevel.WARNING)) {
-								warningEnabled = true;
-								severeEnabled = true;
-							}
-							else {
-								warningEnabled = false;
-								if (isTraceable(TraceLevel.SEVERE)) {
-									severeEnabled = true;
-								}
-								else {
-									severeEnabled = false;
-								}
-							}
-						}
-					}
-				}
-			}
-		}
+		final TraceLevel effectiveLevel = getTraceLevel();
+		this.effectiveLevel = effectiveLevel;
+		finestEnabled = !effectiveLevel.isHigherLevel(TraceLevel.FINEST);
+		finerEnabled = !effectiveLevel.isHigherLevel(TraceLevel.FINER);
+		fineEnabled = !effectiveLevel.isHigherLevel(TraceLevel.FINE);
+		configEnabled = !effectiveLevel.isHigherLevel(TraceLevel.CONFIG);
+		infoEnabled = !effectiveLevel.isHigherLevel(TraceLevel.INFO);
+		warningEnabled = !effectiveLevel.isHigherLevel(TraceLevel.WARNING);
+		severeEnabled = !effectiveLevel.isHigherLevel(TraceLevel.SEVERE);
 		if (resetChilds) {
 			// implicit change of level demands that we update reset flags on childs without level
 			for(TracerImpl child : childs) {
@@ -242,8 +199,7 @@ public class TracerImpl implements Tracer {
 	 */
 	public void config(String message) throws NullPointerException,
 			FacilityException {
-		sendNotification(TraceLevel.CONFIG, message, null);
-		logger.info(message);		
+		trace(TraceLevel.CONFIG, Level.INFO, message, null);
 	}
 	
 	/* (non-Javadoc)
@@ -251,8 +207,7 @@ public class TracerImpl implements Tracer {
 	 */
 	public void config(String message, Throwable t)
 			throws NullPointerException, FacilityException {
-		sendNotification(TraceLevel.CONFIG, message, t);
-		logger.info(message,t);		
+		trace(TraceLevel.CONFIG, Level.INFO, message, t);
 	}
 	
 	/* (non-Javadoc)
@@ -260,51 +215,42 @@ public class TracerImpl implements Tracer {
 	 */
 	public void fine(String message) throws NullPointerException,
 			FacilityException {
-		sendNotification(TraceLevel.FINE, message, null);
-		logger.debug(message);
-		
+		trace(TraceLevel.FINE, Level.DEBUG, message, null);
 	}
 	/* (non-Javadoc)
 	 * @see javax.slee.facilities.Tracer#fine(java.lang.String, java.lang.Throwable)
 	 */
 	public void fine(String message, Throwable t) throws NullPointerException,
 			FacilityException {
-		sendNotification(TraceLevel.FINE, message, t);
-		logger.debug(message,t);		
+		trace(TraceLevel.FINE, Level.DEBUG, message, t);
 	}
 	/* (non-Javadoc)
 	 * @see javax.slee.facilities.Tracer#finer(java.lang.String)
 	 */
 	public void finer(String message) throws NullPointerException,
 			FacilityException {
-		sendNotification(TraceLevel.FINER, message, null);
-		logger.debug(message);
-		
+		trace(TraceLevel.FINER, Level.DEBUG, message, null);
 	}
 	/* (non-Javadoc)
 	 * @see javax.slee.facilities.Tracer#finer(java.lang.String, java.lang.Throwable)
 	 */
 	public void finer(String message, Throwable t) throws NullPointerException,
 			FacilityException {
-		sendNotification(TraceLevel.FINER, message, t);
-		logger.debug(message,t);
+		trace(TraceLevel.FINER, Level.DEBUG, message, t);
 	}
 	/* (non-Javadoc)
 	 * @see javax.slee.facilities.Tracer#finest(java.lang.String)
 	 */
 	public void finest(String message) throws NullPointerException,
 			FacilityException {
-		sendNotification(TraceLevel.FINEST, message, null);
-		logger.trace(message);
-		
+		trace(TraceLevel.FINEST, Level.TRACE, message, null);
 	}
 	/* (non-Javadoc)
 	 * @see javax.slee.facilities.Tracer#finest(java.lang.String, java.lang.Throwable)
 	 */
 	public void finest(String message, Throwable t)
 			throws NullPointerException, FacilityException {
-		sendNotification(TraceLevel.FINEST, message, t);
-		logger.trace(message,t);		
+		trace(TraceLevel.FINEST, Level.TRACE, message, t);
 	}
 	
 	/* (non-Javadoc)
@@ -333,18 +279,14 @@ public class TracerImpl implements Tracer {
 	 */
 	public void info(String message) throws NullPointerException,
 			FacilityException {
-		sendNotification(TraceLevel.INFO, message, null);
-		logger.info(message);
-		
+		trace(TraceLevel.INFO, Level.INFO, message, null);
 	}
 	/* (non-Javadoc)
 	 * @see javax.slee.facilities.Tracer#info(java.lang.String, java.lang.Throwable)
 	 */
 	public void info(String message, Throwable t) throws NullPointerException,
 			FacilityException {
-		sendNotification(TraceLevel.INFO, message, t);
-		logger.info(message,t);
-		
+		trace(TraceLevel.INFO, Level.INFO, message, t);
 	}
 	/* (non-Javadoc)
 	 * @see javax.slee.facilities.Tracer#isConfigEnabled()
@@ -387,7 +329,7 @@ public class TracerImpl implements Tracer {
 	 */
 	public boolean isTraceable(TraceLevel traceLevel) throws NullPointerException,
 			FacilityException {
-		return !getTraceLevel().isHigherLevel(traceLevel);
+		return !effectiveLevel.isHigherLevel(traceLevel);
 	}
 	/* (non-Javadoc)
 	 * @see javax.slee.facilities.Tracer#isWarningEnabled()
@@ -400,16 +342,14 @@ public class TracerImpl implements Tracer {
 	 */
 	public void severe(String message) throws NullPointerException,
 			FacilityException {
-		sendNotification(TraceLevel.SEVERE, message, null);
-		logger.error(message);		
+		trace(TraceLevel.SEVERE, Level.ERROR, message, null);
 	}
 	/* (non-Javadoc)
 	 * @see javax.slee.facilities.Tracer#severe(java.lang.String, java.lang.Throwable)
 	 */
 	public void severe(String message, Throwable t)
 			throws NullPointerException, FacilityException {
-		sendNotification(TraceLevel.SEVERE, message, t);
-		logger.error(message,t);
+		trace(TraceLevel.SEVERE, Level.ERROR, message, t);
 	}
 	/* (non-Javadoc)
 	 * @see javax.slee.facilities.Tracer#trace(javax.slee.facilities.TraceLevel, java.lang.String)
@@ -417,8 +357,7 @@ public class TracerImpl implements Tracer {
 	public void trace(TraceLevel traceLevel, String message)
 			throws NullPointerException, IllegalArgumentException,
 			FacilityException {
-		sendNotification(traceLevel, message, null);
-		logger.log(tracerToLog4JLevel(traceLevel), message);		
+		trace(traceLevel, tracerToLog4JLevel(traceLevel), message, null);
 	}
 	
 	/* (non-Javadoc)
@@ -427,37 +366,72 @@ public class TracerImpl implements Tracer {
 	public void trace(TraceLevel traceLevel, String message, Throwable t)
 			throws NullPointerException, IllegalArgumentException,
 			FacilityException {
-		sendNotification(traceLevel, message, t);
-		logger.log(tracerToLog4JLevel(traceLevel), message,t);
-		
+		trace(traceLevel, tracerToLog4JLevel(traceLevel), message, t);
 	}
 	/* (non-Javadoc)
 	 * @see javax.slee.facilities.Tracer#warning(java.lang.String)
 	 */
 	public void warning(String message) throws NullPointerException,
 			FacilityException {
-		sendNotification(TraceLevel.WARNING, message, null);
-		logger.warn(message);		
+		trace(TraceLevel.WARNING, Level.WARN, message, null);
 	}
 	/* (non-Javadoc)
 	 * @see javax.slee.facilities.Tracer#warning(java.lang.String, java.lang.Throwable)
 	 */
 	public void warning(String message, Throwable t)
 			throws NullPointerException, FacilityException {
-		sendNotification(TraceLevel.WARNING, message, t);
-		logger.warn(message,t);		
+		trace(TraceLevel.WARNING, Level.WARN, message, t);
 	}
 	
 	/**
-	 * THis is internaly called, by 1.1 tracers
+	 * Dispatches the trace notification, if the tracer level allows it, and
+	 * the log4j event, if the logger level allows it. The args are validated
+	 * here, in the caller thread, since the notification is only created by
+	 * the {@link TraceDispatcher}.
 	 * 
-	 * @param src
-	 */
-	void sendNotification(javax.slee.facilities.TraceLevel level, String message, Throwable t) {
-		if (!isTraceable(level)) {
-			return;
+	 * @param level
+	 * @param log4jLevel
+	 * @param message
+	 * @param t
+	 * @throws NullPointerException
+	 *             if the message is null
+	 * @throws IllegalArgumentException
+	 *             if the level is {@link TraceLevel#OFF}
+	 */
+	private void trace(TraceLevel level, Level log4jLevel, String message, Throwable t) throws NullPointerException, IllegalArgumentException {
+		if (message == null) {
+			throw new NullPointerException("null message");
+		}
+		if (level.isOff()) {
+			throw new IllegalArgumentException("trace level OFF is not valid to trace a message");
+		}
+		final boolean notify = isTraceable(level);
+		final boolean log = logger.isEnabledFor(log4jLevel);
+		if (notify || log) {
+			traceDispatcher.dispatch(new TraceDispatcher.TraceRecord(this, level, message, t, notify ? notificationSource.getNextSequence() : -1L, log ? log4jLevel : null));
 		}
-		traceMBean.sendNotification(new TraceNotification(notificationSource.getNotificationSource().getTraceNotificationType(), traceMBean, notificationSource.getNotificationSource(), getTracerName(), level, message, t, notificationSource.getNextSequence(), System.currentTimeMillis()));
+	}
+	
+	/**
+	 * Sends a trace notification, invoked by the {@link TraceDispatcher}.
+	 * 
+	 * @param level
+	 * @param message
+	 * @param t
+	 * @param sequence
+	 * @param timestamp
+	 */
+	void sendNotification(TraceLevel level, String message, Throwable t, long sequence, long timestamp) {
+		traceMBean.sendNotification(new TraceNotification(notificationSource.getNotificationSource().getTraceNotificationType(), traceMBean, notificationSource.getNotificationSource(), getTracerName(), level, message, t, sequence, timestamp));
+	}
+	
+	/**
+	 * Retrieves the log4j logger of this tracer.
+	 * 
+	 * @return
+	 */
+	Logger getLogger() {
+		return logger;
 	}
 	
 	/**
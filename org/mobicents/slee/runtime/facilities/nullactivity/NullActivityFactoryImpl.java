@@ -23,6 +23,7 @@
 package org.mobicents.slee.runtime.facilities.nullactivity;
 
 import javax.slee.FactoryException;
+import javax.slee.SLEEException;
 import javax.slee.TransactionRequiredLocalException;
 import javax.slee.management.SleeState;
 import javax.slee.nullactivity.NullActivity;
@@ -98,6 +99,11 @@ public class NullActivityFactoryImpl extends AbstractSleeContainerModule
 			sleeContainer.getTransactionManager().mandateTransaction();
 		}
 
+		// ra activities are checked by the slee endpoint
+		if (sleeContainer.getCongestionControl().refuseStartActivity()) {
+			throw new SLEEException("congestion control refused activity start");
+		}
+
 		// create activity
 		NullActivityImpl nullActivity = new NullActivityImpl(nullActivityHandle);
 		// get an activity context for it
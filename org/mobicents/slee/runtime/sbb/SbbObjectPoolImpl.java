@@ -27,6 +27,7 @@ import javax.slee.ServiceID;
 import org.apache.commons.pool.ObjectPool;
 import org.apache.log4j.Logger;
 import org.mobicents.slee.container.component.sbb.SbbComponent;
+import org.mobicents.slee.container.util.concurrent.AffinityObjectPool;
 import org.mobicents.slee.container.sbb.SbbObject;
 import org.mobicents.slee.container.sbb.SbbObjectPool;
 
@@ -79,6 +80,33 @@ public class SbbObjectPoolImpl implements SbbObjectPool {
 		}
 	}
 	
+	/**
+	 * Adds idle objects to the pool, up to the specified number.
+	 * 
+	 * @param numIdle
+	 * @throws Exception
+	 */
+	public void warmUp(int numIdle) throws Exception {
+		for (int i = pool.getNumIdle(); i < numIdle; i++) {
+			pool.addObject();
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("warmed up " + this);
+		}
+	}
+	
+	/**
+	 * Adds the pool stats to the specified statistics, if the wrapped pool
+	 * collects these.
+	 * 
+	 * @param statistics
+	 */
+	public void addStatistics(AffinityObjectPool.Statistics statistics) {
+		if (pool instanceof AffinityObjectPool) {
+			((AffinityObjectPool) pool).addStatistics(statistics);
+		}
+	}
+	
 	@Override
 	public String toString() {
 		return "Sbb Object Pool ( "+sbbComponent+", "+serviceID+" ) : active objects = "+this.pool.getNumActive() + ", idle objects "+this.pool.getNumIdle();
@@ -30,6 +30,7 @@ import javax.slee.SbbID;
 import javax.slee.ServiceID;
 
 import org.apache.commons.pool.ObjectPool;
+import org.apache.commons.pool.PoolableObjectFactory;
 import org.apache.commons.pool.impl.GenericObjectPool;
 import org.apache.commons.pool.impl.GenericObjectPoolFactory;
 import org.apache.log4j.Logger;
@@ -37,6 +38,7 @@ import org.mobicents.slee.container.SleeContainer;
 import org.mobicents.slee.container.component.sbb.SbbComponent;
 import org.mobicents.slee.container.transaction.SleeTransactionManager;
 import org.mobicents.slee.container.transaction.TransactionalAction;
+import org.mobicents.slee.container.util.concurrent.AffinityObjectPool;
 
 /**
  * 
@@ -55,6 +57,13 @@ public class SbbObjectPoolManagementImpl implements SbbObjectPoolManagementImplM
 
 	private GenericObjectPool.Config config;
 
+	/**
+	 * off by default, affinity pools ignore the eviction and min idle config
+	 */
+	private boolean affinityPool = false;
+
+	private int warmUpSize = 0;
+
 	public SbbObjectPoolManagementImpl(SleeContainer sleeContainer) {
 		this.sleeContainer = sleeContainer;
 		// create pool config mbean with default pool configuration
@@ -100,6 +109,27 @@ public class SbbObjectPoolManagementImpl implements SbbObjectPoolManagementImplM
 		return pools.get(new ObjectPoolMapKey(serviceID,sbbID));
 	}
 
+	/**
+	 * Adds idle objects to the pool for the specified sbb and service, up to
+	 * the configured warm up size.
+	 * 
+	 * @param serviceID
+	 * @param sbbID
+	 */
+	public void warmUpObjectPool(ServiceID serviceID, SbbID sbbID) {
+		if (warmUpSize < 1) {
+			return;
+		}
+		final SbbObjectPoolImpl objectPool = getObjectPool(serviceID, sbbID);
+		if (objectPool != null) {
+			try {
+				objectPool.warmUp(warmUpSize);
+			} catch (Exception e) {
+				logger.error("Failed to warm up pool for " + serviceID + " and " + sbbID, e);
+			}
+		}
+	}
+
 	/**
 	 * Creates an object pool for the specified service and sbb. If a
 	 * transaction manager is used then, and if the tx rollbacks, the pool will
@@ -143,9 +173,7 @@ public class SbbObjectPoolManagementImpl implements SbbObjectPoolManagementImplM
 	 */
 	private void createObjectPool(final ServiceID serviceID, final SbbComponent sbbComponent) {
 		// create the pool for the given SbbID
-		GenericObjectPoolFactory poolFactory = new GenericObjectPoolFactory(
-				new SbbObjectPoolFactory(serviceID,sbbComponent), config);
-		final ObjectPool objectPool = poolFactory.createPool();
+		final ObjectPool objectPool = createPool(new SbbObjectPoolFactory(serviceID,sbbComponent));
 		final SbbObjectPoolImpl oldObjectPool = pools.put(new ObjectPoolMapKey(serviceID,sbbComponent.getSbbID()),
 				new SbbObjectPoolImpl(sbbComponent,serviceID,objectPool));
 		if (oldObjectPool != null) {
@@ -163,6 +191,22 @@ public class SbbObjectPoolManagementImpl implements SbbObjectPoolManagementImplM
 		}
 	}
 
+	/**
+	 * Creates a pool with the current configuration.
+	 * 
+	 * @param factory
+	 * @return
+	 */
+	private ObjectPool createPool(PoolableObjectFactory factory) {
+		if (affinityPool) {
+			return new AffinityObjectPool(factory, config.maxIdle,
+					config.testOnBorrow, config.testOnReturn);
+		}
+		else {
+			return new GenericObjectPoolFactory(factory, config).createPool();
+		}
+	}
+
 	/**
 	 * Removes the object pool for the sbb with the specified component and the specified service. If a
 	 * transaction manager is used then, and if the tx rollbacks, the pool will
@@ -327,6 +371,46 @@ public class SbbObjectPoolManagementImpl implements SbbObjectPoolManagementImplM
 		config.whenExhaustedAction = whenExhaustedAction;
 	}
 
+	public int getWarmUpSize() {
+		return warmUpSize;
+	}
+
+	public void setWarmUpSize(int warmUpSize) {
+		this.warmUpSize = warmUpSize;
+	}
+
+	public boolean getAffinityPool() {
+		return affinityPool;
+	}
+
+	public void setAffinityPool(boolean affinityPool) {
+		this.affinityPool = affinityPool;
+	}
+
+	public long getLocalHits() {
+		return getStatistics().getLocalHits();
+	}
+
+	public long getSharedHits() {
+		return getStatistics().getSharedHits();
+	}
+
+	public long getMisses() {
+		return getStatistics().getMisses();
+	}
+
+	public long getCreatedObjects() {
+		return getStatistics().getCreated();
+	}
+
+	private AffinityObjectPool.Statistics getStatistics() {
+		final AffinityObjectPool.Statistics statistics = new AffinityObjectPool.Statistics();
+		for (SbbObjectPoolImpl pool : pools.values()) {
+			pool.addStatistics(statistics);
+		}
+		return statistics;
+	}
+
 	public void reconfig() {
 		for (ObjectPoolMapKey key : pools.keySet()) {
 			final SbbComponent sbbComponent = sleeContainer.getComponentRepository().getComponentByID(key.sbbID);
@@ -23,6 +23,7 @@
 package org.mobicents.slee.runtime.sbb;
 
 import org.apache.commons.pool.impl.GenericObjectPool;
+import org.mobicents.slee.container.util.concurrent.AffinityObjectPool;
 
 /**
  * Management interface to configure the sbb object pools.
@@ -180,6 +181,73 @@ public interface SbbObjectPoolManagementImplMBean {
 	 */
 	public void setWhenExhaustedAction(byte whenExhaustedAction);
 	
+	/**
+	 * Retrieves the number of idle objects created in each pool of a service,
+	 * when the service is activated.
+	 * 
+	 * @return
+	 */
+	public int getWarmUpSize();
+	
+	/**
+	 * Changes the number of idle objects created in each pool of a service,
+	 * when the service is activated.
+	 * 
+	 * @param warmUpSize
+	 */
+	public void setWarmUpSize(int warmUpSize);
+	
+	/**
+	 * Indicates if new pools are {@link AffinityObjectPool}s, with a local
+	 * free list per thread, instead of commons pool
+	 * {@link GenericObjectPool}s. Only maxIdle, testOnBorrow and testOnReturn
+	 * config parameters apply to affinity pools, which thus do not evict idle
+	 * objects nor keep a min number of these. False by default.
+	 * 
+	 * @return
+	 */
+	public boolean getAffinityPool();
+	
+	/**
+	 * Changes the type of the new pools, use {@link #reconfig()} to apply to
+	 * current pools.
+	 * 
+	 * @see #getAffinityPool()
+	 * @param affinityPool
+	 */
+	public void setAffinityPool(boolean affinityPool);
+	
+	/**
+	 * Retrieves the number of objects borrowed from thread local free lists,
+	 * in all current affinity pools.
+	 * 
+	 * @return
+	 */
+	public long getLocalHits();
+	
+	/**
+	 * Retrieves the number of objects borrowed from the shared overflow
+	 * stacks, in all current affinity pools.
+	 * 
+	 * @return
+	 */
+	public long getSharedHits();
+	
+	/**
+	 * Retrieves the number of objects borrowed when there was no idle object,
+	 * in all current affinity pools.
+	 * 
+	 * @return
+	 */
+	public long getMisses();
+	
+	/**
+	 * Retrieves the number of objects created, in all current affinity pools.
+	 * 
+	 * @return
+	 */
+	public long getCreatedObjects();
+	
 	/**
 	 * Triggers process to reconfig all current pools
 	 */
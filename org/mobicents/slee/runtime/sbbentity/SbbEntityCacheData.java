@@ -24,6 +24,7 @@ package org.mobicents.slee.runtime.sbbentity;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import javax.slee.EventTypeID;
@@ -132,6 +133,19 @@ public class SbbEntityCacheData extends CacheData {
 		this.sbbEntityID = sbbEntityId;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.cache.CacheData#remove()
+	 */
+	@Override
+	public boolean remove() {
+		final SbbEntityWriteBuffer buffer = SbbEntityWriteBuffer.get(sbbEntityID, this, false);
+		if (buffer != null) {
+			buffer.discard();
+		}
+		return super.remove();
+	}
+
 	public void attachActivityContext(ActivityContextHandle ac) {
 		getAttachedACsChildNode(true).put(ac, MISC_NODE_MAP_VALUE);
 	}
@@ -198,19 +212,61 @@ public class SbbEntityCacheData extends CacheData {
 	}
 	
 	public Byte getPriority() {
+		final SbbEntityWriteBuffer buffer = SbbEntityWriteBuffer.get(sbbEntityID, this, false);
+		if (buffer != null && buffer.getPriority() != null) {
+			return buffer.getPriority();
+		}
 		return (Byte) getNode().get(PRIORITY_NODE_MAP_KEY);
 	}
 
+	/**
+	 * Sets the sbb entity priority. If there is a tx the write is buffered
+	 * till the tx commits.
+	 * 
+	 * @param priority
+	 */
 	public void setPriority(Byte priority) {
+		final SbbEntityWriteBuffer buffer = SbbEntityWriteBuffer.get(sbbEntityID, this, true);
+		if (buffer != null) {
+			buffer.setPriority(priority);
+		}
+		else {
+			setPriorityInCache(priority);
+		}
+	}
+	
+	void setPriorityInCache(Byte priority) {
 		getNode().put(PRIORITY_NODE_MAP_KEY, priority);
 	}
 	
+	/**
+	 * Sets a cmp field. If there is a tx the write is buffered till the tx
+	 * commits.
+	 * 
+	 * @param cmpField
+	 * @param cmpValue
+	 */
 	public void setCmpField(String cmpField, Object cmpValue) {
-		final Node<String,Object> node = getCmpFieldsChildNode(true);
-		node.put(cmpField,cmpValue);
+		final SbbEntityWriteBuffer buffer = SbbEntityWriteBuffer.get(sbbEntityID, this, true);
+		if (buffer != null) {
+			buffer.setCmpField(cmpField, cmpValue);
+		}
+		else {
+			final Node<String,Object> node = getCmpFieldsChildNode(true);
+			node.put(cmpField,cmpValue);
+		}
 	}
 
+	void setCmpFieldsInCache(Map<String,Object> cmpFields) {
+		final Node<String,Object> node = getCmpFieldsChildNode(true);
+		node.putAll(cmpFields);
+	}
+	
 	public Object getCmpField(String cmpField) {
+		final SbbEntityWriteBuffer buffer = SbbEntityWriteBuffer.get(sbbEntityID, this, false);
+		if (buffer != null && buffer.hasCmpField(cmpField)) {
+			return buffer.getCmpField(cmpField);
+		}
 		final Node<String,Object> node = getCmpFieldsChildNode(false);
 		if (node == null) {
 			return null;
@@ -24,15 +24,14 @@ package org.mobicents.slee.runtime.sbbentity;
 
 import java.util.Collections;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.slee.CreateException;
-import javax.slee.SLEEException;
 import javax.slee.ServiceID;
 
 import org.apache.log4j.Logger;
 import org.mobicents.slee.container.AbstractSleeContainerModule;
+import org.mobicents.slee.container.management.jmx.MobicentsManagement;
 import org.mobicents.slee.container.sbbentity.SbbEntity;
 import org.mobicents.slee.container.sbbentity.SbbEntityFactory;
 import org.mobicents.slee.container.sbbentity.SbbEntityID;
@@ -62,7 +61,21 @@ public class SbbEntityFactoryImpl extends AbstractSleeContainerModule implements
 
 	@Override
 	public void sleeInitialization() {
-		this.lockFacility = new SbbEntityLockFacility(sleeContainer);
+		if (MobicentsManagement.sbbEntityLockStripes > 0) {
+			this.lockFacility = new StripedSbbEntityLockFacility(MobicentsManagement.sbbEntityLockStripes);
+		}
+		else {
+			this.lockFacility = new SbbEntityLockFacilityImpl(sleeContainer);
+		}
+	}
+	
+	/**
+	 * Retrieves the facility providing the sbb entity locks.
+	 * 
+	 * @return
+	 */
+	public SbbEntityLockFacility getLockFacility() {
+		return lockFacility;
 	}
 	
 	@Override
@@ -97,14 +110,16 @@ public class SbbEntityFactoryImpl extends AbstractSleeContainerModule implements
 	@Override
 	public SbbEntity createRootSbbEntity(ServiceID serviceID,
 			String convergenceName) {
-		
-		final RootSbbEntityID sbbeId = new RootSbbEntityID(serviceID, convergenceName);
+		return createRootSbbEntity(new RootSbbEntityID(serviceID, convergenceName));
+	}
+	
+	@Override
+	public SbbEntity createRootSbbEntity(final SbbEntityID sbbeId) {
 
 		final TransactionContext txContext = sleeContainer.getTransactionManager().getTransactionContext();
 
 		// get lock
-		final ReentrantLock lock = lockFacility.get(sbbeId);
-		lockOrFail(lock,sbbeId);
+		final ReentrantLock lock = lockFacility.lock(sbbeId);
 		// we hold the lock now
 				
 		// create sbb entity
@@ -193,8 +208,7 @@ public class SbbEntityFactoryImpl extends AbstractSleeContainerModule implements
 			SbbEntityID lockedSbbEntityID = null;
 			if (lockSbbEntity) {
 				lockedSbbEntityID = sbbeId.getRootSBBEntityID();
-				lock = lockFacility.get(lockedSbbEntityID);
-				lockOrFail(lock,lockedSbbEntityID);											
+				lock = lockFacility.lock(lockedSbbEntityID);
 			}															
 						
 			// get sbb entity data from cache
@@ -306,31 +320,6 @@ public class SbbEntityFactoryImpl extends AbstractSleeContainerModule implements
 					sbbeId) : null;		
 	}
 	
-	/**
-	 * 
-	 * @param lock
-	 * @param sbbeId
-	 * @throws SLEEException
-	 */
-	private static void lockOrFail(ReentrantLock lock, SbbEntityID sbbeId) throws SLEEException {
-		if (doTraceLogs) {
-			logger.trace(Thread.currentThread()+" trying to acquire lock "+lock+" for sbb entity with id "+sbbeId);
-		}
-		boolean locked;
-		try { 
-			locked = lock.tryLock(10, TimeUnit.SECONDS);
-		}
-		catch (Throwable e) {
-			throw new SLEEException(e.getMessage(),e);
-		}
-		if (!locked) {
-			throw new SLEEException("timeout while acquiring lock "+lock+" for sbb entity with id "+sbbeId);
-		}
-		if (doTraceLogs) {
-			logger.trace(Thread.currentThread()+" acquired lock "+lock+" for sbb entity with id "+sbbeId);
-		}
-	}
-	
 	/**
 	 * 
 	 * @return
@@ -290,6 +290,13 @@ public class SbbEntityImpl implements SbbEntity {
 	public void setPriority(byte value) {
 		priority = Byte.valueOf(value);
 		cacheData.setPriority(priority);
+		// the attachment order of the acs this entity is attached to changed
+		for (ActivityContextHandle ach : getActivityContexts()) {
+			final ActivityContext ac = sleeContainer.getActivityContextFactory().getActivityContext(ach);
+			if (ac != null) {
+				ac.sbbAttachmentsReordered();
+			}
+		}
 		if (log.isDebugEnabled()) {
 			log.debug("Sbb entity "+getSbbEntityId()+" priority set to " + priority);
 		}
@@ -22,163 +22,133 @@
 
 package org.mobicents.slee.runtime.sbbentity;
 
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
-import javax.slee.ServiceID;
+import javax.slee.SLEEException;
 
 import org.apache.log4j.Logger;
-import org.jboss.cache.Fqn;
-import org.jboss.cache.notifications.annotation.CacheListener;
-import org.jboss.cache.notifications.annotation.NodeRemoved;
-import org.jboss.cache.notifications.event.NodeRemovedEvent;
-import org.mobicents.cache.MobicentsCache;
-import org.mobicents.slee.container.SleeContainer;
 import org.mobicents.slee.container.sbbentity.SbbEntityID;
 
 /**
+ * Provides the locks which serialize the access to sbb entities, and collects
+ * stats about the contention on these.
  * 
- * @author martins
- *
  */
-@CacheListener(sync = false)
-public class SbbEntityLockFacility {
+public abstract class SbbEntityLockFacility {
 
 	private static final Logger logger = Logger.getLogger(SbbEntityLockFacility.class);
-	private boolean doTraceLogs = logger.isTraceEnabled();
-	
+
+	private static final boolean doTraceLogs = logger.isTraceEnabled();
+
+	/**
+	 * the max time, in seconds, to wait for a lock
+	 */
+	private static final long LOCK_TIMEOUT = 10;
+
+	/**
+	 * the number of lock acquisitions which had to wait
+	 */
+	private final AtomicLong contendedAcquisitions = new AtomicLong(0L);
+
+	/**
+	 * the time, in nanoseconds, spent waiting for locks
+	 */
+	private final AtomicLong waitingTime = new AtomicLong(0L);
+
 	/**
+	 * the number of lock acquisitions which timed out
+	 */
+	private final AtomicLong timeouts = new AtomicLong(0L);
+
+	/**
+	 * Retrieves the lock for the specified sbb entity.
 	 * 
+	 * @param sbbEntityId
+	 * @return
 	 */
-	private final ConcurrentHashMap<SbbEntityID,ReentrantLock> locks = new ConcurrentHashMap<SbbEntityID, ReentrantLock>();
-	
+	public abstract ReentrantLock get(SbbEntityID sbbEntityId);
+
 	/**
+	 * Indicates the specified sbb entity was removed, thus its lock is not
+	 * needed anymore.
 	 * 
+	 * @param sbbEntityId
 	 */
-	public SbbEntityLockFacility(SleeContainer container) {
-		//container.getCluster().addDataRemovalListener(new DataRemovaClusterListener());
-		MobicentsCache cache = container.getCluster().getMobicentsCache();
-		if (!cache.isLocalMode()) {
-			cache.getJBossCache().addCacheListener(this);
-		}
-	}
-	
+	public abstract void remove(SbbEntityID sbbEntityId);
+
+	/**
+	 * Retrieves the number of locks kept by the facility.
+	 * 
+	 * @return
+	 */
+	public abstract int getLockCount();
+
 	/**
+	 * Retrieves and acquires the lock for the specified sbb entity.
 	 * 
 	 * @param sbbEntityId
 	 * @return
+	 * @throws SLEEException
+	 *             if the lock was not acquired in 10 seconds, or the thread was
+	 *             interrupted
 	 */
-	public ReentrantLock get(SbbEntityID sbbEntityId) {
-		ReentrantLock lock = locks.get(sbbEntityId);
-		if (lock == null) {
-			final ReentrantLock newLock = new ReentrantLock();
-			lock = locks.putIfAbsent(sbbEntityId, newLock);
-			if (lock == null) {
-				if(doTraceLogs) {
-					logger.trace(Thread.currentThread()+" put of lock "+newLock+" for "+sbbEntityId);
-				}
-				lock = newLock;
+	public ReentrantLock lock(SbbEntityID sbbEntityId) throws SLEEException {
+		final ReentrantLock lock = get(sbbEntityId);
+		if (doTraceLogs) {
+			logger.trace(Thread.currentThread()+" trying to acquire lock "+lock+" for sbb entity with id "+sbbEntityId);
+		}
+		if (!lock.tryLock()) {
+			contendedAcquisitions.incrementAndGet();
+			final long startTime = System.nanoTime();
+			boolean locked;
+			try { 
+				locked = lock.tryLock(LOCK_TIMEOUT, TimeUnit.SECONDS);
+			}
+			catch (Throwable e) {
+				throw new SLEEException(e.getMessage(),e);
+			}
+			finally {
+				waitingTime.addAndGet(System.nanoTime() - startTime);
 			}
+			if (!locked) {
+				timeouts.incrementAndGet();
+				throw new SLEEException("timeout while acquiring lock "+lock+" for sbb entity with id "+sbbEntityId);
+			}
+		}
+		if (doTraceLogs) {
+			logger.trace(Thread.currentThread()+" acquired lock "+lock+" for sbb entity with id "+sbbEntityId);
 		}
 		return lock;
 	}
-	
+
 	/**
+	 * Retrieves the number of lock acquisitions which had to wait for another
+	 * thread to release the lock.
 	 * 
-	 * @param sbbEntityId
 	 * @return
 	 */
-	public ReentrantLock remove(SbbEntityID sbbEntityId) {
-		if(doTraceLogs) {
-			logger.trace(Thread.currentThread()+" removed lock for "+sbbEntityId);
-		}
-		return locks.remove(sbbEntityId);
+	public long getContendedAcquisitions() {
+		return contendedAcquisitions.get();
+	}
+
+	/**
+	 * Retrieves the total time, in milliseconds, spent waiting for locks.
+	 * 
+	 * @return
+	 */
+	public long getWaitingTime() {
+		return TimeUnit.NANOSECONDS.toMillis(waitingTime.get());
 	}
-	
+
 	/**
+	 * Retrieves the number of lock acquisitions which timed out.
 	 * 
 	 * @return
 	 */
-	public Set<SbbEntityID> getSbbEntitiesWithLocks() {
-		return locks.keySet();
+	public long getTimeouts() {
+		return timeouts.get();
 	}
-	
-	// FIXME this does not work in the new sbbe tree model, ensure cluster framework gets such feature
-	/*
-	private class DataRemovaClusterListener implements DataRemovalListener {
-
-		private final Fqn<?> baseFqn = null;
-		
-		@SuppressWarnings("unchecked")
-		public void dataRemoved(Fqn arg0) {
-			final SbbEntityID sbbEntityId = (SbbEntityID) arg0.getLastElement();
-			if(locks.remove(sbbEntityId) != null) {
-				if(doTraceLogs) {
-					logger.trace("Remotely removed lock for "+sbbEntityId);
-				}
-			}
-		}
 
-		@SuppressWarnings("unchecked")
-		public Fqn getBaseFqn() {
-			return baseFqn;
-		}
-		
-	}*/
-	
-	@NodeRemoved
-	public void onNodeRemovedEvent(NodeRemovedEvent event) {
-		if(!event.isOriginLocal() && !event.isPre()) {			
-			// remote node removal
-			Fqn<?> fqn = event.getFqn();
-			if(doTraceLogs) {
-				logger.trace("onNodeRemovedEvent( fqn = "+fqn+", size = "+fqn.size()+" )");
-			}
-			if (fqn.get(0).equals(SbbEntityFactoryCacheData.SBB_ENTITY_FACTORY_FQN_NAME)) {
-				// is child of sbb entity factory cache data, i.e., /sbbe
-				int fqnSize = fqn.size();				
-				if (fqnSize < 3) {
-					return;
-				}
-				SbbEntityID sbbEntityID = null;
-				if (fqnSize == 3) {
-					// /sbbe/serviceid/convergenceName root sbb entity
-					ServiceID serviceID = (ServiceID) fqn.get(1);
-					String convergenceName = (String) fqn.get(2);
-					sbbEntityID = new RootSbbEntityID(serviceID, convergenceName);
-					if(doTraceLogs) {
-						logger.trace("Root sbb entity "+sbbEntityID+" was remotely removed, ensuring there is no local lock");
-					}
-				}
-				else {
-					// must end as /chd/chdRelationName/childId
-					if(!fqn.get(fqnSize-3).equals(SbbEntityCacheData.CHILD_RELATIONs_CHILD_NODE_NAME)) {
-						return;
-					}
-					// let get the party started and rebuild the sbb entity id!
-					ServiceID serviceID = (ServiceID) fqn.get(1);
-					String convergenceName = (String) fqn.get(2);
-					sbbEntityID = new RootSbbEntityID(serviceID, convergenceName);
-					int i = 3;
-					while(fqnSize >= i+3) {
-						// fqn get(i) is chd, skip 
-						String childRelationName = (String) fqn.get(i+1);
-						String childId = (String) fqn.get(i+2);
-						sbbEntityID = new NonRootSbbEntityID(sbbEntityID, childRelationName, childId);
-						i+=3;
-					}
-					if(doTraceLogs) {
-						logger.trace("Non root sbb entity "+sbbEntityID+" was remotely removed, ensuring there is no local lock");
-					}
-				}
-				if(locks.remove(sbbEntityID) != null) {
-					if(doTraceLogs) {
-						logger.trace("Remotely removed lock for "+sbbEntityID);
-					}
-				}
-			}
-		}
-	}	
-		
- }
\ No newline at end of file
+}
@@ -0,0 +1,204 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.sbbentity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mobicents.slee.container.SleeContainer;
+import org.mobicents.slee.container.sbbentity.SbbEntityID;
+import org.mobicents.slee.container.transaction.TransactionContext;
+import org.mobicents.slee.container.transaction.TransactionalAction;
+
+/**
+ * Transaction scoped write-behind buffer for the data of an sbb entity. Writes
+ * of cmp fields and priority are kept in the buffer, which collapses repeated
+ * writes of the same field and serves reads in the same tx, and are flushed
+ * to the cache as a single change set, right before the tx commits. If the tx
+ * rolls back the buffer is simply discarded.
+ * 
+ */
+public class SbbEntityWriteBuffer implements TransactionalAction {
+
+	private static final SleeContainer sleeContainer = SleeContainer
+			.lookupFromJndi();
+
+	/**
+	 * the key used to store the buffer in the tx context data, which also
+	 * holds the sbb entities, keyed by their ids
+	 */
+	private static class Key {
+
+		private final SbbEntityID sbbEntityID;
+
+		Key(SbbEntityID sbbEntityID) {
+			this.sbbEntityID = sbbEntityID;
+		}
+
+		@Override
+		public int hashCode() {
+			return sbbEntityID.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj != null && obj.getClass() == Key.class
+					&& ((Key) obj).sbbEntityID.equals(this.sbbEntityID);
+		}
+	}
+
+	private final SbbEntityCacheData cacheData;
+
+	private Map<String, Object> cmpFields;
+
+	private Byte priority;
+
+	/**
+	 * true if the buffer was flushed or discarded, from then on writes go
+	 * directly to the cache
+	 */
+	private boolean closed;
+
+	private SbbEntityWriteBuffer(SbbEntityCacheData cacheData) {
+		this.cacheData = cacheData;
+	}
+
+	/**
+	 * Retrieves the buffer of the specified sbb entity in the current tx.
+	 * 
+	 * @param sbbEntityID
+	 * @param cacheData
+	 *            the cache data to flush the buffer, if it needs to be created
+	 * @param create
+	 *            if true and the buffer doesn't exist it is created
+	 * @return null if there is no tx, if the buffer doesn't exist and create
+	 *         is false, or if the buffer is already closed
+	 */
+	@SuppressWarnings("unchecked")
+	static SbbEntityWriteBuffer get(SbbEntityID sbbEntityID,
+			SbbEntityCacheData cacheData, boolean create) {
+		final TransactionContext txContext = sleeContainer
+				.getTransactionManager().getTransactionContext();
+		if (txContext == null) {
+			return null;
+		}
+		final Map txData = txContext.getData();
+		final Key key = new Key(sbbEntityID);
+		SbbEntityWriteBuffer buffer = (SbbEntityWriteBuffer) txData.get(key);
+		if (buffer == null) {
+			if (!create) {
+				return null;
+			}
+			buffer = new SbbEntityWriteBuffer(cacheData);
+			txData.put(key, buffer);
+			txContext.getBeforeCommitActions().add(buffer);
+		}
+		return buffer.closed ? null : buffer;
+	}
+
+	/**
+	 * Indicates if the buffer has the specified cmp field.
+	 * 
+	 * @param cmpField
+	 * @return
+	 */
+	boolean hasCmpField(String cmpField) {
+		return cmpFields != null && cmpFields.containsKey(cmpField);
+	}
+
+	/**
+	 * Retrieves the buffered cmp field, see {@link #hasCmpField(String)}.
+	 * 
+	 * @param cmpField
+	 * @return
+	 */
+	Object getCmpField(String cmpField) {
+		return cmpFields.get(cmpField);
+	}
+
+	/**
+	 * Buffers a cmp field write.
+	 * 
+	 * @param cmpField
+	 * @param cmpValue
+	 */
+	void setCmpField(String cmpField, Object cmpValue) {
+		if (cmpFields == null) {
+			cmpFields = new HashMap<String, Object>();
+		}
+		cmpFields.put(cmpField, cmpValue);
+	}
+
+	/**
+	 * Retrieves the buffered priority.
+	 * 
+	 * @return null if the priority was not set in the tx
+	 */
+	Byte getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Buffers a priority write.
+	 * 
+	 * @param priority
+	 */
+	void setPriority(Byte priority) {
+		this.priority = priority;
+	}
+
+	/**
+	 * Discards the buffer, e.g. the sbb entity data was removed from cache.
+	 */
+	void discard() {
+		closed = true;
+		cmpFields = null;
+		priority = null;
+	}
+
+	/**
+	 * Flushes the buffer to the cache, invoked right before the tx commits.
+	 */
+	public void execute() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (cacheData.isRemoved() || !cacheData.exists()) {
+			return;
+		}
+		if (priority != null) {
+			cacheData.setPriorityInCache(priority);
+			priority = null;
+		}
+		if (cmpFields != null) {
+			cacheData.setCmpFieldsInCache(cmpFields);
+			cmpFields = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SbbEntityWriteBuffer[" + cacheData.getNodeFqn() + "]";
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.sbbentity;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.mobicents.slee.container.sbbentity.SbbEntityID;
+
+/**
+ * {@link SbbEntityLockFacility} which hashes sbb entity ids onto a fixed array
+ * of locks. Memory use is bounded and there is no allocation per sbb entity,
+ * nor locks to remove, but unrelated sbb entities may share a lock. A thread
+ * locking two sbb entities may thus deadlock with another locking other two,
+ * which is broken by the lock acquisition timeout.
+ * 
+ */
+public class StripedSbbEntityLockFacility extends SbbEntityLockFacility {
+
+	private final ReentrantLock[] locks;
+
+	private final int mask;
+
+	/**
+	 * 
+	 * @param stripes
+	 *            the number of locks, rounded up to a power of 2
+	 */
+	public StripedSbbEntityLockFacility(int stripes) {
+		if (stripes < 1) {
+			throw new IllegalArgumentException("invalid number of stripes "+stripes);
+		}
+		int size = 1;
+		while (size < stripes) {
+			size <<= 1;
+		}
+		locks = new ReentrantLock[size];
+		for (int i = 0; i < size; i++) {
+			locks[i] = new ReentrantLock();
+		}
+		mask = size - 1;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.runtime.sbbentity.SbbEntityLockFacility#get(org.mobicents.slee.container.sbbentity.SbbEntityID)
+	 */
+	public ReentrantLock get(SbbEntityID sbbEntityId) {
+		// spread the hash bits, murmur3 finalizer
+		int h = sbbEntityId.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return locks[h & mask];
+	}
+
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.runtime.sbbentity.SbbEntityLockFacility#remove(org.mobicents.slee.container.sbbentity.SbbEntityID)
+	 */
+	public void remove(SbbEntityID sbbEntityId) {
+		// locks are shared, nothing to remove
+	}
+
+	/* (non-Javadoc)
+	 * @see org.mobicents.slee.runtime.sbbentity.SbbEntityLockFacility#getLockCount()
+	 */
+	public int getLockCount() {
+		return locks.length;
+	}
+
+	@Override
+	public String toString() {
+		return "StripedSbbEntityLockFacility[stripes = " + locks.length + "]";
+	}
+}
@@ -230,7 +230,11 @@ public class TransactionContextImpl implements TransactionContext {
 	}
 
 	private void executeActions(List<TransactionalAction> actions,boolean trace) {
-		for (TransactionalAction action : actions) {
+		// iterate by index, actions may add others to the same list, e.g. a
+		// write buffer created by a before commit action
+		TransactionalAction action = null;
+		for (int i = 0; i < actions.size(); i++) {
+			action = actions.get(i);
 			if (trace)
 				logger.trace("Executing action:" + action);
 			action.execute();
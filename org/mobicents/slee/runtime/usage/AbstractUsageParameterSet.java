@@ -28,22 +28,35 @@ package org.mobicents.slee.runtime.usage;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.slee.management.NotificationSource;
 import javax.slee.usage.SampleStatistics;
 
+import org.apache.log4j.Logger;
 import org.mobicents.slee.container.SleeContainer;
+import org.mobicents.slee.container.management.jmx.MobicentsManagement;
 import org.mobicents.slee.container.management.jmx.UsageMBeanImpl;
+import org.mobicents.slee.container.util.concurrent.LatencyHistogram;
 import org.mobicents.slee.runtime.usage.local.UsageMBeanLocalData;
 
 /**
  * Base class for impl of usage parameters, it offers basic ops for params.
+ * Parameters are updated in {@link UsageParameterAccumulator}s, and only
+ * folded when read or reset, or when a usage notification needs the
+ * parameter value. The {@link UsageMBeanData} is updated on reset.
  * 
  * @author baranowb
  * 
  */
 public abstract class AbstractUsageParameterSet {
 
+	private static final Logger logger = Logger.getLogger(AbstractUsageParameterSet.class);
+	
 	private static final String _DEFAULT_SET_NAME_ = "";
 	
 	private final UsageMBeanData usageMbeanData;
@@ -52,6 +65,67 @@ public abstract class AbstractUsageParameterSet {
 	private String parameterSetName;
 	private UsageMBeanImpl usageMBean;
 	
+	/**
+	 * The runtime state of a parameter.
+	 */
+	private static class Parameter {
+		
+		final UsageParameterAccumulator accumulator = new UsageParameterAccumulator();
+		
+		/**
+		 * the last sample, for coalesced notifications of sample parameters
+		 */
+		volatile long lastSample;
+		
+		/**
+		 * true if the parameter is a counter, a parameter is either
+		 * incremented or sampled, thus it is only set on the first increment
+		 */
+		volatile boolean counter;
+		
+		/**
+		 * if true the parameter was updated since the last coalesced notification
+		 */
+		final AtomicBoolean notificationPending = new AtomicBoolean(false);
+		
+		/**
+		 * the histogram of samples, created on first sample
+		 */
+		volatile LatencyHistogram histogram;
+		
+		LatencyHistogram getHistogram() {
+			LatencyHistogram histogram = this.histogram;
+			if (histogram == null) {
+				synchronized (this) {
+					histogram = this.histogram;
+					if (histogram == null) {
+						histogram = new LatencyHistogram();
+						this.histogram = histogram;
+					}
+				}
+			}
+			return histogram;
+		}
+		
+		void reset() {
+			final LatencyHistogram histogram = this.histogram;
+			if (histogram != null) {
+				histogram.reset();
+			}
+		}
+	}
+	
+	/**
+	 * the parameters, the map is never changed after the constructor
+	 */
+	private final Map<String, Parameter> parameters = new HashMap<String, Parameter>();
+	
+	/**
+	 * the task sending coalesced notifications, null if notifications are
+	 * sent on each update
+	 */
+	private final ScheduledFuture<?> notificationsTask;
+	
 	public AbstractUsageParameterSet(NotificationSource notificationSource, String parameterSetName, SleeContainer sleeContainer) {
 
 		// checks
@@ -76,11 +150,34 @@ public abstract class AbstractUsageParameterSet {
 		
 		Collection<String> paramNames = this.getParameterNames();
 		for (String parameterName : paramNames) {
-			if (this.usageMbeanData.getParameter(parameterName) == null) {
+			final Parameter parameter = new Parameter();
+			final UsageParameter usageParameter = this.usageMbeanData.getParameter(parameterName);
+			if (usageParameter == null) {
 				this.usageMbeanData.setParameter(parameterName, new UsageParameter(this.notificationSource,parameterName));
 			}
+			else {
+				// restore stored state
+				parameter.accumulator.set(usageParameter.getCount(), usageParameter.getValue(), usageParameter.getMin(), usageParameter.getMax());
+			}
+			parameters.put(parameterName, parameter);
 		}
 
+		final int notificationsInterval = MobicentsManagement.usageNotificationsInterval;
+		if (notificationsInterval > 0) {
+			this.notificationsTask = sleeContainer.getNonClusteredScheduler().scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					try {
+						sendPendingNotifications();
+					}
+					catch (Throwable e) {
+						logger.error("Failed to send usage notifications", e);
+					}
+				}
+			}, notificationsInterval, notificationsInterval, TimeUnit.MILLISECONDS);
+		}
+		else {
+			this.notificationsTask = null;
+		}
 	}
 
 	protected abstract Collection<String> getParameterNames();
@@ -104,66 +201,131 @@ public abstract class AbstractUsageParameterSet {
 	}
 
 	public void remove() {
+		if (notificationsTask != null) {
+			notificationsTask.cancel(false);
+		}
 		this.usageMbeanData.remove();
 	}
 
 	public void reset() {
-		// XXX: we use strings as names(wow what a discovery), so underlying
-		// impl must return String collection.
-		Collection<String> parameterNames = this.usageMbeanData.getParameterNames();
-		for (String parameterName : parameterNames) {
-			resetParameter(parameterName);
+		for (Map.Entry<String, Parameter> entry : parameters.entrySet()) {
+			entry.getValue().accumulator.reset();
+			entry.getValue().reset();
+			storeResetParameter(entry.getKey());
 		}
 	}
 
-	private void resetParameter(String parameterName) {
-		UsageParameter parameter = this.usageMbeanData.getParameter(parameterName);
-		if (parameter != null) {
-			parameter.reset();
-			this.usageMbeanData.setParameter(parameterName, parameter);
-
+	private Parameter getUsageParameter(String parameterName) {
+		final Parameter parameter = parameters.get(parameterName);
+		if (parameter == null) {
+			throw new IllegalArgumentException("unknown usage parameter "+parameterName);
 		}
-
+		return parameter;
 	}
-
+	
+	/**
+	 * Stores the reset state of the specified parameter in the usage mbean data,
+	 * the values before the reset are only returned to the caller.
+	 * @param parameterName
+	 */
+	private void storeResetParameter(String parameterName) {
+		this.usageMbeanData.setParameter(parameterName, new UsageParameter(this.notificationSource,parameterName));
+	}
+	
 	public void incrementParameter(String parameterName, long incValue) {
-		UsageParameter usageParameter = this.usageMbeanData.getParameter(parameterName);
-		usageParameter.increment(incValue);
-		this.usageMbeanData.setParameter(parameterName, usageParameter);
-		this.usageMBean.sendUsageNotification(usageParameter.getValue(), usageParameter.getCount(), getParameterSetName(), parameterName, true);
+		final Parameter parameter = getUsageParameter(parameterName);
+		parameter.accumulator.increment(incValue);
+		if (!parameter.counter) {
+			// first increment, avoids a volatile write on each one
+			parameter.counter = true;
+		}
+		if (notificationsTask != null) {
+			parameter.notificationPending.set(true);
+		}
+		else if (usageMBean != null && usageMBean.isUsageNotificationRequired(parameterName)) {
+			final UsageParameterAccumulator.Snapshot snapshot = parameter.accumulator.fold(false);
+			this.usageMBean.sendUsageNotification(snapshot.getValue(), snapshot.getCount(), getParameterSetName(), parameterName, true);
+		}
 	}
 
 	public long getParameter(String parameterName, boolean reset) {
-		UsageParameter usageParameter = this.usageMbeanData.getParameter(parameterName);
-
-		long tmpValue = usageParameter.getValue();
+		final UsageParameterAccumulator.Snapshot snapshot = getUsageParameter(parameterName).accumulator.fold(reset);
 		if (reset) {
-			usageParameter.reset();
-			this.usageMbeanData.setParameter(parameterName, usageParameter);
+			storeResetParameter(parameterName);
 		}
-		return tmpValue;
+		return snapshot.getValue();
 	}
 
 	public void sampleParameter(String parameterName, long sample) {
-		UsageParameter usageParameter = this.usageMbeanData.getParameter(parameterName);
-		usageParameter.sample(sample);
-		this.usageMbeanData.setParameter(parameterName, usageParameter);
-		this.usageMBean.sendUsageNotification(sample, usageParameter.getCount(), getParameterSetName(), parameterName, false);
+		final Parameter parameter = getUsageParameter(parameterName);
+		parameter.accumulator.sample(sample);
+		parameter.getHistogram().record(sample);
+		if (notificationsTask != null) {
+			parameter.lastSample = sample;
+			parameter.notificationPending.set(true);
+		}
+		else if (usageMBean != null && usageMBean.isUsageNotificationRequired(parameterName)) {
+			this.usageMBean.sendUsageNotification(sample, parameter.accumulator.fold(false).getCount(), getParameterSetName(), parameterName, false);
+		}
 	}
 
 	public SampleStatistics getParameterSampleStatistics(String parameterName, boolean reset) {
 
-		UsageParameter usageParameter = this.usageMbeanData.getParameter(parameterName);
-
-		SampleStatistics ss = new SampleStatistics(usageParameter.getCount(), usageParameter.getMin(), usageParameter.getMax(), usageParameter.getMean());
+		final Parameter parameter = getUsageParameter(parameterName);
+		final UsageParameterAccumulator.Snapshot snapshot = parameter.accumulator.fold(reset);
 		if (reset) {
-			usageParameter.reset();
-			this.usageMbeanData.setParameter(parameterName, usageParameter);
+			parameter.reset();
+			storeResetParameter(parameterName);
 		}
-		return ss;
+		return new SampleStatistics(snapshot.getCount(), snapshot.getMin(), snapshot.getMax(), snapshot.getMean());
 
 	}
 
+	/**
+	 * Retrieves the values at the specified percentiles, of the samples of the
+	 * specified parameter, recorded since the parameter creation or since the
+	 * last reset. Negative samples are accounted as 0, and values have a
+	 * relative error below 1/32.
+	 * 
+	 * @param parameterName
+	 * @param percentiles
+	 *            the percentiles, between 0 and 100
+	 * @param reset
+	 *            if true the samples distribution is reset, to start a new
+	 *            interval, the parameter sample statistics are not reset
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the parameter is unknown or a percentile is not between
+	 *             0 and 100
+	 */
+	public long[] getParameterSamplePercentiles(String parameterName, double[] percentiles, boolean reset) throws IllegalArgumentException {
+		final LatencyHistogram histogram = getUsageParameter(parameterName).histogram;
+		final LatencyHistogram.Snapshot snapshot = histogram == null ? LatencyHistogram.Snapshot.empty() : histogram.snapshot(reset);
+		return snapshot.getValuesAtPercentiles(percentiles);
+	}
+	
+	/**
+	 * Sends a notification, with the current state, for each parameter
+	 * updated since the last time this method was invoked.
+	 */
+	private void sendPendingNotifications() {
+		if (usageMBean == null) {
+			return;
+		}
+		for (Map.Entry<String, Parameter> entry : parameters.entrySet()) {
+			final Parameter parameter = entry.getValue();
+			if (parameter.notificationPending.compareAndSet(true, false) && usageMBean.isUsageNotificationRequired(entry.getKey())) {
+				final UsageParameterAccumulator.Snapshot snapshot = parameter.accumulator.fold(false);
+				if (parameter.counter) {
+					usageMBean.sendUsageNotification(snapshot.getValue(), snapshot.getCount(), getParameterSetName(), entry.getKey(), true);
+				}
+				else {
+					usageMBean.sendUsageNotification(parameter.lastSample, snapshot.getCount(), getParameterSetName(), entry.getKey(), false);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Convenience method to create new instance of concrete impl class of
 	 * {@link AbstractUsageParameterSet}.
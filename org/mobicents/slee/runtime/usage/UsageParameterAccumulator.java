@@ -0,0 +1,234 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.runtime.usage;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free accumulator of a usage parameter. Updates go to a stripe selected
+ * by the current thread, so concurrent updates from different threads don't
+ * contend, and the stripes are only folded when the parameter is read or
+ * reset. No objects are created by updates.
+ * 
+ * <p>
+ * A reset folds each stripe atomically, thus no counter increment is lost
+ * or counted twice, but a sample concurrent with a reset may have its count
+ * and value split between before and after the reset.
+ * 
+ */
+public class UsageParameterAccumulator {
+
+	private static final int STRIPES = stripes();
+
+	private static final int MASK = STRIPES - 1;
+
+	/**
+	 * the longs used by each stripe, 8 longs is 64 bytes, so stripes don't
+	 * share cache lines
+	 */
+	private static final int STRIPE_SIZE = 8;
+
+	private static final int COUNT = 0;
+	private static final int VALUE = 1;
+	private static final int MIN = 2;
+	private static final int MAX = 3;
+
+	private static int stripes() {
+		final int processors = Runtime.getRuntime().availableProcessors();
+		int stripes = 1;
+		while (stripes < processors * 2 && stripes < 64) {
+			stripes <<= 1;
+		}
+		return stripes;
+	}
+
+	/**
+	 * The folded state of the accumulator.
+	 */
+	public static class Snapshot {
+
+		private final long count;
+		private final long value;
+		private final long min;
+		private final long max;
+
+		Snapshot(long count, long value, long min, long max) {
+			this.count = count;
+			this.value = value;
+			this.min = min;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getValue() {
+			return value;
+		}
+
+		public long getMin() {
+			return min;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * Retrieves the mean of the samples, rounded half up, as computed by
+		 * {@link UsageParameter}.
+		 * 
+		 * @return
+		 */
+		public long getMean() {
+			if (count == 0) {
+				return 0;
+			}
+			long mean = value / count;
+			final long remainder = value % count;
+			if (remainder != 0 && Math.abs(remainder) >= count - Math.abs(remainder)) {
+				mean += value < 0 ? -1 : 1;
+			}
+			return mean;
+		}
+	}
+
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPES
+			* STRIPE_SIZE);
+
+	/**
+	 * 
+	 */
+	public UsageParameterAccumulator() {
+		for (int i = 0; i < STRIPES; i++) {
+			resetStripe(i * STRIPE_SIZE);
+		}
+	}
+
+	private void resetStripe(int stripe) {
+		cells.set(stripe + COUNT, 0L);
+		cells.set(stripe + VALUE, 0L);
+		cells.set(stripe + MIN, Long.MAX_VALUE);
+		cells.set(stripe + MAX, Long.MIN_VALUE);
+	}
+
+	private static int stripe() {
+		return ((int) Thread.currentThread().getId() & MASK) * STRIPE_SIZE;
+	}
+
+	/**
+	 * Increments the counter parameter.
+	 * 
+	 * @param value
+	 */
+	public void increment(long value) {
+		final int stripe = stripe();
+		cells.getAndIncrement(stripe + COUNT);
+		cells.getAndAdd(stripe + VALUE, value);
+	}
+
+	/**
+	 * Adds a sample to the sample parameter.
+	 * 
+	 * @param sample
+	 */
+	public void sample(long sample) {
+		final int stripe = stripe();
+		cells.getAndIncrement(stripe + COUNT);
+		cells.getAndAdd(stripe + VALUE, sample);
+		long current;
+		while ((current = cells.get(stripe + MIN)) > sample) {
+			if (cells.compareAndSet(stripe + MIN, current, sample)) {
+				break;
+			}
+		}
+		while ((current = cells.get(stripe + MAX)) < sample) {
+			if (cells.compareAndSet(stripe + MAX, current, sample)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Sets the state of the accumulator, as the first stripe, e.g. to restore
+	 * a stored parameter.
+	 * 
+	 * @param count
+	 * @param value
+	 * @param min
+	 * @param max
+	 */
+	public void set(long count, long value, long min, long max) {
+		reset();
+		cells.set(COUNT, count);
+		cells.set(VALUE, value);
+		cells.set(MIN, min);
+		cells.set(MAX, max);
+	}
+
+	/**
+	 * Folds the stripes.
+	 * 
+	 * @param reset
+	 *            if true the stripes are reset while folded
+	 * @return
+	 */
+	public Snapshot fold(boolean reset) {
+		long count = 0L;
+		long value = 0L;
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for (int i = 0; i < STRIPES; i++) {
+			final int stripe = i * STRIPE_SIZE;
+			final long stripeMin;
+			final long stripeMax;
+			if (reset) {
+				count += cells.getAndSet(stripe + COUNT, 0L);
+				value += cells.getAndSet(stripe + VALUE, 0L);
+				stripeMin = cells.getAndSet(stripe + MIN, Long.MAX_VALUE);
+				stripeMax = cells.getAndSet(stripe + MAX, Long.MIN_VALUE);
+			} else {
+				count += cells.get(stripe + COUNT);
+				value += cells.get(stripe + VALUE);
+				stripeMin = cells.get(stripe + MIN);
+				stripeMax = cells.get(stripe + MAX);
+			}
+			if (stripeMin < min) {
+				min = stripeMin;
+			}
+			if (stripeMax > max) {
+				max = stripeMax;
+			}
+		}
+		return new Snapshot(count, value, min, max);
+	}
+
+	/**
+	 * Resets the accumulator.
+	 */
+	public void reset() {
+		fold(true);
+	}
+
+}
@@ -0,0 +1,391 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.test.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.mobicents.slee.container.activity.ActivityContextHandle;
+import org.mobicents.slee.container.eventrouter.EventRouterExecutor;
+import org.mobicents.slee.container.eventrouter.EventRouterExecutorMapper;
+import org.mobicents.slee.runtime.eventrouter.EventRouterExecutorImpl;
+import org.mobicents.slee.runtime.eventrouter.WorkStealingEventRouterExecutorImpl;
+import org.mobicents.slee.runtime.eventrouter.WorkStealingExecutorPool;
+import org.mobicents.slee.runtime.eventrouter.mapping.ActivityHashingEventRouterExecutorMapper;
+import org.mobicents.slee.runtime.eventrouter.mapping.ExecutorHashRing;
+import org.mobicents.slee.runtime.eventrouter.mapping.RoundRobinEventRouterExecutorMapper;
+import org.mobicents.slee.runtime.facilities.nullactivity.NullActivityContextHandle;
+import org.mobicents.slee.runtime.facilities.nullactivity.NullActivityHandleImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the event router, for each executor type and number of
+ * activities:
+ * <ul>
+ * <li>{@link #routeEvents(RoutingState)} fires events in the activities of a
+ * container with the real routing path, see {@link EventRoutingHarness}, and
+ * waits for their routing to the attached sbb entities, and to the root sbb
+ * entities of the services which define the event as initial, thus the score
+ * is the time to fire, commit, queue and route an event;</li>
+ * <li>{@link #executeActivityTasks(ExecutorsState)} measures only the
+ * executors layer, i.e. the queueing and execution of activity tasks, for
+ * each mapper and stats setting;</li>
+ * <li>{@link #hashRingLookup(HashRingState)} measures the lookup of an
+ * activity executor in the consistent hashing ring.</li>
+ * </ul>
+ * Each state holds only the parameters of its benchmark, thus a benchmark
+ * does not run for combinations of parameters it does not use.
+ * 
+ * <p>
+ * The benchmarks are compiled with the JMH annotation processor
+ * (<code>org.openjdk.jmh:jmh-generator-annprocess</code>) and run with
+ * <code>org.openjdk.jmh:jmh-core</code> in the classpath, either through
+ * {@link #main(String[])} or <code>java -jar benchmarks.jar
+ * EventRouterExecutorBenchmark</code>.
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EventRouterExecutorBenchmark {
+
+	/**
+	 * the number of tasks or events submitted in each invocation
+	 */
+	static final int TASKS = 1024;
+
+	private static EventRouterExecutor[] newExecutors(int executors,
+			boolean workStealing, WorkStealingExecutorPool pool,
+			boolean collectStats) {
+		final EventRouterExecutor[] routerExecutors = new EventRouterExecutor[executors];
+		for (int i = 0; i < executors; i++) {
+			routerExecutors[i] = workStealing ? new WorkStealingEventRouterExecutorImpl(
+					i, pool, collectStats, null)
+					: new EventRouterExecutorImpl(collectStats, null);
+		}
+		return routerExecutors;
+	}
+
+	private static ActivityContextHandle newActivityContextHandle(int i) {
+		return new NullActivityContextHandle(new NullActivityHandleImpl(
+				"benchmark-" + i));
+	}
+
+	/**
+	 * Counts down a latch, the cheapest task possible, to measure only the
+	 * executors overhead.
+	 */
+	private static class LatchTask implements Runnable {
+
+		private CountDownLatch latch;
+
+		public void run() {
+			latch.countDown();
+		}
+	}
+
+	/**
+	 * Queues a {@link LatchTask} in an activity executor, once all tasks
+	 * queued before this one are executed, which includes the commit of the
+	 * events fired, and thus the latch task is queued after the routing of
+	 * those events.
+	 */
+	private static class DrainTask implements Runnable {
+
+		private final EventRouterExecutor executor;
+
+		private final LatchTask latchTask;
+
+		DrainTask(EventRouterExecutor executor, LatchTask latchTask) {
+			this.executor = executor;
+			this.latchTask = latchTask;
+		}
+
+		public void run() {
+			executor.execute(latchTask);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class RoutingState {
+
+		@Param( { "1", "4", "16" })
+		public int executors;
+
+		@Param( { "single-thread", "work-stealing" })
+		public String executorType;
+
+		@Param( { "1", "64", "1024" })
+		public int activities;
+
+		@Param( { "hashing", "round-robin" })
+		public String mapper;
+
+		@Param( { "false", "true" })
+		public boolean collectStats;
+
+		@Param( { "0", "1", "4" })
+		public int attachedSbbs;
+
+		/**
+		 * the number of services which define the event as initial
+		 */
+		@Param( { "0", "1" })
+		public int initialServices;
+
+		private EventRoutingHarness harness;
+
+		private ActivityContextHandle[] handles;
+
+		private DrainTask[] drainTasks;
+
+		private final LatchTask latchTask = new LatchTask();
+
+		private final Object event = new Object();
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			final String executorMapperClassName = "hashing".equals(mapper) ? ActivityHashingEventRouterExecutorMapper.class
+					.getName()
+					: RoundRobinEventRouterExecutorMapper.class.getName();
+			harness = new EventRoutingHarness(executors, "work-stealing"
+					.equals(executorType), executorMapperClassName,
+					collectStats, initialServices);
+			handles = new ActivityContextHandle[activities];
+			drainTasks = new DrainTask[activities];
+			for (int i = 0; i < activities; i++) {
+				handles[i] = harness.startActivity("benchmark-" + i,
+						attachedSbbs);
+				drainTasks[i] = new DrainTask(harness.getExecutor(handles[i]),
+						latchTask);
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			harness.shutdown();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class ExecutorsState {
+
+		@Param( { "1", "4", "16" })
+		public int executors;
+
+		@Param( { "single-thread", "work-stealing" })
+		public String executorType;
+
+		@Param( { "hashing", "round-robin" })
+		public String mapper;
+
+		@Param( { "false", "true" })
+		public boolean collectStats;
+
+		@Param( { "1", "64", "1024" })
+		public int activities;
+
+		private WorkStealingExecutorPool pool;
+
+		private EventRouterExecutor[] routerExecutors;
+
+		private ActivityContextHandle[] handles;
+
+		/**
+		 * the executor of each activity, as returned by the mapper
+		 */
+		private EventRouterExecutor[] activityExecutors;
+
+		private final LatchTask latchTask = new LatchTask();
+
+		@Setup(Level.Trial)
+		public void setup() {
+			final boolean workStealing = "work-stealing".equals(executorType);
+			if (workStealing) {
+				pool = new WorkStealingExecutorPool(executors);
+			}
+			routerExecutors = newExecutors(executors, workStealing, pool,
+					collectStats);
+			final EventRouterExecutorMapper executorMapper = "hashing"
+					.equals(mapper) ? new ActivityHashingEventRouterExecutorMapper()
+					: new RoundRobinEventRouterExecutorMapper();
+			// no event router, the executors are not resized in the benchmark
+			executorMapper.setExecutors(null, routerExecutors);
+			handles = new ActivityContextHandle[activities];
+			activityExecutors = new EventRouterExecutor[activities];
+			for (int i = 0; i < activities; i++) {
+				handles[i] = newActivityContextHandle(i);
+				// mapped like the activity context factory does, before any
+				// task is queued
+				activityExecutors[i] = executorMapper.getExecutor(handles[i])
+						.getActivityExecutor(handles[i]);
+				activityExecutors[i].activityMapped(handles[i]);
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			for (int i = 0; i < activities; i++) {
+				activityExecutors[i].activityUnmapped(handles[i]);
+			}
+			for (EventRouterExecutor executor : routerExecutors) {
+				executor.shutdown();
+			}
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class HashRingState {
+
+		@Param( { "1", "4", "16" })
+		public int executors;
+
+		@Param( { "1", "64", "1024" })
+		public int activities;
+
+		private EventRouterExecutor[] routerExecutors;
+
+		private ExecutorHashRing ring;
+
+		private ActivityContextHandle[] handles;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			// the executors are only looked up, never started
+			routerExecutors = newExecutors(executors, false, null, false);
+			ring = new ExecutorHashRing(routerExecutors);
+			handles = new ActivityContextHandle[activities];
+			for (int i = 0; i < activities; i++) {
+				handles[i] = newActivityContextHandle(i);
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			for (EventRouterExecutor executor : routerExecutors) {
+				executor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Fires {@link #TASKS} events, spread over the activities, and waits for
+	 * their routing.
+	 * 
+	 * @param state
+	 * @throws Exception
+	 */
+	@Benchmark
+	@OperationsPerInvocation(TASKS)
+	public void routeEvents(RoutingState state) throws Exception {
+		final int activities = state.activities;
+		for (int i = 0; i < TASKS; i++) {
+			state.harness.fireEvent(state.handles[i % activities], state.event);
+		}
+		final CountDownLatch latch = new CountDownLatch(activities);
+		state.latchTask.latch = latch;
+		for (int i = 0; i < activities; i++) {
+			state.drainTasks[i].executor.execute(state.drainTasks[i]);
+		}
+		latch.await();
+	}
+
+	/**
+	 * Submits {@link #TASKS} tasks to the activities executors and waits for
+	 * their execution.
+	 * 
+	 * @param state
+	 * @throws InterruptedException
+	 */
+	@Benchmark
+	@OperationsPerInvocation(TASKS)
+	public void executeActivityTasks(ExecutorsState state)
+			throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(TASKS);
+		state.latchTask.latch = latch;
+		final int activities = state.activities;
+		for (int i = 0; i < TASKS; i++) {
+			state.activityExecutors[i % activities].execute(state.latchTask);
+		}
+		latch.await();
+	}
+
+	/**
+	 * Looks up the executor of each activity in the consistent hashing ring.
+	 * 
+	 * @param state
+	 * @return
+	 */
+	@Benchmark
+	@OperationsPerInvocation(TASKS)
+	public EventRouterExecutor hashRingLookup(HashRingState state) {
+		final int activities = state.activities;
+		EventRouterExecutor executor = null;
+		for (int i = 0; i < TASKS; i++) {
+			executor = state.ring.getExecutor(state.handles[i % activities]
+					.hashCode());
+		}
+		return executor;
+	}
+
+	/**
+	 * Runs the benchmarks of this class, or the ones matching the specified
+	 * regular expressions.
+	 * 
+	 * @param args
+	 * @throws RunnerException
+	 */
+	public static void main(String[] args) throws RunnerException {
+		final OptionsBuilder options = new OptionsBuilder();
+		if (args.length == 0) {
+			options.include(EventRouterExecutorBenchmark.class.getSimpleName());
+		} else {
+			for (String regexp : args) {
+				options.include(regexp);
+			}
+		}
+		new Runner(options.build()).run();
+	}
+
+}
@@ -0,0 +1,539 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.test.benchmark;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.slee.EventTypeID;
+import javax.slee.ServiceID;
+import javax.slee.TransactionRequiredLocalException;
+import javax.slee.resource.ActivityFlags;
+import javax.slee.transaction.SleeTransaction;
+import javax.transaction.NotSupportedException;
+import javax.transaction.RollbackException;
+
+import org.jboss.cache.config.Configuration;
+import org.mobicents.cache.MobicentsCache;
+import org.mobicents.cluster.MobicentsCluster;
+import org.mobicents.slee.connector.local.MobicentsSleeConnectionFactory;
+import org.mobicents.slee.connector.local.SleeConnectionService;
+import org.mobicents.slee.container.SleeContainer;
+import org.mobicents.slee.container.activity.ActivityContext;
+import org.mobicents.slee.container.activity.ActivityContextHandle;
+import org.mobicents.slee.container.component.ComponentRepository;
+import org.mobicents.slee.container.component.classloading.ClassLoaderFactory;
+import org.mobicents.slee.container.component.event.EventTypeComponent;
+import org.mobicents.slee.container.component.sbb.EventEntryDescriptor;
+import org.mobicents.slee.container.component.sbb.InitialEventSelectorVariables;
+import org.mobicents.slee.container.component.sbb.SbbComponent;
+import org.mobicents.slee.container.component.sbb.SbbDescriptor;
+import org.mobicents.slee.container.component.service.ServiceComponent;
+import org.mobicents.slee.container.component.service.ServiceDescriptor;
+import org.mobicents.slee.container.congestion.CongestionControl;
+import org.mobicents.slee.container.deployment.SleeContainerDeployer;
+import org.mobicents.slee.container.event.DefaultEventContextFactoryDataSource;
+import org.mobicents.slee.container.event.EventContext;
+import org.mobicents.slee.container.event.EventContextFactoryImpl;
+import org.mobicents.slee.container.eventrouter.EventRouterExecutor;
+import org.mobicents.slee.container.facilities.ActivityContextNamingFacility;
+import org.mobicents.slee.container.facilities.TimerFacility;
+import org.mobicents.slee.container.facilities.nullactivity.NullActivityContextInterfaceFactory;
+import org.mobicents.slee.container.facilities.nullactivity.NullActivityFactory;
+import org.mobicents.slee.container.management.AlarmManagement;
+import org.mobicents.slee.container.management.ComponentManagement;
+import org.mobicents.slee.container.management.ProfileManagement;
+import org.mobicents.slee.container.management.ResourceManagement;
+import org.mobicents.slee.container.management.SbbManagement;
+import org.mobicents.slee.container.management.ServiceManagement;
+import org.mobicents.slee.container.management.TraceManagement;
+import org.mobicents.slee.container.management.UsageParametersManagement;
+import org.mobicents.slee.container.management.jmx.EventRouterConfiguration;
+import org.mobicents.slee.container.rmi.RmiServerInterface;
+import org.mobicents.slee.container.sbb.SbbObject;
+import org.mobicents.slee.container.sbbentity.SbbEntity;
+import org.mobicents.slee.container.sbbentity.SbbEntityFactory;
+import org.mobicents.slee.container.sbbentity.SbbEntityID;
+import org.mobicents.slee.container.transaction.SleeTransactionManager;
+import org.mobicents.slee.container.transaction.TransactionContext;
+import org.mobicents.slee.runtime.activity.ActivityContextFactoryImpl;
+import org.mobicents.slee.runtime.activity.ActivityManagementConfiguration;
+import org.mobicents.slee.runtime.eventrouter.EventRouterImpl;
+import org.mobicents.slee.runtime.facilities.nullactivity.NullActivityContextHandle;
+import org.mobicents.slee.runtime.facilities.nullactivity.NullActivityHandleImpl;
+import org.mobicents.slee.runtime.sbbentity.RootSbbEntityID;
+import org.mobicents.slee.runtime.transaction.TransactionContextImpl;
+
+/**
+ * A SLEE container with the real event routing path, i.e. activity context
+ * factory, event context factory, activity event queue managers, event router
+ * executors and event routing tasks, over the in memory activity context
+ * store. The components, the sbb entities and the transaction manager are
+ * stubs, the sbb entities attached to the activities receive the benchmark
+ * event with an empty event handler. The benchmark event may also be initial
+ * for some active services, whose root sbb selects the activity context and
+ * the event type for the convergence name, thus each event goes through the
+ * convergence name computation, and the first event in an activity creates
+ * the root sbb entity of each service.
+ * 
+ * <p>
+ * Several classes of the routing path keep the container in static fields,
+ * thus there can be only one harness per JVM, which matches the JMH forks.
+ * 
+ */
+final class EventRoutingHarness {
+
+	/**
+	 * the type of the events fired
+	 */
+	static final EventTypeID EVENT_TYPE_ID = new EventTypeID(
+			"BenchmarkEvent", "org.mobicents", "1.0");
+
+	private static final ServiceID SERVICE_ID = new ServiceID(
+			"BenchmarkService", "org.mobicents", "1.0");
+
+	private final MobicentsCache cache;
+
+	private final EventRouterImpl eventRouter;
+
+	private final ActivityContextFactoryImpl activityContextFactory;
+
+	private final SleeTransactionManager transactionManager = Stubs.stub(
+			SleeTransactionManager.class, new TransactionManagerDelegate());
+
+	private final ConcurrentHashMap<SbbEntityID, SbbEntity> sbbEntities = new ConcurrentHashMap<SbbEntityID, SbbEntity>();
+
+	private final SbbComponent sbbComponent;
+
+	private final SbbObject sbbObject = Stubs.stub(SbbObject.class, null);
+
+	/**
+	 * Creates and starts the container.
+	 * 
+	 * @param executors
+	 *            the number of event router executors
+	 * @param workStealing
+	 * @param executorMapperClassName
+	 * @param collectStats
+	 * @param initialServices
+	 *            the number of active services which define the event as
+	 *            initial
+	 * @throws Exception
+	 */
+	EventRoutingHarness(int executors, boolean workStealing,
+			String executorMapperClassName, boolean collectStats,
+			int initialServices) throws Exception {
+
+		final Field sleeContainerField = SleeContainer.class
+				.getDeclaredField("sleeContainer");
+		sleeContainerField.setAccessible(true);
+		if (sleeContainerField.get(null) != null) {
+			throw new IllegalStateException(
+					"a SLEE container already exists in this JVM");
+		}
+
+		// the sbb component receives the benchmark event, and when it is the
+		// root sbb of a service the event is initial, with a convergence name
+		// made of the activity context and the event type
+		final InitialEventSelectorVariables initialEventSelectorVariables = Stubs
+				.stub(InitialEventSelectorVariables.class, new Object() {
+					public boolean isActivityContextSelected() {
+						return true;
+					}
+
+					public boolean isEventTypeSelected() {
+						return true;
+					}
+				});
+		final EventEntryDescriptor eventEntry = Stubs.stub(
+				EventEntryDescriptor.class, new Object() {
+					public boolean isReceived() {
+						return true;
+					}
+
+					public boolean isInitialEvent() {
+						return true;
+					}
+
+					public InitialEventSelectorVariables getInitialEventSelectVariables() {
+						return initialEventSelectorVariables;
+					}
+				});
+		final Map<EventTypeID, EventEntryDescriptor> eventEntries = Collections
+				.singletonMap(EVENT_TYPE_ID, eventEntry);
+		final SbbDescriptor sbbDescriptor = Stubs.stub(SbbDescriptor.class,
+				new Object() {
+					public Map<EventTypeID, EventEntryDescriptor> getEventEntries() {
+						return eventEntries;
+					}
+				});
+		sbbComponent = Stubs.stub(SbbComponent.class, new Object() {
+			public SbbDescriptor getDescriptor() {
+				return sbbDescriptor;
+			}
+		});
+
+		final Set<ServiceComponent> initialEventServices = new LinkedHashSet<ServiceComponent>();
+		final ServiceDescriptor serviceDescriptor = Stubs.stub(
+				ServiceDescriptor.class, new Object() {
+					public byte getDefaultPriority() {
+						return 0;
+					}
+				});
+		for (int i = 0; i < initialServices; i++) {
+			final ServiceID serviceID = new ServiceID("BenchmarkInitialService"
+					+ i, "org.mobicents", "1.0");
+			initialEventServices.add(Stubs.stub(ServiceComponent.class,
+					new Object() {
+						public ServiceID getServiceID() {
+							return serviceID;
+						}
+
+						public SbbComponent getRootSbbComponent() {
+							return sbbComponent;
+						}
+
+						public ServiceDescriptor getDescriptor() {
+							return serviceDescriptor;
+						}
+					}));
+		}
+		final EventTypeComponent eventTypeComponent = Stubs.stub(
+				EventTypeComponent.class, new Object() {
+					public Set<ServiceComponent> getActiveServicesWhichDefineEventAsInitial() {
+						return initialEventServices;
+					}
+				});
+		final ComponentRepository componentRepository = Stubs.stub(
+				ComponentRepository.class, new Object() {
+					public EventTypeComponent getComponentByID(EventTypeID id) {
+						return EVENT_TYPE_ID.equals(id) ? eventTypeComponent
+								: null;
+					}
+				});
+		final ComponentManagement componentManagement = Stubs.stub(
+				ComponentManagement.class, new Object() {
+					public ClassLoaderFactory getClassLoaderFactory() {
+						return Stubs.stub(ClassLoaderFactory.class, null);
+					}
+
+					public ComponentRepository getComponentRepository() {
+						return componentRepository;
+					}
+				});
+
+		// a local cache, the activity context data is in the local store
+		cache = new MobicentsCache(new Configuration());
+		cache.startCache();
+		final MobicentsCluster cluster = Stubs.stub(MobicentsCluster.class,
+				new Object() {
+					public MobicentsCache getMobicentsCache() {
+						return cache;
+					}
+
+					public boolean isLocalStore() {
+						return true;
+					}
+				});
+
+		final SbbEntityFactory sbbEntityFactory = Stubs.stub(
+				SbbEntityFactory.class, new Object() {
+					public SbbEntity getSbbEntity(SbbEntityID sbbEntityID,
+							boolean lock) {
+						return sbbEntities.get(sbbEntityID);
+					}
+
+					public SbbEntity createRootSbbEntity(
+							SbbEntityID rootSbbEntityID) {
+						final SbbEntity sbbEntity = sbbEntities
+								.get(rootSbbEntityID);
+						if (sbbEntity != null) {
+							return sbbEntity;
+						}
+						final SbbEntity createdSbbEntity = Stubs.stub(
+								SbbEntity.class, new SbbEntityDelegate(
+										rootSbbEntityID, (byte) 0, true));
+						final SbbEntity existingSbbEntity = sbbEntities
+								.putIfAbsent(rootSbbEntityID, Stubs.stub(
+										SbbEntity.class, new SbbEntityDelegate(
+												rootSbbEntityID, (byte) 0,
+												false)));
+						return existingSbbEntity != null ? existingSbbEntity
+								: createdSbbEntity;
+					}
+				});
+
+		final EventRouterConfiguration eventRouterConfiguration = new EventRouterConfiguration();
+		eventRouterConfiguration.setEventRouterThreads(executors);
+		eventRouterConfiguration.setWorkStealing(workStealing);
+		eventRouterConfiguration
+				.setExecutorMapperClassName(executorMapperClassName);
+		eventRouterConfiguration.setCollectStats(collectStats);
+		eventRouter = new EventRouterImpl(eventRouterConfiguration);
+		activityContextFactory = new ActivityContextFactoryImpl(
+				new ActivityManagementConfiguration());
+
+		final SleeContainer sleeContainer = new SleeContainer(null,
+				componentManagement, Stubs.stub(SbbManagement.class, null),
+				Stubs.stub(ServiceManagement.class, null), Stubs.stub(
+						ResourceManagement.class, null), Stubs.stub(
+						ProfileManagement.class, null),
+				new EventContextFactoryImpl(
+						new DefaultEventContextFactoryDataSource()),
+				eventRouter, Stubs.stub(TimerFacility.class, null),
+				activityContextFactory, Stubs.stub(
+						ActivityContextNamingFacility.class, null), Stubs
+						.stub(NullActivityContextInterfaceFactory.class, null),
+				Stubs.stub(NullActivityFactory.class, null), Stubs.stub(
+						RmiServerInterface.class, null), transactionManager,
+				cluster, Stubs.stub(AlarmManagement.class, null), Stubs.stub(
+						TraceManagement.class, null), Stubs.stub(
+						UsageParametersManagement.class, null),
+				sbbEntityFactory, Stubs.stub(CongestionControl.class, null),
+				Stubs.stub(SleeConnectionService.class, null), Stubs.stub(
+						MobicentsSleeConnectionFactory.class, null), Stubs
+						.stub(SleeContainerDeployer.class, null));
+		// what the container does when registering in JNDI
+		sleeContainerField.set(null, sleeContainer);
+
+		eventRouter.sleeStarting();
+		activityContextFactory.sleeStarting();
+	}
+
+	/**
+	 * Starts a null activity, with the specified number of root sbb entities
+	 * attached, each with a different priority.
+	 * 
+	 * @param name
+	 * @param attachedSbbs
+	 * @return the handle of the activity context
+	 * @throws Exception
+	 */
+	ActivityContextHandle startActivity(String name, int attachedSbbs)
+			throws Exception {
+		final ActivityContextHandle ach = new NullActivityContextHandle(
+				new NullActivityHandleImpl(name));
+		transactionManager.begin();
+		final ActivityContext ac = activityContextFactory
+				.createActivityContext(ach, ActivityFlags.NO_FLAGS);
+		for (int i = 0; i < attachedSbbs; i++) {
+			final SbbEntityID sbbEntityID = new RootSbbEntityID(SERVICE_ID,
+					name + "-" + i);
+			sbbEntities.put(sbbEntityID, Stubs.stub(SbbEntity.class,
+					new SbbEntityDelegate(sbbEntityID, (byte) i, false)));
+			ac.attachSbbEntity(sbbEntityID);
+		}
+		transactionManager.commit();
+		// maps the activity to an executor
+		ac.getLocalActivityContext();
+		return ach;
+	}
+
+	/**
+	 * Fires an event on the specified activity, in its own transaction, as
+	 * the SLEE endpoint does.
+	 * 
+	 * @param ach
+	 * @param event
+	 * @throws Exception
+	 */
+	void fireEvent(ActivityContextHandle ach, Object event) throws Exception {
+		transactionManager.begin();
+		activityContextFactory.getActivityContext(ach).fireEvent(
+				EVENT_TYPE_ID, event, null, null, null, null, null);
+		transactionManager.commit();
+	}
+
+	/**
+	 * 
+	 * @param ach
+	 * @return the executor where the events of the specified activity are
+	 *         routed
+	 */
+	EventRouterExecutor getExecutor(ActivityContextHandle ach) {
+		return activityContextFactory.getActivityContext(ach)
+				.getLocalActivityContext().getExecutorService();
+	}
+
+	/**
+	 * Stops the executors and the cache.
+	 */
+	void shutdown() {
+		eventRouter.shutdownExecutors();
+		cache.stopCache();
+	}
+
+	/**
+	 * An attached root sbb entity, which is never removed while routing an
+	 * event.
+	 */
+	private class SbbEntityDelegate {
+
+		private final SbbEntityID sbbEntityId;
+
+		private final byte priority;
+
+		/**
+		 * if the entity was created by the lookup which returned it
+		 */
+		private final boolean created;
+
+		SbbEntityDelegate(SbbEntityID sbbEntityId, byte priority,
+				boolean created) {
+			this.sbbEntityId = sbbEntityId;
+			this.priority = priority;
+			this.created = created;
+		}
+
+		public SbbEntityID getSbbEntityId() {
+			return sbbEntityId;
+		}
+
+		public SbbComponent getSbbComponent() {
+			return sbbComponent;
+		}
+
+		public byte getPriority() {
+			return priority;
+		}
+
+		public boolean isCreated() {
+			return created;
+		}
+
+		public boolean isAttached(ActivityContextHandle ach) {
+			return true;
+		}
+
+		public int getAttachmentCount() {
+			return 1;
+		}
+
+		public SbbObject getSbbObject() {
+			return sbbObject;
+		}
+
+		public void invokeEventHandler(EventContext sleeEvent,
+				ActivityContext ac, EventContext eventContextImpl) {
+			// empty event handler
+		}
+	}
+
+	/**
+	 * A thread bound transaction, without resources, which executes the
+	 * actions of its context on commit or rollback.
+	 */
+	private static class BenchmarkTransactionContext extends
+			TransactionContextImpl {
+
+		private final SleeTransaction transaction = Stubs.stub(
+				SleeTransaction.class, null);
+
+		private boolean rollbackOnly;
+
+		void committed() {
+			executeBeforeCommitPriorityActions();
+			executeBeforeCommitActions();
+			executeAfterCommitPriorityActions();
+			executeAfterCommitActions();
+		}
+
+		void rolledBack() {
+			executeAfterRollbackActions();
+		}
+	}
+
+	private static class TransactionManagerDelegate {
+
+		private final ThreadLocal<BenchmarkTransactionContext> transactionContext = new ThreadLocal<BenchmarkTransactionContext>();
+
+		private BenchmarkTransactionContext end() {
+			final BenchmarkTransactionContext txContext = transactionContext
+					.get();
+			if (txContext == null) {
+				throw new IllegalStateException("no transaction");
+			}
+			transactionContext.remove();
+			return txContext;
+		}
+
+		public void begin() throws NotSupportedException {
+			if (transactionContext.get() != null) {
+				throw new NotSupportedException(
+						"nested transactions are not supported");
+			}
+			transactionContext.set(new BenchmarkTransactionContext());
+		}
+
+		public void commit() throws RollbackException {
+			final BenchmarkTransactionContext txContext = end();
+			if (txContext.rollbackOnly) {
+				txContext.rolledBack();
+				throw new RollbackException("transaction marked for rollback");
+			}
+			txContext.committed();
+		}
+
+		public void rollback() {
+			end().rolledBack();
+		}
+
+		public void setRollbackOnly() {
+			final BenchmarkTransactionContext txContext = transactionContext
+					.get();
+			if (txContext == null) {
+				throw new IllegalStateException("no transaction");
+			}
+			txContext.rollbackOnly = true;
+		}
+
+		public boolean getRollbackOnly() {
+			final BenchmarkTransactionContext txContext = transactionContext
+					.get();
+			return txContext != null && txContext.rollbackOnly;
+		}
+
+		public SleeTransaction getTransaction() {
+			final BenchmarkTransactionContext txContext = transactionContext
+					.get();
+			return txContext == null ? null : txContext.transaction;
+		}
+
+		public TransactionContext getTransactionContext() {
+			return transactionContext.get();
+		}
+
+		public void mandateTransaction()
+				throws TransactionRequiredLocalException {
+			if (transactionContext.get() == null) {
+				throw new TransactionRequiredLocalException(
+						"no transaction");
+			}
+		}
+	}
+
+}
@@ -0,0 +1,186 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.mobicents.slee.test.benchmark;
+
+import gov.nist.javax.sip.parser.chars.HeaderParser;
+import gov.nist.javax.sip.parser.chars.ParserFactory;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the SIP header parsing, comparing a parser created for
+ * each header, through {@link ParserFactory#createParser(char[])}, with the
+ * per thread parsers reused through
+ * {@link ParserFactory#acquireParser(char[], int, int)}. Each invocation
+ * parses all headers of a message, thus the score is the time to parse the
+ * headers of one message. Every parsed header is consumed by a
+ * {@link Blackhole}, so that the JIT can't eliminate any of the parsing.
+ * 
+ * <p>
+ * Compiled with the JMH annotation processor
+ * (<code>org.openjdk.jmh:jmh-generator-annprocess</code>), run with
+ * <code>org.openjdk.jmh:jmh-core</code> in the classpath, either through
+ * {@link #main(String[])} or
+ * <code>java -jar benchmarks.jar HeaderParserBenchmark</code>.
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HeaderParserBenchmark {
+
+	static final String INVITE = "INVITE sip:bob@biloxi.example.com SIP/2.0\r\n"
+			+ "Via: SIP/2.0/UDP pc33.atlanta.example.com:5060;branch=z9hG4bK776asdhds;rport\r\n"
+			+ "Via: SIP/2.0/UDP proxy.atlanta.example.com:5060;branch=z9hG4bK74bf9;received=192.0.2.101\r\n"
+			+ "Max-Forwards: 70\r\n"
+			+ "Route: <sip:proxy.biloxi.example.com;lr>\r\n"
+			+ "To: Bob <sip:bob@biloxi.example.com>\r\n"
+			+ "From: Alice <sip:alice@atlanta.example.com>;tag=1928301774\r\n"
+			+ "Call-ID: a84b4c76e66710@pc33.atlanta.example.com\r\n"
+			+ "CSeq: 314159 INVITE\r\n"
+			+ "Contact: <sip:alice@pc33.atlanta.example.com;transport=udp>\r\n"
+			+ "Allow: INVITE, ACK, CANCEL, OPTIONS, BYE, REFER, NOTIFY, MESSAGE, SUBSCRIBE, INFO\r\n"
+			+ "Supported: replaces, timer, 100rel\r\n"
+			+ "User-Agent: Mobicents SIP Servlets 1.7\r\n"
+			+ "Session-Expires: 1800;refresher=uac\r\n"
+			+ "Content-Type: application/sdp\r\n"
+			+ "Content-Length: 142\r\n";
+
+	static final String REGISTER = "REGISTER sip:registrar.biloxi.example.com SIP/2.0\r\n"
+			+ "Via: SIP/2.0/TCP bobspc.biloxi.example.com:5060;branch=z9hG4bKnashds7\r\n"
+			+ "Max-Forwards: 70\r\n"
+			+ "To: Bob <sip:bob@biloxi.example.com>\r\n"
+			+ "From: Bob <sip:bob@biloxi.example.com>;tag=456248\r\n"
+			+ "Call-ID: 843817637684230@998sdasdh09\r\n"
+			+ "CSeq: 1826 REGISTER\r\n"
+			+ "Contact: <sip:bob@192.0.2.4:5060;transport=tcp>;expires=7200;+sip.instance=\"<urn:uuid:00000000-0000-1000-8000-000A95A0E128>\"\r\n"
+			+ "Authorization: Digest username=\"bob\", realm=\"biloxi.example.com\", nonce=\"dcd98b7102dd2f0e8b11d0f600bfb0c093\", uri=\"sip:registrar.biloxi.example.com\", response=\"245f23415f11432b3434341c022\", algorithm=MD5\r\n"
+			+ "Expires: 7200\r\n"
+			+ "Supported: path, outbound, gruu\r\n"
+			+ "User-Agent: Mobicents SIP Servlets 1.7\r\n"
+			+ "Content-Length: 0\r\n";
+
+	static final String OK = "SIP/2.0 200 OK\r\n"
+			+ "Via: SIP/2.0/UDP pc33.atlanta.example.com:5060;branch=z9hG4bK776asdhds;rport=5060;received=192.0.2.101\r\n"
+			+ "Record-Route: <sip:proxy.biloxi.example.com;lr>\r\n"
+			+ "Record-Route: <sip:proxy.atlanta.example.com;lr>\r\n"
+			+ "To: Bob <sip:bob@biloxi.example.com>;tag=a6c85cf\r\n"
+			+ "From: Alice <sip:alice@atlanta.example.com>;tag=1928301774\r\n"
+			+ "Call-ID: a84b4c76e66710@pc33.atlanta.example.com\r\n"
+			+ "CSeq: 314159 INVITE\r\n"
+			+ "Contact: <sip:bob@192.0.2.4;transport=udp>\r\n"
+			+ "Allow: INVITE, ACK, CANCEL, OPTIONS, BYE\r\n"
+			+ "Server: Mobicents SIP Servlets 1.7\r\n"
+			+ "Content-Type: application/sdp\r\n"
+			+ "Content-Length: 131\r\n";
+
+	@Param( { "INVITE", "REGISTER", "200-OK" })
+	public String message;
+
+	/**
+	 * the headers of the message, each terminated by a line feed, as handed
+	 * to the header parsers by the message parser
+	 */
+	private char[][] headers;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final String msg = "INVITE".equals(message) ? INVITE : "REGISTER"
+				.equals(message) ? REGISTER : OK;
+		final String[] lines = msg.split("\r\n");
+		final List<char[]> list = new ArrayList<char[]>(lines.length);
+		// skips the request or status line
+		for (int i = 1; i < lines.length; i++) {
+			list.add((lines[i] + "\n").toCharArray());
+		}
+		headers = list.toArray(new char[list.size()][]);
+	}
+
+	/**
+	 * Parses the message headers with a new parser, and lexer, for each
+	 * header.
+	 * 
+	 * @param bh
+	 * @throws ParseException
+	 */
+	@Benchmark
+	public void createParser(Blackhole bh) throws ParseException {
+		for (char[] line : headers) {
+			bh.consume(ParserFactory.createParser(line).parse());
+		}
+	}
+
+	/**
+	 * Parses the message headers with the thread's parsers, reset for each
+	 * header.
+	 * 
+	 * @param bh
+	 * @throws ParseException
+	 */
+	@Benchmark
+	public void acquireParser(Blackhole bh) throws ParseException {
+		for (char[] line : headers) {
+			final HeaderParser parser = ParserFactory.acquireParser(line, 0,
+					line.length);
+			try {
+				bh.consume(parser.parse());
+			} finally {
+				ParserFactory.releaseParser(parser);
+			}
+		}
+	}
+
+	/**
+	 * Runs the benchmarks of this class.
+	 * 
+	 * @param args
+	 * @throws RunnerException
+	 */
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(
+				HeaderParserBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.slee.test.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates stubs of the SLEE container interfaces, which are too large to be
+ * implemented by the benchmarks. A stub forwards each method invocation to
+ * the method with same name and parameter types of its delegate, if there is
+ * such method, otherwise it returns the default value of the return type,
+ * i.e. false, zero or null.
+ * 
+ */
+final class Stubs {
+
+	private Stubs() {
+	}
+
+	/**
+	 * Creates a stub of the specified interface.
+	 * 
+	 * @param type
+	 * @param delegate
+	 *            the object implementing the methods needed, may be null
+	 * @return
+	 */
+	static <T> T stub(Class<T> type, Object delegate) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+				new Class<?>[] { type }, new StubInvocationHandler(type,
+						delegate)));
+	}
+
+	private static class StubInvocationHandler implements InvocationHandler {
+
+		/**
+		 * marks interface methods not implemented by the delegate
+		 */
+		private static final Method NOT_IMPLEMENTED;
+
+		static {
+			try {
+				NOT_IMPLEMENTED = Object.class.getMethod("toString");
+			} catch (NoSuchMethodException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+
+		private final Class<?> type;
+
+		private final Object delegate;
+
+		private final ConcurrentHashMap<Method, Method> delegateMethods = new ConcurrentHashMap<Method, Method>();
+
+		StubInvocationHandler(Class<?> type, Object delegate) {
+			this.type = type;
+			this.delegate = delegate;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object,
+		 * java.lang.reflect.Method, java.lang.Object[])
+		 */
+		public Object invoke(Object proxy, Method method, Object[] args)
+				throws Throwable {
+			if (method.getDeclaringClass() == Object.class) {
+				final String name = method.getName();
+				if (name.equals("equals")) {
+					return Boolean.valueOf(proxy == args[0]);
+				} else if (name.equals("hashCode")) {
+					return Integer.valueOf(System.identityHashCode(proxy));
+				} else {
+					return "Stub[" + type.getName() + "]";
+				}
+			}
+			final Method delegateMethod = getDelegateMethod(method);
+			if (delegateMethod == NOT_IMPLEMENTED) {
+				return defaultValue(method.getReturnType());
+			}
+			try {
+				return delegateMethod.invoke(delegate, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+
+		private Method getDelegateMethod(Method method) {
+			Method delegateMethod = delegateMethods.get(method);
+			if (delegateMethod == null) {
+				delegateMethod = NOT_IMPLEMENTED;
+				if (delegate != null) {
+					try {
+						delegateMethod = delegate.getClass().getMethod(
+								method.getName(), method.getParameterTypes());
+						// delegates are usually private nested classes
+						delegateMethod.setAccessible(true);
+					} catch (NoSuchMethodException e) {
+						// not implemented
+					}
+				}
+				delegateMethods.put(method, delegateMethod);
+			}
+			return delegateMethod;
+		}
+
+		private static Object defaultValue(Class<?> returnType) {
+			if (!returnType.isPrimitive() || returnType == Void.TYPE) {
+				return null;
+			}
+			if (returnType == Boolean.TYPE) {
+				return Boolean.FALSE;
+			}
+			if (returnType == Character.TYPE) {
+				return Character.valueOf((char) 0);
+			}
+			if (returnType == Byte.TYPE) {
+				return Byte.valueOf((byte) 0);
+			}
+			if (returnType == Short.TYPE) {
+				return Short.valueOf((short) 0);
+			}
+			if (returnType == Integer.TYPE) {
+				return Integer.valueOf(0);
+			}
+			if (returnType == Long.TYPE) {
+				return Long.valueOf(0L);
+			}
+			if (returnType == Float.TYPE) {
+				return Float.valueOf(0F);
+			}
+			return Double.valueOf(0D);
+		}
+	}
+
+}
@@ -26,8 +26,6 @@ import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
@@ -53,9 +51,9 @@ public class FaultTolerantScheduler {
 	private static final Logger logger = Logger.getLogger(FaultTolerantScheduler.class);
 	
 	/**
-	 * the executor of timer tasks
+	 * the engine executing timer tasks
 	 */
-	private final ScheduledThreadPoolExecutor executor;
+	private final SchedulerEngine engine;
 	
 	/**
 	 * the jta tx manager
@@ -119,22 +117,21 @@ public class FaultTolerantScheduler {
 	 * @param purgePeriod
 	 */
 	public FaultTolerantScheduler(String name, int corePoolSize, MobicentsCluster cluster, byte priority, TransactionManager txManager,TimerTaskFactory timerTaskFactory, int purgePeriod) {
+		this(name, new ThreadPoolSchedulerEngine(corePoolSize, purgePeriod), cluster, priority, txManager, timerTaskFactory);
+	}
+	
+	/**
+	 * 
+	 * @param name
+	 * @param engine the engine which executes the timer tasks of this scheduler
+	 * @param cluster
+	 * @param priority
+	 * @param txManager
+	 * @param timerTaskFactory
+	 */
+	public FaultTolerantScheduler(String name, SchedulerEngine engine, MobicentsCluster cluster, byte priority, TransactionManager txManager,TimerTaskFactory timerTaskFactory) {
 		this.name = name;
-		this.executor = new ScheduledThreadPoolExecutor(corePoolSize);
-		if(purgePeriod > 0) {
-			Runnable r = new Runnable() {			
-				@Override
-				public void run() {
-					try {
-						executor.purge();				
-					}
-					catch (Exception e) {
-						logger.error("failed to execute purge",e);
-					}
-				}
-			};
-			this.executor.scheduleWithFixedDelay(r, purgePeriod, purgePeriod, TimeUnit.MINUTES);
-		}
+		this.engine = engine;
 		this.baseFqn = Fqn.fromElements(name);
 		this.cluster = cluster;		
 		this.timerTaskFactory = timerTaskFactory;
@@ -164,11 +161,11 @@ public class FaultTolerantScheduler {
 	}
 	
 	/**
-	 * Retrieves the executor of timer tasks.
+	 * Retrieves the engine executing timer tasks.
 	 * @return
 	 */
-	ScheduledThreadPoolExecutor getExecutor() {
-		return executor;
+	SchedulerEngine getEngine() {
+		return engine;
 	}
 	
 	/**
@@ -398,7 +395,7 @@ public class FaultTolerantScheduler {
 		cluster.removeFailOverListener(clusterClientLocalListener);
 		cluster.removeDataRemovalListener(clusterClientLocalListener);
 		
-		executor.shutdownNow();
+		engine.shutdownNow();
 		localRunningTasks.clear();
 	}
 	
@@ -408,7 +405,7 @@ public class FaultTolerantScheduler {
 	}
 	
 	public String toDetailedString() {		
-		return "FaultTolerantScheduler [ name = "+name+" , local tasks = "+localRunningTasks.size()+" , all tasks "+cacheData.getTaskIDs().size()+" ]";
+		return "FaultTolerantScheduler [ name = "+name+" , local tasks = "+localRunningTasks.size()+" , all tasks "+cacheData.getTaskIDs().size()+" , engine = "+engine+" ]";
 	}
 	
 	public void stop() {
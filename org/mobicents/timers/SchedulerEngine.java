@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.timers;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The engine which executes the {@link TimerTask}s of a
+ * {@link FaultTolerantScheduler}, once they are set, i.e. once the tx which
+ * scheduled them commits. The scheduling semantics are the ones of
+ * {@link java.util.concurrent.ScheduledExecutorService}.
+ * 
+ */
+public interface SchedulerEngine {
+
+	/**
+	 * Schedules a one-shot task.
+	 * 
+	 * @param task
+	 * @param delay
+	 * @param unit
+	 * @return
+	 */
+	public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit);
+
+	/**
+	 * Schedules a periodic task, see {@link PeriodicScheduleStrategy#atFixedRate}.
+	 * 
+	 * @param task
+	 * @param initialDelay
+	 * @param period
+	 * @param unit
+	 * @return
+	 */
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable task,
+			long initialDelay, long period, TimeUnit unit);
+
+	/**
+	 * Schedules a periodic task, see
+	 * {@link PeriodicScheduleStrategy#withFixedDelay}.
+	 * 
+	 * @param task
+	 * @param initialDelay
+	 * @param delay
+	 * @param unit
+	 * @return
+	 */
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task,
+			long initialDelay, long delay, TimeUnit unit);
+
+	/**
+	 * Stops the engine, tasks scheduled will not be executed.
+	 */
+	public void shutdownNow();
+
+}
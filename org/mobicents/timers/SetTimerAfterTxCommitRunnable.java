@@ -86,18 +86,18 @@ public class SetTimerAfterTxCommitRunnable extends AfterTxCommitRunnable {
 						logger.debug("Scheduling one-shot timer with id "
 								+ task.getData().getTaskID() + ", delay " + delay);
 					}
-					task.setScheduledFuture(scheduler.getExecutor().schedule(task, delay, TimeUnit.MILLISECONDS));
+					task.setScheduledFuture(scheduler.getEngine().schedule(task, delay, TimeUnit.MILLISECONDS));
 				} else {
 					if (logger.isDebugEnabled()) {
 						logger.debug("Scheduling periodic timer with id "
 								+ task.getData().getTaskID() + ", scheduling strategy " + taskData.getPeriodicScheduleStrategy() + ", delay " + delay + ", period " + taskData.getPeriod());
 					}
 					if (taskData.getPeriodicScheduleStrategy() == PeriodicScheduleStrategy.withFixedDelay) {
-						task.setScheduledFuture(scheduler.getExecutor().scheduleWithFixedDelay(task, delay, taskData.getPeriod(),TimeUnit.MILLISECONDS));
+						task.setScheduledFuture(scheduler.getEngine().scheduleWithFixedDelay(task, delay, taskData.getPeriod(),TimeUnit.MILLISECONDS));
 					}
 					else {
 						// default
-						task.setScheduledFuture(scheduler.getExecutor().scheduleAtFixedRate(task, delay, taskData.getPeriod(),TimeUnit.MILLISECONDS));
+						task.setScheduledFuture(scheduler.getEngine().scheduleAtFixedRate(task, delay, taskData.getPeriod(),TimeUnit.MILLISECONDS));
 					}					
 				}		
 			} catch (Throwable e) {
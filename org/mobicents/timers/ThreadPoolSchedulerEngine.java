@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.timers;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * {@link SchedulerEngine} backed by a {@link ScheduledThreadPoolExecutor}.
+ * Canceled tasks are only removed from the executor queue when they were
+ * due, or by the optional purge job.
+ * 
+ */
+public class ThreadPoolSchedulerEngine implements SchedulerEngine {
+
+	private static final Logger logger = Logger
+			.getLogger(ThreadPoolSchedulerEngine.class);
+
+	private final ScheduledThreadPoolExecutor executor;
+
+	/**
+	 * 
+	 * @param corePoolSize
+	 * @param purgePeriod
+	 *            the period, in minutes, to purge canceled tasks, 0 means no
+	 *            purge
+	 */
+	public ThreadPoolSchedulerEngine(int corePoolSize, int purgePeriod) {
+		this.executor = new ScheduledThreadPoolExecutor(corePoolSize);
+		if (purgePeriod > 0) {
+			Runnable r = new Runnable() {
+				public void run() {
+					try {
+						executor.purge();
+					} catch (Exception e) {
+						logger.error("failed to execute purge", e);
+					}
+				}
+			};
+			this.executor.scheduleWithFixedDelay(r, purgePeriod, purgePeriod,
+					TimeUnit.MINUTES);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.timers.SchedulerEngine#schedule(java.lang.Runnable, long, java.util.concurrent.TimeUnit)
+	 */
+	public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+		return executor.schedule(task, delay, unit);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.timers.SchedulerEngine#scheduleAtFixedRate(java.lang.Runnable, long, long, java.util.concurrent.TimeUnit)
+	 */
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable task,
+			long initialDelay, long period, TimeUnit unit) {
+		return executor.scheduleAtFixedRate(task, initialDelay, period, unit);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.timers.SchedulerEngine#scheduleWithFixedDelay(java.lang.Runnable, long, long, java.util.concurrent.TimeUnit)
+	 */
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task,
+			long initialDelay, long delay, TimeUnit unit) {
+		return executor.scheduleWithFixedDelay(task, initialDelay, delay, unit);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.timers.SchedulerEngine#shutdownNow()
+	 */
+	public void shutdownNow() {
+		executor.shutdownNow();
+	}
+
+	@Override
+	public String toString() {
+		return "ThreadPoolSchedulerEngine [ queue size = "
+				+ executor.getQueue().size() + " ]";
+	}
+}
@@ -0,0 +1,593 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc. and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.mobicents.timers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+
+/**
+ * {@link SchedulerEngine} based on a hierarchical hashed timing wheel.
+ * Scheduling and canceling are O(1), and only queue the timeout for the
+ * ticker thread, which owns the wheels. Canceled timeouts release their task
+ * immediately, and are unlinked from their slot in the next tick. The
+ * timeouts expired in each tick are handed to the worker threads in batches.
+ * 
+ * The wheels have {@link #WHEEL_SIZE} slots each, the slots of the first
+ * wheel last a single tick, and the slots of each upper wheel last a full
+ * turn of the one below. A timeout is placed in the lowest wheel which
+ * covers its expiration, and cascades to lower wheels as time advances.
+ * 
+ */
+public class TimingWheelSchedulerEngine implements SchedulerEngine {
+
+	private static final Logger logger = Logger
+			.getLogger(TimingWheelSchedulerEngine.class);
+
+	private static final int WHEEL_BITS = 8;
+	private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	/**
+	 * the number of wheels, timeouts beyond the top wheel range are kept in
+	 * an overflow slot, reevaluated each turn of the top wheel
+	 */
+	private static final int WHEELS = 4;
+
+	// timeout states
+	private static final int WAITING = 0;
+	private static final int RUNNING = 1;
+	private static final int CANCELED = 2;
+	private static final int DONE = 3;
+
+	/**
+	 * the tick duration in nanoseconds
+	 */
+	private final long tickDuration;
+
+	/**
+	 * the reference for deadlines and ticks
+	 */
+	private final long startTime = System.nanoTime();
+
+	private final Slot[][] wheels = new Slot[WHEELS][WHEEL_SIZE];
+
+	private final Slot overflow = new Slot();
+
+	/**
+	 * the last tick processed, only accessed by the ticker thread
+	 */
+	private long currentTick = 0L;
+
+	/**
+	 * timeouts to be placed in the wheels
+	 */
+	private final ConcurrentLinkedQueue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+	/**
+	 * timeouts canceled, to be unlinked from the wheels
+	 */
+	private final ConcurrentLinkedQueue<Timeout> canceledTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+	private final ExecutorService workers;
+
+	private final int workerThreads;
+
+	private final Thread ticker;
+
+	private volatile boolean shutdown = false;
+
+	/**
+	 * 
+	 * @param name
+	 *            the name used for the engine threads
+	 * @param workerThreads
+	 *            the number of threads executing the tasks
+	 * @param tickDuration
+	 * @param unit
+	 */
+	public TimingWheelSchedulerEngine(String name, int workerThreads,
+			long tickDuration, TimeUnit unit) {
+		if (workerThreads < 1) {
+			throw new IllegalArgumentException("invalid number of threads "
+					+ workerThreads);
+		}
+		this.tickDuration = unit.toNanos(tickDuration);
+		if (this.tickDuration <= 0) {
+			throw new IllegalArgumentException("invalid tick duration "
+					+ tickDuration + " " + unit);
+		}
+		for (int i = 0; i < WHEELS; i++) {
+			for (int j = 0; j < WHEEL_SIZE; j++) {
+				wheels[i][j] = new Slot();
+			}
+		}
+		this.workerThreads = workerThreads;
+		this.workers = Executors.newFixedThreadPool(workerThreads,
+				new NamedThreadFactory(name + "-worker-"));
+		this.ticker = new Thread(new Ticker(), name + "-ticker");
+		this.ticker.setDaemon(true);
+		this.ticker.start();
+	}
+
+	private long now() {
+		return System.nanoTime() - startTime;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.timers.SchedulerEngine#schedule(java.lang.Runnable, long, java.util.concurrent.TimeUnit)
+	 */
+	public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+		return schedule(task, delay, 0L, unit);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.timers.SchedulerEngine#scheduleAtFixedRate(java.lang.Runnable, long, long, java.util.concurrent.TimeUnit)
+	 */
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable task,
+			long initialDelay, long period, TimeUnit unit) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("invalid period " + period);
+		}
+		return schedule(task, initialDelay, period, unit);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.timers.SchedulerEngine#scheduleWithFixedDelay(java.lang.Runnable, long, long, java.util.concurrent.TimeUnit)
+	 */
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task,
+			long initialDelay, long delay, TimeUnit unit) {
+		if (delay <= 0) {
+			throw new IllegalArgumentException("invalid delay " + delay);
+		}
+		return schedule(task, initialDelay, -delay, unit);
+	}
+
+	private Timeout schedule(Runnable task, long delay, long period,
+			TimeUnit unit) {
+		if (task == null) {
+			throw new NullPointerException("null task");
+		}
+		if (shutdown) {
+			throw new IllegalStateException("engine is shutdown");
+		}
+		if (delay < 0) {
+			delay = 0;
+		}
+		final Timeout timeout = new Timeout(task, now() + unit.toNanos(delay),
+				unit.toNanos(period));
+		pendingTimeouts.offer(timeout);
+		return timeout;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.mobicents.timers.SchedulerEngine#shutdownNow()
+	 */
+	public void shutdownNow() {
+		shutdown = true;
+		ticker.interrupt();
+		workers.shutdownNow();
+		pendingTimeouts.clear();
+		canceledTimeouts.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "TimingWheelSchedulerEngine [ tick = " + tickDuration
+				+ " ns , threads = " + workerThreads + " ]";
+	}
+
+	// --- wheels management, all done by the ticker thread
+
+	/**
+	 * Places the specified timeout in the wheels, or in the expired list if
+	 * it is already due.
+	 * 
+	 * @param timeout
+	 * @param expired
+	 */
+	private void place(Timeout timeout, List<Timeout> expired) {
+		// round up, a timeout never fires before its deadline
+		final long expirationTick = (timeout.deadline + tickDuration - 1)
+				/ tickDuration;
+		final long ticks = expirationTick - currentTick;
+		if (ticks <= 0) {
+			expired.add(timeout);
+			return;
+		}
+		for (int wheel = 0; wheel < WHEELS; wheel++) {
+			if (ticks < 1L << ((wheel + 1) * WHEEL_BITS)) {
+				wheels[wheel][(int) ((expirationTick >>> (wheel * WHEEL_BITS)) & WHEEL_MASK)]
+						.add(timeout);
+				return;
+			}
+		}
+		overflow.add(timeout);
+	}
+
+	/**
+	 * Moves the timeouts of the specified slot to the wheels below, or to
+	 * the expired list.
+	 * 
+	 * @param slot
+	 * @param expired
+	 */
+	private void cascade(Slot slot, List<Timeout> expired) {
+		Timeout timeout = slot.removeAll();
+		Timeout next = null;
+		while (timeout != null) {
+			next = timeout.next;
+			timeout.next = null;
+			if (timeout.state.get() == WAITING) {
+				place(timeout, expired);
+			}
+			timeout = next;
+		}
+	}
+
+	/**
+	 * Advances the wheels a single tick.
+	 * 
+	 * @param expired
+	 */
+	private void tick(List<Timeout> expired) {
+		currentTick++;
+		// cascade upper wheels which completed a turn of the one below,
+		// starting from the top
+		for (int wheel = WHEELS - 1; wheel > 0; wheel--) {
+			final int shift = wheel * WHEEL_BITS;
+			if ((currentTick & ((1L << shift) - 1)) == 0) {
+				if (wheel == WHEELS - 1) {
+					cascade(overflow, expired);
+				}
+				cascade(wheels[wheel][(int) ((currentTick >>> shift) & WHEEL_MASK)],
+						expired);
+			}
+		}
+		cascade(wheels[0][(int) (currentTick & WHEEL_MASK)], expired);
+	}
+
+	/**
+	 * Hands the expired timeouts to the workers, splitting them in at most
+	 * one batch per worker thread.
+	 * 
+	 * @param expired
+	 */
+	private void dispatch(List<Timeout> expired) {
+		final int size = expired.size();
+		final int batchSize = (size + workerThreads - 1) / workerThreads;
+		for (int i = 0; i < size; i += batchSize) {
+			final List<Timeout> batch = expired.subList(i, Math.min(size, i
+					+ batchSize));
+			workers.execute(new Runnable() {
+				public void run() {
+					for (Timeout timeout : batch) {
+						timeout.run();
+					}
+				}
+			});
+		}
+	}
+
+	private class Ticker implements Runnable {
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			List<Timeout> expired = new ArrayList<Timeout>();
+			while (!shutdown) {
+				final long sleepTime = (currentTick + 1) * tickDuration - now();
+				if (sleepTime > 0) {
+					LockSupport.parkNanos(sleepTime);
+					continue;
+				}
+				try {
+					Timeout timeout = null;
+					while ((timeout = canceledTimeouts.poll()) != null) {
+						if (timeout.slot != null) {
+							timeout.slot.remove(timeout);
+						}
+					}
+					while ((timeout = pendingTimeouts.poll()) != null) {
+						if (timeout.state.get() == WAITING) {
+							place(timeout, expired);
+						}
+					}
+					final long nowTick = now() / tickDuration;
+					while (currentTick < nowTick) {
+						tick(expired);
+					}
+					if (!expired.isEmpty()) {
+						dispatch(expired);
+						expired = new ArrayList<Timeout>();
+					}
+				} catch (Throwable e) {
+					if (!shutdown) {
+						logger.error("Failure in timing wheel ticker", e);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A slot of a wheel, a doubly linked list of timeouts.
+	 * 
+	 */
+	private static class Slot {
+
+		private Timeout head;
+
+		void add(Timeout timeout) {
+			timeout.slot = this;
+			timeout.previous = null;
+			timeout.next = head;
+			if (head != null) {
+				head.previous = timeout;
+			}
+			head = timeout;
+		}
+
+		void remove(Timeout timeout) {
+			if (timeout.previous != null) {
+				timeout.previous.next = timeout.next;
+			} else {
+				head = timeout.next;
+			}
+			if (timeout.next != null) {
+				timeout.next.previous = timeout.previous;
+			}
+			timeout.slot = null;
+			timeout.previous = null;
+			timeout.next = null;
+		}
+
+		/**
+		 * Empties the slot.
+		 * 
+		 * @return the first of the timeouts which were in the slot, linked
+		 *         through {@link Timeout#next}
+		 */
+		Timeout removeAll() {
+			final Timeout first = head;
+			head = null;
+			for (Timeout timeout = first; timeout != null; timeout = timeout.next) {
+				timeout.slot = null;
+				timeout.previous = null;
+			}
+			return first;
+		}
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+
+		private final String prefix;
+		private final AtomicInteger count = new AtomicInteger(0);
+
+		NamedThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+		 */
+		public Thread newThread(Runnable r) {
+			return new Thread(r, prefix + count.incrementAndGet());
+		}
+	}
+
+	/**
+	 * A scheduled task.
+	 * 
+	 */
+	private class Timeout implements ScheduledFuture<Object>, Runnable {
+
+		/**
+		 * the task, released once canceled
+		 */
+		private volatile Runnable task;
+
+		/**
+		 * the deadline, relative to the engine start time
+		 */
+		private volatile long deadline;
+
+		/**
+		 * 0 for one-shot tasks, positive for fixed rate tasks, negative for
+		 * fixed delay tasks
+		 */
+		private final long period;
+
+		private final AtomicInteger state = new AtomicInteger(WAITING);
+
+		private Throwable failure;
+
+		// wheel links, only accessed by the ticker thread
+		private Slot slot;
+		private Timeout previous;
+		private Timeout next;
+
+		Timeout(Runnable task, long deadline, long period) {
+			this.task = task;
+			this.deadline = deadline;
+			this.period = period;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			final Runnable task = this.task;
+			if (task == null || !state.compareAndSet(WAITING, RUNNING)) {
+				return;
+			}
+			try {
+				task.run();
+			} catch (Throwable e) {
+				logger.error("Failure executing timer task " + task, e);
+				failure = e;
+				terminate(DONE);
+				return;
+			}
+			if (period == 0) {
+				terminate(DONE);
+				return;
+			}
+			deadline = period > 0 ? deadline + period : now() - period;
+			if (state.compareAndSet(RUNNING, WAITING)) {
+				pendingTimeouts.offer(this);
+			} else {
+				// canceled while running
+				signal();
+			}
+		}
+
+		private void terminate(int newState) {
+			if (state.compareAndSet(RUNNING, newState)) {
+				this.task = null;
+			}
+			signal();
+		}
+
+		private synchronized void signal() {
+			notifyAll();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.Future#cancel(boolean)
+		 */
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			int current = state.get();
+			while (current == WAITING || current == RUNNING) {
+				if (state.compareAndSet(current, CANCELED)) {
+					if (current == WAITING) {
+						task = null;
+						canceledTimeouts.offer(this);
+					}
+					signal();
+					return true;
+				}
+				current = state.get();
+			}
+			return false;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.Future#isCancelled()
+		 */
+		public boolean isCancelled() {
+			return state.get() == CANCELED;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.Future#isDone()
+		 */
+		public boolean isDone() {
+			final int current = state.get();
+			return current == CANCELED || current == DONE;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.Future#get()
+		 */
+		public synchronized Object get() throws InterruptedException,
+				ExecutionException {
+			while (!isDone()) {
+				wait();
+			}
+			return getResult();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.Future#get(long, java.util.concurrent.TimeUnit)
+		 */
+		public synchronized Object get(long timeout, TimeUnit unit)
+				throws InterruptedException, ExecutionException,
+				TimeoutException {
+			final long end = System.nanoTime() + unit.toNanos(timeout);
+			long remaining = 0L;
+			while (!isDone()) {
+				remaining = end - System.nanoTime();
+				if (remaining <= 0) {
+					throw new TimeoutException();
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+			return getResult();
+		}
+
+		private Object getResult() throws ExecutionException {
+			if (state.get() == CANCELED) {
+				throw new CancellationException();
+			}
+			if (failure != null) {
+				throw new ExecutionException(failure);
+			}
+			return null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.Delayed#getDelay(java.util.concurrent.TimeUnit)
+		 */
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(deadline - now(), TimeUnit.NANOSECONDS);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		public int compareTo(Delayed o) {
+			final long diff = getDelay(TimeUnit.NANOSECONDS)
+					- o.getDelay(TimeUnit.NANOSECONDS);
+			return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+		}
+	}
+}
@@ -97,6 +97,8 @@ public abstract class AbstractUsageCommand extends AbstractSleeCommand {
 		out.println("                                   Requires '--name' option to be present. Following options are supported: ");
 		out.println("           --name                  Specifies name of parameter in a set for get operation. Requires parameter name as argument. This option is mandatory.");
 		out.println("           --rst                   If present, indicates that 'get' operation should reset parameter value. Does not require argument.");
+		out.println("           --percentiles           If present, 'get' operation fetches the values at certain percentiles, of a sample parameter.");
+		out.println("                                   Requires comma separated list of percentiles as argument, e.g. 50,99,99.9. With '--rst' only the percentiles are reset.");
 		out.println("    -r, --reset                    Resets assets in 'Usage' realm. Does not take argument. If 'SetID' is specified, reset command resets specific set, otherwise it acts on default one.");
 		out.println("                                   If it is not present, reset command performs operation on default set. Following option is supported:");
 		out.println("           --all                   Resets ALL parameters for 'ResourceName', ignores 'SetID'.");
@@ -209,6 +211,7 @@ public abstract class AbstractUsageCommand extends AbstractSleeCommand {
 				new LongOpt("get", LongOpt.NO_ARGUMENT, null, 'g'),
 					new LongOpt("name", LongOpt.REQUIRED_ARGUMENT, null, GetOperation.name),
 					new LongOpt("rst", LongOpt.NO_ARGUMENT, null, GetOperation.rst),
+					new LongOpt("percentiles", LongOpt.REQUIRED_ARGUMENT, null, GetOperation.percentiles),
 				new LongOpt("reset", LongOpt.NO_ARGUMENT, null, 'r'),
 					new LongOpt("all", LongOpt.NO_ARGUMENT, null, ResetOperation.all),	
 				new LongOpt("create", LongOpt.NO_ARGUMENT, null, 'c'),
@@ -579,7 +582,11 @@ public abstract class AbstractUsageCommand extends AbstractSleeCommand {
 	{
 		public static final char rst = 'x';
 		public static final char name = 'z';
+		public static final char percentiles = 'p';
+		private static final String OPERATION_getSampleParameterPercentiles = "getSampleParameterPercentiles";
 		private boolean reset = false;
+		private String parameterName;
+		private double[] percentilesValues;
 	
 		public GetOperation(CommandContext context, Logger log, AbstractSleeCommand sleeCommand) {
 			super(context, log, sleeCommand);
@@ -608,7 +615,21 @@ public abstract class AbstractUsageCommand extends AbstractSleeCommand {
 						throw new CommandException("Operation \"" + this.operationName + "\" for command: \"" + sleeCommand.getName()
 								+ "\", cannot proceed. Parameter name must start with upper case: " + opt);
 					}
-					super.operationName += opt;
+					parameterName = opt;
+					break;
+				case percentiles:
+					String[] values = opts.getOptarg().split(",");
+					percentilesValues = new double[values.length];
+					for(int index = 0; index < values.length; index++)
+					{
+						try{
+							percentilesValues[index] = Double.parseDouble(values[index].trim());
+						}catch(NumberFormatException e)
+						{
+							throw new CommandException("Operation \"" + this.operationName + "\" for command: \"" + sleeCommand.getName()
+									+ "\", cannot proceed. Invalid percentile: " + values[index]);
+						}
+					}
 					break;
 				default:
 					throw new CommandException("Operation \"" + this.operationName + "\" for command: \"" + sleeCommand.getName()
@@ -616,17 +637,41 @@ public abstract class AbstractUsageCommand extends AbstractSleeCommand {
 
 				}
 			}
-			if(super.operationName.equals( "get")) //empty, no name?
+			if(parameterName == null) //empty, no name?
 			{
 				throw new CommandException("Operation \"" + this.operationName + "\" for command: \"" + sleeCommand.getName()
 						+ "\", requires atleast '--name' option.");
 			}
+			if(percentilesValues == null)
+			{
+				super.operationName += parameterName;
+			}else
+			{
+				super.operationName = OPERATION_getSampleParameterPercentiles;
+				addArg(parameterName, String.class, false);
+				addArg(percentilesValues, double[].class, false);
+			}
 			addArg(new Boolean(reset), boolean.class, false);
 			
 			//now we have to get proper bean name
 			getSpecificUsageMBeanOName();
 
 		}
+
+		@Override
+		protected String prepareResultText() {
+			if(percentilesValues == null || !(operationResult instanceof long[]))
+			{
+				return super.prepareResultText();
+			}
+			long[] values = (long[]) operationResult;
+			StringBuffer sb = new StringBuffer();
+			for(int index = 0; index < values.length; index++)
+			{
+				sb.append("\n").append(percentilesValues[index]).append(" = ").append(values[index]);
+			}
+			return sb.toString();
+		}
 		
 	}
 	
@@ -87,6 +87,9 @@ public class ServiceUsageCommand extends AbstractUsageCommand {
 		out.println("");
 		out.println("     8. Enable notification generation for parameter:");
 		out.println("" + name + " ServiceID[name=XXX,vendor=mobicents,version=1.0] SbbID[name=example,vendor=mobicents,version=0.1] -n --name=CookiesCount --value=true");
+		out.println("");
+		out.println("     9. Get 50th, 99th and 99.9th percentiles of sample parameter in certain set, starting a new interval:");
+		out.println("" + name + " ServiceID[name=XXX,vendor=mobicents,version=1.0] SbbID[name=example,vendor=mobicents,version=0.1] CertainSetWithValue -g --name=CookieBakingTime --percentiles=50,99,99.9 --rst");
 		
 	}
 